@@ -43,4 +43,15 @@ public @interface BindingBuildInfo {
     boolean isLibrary();
     boolean enableDebugLogs() default false;
     boolean printEncodedError() default false;
+
+    /**
+     * Whether generated bindings should keep their dirty flags in atomic fields instead of
+     * guarding them with the binding's monitor
+     */
+    boolean atomicDirtyFlags() default false;
+
+    /**
+     * The number of threads used to seal and write the layouts, 1 to use the processor's thread
+     */
+    int parallelism() default 1;
 }
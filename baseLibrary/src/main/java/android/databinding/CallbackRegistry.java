@@ -30,6 +30,14 @@ import java.util.List;
  * does the actual notification on the listener. It is typically a static instance
  * that can be reused for all similar CallbackRegistries.</p>
  *
+ * <p>By default, all methods synchronize on the registry, so notifications from different
+ * threads are serialized. A registry created with <code>copyOnWrite</code> set instead keeps
+ * an immutable snapshot of its callbacks that is replaced on every modification. Notifications
+ * then iterate the snapshot without locking and may run concurrently, so the callbacks must be
+ * thread safe. Reentrant modification behaves the same in both modes: a notification always
+ * notifies the callbacks that were registered when it started, while nested notifications
+ * skip callbacks removed by an outer notification.</p>
+ *
  * <p>This class supports only callbacks with at most three parameters.
  * Typically, these are the notification originator and a parameter, with another to
  * indicate which method to call, but these may be used as required. If more than
@@ -44,6 +52,8 @@ import java.util.List;
 public class CallbackRegistry<C, T, A> implements Cloneable {
     private static final String TAG = "CallbackRegistry";
 
+    private static final Object[] EMPTY_SNAPSHOT = new Object[0];
+
     /** An ordered collection of listeners waiting to be notified. */
     private List<C> mCallbacks = new ArrayList<C>();
 
@@ -68,12 +78,37 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
     /** The notification mechanism for notifying an event. */
     private final NotifierCallback<C, T, A> mNotifier;
 
+    /** True if the callbacks are kept in {@link #mSnapshot} instead of mCallbacks. */
+    private final boolean mCopyOnWrite;
+
+    /**
+     * The registered callbacks when in copy-on-write mode. The array is never modified, it is
+     * replaced under the registry lock instead. Callbacks removed during a notification are
+     * dropped from it right away, which is what the removal bits do for mCallbacks.
+     */
+    private volatile Object[] mSnapshot;
+
     /**
      * Creates an EventRegistry that notifies the event with notifier.
      * @param notifier The class to use to notify events.
      */
     public CallbackRegistry(NotifierCallback<C, T, A> notifier) {
+        this(notifier, false);
+    }
+
+    /**
+     * Creates an EventRegistry that notifies the event with notifier.
+     * @param notifier The class to use to notify events.
+     * @param copyOnWrite true to notify from a snapshot of the callbacks without locking,
+     *                    false to synchronize all access to the registry.
+     */
+    public CallbackRegistry(NotifierCallback<C, T, A> notifier, boolean copyOnWrite) {
         mNotifier = notifier;
+        mCopyOnWrite = copyOnWrite;
+        if (copyOnWrite) {
+            mCallbacks = null;
+            mSnapshot = EMPTY_SNAPSHOT;
+        }
     }
 
     /**
@@ -86,7 +121,25 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      * @param arg2 An opaque parameter passed to
      * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
      */
-    public synchronized void notifyCallbacks(T sender, int arg, A arg2) {
+    public void notifyCallbacks(T sender, int arg, A arg2) {
+        if (mCopyOnWrite) {
+            notifySnapshot(sender, arg, arg2);
+        } else {
+            synchronized (this) {
+                notifyLocked(sender, arg, arg2);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifySnapshot(T sender, int arg, A arg2) {
+        final Object[] callbacks = mSnapshot;
+        for (int i = 0; i < callbacks.length; i++) {
+            mNotifier.onNotifyCallback((C) callbacks[i], sender, arg, arg2);
+        }
+    }
+
+    private void notifyLocked(T sender, int arg, A arg2) {
         mNotificationLevel++;
         notifyRecurse(sender, arg, arg2);
         mNotificationLevel--;
@@ -213,12 +266,38 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
         if (callback == null) {
             throw new IllegalArgumentException("callback cannot be null");
         }
+        if (mCopyOnWrite) {
+            final Object[] callbacks = mSnapshot;
+            if (lastIndexOf(callbacks, callback) < 0) {
+                final Object[] newCallbacks = new Object[callbacks.length + 1];
+                System.arraycopy(callbacks, 0, newCallbacks, 0, callbacks.length);
+                newCallbacks[callbacks.length] = callback;
+                mSnapshot = newCallbacks;
+            }
+            return;
+        }
         int index = mCallbacks.lastIndexOf(callback);
         if (index < 0 || isRemoved(index)) {
             mCallbacks.add(callback);
         }
     }
 
+    /**
+     * Returns true if the callback is registered and has not been removed.
+     *
+     * @param callback The callback to look for.
+     * @return true if the callback will be notified.
+     */
+    public boolean contains(C callback) {
+        if (mCopyOnWrite) {
+            return lastIndexOf(mSnapshot, callback) >= 0;
+        }
+        synchronized (this) {
+            int index = mCallbacks.lastIndexOf(callback);
+            return index >= 0 && !isRemoved(index);
+        }
+    }
+
     /**
      * Returns true if the callback at index has been marked for removal.
      *
@@ -274,7 +353,17 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      * @param callback The callback to remove.
      */
     public synchronized void remove(C callback) {
-        if (mNotificationLevel == 0) {
+        if (mCopyOnWrite) {
+            final Object[] callbacks = mSnapshot;
+            final int index = lastIndexOf(callbacks, callback);
+            if (index >= 0) {
+                final Object[] newCallbacks = new Object[callbacks.length - 1];
+                System.arraycopy(callbacks, 0, newCallbacks, 0, index);
+                System.arraycopy(callbacks, index + 1, newCallbacks, index,
+                        newCallbacks.length - index);
+                mSnapshot = newCallbacks;
+            }
+        } else if (mNotificationLevel == 0) {
             mCallbacks.remove(callback);
         } else {
             int index = mCallbacks.lastIndexOf(callback);
@@ -284,6 +373,19 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
         }
     }
 
+    private static int lastIndexOf(Object[] callbacks, Object callback) {
+        if (callback == null) {
+            // null callbacks cannot be added
+            return -1;
+        }
+        for (int i = callbacks.length - 1; i >= 0; i--) {
+            if (callback.equals(callbacks[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private void setRemovalBit(int index) {
         if (index < Long.SIZE) {
             // It is in the first 64 callbacks, just check the bit.
@@ -309,14 +411,9 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      *
      * @return a copy of the registered callbacks.
      */
-    public synchronized ArrayList<C> copyCallbacks() {
-        ArrayList<C> callbacks = new ArrayList<C>(mCallbacks.size());
-        int numListeners = mCallbacks.size();
-        for (int i = 0; i < numListeners; i++) {
-            if (!isRemoved(i)) {
-                callbacks.add(mCallbacks.get(i));
-            }
-        }
+    public ArrayList<C> copyCallbacks() {
+        ArrayList<C> callbacks = new ArrayList<C>();
+        copyCallbacks(callbacks);
         return callbacks;
     }
 
@@ -325,7 +422,21 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      *
      * @param callbacks modified to contain all callbacks registered to receive events.
      */
-    public synchronized void copyCallbacks(List<C> callbacks) {
+    @SuppressWarnings("unchecked")
+    public void copyCallbacks(List<C> callbacks) {
+        if (mCopyOnWrite) {
+            callbacks.clear();
+            for (Object callback : mSnapshot) {
+                callbacks.add((C) callback);
+            }
+        } else {
+            synchronized (this) {
+                copyLocked(callbacks);
+            }
+        }
+    }
+
+    private void copyLocked(List<C> callbacks) {
         callbacks.clear();
         int numListeners = mCallbacks.size();
         for (int i = 0; i < numListeners; i++) {
@@ -340,7 +451,16 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      *
      * @return true if there are no registered callbacks or false otherwise.
      */
-    public synchronized boolean isEmpty() {
+    public boolean isEmpty() {
+        if (mCopyOnWrite) {
+            return mSnapshot.length == 0;
+        }
+        synchronized (this) {
+            return isEmptyLocked();
+        }
+    }
+
+    private boolean isEmptyLocked() {
         if (mCallbacks.isEmpty()) {
             return true;
         } else if (mNotificationLevel == 0) {
@@ -360,7 +480,9 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      * Removes all callbacks from the list.
      */
     public synchronized void clear() {
-        if (mNotificationLevel == 0) {
+        if (mCopyOnWrite) {
+            mSnapshot = EMPTY_SNAPSHOT;
+        } else if (mNotificationLevel == 0) {
             mCallbacks.clear();
         } else if (!mCallbacks.isEmpty()) {
             for (int i = mCallbacks.size() - 1; i >= 0; i--) {
@@ -377,6 +499,10 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
         CallbackRegistry<C, T, A> clone = null;
         try {
             clone = (CallbackRegistry<C, T, A>) super.clone();
+            if (mCopyOnWrite) {
+                // the snapshot is never modified, so it can be shared
+                return clone;
+            }
             clone.mFirst64Removed = 0;
             clone.mRemainderRemoved = null;
             clone.mNotificationLevel = 0;
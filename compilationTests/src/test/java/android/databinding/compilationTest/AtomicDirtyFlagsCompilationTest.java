@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.compilationTest;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import android.databinding.tool.LayoutXmlProcessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AtomicDirtyFlagsCompilationTest extends BaseCompilationTest {
+    // more than 64 flags, so that the dirty flags need more than one bucket
+    private static final int VARIABLE_COUNT = 40;
+
+    @Test
+    public void testAtomicDirtyFlags()
+            throws IOException, URISyntaxException, InterruptedException {
+        prepareProject();
+        FileUtils.writeStringToFile(new File(testFolder, "gradle.properties"),
+                "systemProp." + LayoutXmlProcessor.ATOMIC_DIRTY_FLAGS_PROPERTY + "=true\n");
+        copyResourceTo("/layout/basic_layout.xml",
+                "/app/src/main/res/layout/basic_layout.xml");
+        FileUtils.writeStringToFile(
+                new File(testFolder, "/app/src/main/res/layout/many_variables.xml"),
+                manyVariablesLayout());
+        CompilationResult result = runGradle("assembleDebug");
+        assertEquals(result.error, 0, result.resultCode);
+        assertTrue("there should not be any errors " + result.error,
+                StringUtils.isEmpty(result.error));
+
+        String basic = readBinding("BasicLayoutBinding");
+        assertFalse(basic.contains("synchronized"));
+        assertTrue(basic.contains("java.util.concurrent.atomic.AtomicLong mDirtyFlags"));
+        String manyVariables = readBinding("ManyVariablesBinding");
+        assertFalse(manyVariables.contains("synchronized"));
+        assertTrue(manyVariables.contains(
+                "java.util.concurrent.atomic.AtomicReference<long[]> mDirtyFlags"));
+    }
+
+    private String readBinding(String className) throws IOException {
+        File file = new File(testFolder, "app/build/generated/source/apt/debug/"
+                + DEFAULT_APP_PACKAGE.replace('.', '/') + "/databinding/" + className + ".java");
+        assertTrue(file.getPath(), file.exists());
+        return FileUtils.readFileToString(file);
+    }
+
+    private static String manyVariablesLayout() {
+        StringBuilder variables = new StringBuilder();
+        StringBuilder views = new StringBuilder();
+        for (int i = 0; i < VARIABLE_COUNT; i++) {
+            variables.append("        <variable name=\"var").append(i)
+                    .append("\" type=\"String\"/>\n");
+            views.append("        <TextView android:layout_width=\"wrap_content\"")
+                    .append(" android:layout_height=\"wrap_content\"")
+                    .append(" android:text=\"@{var").append(i).append("}\"/>\n");
+        }
+        return "<layout xmlns:android=\"http://schemas.android.com/apk/res/android\">\n"
+                + "    <data>\n"
+                + variables
+                + "    </data>\n"
+                + "    <LinearLayout android:orientation=\"vertical\""
+                + " android:layout_width=\"match_parent\" android:layout_height=\"match_parent\">\n"
+                + views
+                + "    </LinearLayout>\n"
+                + "</layout>\n";
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.compilationTest;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import android.databinding.tool.LayoutXmlProcessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelCompilationTest extends BaseCompilationTest {
+    private static final int LAYOUT_COUNT = 24;
+
+    private static final String[] OUTPUT_FOLDERS = {
+            "app/build/generated/source/apt/debug",
+            "app/build/intermediates/data-binding-layout-out/debug"
+    };
+
+    @Test
+    public void testParallelOutputIsSameAsSequential()
+            throws IOException, URISyntaxException, InterruptedException {
+        Map<String, String> sequential = compileLayouts(1);
+        assertTrue("test sanity, the binding classes must be generated",
+                sequential.containsKey(OUTPUT_FOLDERS[0] + "/" + DEFAULT_APP_PACKAGE.replace('.',
+                        '/') + "/databinding/MethodCalls" + (LAYOUT_COUNT - 1) + "Binding.java"));
+        Map<String, String> parallel = compileLayouts(4);
+        assertEquals(sequential.keySet(), parallel.keySet());
+        for (Map.Entry<String, String> entry : sequential.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue(), parallel.get(entry.getKey()));
+        }
+    }
+
+    /**
+     * Builds a project with many layouts, so that the layouts are processed at the same time and
+     * the annotation processor resolves their expressions at the same time.
+     *
+     * @return The generated files by their path in the project.
+     */
+    private Map<String, String> compileLayouts(int parallelism)
+            throws IOException, URISyntaxException, InterruptedException {
+        clear();
+        prepareProject();
+        FileUtils.writeStringToFile(new File(testFolder, "gradle.properties"),
+                "systemProp." + LayoutXmlProcessor.PARALLELISM_PROPERTY + "=" + parallelism
+                        + "\n");
+        copyResourceTo("/layout/basic_layout.xml",
+                "/app/src/main/res/layout/basic_layout.xml");
+        copyResourceTo("/layout/basic_layout.xml",
+                "/app/src/main/res/layout-land/basic_layout.xml");
+        for (int i = 0; i < LAYOUT_COUNT; i++) {
+            copyResourceTo("/layout/layout_with_method_calls.xml",
+                    "/app/src/main/res/layout/method_calls" + i + ".xml");
+            copyResourceTo("/layout/layout_with_class_name.xml",
+                    "/app/src/main/res/layout/with_class_name" + i + ".xml",
+                    toMap(KEY_CLASS_NAME, "ClassName" + i));
+        }
+        CompilationResult result = runGradle("assembleDebug");
+        assertEquals(result.error, 0, result.resultCode);
+        assertTrue("there should not be any errors " + result.error,
+                StringUtils.isEmpty(result.error));
+
+        Map<String, String> files = new TreeMap<String, String>();
+        int prefixLength = testFolder.getAbsolutePath().length() + 1;
+        for (String folder : OUTPUT_FOLDERS) {
+            File outputFolder = new File(testFolder, folder);
+            assertTrue(outputFolder.getPath(), outputFolder.isDirectory());
+            for (File file : FileUtils.listFiles(outputFolder, null, true)) {
+                // it holds the parallelism and a random build id
+                if (file.getName().equals(LayoutXmlProcessor.CLASS_NAME + ".java")) {
+                    continue;
+                }
+                String path = file.getAbsolutePath().substring(prefixLength)
+                        .replace(File.separatorChar, '/');
+                files.put(path, FileUtils.readFileToString(file));
+            }
+        }
+        return files;
+    }
+}
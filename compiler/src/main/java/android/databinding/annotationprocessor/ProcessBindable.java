@@ -20,15 +20,19 @@ import android.databinding.Bindable;
 import android.databinding.BindingBuildInfo;
 import android.databinding.tool.CompilerChef.BindableHolder;
 import android.databinding.tool.util.GenerationalClassUtil;
+import android.databinding.tool.util.IntermediateReader;
+import android.databinding.tool.util.IntermediateWriter;
 import android.databinding.tool.util.L;
 import android.databinding.tool.util.Preconditions;
 import android.databinding.tool.writer.BRWriter;
 import android.databinding.tool.writer.JavaFileWriter;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.processing.ProcessingEnvironment;
@@ -44,6 +48,7 @@ import javax.lang.model.util.Types;
 
 // binding app info and library info are necessary to trigger this.
 public class ProcessBindable extends ProcessDataBinding.ProcessingStep implements BindableHolder {
+    static final GenerationalClassUtil.Codec<Intermediate> CODEC = new IntermediateCodec();
     Intermediate mProperties;
     HashMap<String, HashSet<String>> mLayoutVariables = new HashMap<String, HashSet<String>>();
 
@@ -80,7 +85,8 @@ public class ProcessBindable extends ProcessDataBinding.ProcessingStep implement
             }
             GenerationalClassUtil.writeIntermediateFile(processingEnv,
                     mProperties.getPackage(),
-                    createIntermediateFileName(mProperties.getPackage()), mProperties);
+                    createIntermediateFileName(mProperties.getPackage()), mProperties,
+                    CODEC);
             generateBRClasses(!buildInfo.isLibrary(), mProperties.getPackage());
         }
         return false;
@@ -223,10 +229,10 @@ public class ProcessBindable extends ProcessDataBinding.ProcessingStep implement
 
     private List<Intermediate> loadPreviousBRFiles() {
         return GenerationalClassUtil
-                .loadObjects(GenerationalClassUtil.ExtensionFilter.BR);
+                .loadObjects(GenerationalClassUtil.ExtensionFilter.BR, CODEC);
     }
 
-    private interface Intermediate extends Serializable {
+    interface Intermediate extends Serializable {
 
         void captureProperties(Set<String> properties);
 
@@ -237,7 +243,7 @@ public class ProcessBindable extends ProcessDataBinding.ProcessingStep implement
         String getPackage();
     }
 
-    private static class IntermediateV1 implements Serializable, Intermediate {
+    static class IntermediateV1 implements Serializable, Intermediate {
 
         private static final long serialVersionUID = 2L;
 
@@ -275,4 +281,36 @@ public class ProcessBindable extends ProcessDataBinding.ProcessingStep implement
             return mPackage;
         }
     }
+
+    private static class IntermediateCodec implements GenerationalClassUtil.Codec<Intermediate> {
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void write(Intermediate object, IntermediateWriter out) throws IOException {
+            IntermediateV1 intermediate = (IntermediateV1) object;
+            out.writeString(intermediate.mPackage);
+            out.writeInt(intermediate.mProperties.size());
+            for (Map.Entry<String, HashSet<String>> entry :
+                    intermediate.mProperties.entrySet()) {
+                out.writeString(entry.getKey());
+                out.writeStrings(entry.getValue());
+            }
+        }
+
+        @Override
+        public Intermediate read(IntermediateReader in) throws IOException {
+            IntermediateV1 intermediate = new IntermediateV1(in.readString());
+            int classCount = in.readInt();
+            for (int i = 0; i < classCount; i++) {
+                String className = in.readString();
+                for (String property : in.readStrings()) {
+                    intermediate.addProperty(className, property);
+                }
+            }
+            return intermediate;
+        }
+    }
 }
@@ -20,6 +20,8 @@ import android.databinding.BindingBuildInfo;
 import android.databinding.tool.CompilerChef;
 import android.databinding.tool.processing.Scope;
 import android.databinding.tool.reflection.ModelAnalyzer;
+import android.databinding.tool.reflection.annotation.AnnotationAnalyzer;
+import android.databinding.tool.util.GenerationalClassUtil;
 import android.databinding.tool.util.L;
 import android.databinding.tool.util.Preconditions;
 import android.databinding.tool.writer.AnnotationJavaFileWriter;
@@ -60,6 +62,7 @@ public class ProcessDataBinding extends AbstractProcessor {
         if (buildInfo == null) {
             return false;
         }
+        GenerationalClassUtil.setClasspathIndexDir(buildInfo.layoutInfoDir());
         boolean done = true;
         for (ProcessingStep step : mProcessingSteps) {
             try {
@@ -73,6 +76,7 @@ public class ProcessDataBinding extends AbstractProcessor {
                 step.onProcessingOver(roundEnv, processingEnv, buildInfo);
             }
         }
+        AnnotationAnalyzer.get().onRoundFinished();
         Scope.assertNoError();
         return done;
     }
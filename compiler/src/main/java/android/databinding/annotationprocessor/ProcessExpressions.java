@@ -27,6 +27,8 @@ import android.databinding.tool.LayoutXmlProcessor;
 import android.databinding.tool.reflection.SdkUtil;
 import android.databinding.tool.store.ResourceBundle;
 import android.databinding.tool.util.GenerationalClassUtil;
+import android.databinding.tool.util.IntermediateReader;
+import android.databinding.tool.util.IntermediateWriter;
 import android.databinding.tool.util.L;
 import android.databinding.tool.util.Preconditions;
 import android.databinding.tool.util.StringUtils;
@@ -50,6 +52,8 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 
 public class ProcessExpressions extends ProcessDataBinding.ProcessingStep {
+    static final GenerationalClassUtil.Codec<Intermediate> CODEC = new IntermediateCodec();
+
     public ProcessExpressions() {
     }
 
@@ -80,7 +84,8 @@ public class ProcessExpressions extends ProcessDataBinding.ProcessingStep {
         // generate them here so that bindable parser can read
         try {
             writeResourceBundle(resourceBundle, buildInfo.isLibrary(), buildInfo.minSdk(),
-                    buildInfo.exportClassListTo());
+                    buildInfo.exportClassListTo(), buildInfo.atomicDirtyFlags(),
+                    buildInfo.parallelism());
         } catch (Throwable t) {
             L.e(t, "cannot generate view binders");
         }
@@ -89,7 +94,7 @@ public class ProcessExpressions extends ProcessDataBinding.ProcessingStep {
 
     private List<IntermediateV2> loadDependencyIntermediates() {
         final List<Intermediate> original = GenerationalClassUtil.loadObjects(
-                GenerationalClassUtil.ExtensionFilter.LAYOUT);
+                GenerationalClassUtil.ExtensionFilter.LAYOUT, CODEC);
         final List<IntermediateV2> upgraded = new ArrayList<IntermediateV2>(original.size());
         for (Intermediate intermediate : original) {
             final Intermediate updatedIntermediate = intermediate.upgrade();
@@ -107,7 +112,7 @@ public class ProcessExpressions extends ProcessDataBinding.ProcessingStep {
         GenerationalClassUtil.writeIntermediateFile(processingEnvironment,
                 buildInfo.modulePackage(), buildInfo.modulePackage() +
                         GenerationalClassUtil.ExtensionFilter.LAYOUT.getExtension(),
-                intermediate);
+                intermediate, CODEC);
     }
 
     @Override
@@ -143,15 +148,16 @@ public class ProcessExpressions extends ProcessDataBinding.ProcessingStep {
     }
 
     private void writeResourceBundle(ResourceBundle resourceBundle, boolean forLibraryModule,
-            final int minSdk, String exportClassNamesTo)
+            final int minSdk, String exportClassNamesTo, boolean atomicDirtyFlags, int parallelism)
             throws JAXBException {
         final CompilerChef compilerChef = CompilerChef.createChef(resourceBundle, getWriter());
+        compilerChef.setParallelism(parallelism);
         compilerChef.sealModels();
         compilerChef.writeComponent();
         if (compilerChef.hasAnythingToGenerate()) {
             compilerChef.writeViewBinderInterfaces(forLibraryModule);
             if (!forLibraryModule) {
-                compilerChef.writeViewBinders(minSdk);
+                compilerChef.writeViewBinders(minSdk, atomicDirtyFlags);
             }
         }
         if (forLibraryModule && exportClassNamesTo == null) {
@@ -268,4 +274,24 @@ public class ProcessExpressions extends ProcessDataBinding.ProcessingStep {
             }
         }
     }
+
+    private static class IntermediateCodec implements GenerationalClassUtil.Codec<Intermediate> {
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void write(Intermediate object, IntermediateWriter out) throws IOException {
+            IntermediateV1 intermediate = (IntermediateV1) object.upgrade();
+            out.writeStringMap(intermediate.mLayoutInfoMap);
+        }
+
+        @Override
+        public Intermediate read(IntermediateReader in) throws IOException {
+            IntermediateV2 intermediate = new IntermediateV2();
+            intermediate.mLayoutInfoMap = in.readStringMap();
+            return intermediate;
+        }
+    }
 }
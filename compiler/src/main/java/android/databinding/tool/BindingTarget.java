@@ -99,6 +99,14 @@ public class BindingTarget implements LocationScopeProvider {
         return mBundle.getOriginalTag();
     }
 
+    /**
+     * @return The child indexes from the root view to this view or null if they are not known
+     * before inflation.
+     */
+    public int[] getViewPath() {
+        return mBundle.getViewPath();
+    }
+
     public String getViewClass() {
         return mBundle.getFullClassName();
     }
@@ -62,6 +62,7 @@ public class CompilerChef {
     private JavaFileWriter mFileWriter;
     private ResourceBundle mResourceBundle;
     private DataBinder mDataBinder;
+    private int mParallelism = 1;
 
     private CompilerChef() {
     }
@@ -85,6 +86,19 @@ public class CompilerChef {
         if (mDataBinder == null) {
             mDataBinder = new DataBinder(mResourceBundle);
             mDataBinder.setFileWriter(mFileWriter);
+            mDataBinder.setParallelism(mParallelism);
+        }
+    }
+
+    /**
+     * Sets the number of threads used to seal and write the layouts.
+     *
+     * @see DataBinder#setParallelism(int)
+     */
+    public void setParallelism(int parallelism) {
+        mParallelism = parallelism;
+        if (mDataBinder != null) {
+            mDataBinder.setParallelism(parallelism);
         }
     }
 
@@ -207,8 +221,12 @@ public class CompilerChef {
     }
 
     public void writeViewBinders(int minSdk) {
+        writeViewBinders(minSdk, false);
+    }
+
+    public void writeViewBinders(int minSdk, boolean atomicDirtyFlags) {
         ensureDataBinder();
-        mDataBinder.writeBinders(minSdk);
+        mDataBinder.writeBinders(minSdk, atomicDirtyFlags);
     }
 
     public void writeComponent() {
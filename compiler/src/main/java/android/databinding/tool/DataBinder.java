@@ -20,6 +20,7 @@ import android.databinding.tool.processing.Scope;
 import android.databinding.tool.processing.ScopedException;
 import android.databinding.tool.store.ResourceBundle;
 import android.databinding.tool.util.L;
+import android.databinding.tool.util.Preconditions;
 import android.databinding.tool.util.StringUtils;
 import android.databinding.tool.writer.CallbackWrapperWriter;
 import android.databinding.tool.writer.ComponentWriter;
@@ -31,6 +32,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * The main class that handles parsing files and generating classes.
@@ -43,6 +48,8 @@ public class DataBinder {
 
     Set<String> mWrittenClasses = new HashSet<String>();
 
+    private int mParallelism = 1;
+
     public DataBinder(ResourceBundle resourceBundle) {
         L.d("reading resource bundle into data binder");
         for (Map.Entry<String, List<ResourceBundle.LayoutFileBundle>> entry :
@@ -60,50 +67,138 @@ public class DataBinder {
         return mLayoutBinders;
     }
 
+    /**
+     * Sets the number of threads used to seal the models of the layouts and to generate their
+     * code. Defaults to 1, which processes layouts on the calling thread. Generated files are
+     * always written from the calling thread, in layout order.
+     * <p>
+     * Every lookup in the annotation processing model holds a lock on the analyzer, so sealing
+     * is effectively sequential and only code generation runs concurrently. The lock cannot be
+     * narrowed to the Types and Elements calls: javac completes elements and types lazily when
+     * they are first read, so any access to them may change the compiler's state.
+     */
+    public void setParallelism(int parallelism) {
+        Preconditions.check(parallelism > 0, "parallelism must be positive but it is %d",
+                parallelism);
+        mParallelism = parallelism;
+    }
+
     public void sealModels() {
+        List<LayoutTask<Void>> tasks = new ArrayList<LayoutTask<Void>>();
         for (LayoutBinder layoutBinder : mLayoutBinders) {
-            layoutBinder.sealModel();
+            tasks.add(new LayoutTask<Void>(layoutBinder, false) {
+                @Override
+                Void run(LayoutBinder layoutBinder) {
+                    layoutBinder.sealModel();
+                    return null;
+                }
+            });
         }
+        runAll(tasks, null);
     }
 
-    public void writerBaseClasses(boolean isLibrary) {
+    public void writerBaseClasses(final boolean isLibrary) {
+        List<LayoutTask<String>> tasks = new ArrayList<LayoutTask<String>>();
+        Set<String> classNames = new HashSet<String>();
         for (LayoutBinder layoutBinder : mLayoutBinders) {
-            try {
-                Scope.enter(layoutBinder);
-                if (isLibrary || layoutBinder.hasVariations()) {
-                    String className = layoutBinder.getClassName();
-                    String canonicalName = layoutBinder.getPackage() + "." + className;
-                    if (mWrittenClasses.contains(canonicalName)) {
-                        continue;
-                    }
-                    L.d("writing data binder base %s", canonicalName);
-                    mFileWriter.writeToFile(canonicalName,
-                            layoutBinder.writeViewBinderBaseClass(isLibrary));
-                    mWrittenClasses.add(canonicalName);
+            if (isLibrary || layoutBinder.hasVariations()) {
+                String className = layoutBinder.getClassName();
+                String canonicalName = layoutBinder.getPackage() + "." + className;
+                if (mWrittenClasses.contains(canonicalName) || !classNames.add(canonicalName)) {
+                    continue;
                 }
-            } catch (ScopedException ex){
-                Scope.defer(ex);
-            } finally {
-                Scope.exit();
+                tasks.add(new LayoutTask<String>(layoutBinder, true) {
+                    @Override
+                    String run(LayoutBinder layoutBinder) {
+                        return layoutBinder.writeViewBinderBaseClass(isLibrary);
+                    }
+                });
             }
         }
+        runAll(tasks, new ResultHandler<String>() {
+            @Override
+            public void onResult(LayoutBinder layoutBinder, String code) {
+                String canonicalName = layoutBinder.getPackage() + "." +
+                        layoutBinder.getClassName();
+                L.d("writing data binder base %s", canonicalName);
+                mFileWriter.writeToFile(canonicalName, code);
+                mWrittenClasses.add(canonicalName);
+            }
+        });
     }
 
     public void writeBinders(int minSdk) {
+        writeBinders(minSdk, false);
+    }
+
+    public void writeBinders(final int minSdk, final boolean atomicDirtyFlags) {
         writeCallbackWrappers(minSdk);
+        List<LayoutTask<String>> tasks = new ArrayList<LayoutTask<String>>();
         for (LayoutBinder layoutBinder : mLayoutBinders) {
-            try {
-                Scope.enter(layoutBinder);
-                String className = layoutBinder.getImplementationName();
-                String canonicalName = layoutBinder.getPackage() + "." + className;
+            mWrittenClasses.add(layoutBinder.getPackage() + "." +
+                    layoutBinder.getImplementationName());
+            tasks.add(new LayoutTask<String>(layoutBinder, true) {
+                @Override
+                String run(LayoutBinder layoutBinder) {
+                    return layoutBinder.writeViewBinder(minSdk, atomicDirtyFlags);
+                }
+            });
+        }
+        runAll(tasks, new ResultHandler<String>() {
+            @Override
+            public void onResult(LayoutBinder layoutBinder, String code) {
+                String canonicalName = layoutBinder.getPackage() + "." +
+                        layoutBinder.getImplementationName();
                 L.d("writing data binder %s", canonicalName);
-                mWrittenClasses.add(canonicalName);
-                mFileWriter.writeToFile(canonicalName, layoutBinder.writeViewBinder(minSdk));
-            } catch (ScopedException ex) {
-                Scope.defer(ex);
-            } finally {
-                Scope.exit();
+                mFileWriter.writeToFile(canonicalName, code);
+            }
+        });
+    }
+
+    /**
+     * Runs the tasks on the calling thread or, if parallelism is set, on a work stealing pool.
+     * Either way, the handler is called on the calling thread in the order of the tasks, so
+     * files are written one at a time and in the same order. Errors reported by scoped tasks are
+     * deferred in task order and their results are skipped. The first other failure, in task
+     * order, is rethrown.
+     */
+    private <T> void runAll(List<LayoutTask<T>> tasks, ResultHandler<T> handler) {
+        if (mParallelism == 1 || tasks.size() < 2) {
+            for (LayoutTask<T> task : tasks) {
+                handleResult(task, task.call(), handler);
             }
+            return;
+        }
+        final ForkJoinPool pool = new ForkJoinPool(Math.min(mParallelism, tasks.size()));
+        try {
+            List<Future<T>> results = new ArrayList<Future<T>>(tasks.size());
+            for (LayoutTask<T> task : tasks) {
+                results.add(pool.submit(task));
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                handleResult(tasks.get(i), results.get(i).get(), handler);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static <T> void handleResult(LayoutTask<T> task, T result, ResultHandler<T> handler) {
+        if (task.mError != null) {
+            Scope.defer(task.mError);
+        } else if (handler != null) {
+            handler.onResult(task.mLayoutBinder, result);
         }
     }
 
@@ -172,4 +267,43 @@ public class DataBinder {
     public JavaFileWriter getFileWriter() {
         return mFileWriter;
     }
+
+    private interface ResultHandler<T> {
+        void onResult(LayoutBinder layoutBinder, T result);
+    }
+
+    /**
+     * Processes a single layout. Scoped tasks run within the scope of the layout and keep the
+     * error that they report so that it can be deferred from the calling thread.
+     */
+    private abstract static class LayoutTask<T> implements Callable<T> {
+        final LayoutBinder mLayoutBinder;
+
+        private final boolean mScoped;
+
+        ScopedException mError;
+
+        LayoutTask(LayoutBinder layoutBinder, boolean scoped) {
+            mLayoutBinder = layoutBinder;
+            mScoped = scoped;
+        }
+
+        abstract T run(LayoutBinder layoutBinder);
+
+        @Override
+        public T call() {
+            if (!mScoped) {
+                return run(mLayoutBinder);
+            }
+            try {
+                Scope.enter(mLayoutBinder);
+                return run(mLayoutBinder);
+            } catch (ScopedException ex) {
+                mError = ex;
+                return null;
+            } finally {
+                Scope.exit();
+            }
+        }
+    }
 }
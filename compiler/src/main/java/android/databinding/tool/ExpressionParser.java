@@ -16,13 +16,18 @@
 
 package android.databinding.tool;
 
+import org.antlr.v4.runtime.ANTLRErrorListener;
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
-import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ErrorNode;
 import org.antlr.v4.runtime.tree.ParseTreeListener;
 import org.antlr.v4.runtime.tree.TerminalNode;
@@ -39,9 +44,44 @@ import android.databinding.tool.util.Preconditions;
 import com.android.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ExpressionParser {
+    // the same expressions are usually repeated across layouts and configurations
+    private static final int MAX_CACHED_TREES = 4096;
+
+    private static final ANTLRErrorListener SYNTAX_ERROR_LISTENER = new BaseErrorListener() {
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                int charPositionInLine, String msg, RecognitionException e) {
+            L.e(ErrorMessages.SYNTAX_ERROR, msg);
+        }
+    };
+
+    /**
+     * Parse trees of the expressions that were parsed without errors, by expression text. The
+     * trees are never modified after parsing, so they can be visited again for other models
+     * and from other threads.
+     */
+    private static final Map<String, BindingExpressionParser.BindingSyntaxContext> sTrees =
+            new LinkedHashMap<String, BindingExpressionParser.BindingSyntaxContext>(16, 0.75f,
+                    true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, BindingExpressionParser.BindingSyntaxContext> eldest) {
+                    return size() > MAX_CACHED_TREES;
+                }
+            };
+
+    private static final ThreadLocal<Parsers> sParsers = new ThreadLocal<Parsers>() {
+        @Override
+        protected Parsers initialValue() {
+            return new Parsers();
+        }
+    };
+
     final ExprModel mModel;
     final ExpressionVisitor visitor;
 
@@ -51,19 +91,9 @@ public class ExpressionParser {
     }
 
     public Expr parse(String input, @Nullable Location locationInFile, BindingTarget target) {
-        ANTLRInputStream inputStream = new ANTLRInputStream(input);
-        BindingExpressionLexer lexer = new BindingExpressionLexer(inputStream);
-        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-        final BindingExpressionParser parser = new BindingExpressionParser(tokenStream);
+        final BindingExpressionParser parser = sParsers.get().parser;
+        BindingExpressionParser.BindingSyntaxContext root = parseTree(input);
         visitor.setBindingTarget(target);
-        parser.addErrorListener(new BaseErrorListener() {
-            @Override
-            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
-                    int charPositionInLine, String msg, RecognitionException e) {
-                L.e(ErrorMessages.SYNTAX_ERROR, msg);
-            }
-        });
-        BindingExpressionParser.BindingSyntaxContext root = parser.bindingSyntax();
         try {
             mModel.setCurrentLocationInFile(locationInFile);
             visitor.setParseTreeListener(new ParseTreeListener() {
@@ -105,4 +135,53 @@ public class ExpressionParser {
     public ExprModel getModel() {
         return mModel;
     }
+
+    private static BindingExpressionParser.BindingSyntaxContext parseTree(String input) {
+        BindingExpressionParser.BindingSyntaxContext root;
+        synchronized (sTrees) {
+            root = sTrees.get(input);
+        }
+        if (root != null) {
+            return root;
+        }
+        root = sParsers.get().parse(input);
+        synchronized (sTrees) {
+            sTrees.put(input, root);
+        }
+        return root;
+    }
+
+    /**
+     * The lexer and parser of a thread, reused for every expression that it parses.
+     */
+    private static class Parsers {
+        final BindingExpressionLexer lexer = new BindingExpressionLexer(null);
+        final CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+        final BindingExpressionParser parser = new BindingExpressionParser(tokenStream);
+
+        /**
+         * Parses with SLL prediction first, which is enough for almost all expressions and does
+         * not report errors. If it fails, the expression is parsed again with full LL
+         * prediction, which reports the syntax errors, if any.
+         */
+        BindingExpressionParser.BindingSyntaxContext parse(String input) {
+            lexer.setInputStream(new ANTLRInputStream(input));
+            tokenStream.setTokenSource(lexer);
+            parser.setTokenStream(tokenStream);
+            parser.removeErrorListeners();
+            parser.setErrorHandler(new BailErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            try {
+                return parser.bindingSyntax();
+            } catch (ParseCancellationException e) {
+                L.d("parsing %s again with LL prediction", input);
+            }
+            parser.reset();
+            parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+            parser.addErrorListener(SYNTAX_ERROR_LISTENER);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            return parser.bindingSyntax();
+        }
+    }
 }
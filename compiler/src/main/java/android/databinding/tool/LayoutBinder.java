@@ -334,10 +334,14 @@ public class LayoutBinder implements FileScopeProvider {
     }
 
     public String writeViewBinder(int minSdk) {
+        return writeViewBinder(minSdk, false);
+    }
+
+    public String writeViewBinder(int minSdk, boolean atomicDirtyFlags) {
         ensureWriter();
         Preconditions.checkNotNull(getPackage(), "package cannot be null");
         Preconditions.checkNotNull(getClassName(), "base class name cannot be null");
-        return mWriter.write(minSdk);
+        return mWriter.write(minSdk, atomicDirtyFlags);
     }
 
     public String getPackage() {
@@ -37,8 +37,8 @@ public class ArgListExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return "ArgList[" + mId + "]" + super.computeUniqueKey();
+    protected ExprKey computeKey() {
+        return ExprKey.concat("ArgList[" + mId + "]", super.computeKey());
     }
 
     @Override
@@ -30,8 +30,8 @@ public class BitShiftExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return join(getLeft().getUniqueKey(), mOp, getRight().getUniqueKey());
+    protected ExprKey computeKey() {
+        return join(getLeft(), mOp, getRight());
     }
 
     @Override
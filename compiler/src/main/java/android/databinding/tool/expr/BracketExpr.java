@@ -36,6 +36,9 @@ public class BracketExpr extends Expr {
 
     private BracketAccessor mAccessor;
 
+    // true if the target stores primitives, which are then read and written without boxing
+    private boolean mPrimitiveComponent;
+
     BracketExpr(Expr target, Expr arg) {
         super(target, arg);
     }
@@ -54,6 +57,13 @@ public class BracketExpr extends Expr {
                     "expression. Cast the value to List, Map, " +
                     "or array. Type detected: " + targetType.toJavaCode());
         }
+        if (mAccessor != BracketAccessor.ARRAY) {
+            final ModelClass primitive = targetType.getPrimitiveComponentType();
+            if (primitive != null) {
+                mPrimitiveComponent = true;
+                return primitive;
+            }
+        }
         return targetType.getComponentType();
     }
 
@@ -90,9 +100,8 @@ public class BracketExpr extends Expr {
         return dependencies;
     }
 
-    protected String computeUniqueKey() {
-        final String targetKey = getTarget().computeUniqueKey();
-        return join(targetKey, "$", getArg().computeUniqueKey(), "$");
+    protected ExprKey computeKey() {
+        return join(getTarget(), "$", getArg(), "$");
     }
 
     @Override
@@ -116,6 +125,15 @@ public class BracketExpr extends Expr {
         return mAccessor != BracketAccessor.MAP && getArg().getResolvedType().isObject();
     }
 
+    /**
+     * @return true if the key must be cast to int to select the unboxed get and put methods of
+     * a primitive map.
+     */
+    private boolean argCastsInt() {
+        return mAccessor == BracketAccessor.MAP && mPrimitiveComponent
+                && !getArg().getResolvedType().isPrimitive();
+    }
+
     @Override
     protected KCode generateCode() {
         String cast = argCastsInteger() ? "(Integer) " : "";
@@ -147,7 +165,8 @@ public class BracketExpr extends Expr {
             case MAP:
                 return new KCode().
                         app("", getTarget().toCode()).
-                        app(".get(", getArg().toCode()).
+                        app(".get(").
+                        app(argCastsInt() ? "(int) " : "", getArg().toCode()).
                         app(")");
         }
         throw new IllegalStateException("Invalid BracketAccessor type");
@@ -156,14 +175,16 @@ public class BracketExpr extends Expr {
     @Override
     public Expr generateInverse(ExprModel model, Expr value, String bindingClassName) {
         Expr arg = getArg().cloneToModel(model);
-        arg = argCastsInteger()
-                ? model.castExpr("int", model.castExpr("Integer", arg))
-                : arg;
+        if (argCastsInteger()) {
+            arg = model.castExpr("int", model.castExpr("Integer", arg));
+        } else if (argCastsInt()) {
+            arg = model.castExpr("int", arg);
+        }
         StaticIdentifierExpr viewDataBinding =
                 model.staticIdentifier(ModelAnalyzer.VIEW_DATA_BINDING);
         viewDataBinding.setUserDefinedType(ModelAnalyzer.VIEW_DATA_BINDING);
         ModelClass targetType = getTarget().getResolvedType();
-        if ((targetType.isList() || targetType.isMap()) &&
+        if ((targetType.isList() || targetType.isMap()) && !mPrimitiveComponent &&
                 value.getResolvedType().isPrimitive()) {
             ModelClass boxed = value.getResolvedType().box();
             value = model.castExpr(boxed.toJavaCode(), value);
@@ -73,8 +73,8 @@ public class CallbackArgExpr extends IdentifierExpr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return CallbackWrapper.ARG_PREFIX + mArgIndex;
+    protected ExprKey computeKey() {
+        return ExprKey.concat(CallbackWrapper.ARG_PREFIX + mArgIndex);
     }
 
     @Override
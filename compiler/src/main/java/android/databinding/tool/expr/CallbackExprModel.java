@@ -76,11 +76,11 @@ public class CallbackExprModel extends ExprModel {
             return arg;
         }
         IdentifierExpr id = new IdentifierExpr(name);
-        final Expr existing = mExprMap.get(id.getUniqueKey());
+        final Expr existing = mExprMap.get(id.getKey());
         if (existing == null) {
              // this is not a method variable reference. register it in the main model
             final IdentifierExpr identifier = mOriginal.identifier(name);
-            mExprMap.put(identifier.getUniqueKey(), identifier);
+            mExprMap.put(identifier.getKey(), identifier);
             identifier.markAsUsedInCallback();
             return identifier;
         }
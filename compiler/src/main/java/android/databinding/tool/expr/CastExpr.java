@@ -45,8 +45,8 @@ public class CastExpr extends Expr {
         return dependencies;
     }
 
-    protected String computeUniqueKey() {
-        return join(mType, getCastExpr().computeUniqueKey());
+    protected ExprKey computeKey() {
+        return join(mType, getCastExpr());
     }
 
     public Expr getCastExpr() {
@@ -30,8 +30,8 @@ public class ComparisonExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return join(mOp, super.computeUniqueKey());
+    protected ExprKey computeKey() {
+        return join(mOp, super.computeKey());
     }
 
     @Override
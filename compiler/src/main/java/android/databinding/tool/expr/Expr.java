@@ -33,7 +33,9 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,7 +50,7 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
 
     private ModelClass mResolvedType;
 
-    private String mUniqueKey;
+    private ExprKey mKey;
 
     private List<Dependency> mDependencies;
 
@@ -92,6 +94,11 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
      */
     BitSet mShouldReadWithConditionals;
 
+    /**
+     * mShouldReadWithConditionals minus mReadSoFar, updated as flags are read
+     */
+    private BitSet mUnreadFlags;
+
     private boolean mIsBindingExpression;
 
     /**
@@ -415,28 +422,36 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
     protected static final String KEY_JOIN = "~";
 
     /**
-     * Returns a unique string key that can identify this expression.
+     * Returns a key that can identify this expression in its model.
      *
      * It must take into account any dependencies
      *
      * @return A unique identifier for this expression
      */
-    public final String getUniqueKey() {
-        if (mUniqueKey == null) {
-            mUniqueKey = computeUniqueKey();
-            Preconditions.checkNotNull(mUniqueKey,
-                    "if there are no children, you must override computeUniqueKey");
-            Preconditions.check(!mUniqueKey.trim().equals(""),
-                    "if there are no children, you must override computeUniqueKey");
+    public final ExprKey getKey() {
+        if (mKey == null) {
+            mKey = computeKey();
+            Preconditions.checkNotNull(mKey,
+                    "if there are no children, you must override computeKey");
+            Preconditions.check(!mKey.isEmpty(),
+                    "if there are no children, you must override computeKey");
         }
-        return mUniqueKey;
+        return mKey;
+    }
+
+    /**
+     * Returns the readable form of {@link #getKey()}. It is built on first use, so it should
+     * only be used for generated names and debug output.
+     */
+    public final String getUniqueKey() {
+        return getKey().toString();
     }
 
-    protected String computeUniqueKey() {
+    protected ExprKey computeKey() {
         return computeChildrenKey();
     }
 
-    protected final String computeChildrenKey() {
+    protected final ExprKey computeChildrenKey() {
         return join(mChildren);
     }
 
@@ -480,6 +495,17 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
 
     public void markFlagsAsRead(BitSet flags) {
         mReadSoFar.or(flags);
+        if (mUnreadFlags != null) {
+            mUnreadFlags.andNot(flags);
+        }
+    }
+
+    private BitSet getUnreadFlags() {
+        if (mUnreadFlags == null) {
+            mUnreadFlags = (BitSet) getShouldReadFlagsWithConditionals().clone();
+            mUnreadFlags.andNot(mReadSoFar);
+        }
+        return mUnreadFlags;
     }
 
     public boolean isRead() {
@@ -508,33 +534,43 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
     }
 
     public boolean hasNestedCannotRead() {
+        return hasNestedCannotRead(new IdentityHashMap<Expr, Boolean>());
+    }
+
+    /**
+     * @param visited The results of the expressions that were already checked. Dependencies are
+     *                shared by many expressions, so each of them is only traversed once.
+     */
+    boolean hasNestedCannotRead(Map<Expr, Boolean> visited) {
         if (isRead()) {
             return false;
         }
-        if (getShouldReadFlags().isEmpty()) {
-            return true;
-        }
-        for (Dependency dependency : getDependencies()) {
-            if (hasNestedCannotRead(dependency)) {
-                return true;
+        Boolean cached = visited.get(this);
+        if (cached != null) {
+            return cached;
+        }
+        mModel.countReadCheck();
+        boolean cannotRead = getShouldReadFlags().isEmpty();
+        if (!cannotRead) {
+            for (Dependency dependency : getDependencies()) {
+                if (dependency.isConditional()
+                        || dependency.getOther().hasNestedCannotRead(visited)) {
+                    cannotRead = true;
+                    break;
+                }
             }
         }
-        return false;
-    }
-
-    private static boolean hasNestedCannotRead(Dependency input) {
-        return input.isConditional() || input.getOther().hasNestedCannotRead();
+        visited.put(this, cannotRead);
+        return cannotRead;
     }
 
     public boolean markAsReadIfDone() {
         if (mRead) {
             return false;
         }
-        // TODO avoid clone, we can calculate this iteratively
-        BitSet clone = (BitSet) mShouldReadWithConditionals.clone();
-
-        clone.andNot(mReadSoFar);
-        mRead = clone.isEmpty();
+        mModel.countReadCheck();
+        final BitSet unread = getUnreadFlags();
+        mRead = unread.isEmpty();
 
         if (!mRead && !mReadSoFar.isEmpty()) {
             // check if remaining dependencies can be satisfied w/ existing values
@@ -544,7 +580,7 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
             // to add them to the list since we'll already be calculated due to our non-conditional
             // flags
             boolean allCovered = true;
-            for (int i = clone.nextSetBit(0); i != -1; i = clone.nextSetBit(i + 1)) {
+            for (int i = unread.nextSetBit(0); i != -1; i = unread.nextSetBit(i + 1)) {
                 final Expr expr = mModel.findFlagExpression(i);
                 if (expr == null) {
                     continue;
@@ -553,15 +589,13 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
                     allCovered = false;
                     break;
                 }
-                final BitSet readForConditional = (BitSet) expr
-                        .getShouldReadFlagsWithConditionals().clone();
+                final BitSet readForConditional = expr.getShouldReadFlagsWithConditionals();
 
                 // FIXME: this does not do full traversal so misses some cases
                 // to calculate that conditional, i should've read /readForConditional/ flags
                 // if my read-so-far bits cover that; that means i would've already
                 // read myself
-                readForConditional.andNot(mReadSoFar);
-                if (!readForConditional.isEmpty()) {
+                if (!isSubset(readForConditional, mReadSoFar)) {
                     allCovered = false;
                     break;
                 }
@@ -574,6 +608,15 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
         return mRead;
     }
 
+    private static boolean isSubset(BitSet subset, BitSet set) {
+        for (int i = subset.nextSetBit(0); i != -1; i = subset.nextSetBit(i + 1)) {
+            if (!set.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     BitSet mConditionalFlags;
 
     private BitSet findConditionalFlags() {
@@ -650,7 +693,7 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
     /**
      * Used by code generation
      */
-    public boolean shouldReadNow(final List<Expr> justRead) {
+    public boolean shouldReadNow(final Collection<Expr> justRead) {
         if (getShouldReadFlags().isEmpty()) {
             return false;
         }
@@ -691,38 +734,33 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
     }
 
     public void updateExpr(ModelAnalyzer modelAnalyzer) {
-        final Map<String, Expr> exprMap = mModel.getExprMap();
+        removeStaleParents();
+        for (Expr child : mChildren) {
+            if (mModel.shouldUpdate(child)) {
+                child.updateExpr(modelAnalyzer);
+            }
+        }
+    }
+
+    void removeStaleParents() {
+        final Map<ExprKey, Expr> exprMap = mModel.getExprMap();
         for (int i = mParents.size() - 1; i >= 0; i--) {
             final Expr parent = mParents.get(i);
-            if (exprMap.get(parent.getUniqueKey()) != parent) {
+            if (exprMap.get(parent.getKey()) != parent) {
                 mParents.remove(i);
             }
         }
-        for (Expr child : mChildren) {
-            child.updateExpr(modelAnalyzer);
-        }
     }
 
-    protected static String join(String... items) {
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < items.length; i ++) {
-            if (i > 0) {
-                result.append(KEY_JOIN);
-            }
-            result.append(items[i]);
-        }
-        return result.toString();
+    /**
+     * @param items Strings, child expressions or keys, joined with {@link #KEY_JOIN}.
+     */
+    protected static ExprKey join(Object... items) {
+        return ExprKey.join(items);
     }
 
-    protected static String join(List<Expr> items) {
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < items.size(); i ++) {
-            if (i > 0) {
-                result.append(KEY_JOIN);
-            }
-            result.append(items.get(i).getUniqueKey());
-        }
-        return result.toString();
+    protected static ExprKey join(List<Expr> items) {
+        return ExprKey.join(items);
     }
 
     protected String asPackage() {
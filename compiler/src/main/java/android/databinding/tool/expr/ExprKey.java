@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.expr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Identifies an expression in its {@link ExprModel}.
+ * <p>
+ * A key is made of the literal parts of the expression (its operator, name, type etc.) and
+ * references to its children, which were already registered in the model. Children are not
+ * copied into the key, so creating and comparing keys does not depend on the depth of the
+ * expression.
+ * <p>
+ * Keys are equal if they have the same literal parts and their children have equal keys. The
+ * readable form of the key, in which the keys of the children are spelled out, is only built
+ * when it is requested from {@link #toString()}. Names and comparisons only read a prefix of it
+ * from {@link #toString(int)}. The hash code of a key is the hash code of its
+ * readable form, so keys are iterated in the same order as their readable forms in a hash map.
+ */
+public final class ExprKey implements Comparable<ExprKey> {
+    private static final Object[] NO_PARTS = new Object[0];
+
+    public static final ExprKey EMPTY = new ExprKey(NO_PARTS);
+
+    private static final int MAX_COMPARED_LENGTH = 4096;
+
+    // String or Expr
+    private final Object[] mParts;
+
+    // of the readable form
+    private final int mHash;
+
+    private final long mLength;
+
+    private String mReadable;
+
+    private ExprKey(Object[] parts) {
+        mParts = parts;
+        int hash = 0;
+        long length = 0;
+        for (Object part : parts) {
+            if (part instanceof String) {
+                final String literal = (String) part;
+                hash = hash * pow31(literal.length()) + literal.hashCode();
+                length += literal.length();
+            } else {
+                final ExprKey childKey = ((Expr) part).getKey();
+                // the order of 31 modulo 2^32 divides 2^32, so the low bits of the length are
+                // enough even if the readable form would not fit in a String.
+                hash = hash * pow31((int) childKey.mLength) + childKey.mHash;
+                length += childKey.mLength;
+            }
+        }
+        mHash = hash;
+        mLength = length;
+    }
+
+    /**
+     * Creates a key from the given parts without any separators.
+     *
+     * @param parts Strings, expressions or other keys whose parts are copied.
+     */
+    public static ExprKey concat(Object... parts) {
+        final List<Object> result = new ArrayList<Object>(parts.length);
+        for (Object part : parts) {
+            add(result, part);
+        }
+        return create(result);
+    }
+
+    /**
+     * Creates a key from the given parts separated by {@link Expr#KEY_JOIN}.
+     *
+     * @param parts Strings, expressions or other keys whose parts are copied.
+     */
+    public static ExprKey join(Object... parts) {
+        final List<Object> result = new ArrayList<Object>(parts.length * 2);
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                add(result, Expr.KEY_JOIN);
+            }
+            add(result, parts[i]);
+        }
+        return create(result);
+    }
+
+    /**
+     * Creates a key from the given expressions separated by {@link Expr#KEY_JOIN}.
+     */
+    public static ExprKey join(List<Expr> exprs) {
+        return join(exprs.toArray());
+    }
+
+    private static ExprKey create(List<Object> parts) {
+        if (parts.isEmpty()) {
+            return EMPTY;
+        }
+        return new ExprKey(parts.toArray());
+    }
+
+    private static void add(List<Object> parts, Object part) {
+        if (part instanceof ExprKey) {
+            for (Object keyPart : ((ExprKey) part).mParts) {
+                add(parts, keyPart);
+            }
+        } else if (part instanceof Expr) {
+            parts.add(part);
+        } else {
+            final String literal = String.valueOf(part);
+            if (literal.isEmpty()) {
+                return;
+            }
+            // adjacent literals are merged so that the same key is always split the same way
+            final int last = parts.size() - 1;
+            if (last >= 0 && parts.get(last) instanceof String) {
+                parts.set(last, parts.get(last) + literal);
+            } else {
+                parts.add(literal);
+            }
+        }
+    }
+
+    private static int pow31(int exponent) {
+        int result = 1;
+        int base = 31;
+        while (exponent != 0) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exponent >>>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * @return The length of the readable form of this key.
+     */
+    public long length() {
+        return mLength;
+    }
+
+    public boolean isEmpty() {
+        return mParts.length == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ExprKey)) {
+            return false;
+        }
+        final ExprKey other = (ExprKey) o;
+        if (mHash != other.mHash || mLength != other.mLength
+                || mParts.length != other.mParts.length) {
+            return false;
+        }
+        for (int i = 0; i < mParts.length; i++) {
+            final Object part = mParts[i];
+            final Object otherPart = other.mParts[i];
+            if (part == otherPart) {
+                continue;
+            }
+            if (part instanceof Expr && otherPart instanceof Expr) {
+                // children are shared within a model, this is only reached for other models
+                if (!((Expr) part).getKey().equals(((Expr) otherPart).getKey())) {
+                    return false;
+                }
+            } else if (!part.equals(otherPart)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return mHash;
+    }
+
+    @Override
+    public int compareTo(ExprKey other) {
+        // Hash maps compare colliding keys, so they are only spelled out as far as they differ.
+        // Keys that start with the same MAX_COMPARED_LENGTH characters are ordered by length
+        // first, which keeps a key from being compared to its whole prefix.
+        for (int length = 64; length <= MAX_COMPARED_LENGTH; length *= 2) {
+            final String prefix = toString(length);
+            final int result = prefix.compareTo(other.toString(length));
+            if (result != 0 || prefix.length() < length) {
+                return result;
+            }
+        }
+        if (mLength != other.mLength) {
+            return mLength < other.mLength ? -1 : 1;
+        }
+        return toString().compareTo(other.toString());
+    }
+
+    @Override
+    public String toString() {
+        if (mReadable == null) {
+            final StringBuilder readable = new StringBuilder();
+            for (Object part : mParts) {
+                if (part instanceof String) {
+                    readable.append((String) part);
+                } else {
+                    readable.append(((Expr) part).getUniqueKey());
+                }
+            }
+            mReadable = readable.toString();
+        }
+        return mReadable;
+    }
+
+    /**
+     * Returns the first {@code maxLength} characters of the readable form of this key. Only the
+     * children that are needed for the prefix are spelled out, so this can be used for keys that
+     * are too long to build with {@link #toString()}.
+     *
+     * @param maxLength The maximum length of the returned String.
+     * @return The readable form of this key, cut after {@code maxLength} characters.
+     */
+    public String toString(int maxLength) {
+        if (mReadable != null || mLength <= maxLength) {
+            return toString();
+        }
+        final StringBuilder readable = new StringBuilder(maxLength);
+        appendPrefix(readable, maxLength);
+        return readable.toString();
+    }
+
+    private void appendPrefix(StringBuilder readable, int maxLength) {
+        for (Object part : mParts) {
+            final int remaining = maxLength - readable.length();
+            if (remaining <= 0) {
+                return;
+            }
+            if (part instanceof String) {
+                final String literal = (String) part;
+                readable.append(literal, 0, Math.min(literal.length(), remaining));
+            } else {
+                final ExprKey childKey = ((Expr) part).getKey();
+                if (childKey.mReadable != null || childKey.mLength <= remaining) {
+                    final String child = childKey.toString();
+                    readable.append(child, 0, Math.min(child.length(), remaining));
+                } else {
+                    childKey.appendPrefix(readable, maxLength);
+                }
+            }
+        }
+    }
+}
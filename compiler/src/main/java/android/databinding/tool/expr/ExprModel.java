@@ -34,14 +34,18 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ExprModel {
 
-    Map<String, Expr> mExprMap = new HashMap<String, Expr>();
+    Map<ExprKey, Expr> mExprMap = new HashMap<ExprKey, Expr>();
 
     List<Expr> mBindingExpressions = new ArrayList<Expr>();
 
@@ -66,6 +70,28 @@ public class ExprModel {
      */
     private List<Expr> mPendingExpressions;
 
+    /**
+     * Whether all expressions were checked by {@link #pruneDone(List)}. After that, only the
+     * expressions that had some of their flags read can become done.
+     */
+    private boolean mPrunedAll = false;
+
+    /**
+     * The number of times an expression was checked to see if it is read or cannot be read, so
+     * that tests can verify that reading flags scales with the size of the layout.
+     */
+    private long mReadChecks;
+
+    /**
+     * The expressions that were updated in the current pass of {@link #updateExpressions}.
+     */
+    private Set<Expr> mUpdatedExprs;
+
+    /**
+     * The expression of each flag, null for the invalidate any flag. Conditionals have two flags.
+     */
+    private Expr[] mFlagExpressions;
+
     /**
      * Used for converting flags into identifiers while debugging.
      */
@@ -103,7 +129,7 @@ public class ExprModel {
             location.setParentLocation(mCurrentLocationInFile);
         }
         //noinspection unchecked
-        T existing = (T) mExprMap.get(expr.getUniqueKey());
+        T existing = (T) mExprMap.get(expr.getKey());
         if (existing != null) {
             Preconditions.check(expr.getParents().isEmpty(),
                     "If an expression already exists, it should've never been added to a parent,"
@@ -117,7 +143,7 @@ public class ExprModel {
             }
             return existing;
         }
-        mExprMap.put(expr.getUniqueKey(), expr);
+        mExprMap.put(expr.getKey(), expr);
         expr.setModel(this);
         if (location != null) {
             expr.addLocation(location);
@@ -149,7 +175,7 @@ public class ExprModel {
         return mCurrentLocationInFile;
     }
 
-    public Map<String, Expr> getExprMap() {
+    public Map<ExprKey, Expr> getExprMap() {
         return mExprMap;
     }
 
@@ -327,7 +353,7 @@ public class ExprModel {
      * Input must be already registered
      */
     public Expr bindingExpr(Expr bindingExpr) {
-        Preconditions.check(mExprMap.containsKey(bindingExpr.getUniqueKey()),
+        Preconditions.check(mExprMap.containsKey(bindingExpr.getKey()),
                 "Main expression should already be registered");
         if (!mBindingExpressions.contains(bindingExpr)) {
             mBindingExpressions.add(bindingExpr);
@@ -338,7 +364,7 @@ public class ExprModel {
     public void removeExpr(Expr expr) {
         Preconditions.check(!mSealed, "Can't modify the expression list after sealing the model.");
         mBindingExpressions.remove(expr);
-        mExprMap.remove(expr.getUniqueKey());
+        mExprMap.remove(expr.getKey());
     }
 
     public List<Expr> getObservables() {
@@ -357,24 +383,24 @@ public class ExprModel {
 
         int counter = 0;
         final Iterable<Expr> observables = filterObservables(modelAnalyzer);
-        List<String> flagMapping = new ArrayList<String>();
+        List<Expr> flagExpressions = new ArrayList<Expr>();
         mObservables = new ArrayList<Expr>();
         for (Expr expr : observables) {
             // observables gets initial ids
-            flagMapping.add(expr.getUniqueKey());
+            flagExpressions.add(expr);
             expr.setId(counter++);
             mObservables.add(expr);
             notifiableExpressions.add(expr);
-            L.d("observable %s", expr.getUniqueKey());
+            L.d("observable %s", expr);
         }
 
         // non-observable identifiers gets next ids
         final Iterable<Expr> nonObservableIds = filterNonObservableIds(modelAnalyzer);
         for (Expr expr : nonObservableIds) {
-            flagMapping.add(expr.getUniqueKey());
+            flagExpressions.add(expr);
             expr.setId(counter++);
             notifiableExpressions.add(expr);
-            L.d("non-observable %s", expr.getUniqueKey());
+            L.d("non-observable %s", expr);
         }
 
         // descendants of observables gets following ids
@@ -390,12 +416,12 @@ public class ExprModel {
                     // FAE#getter might be null if it is used only in a callback.
                     if (fae.getGetter() != null && fae.isDynamic()
                             && fae.getGetter().canBeInvalidated()) {
-                        flagMapping.add(parent.getUniqueKey());
+                        flagExpressions.add(parent);
                         parent.setId(counter++);
                         notifiableExpressions.add(parent);
-                        L.d("notifiable field %s : %s for %s : %s", parent.getUniqueKey(),
+                        L.d("notifiable field %s : %s for %s : %s", parent,
                                 Integer.toHexString(System.identityHashCode(parent)),
-                                expr.getUniqueKey(),
+                                expr,
                                 Integer.toHexString(System.identityHashCode(expr)));
                     }
                 }
@@ -407,7 +433,7 @@ public class ExprModel {
             if (expr instanceof FieldAccessExpr) {
                 FieldAccessExpr fieldAccessExpr = (FieldAccessExpr) expr;
                 if (fieldAccessExpr.getTarget() instanceof ViewFieldExpr) {
-                    flagMapping.add(fieldAccessExpr.getUniqueKey());
+                    flagExpressions.add(fieldAccessExpr);
                     fieldAccessExpr.setId(counter++);
                 }
             }
@@ -430,7 +456,7 @@ public class ExprModel {
             expr.getDependencies();
         }
         mInvalidateAnyFlagIndex = counter ++;
-        flagMapping.add("INVALIDATE ANY");
+        flagExpressions.add(null);
         mInvalidateableFieldLimit = counter;
         BitSet invalidateableFlags = new BitSet();
         for (int i = 0; i < mInvalidateableFieldLimit; i++) {
@@ -442,8 +468,9 @@ public class ExprModel {
             if (expr.isConditional()) {
                 L.d("requirement id for %s is %d", expr, counter);
                 expr.setRequirementId(counter);
-                flagMapping.add(expr.getUniqueKey() + FALSE_KEY_SUFFIX);
-                flagMapping.add(expr.getUniqueKey() + TRUE_KEY_SUFFIX);
+                // false and true flags
+                flagExpressions.add(expr);
+                flagExpressions.add(expr);
                 counter += 2;
             }
         }
@@ -454,15 +481,15 @@ public class ExprModel {
         mRequirementIdCount = (counter - mInvalidateableFieldLimit) / 2;
 
         // everybody gets an id
-        for (Map.Entry<String, Expr> entry : mExprMap.entrySet()) {
+        for (Map.Entry<ExprKey, Expr> entry : mExprMap.entrySet()) {
             final Expr value = entry.getValue();
             if (!value.hasId()) {
                 value.setId(counter++);
             }
         }
 
-        mFlagMapping = new String[flagMapping.size()];
-        flagMapping.toArray(mFlagMapping);
+        mFlagExpressions = new Expr[flagExpressions.size()];
+        flagExpressions.toArray(mFlagExpressions);
 
         mFlagBucketCount = 1 + (getTotalFlagCount() / FlagSet.sBucketSize);
         mInvalidateAnyFlags = new BitSet();
@@ -485,16 +512,33 @@ public class ExprModel {
      * <p>
      * Some expressions (e.g. field access) may replace themselves and add/remove new dependencies
      * so we need to make sure each expression's update is called at least once.
+     * <p>
+     * Expressions are shared by many parents, so each of them is only updated once per pass.
+     * Parents that were replaced after their children were updated are removed at the end.
      */
     private void updateExpressions(ModelAnalyzer modelAnalyzer) {
         int startSize = -1;
         while (startSize != mExprMap.size()) {
             startSize = mExprMap.size();
+            mUpdatedExprs = Collections.newSetFromMap(new IdentityHashMap<Expr, Boolean>());
             ArrayList<Expr> exprs = new ArrayList<Expr>(mBindingExpressions);
             for (Expr expr : exprs) {
-                expr.updateExpr(modelAnalyzer);
+                if (shouldUpdate(expr)) {
+                    expr.updateExpr(modelAnalyzer);
+                }
             }
         }
+        mUpdatedExprs = null;
+        for (Expr expr : mExprMap.values()) {
+            expr.removeStaleParents();
+        }
+    }
+
+    /**
+     * @return false if the expression was already updated in the current pass
+     */
+    boolean shouldUpdate(Expr expr) {
+        return mUpdatedExprs == null || mUpdatedExprs.add(expr);
     }
 
     public int getFlagBucketCount() {
@@ -509,12 +553,30 @@ public class ExprModel {
         return mInvalidateableFieldLimit;
     }
 
+    /**
+     * @return The readable key of each flag, for debug output. Null until the model is sealed.
+     */
     public String[] getFlagMapping() {
+        if (mFlagMapping == null && mFlagExpressions != null) {
+            String[] flagMapping = new String[mFlagExpressions.length];
+            for (int i = 0; i < flagMapping.length; i++) {
+                flagMapping[i] = getFlag(i);
+            }
+            mFlagMapping = flagMapping;
+        }
         return mFlagMapping;
     }
 
     public String getFlag(int id) {
-        return mFlagMapping[id];
+        if (id == mInvalidateAnyFlagIndex) {
+            return "INVALIDATE ANY";
+        }
+        final String key = mFlagExpressions[id].getUniqueKey();
+        if (id < mInvalidateableFieldLimit) {
+            return key;
+        }
+        return key + ((id - mInvalidateableFieldLimit) % 2 == 0
+                ? FALSE_KEY_SUFFIX : TRUE_KEY_SUFFIX);
     }
 
     private List<Expr> filterNonObservableIds(final ModelAnalyzer modelAnalyzer) {
@@ -564,21 +626,34 @@ public class ExprModel {
         return pruneDone(markedSomeFlagsRead);
     }
 
+    void countReadCheck() {
+        mReadChecks++;
+    }
+
+    long getReadChecks() {
+        return mReadChecks;
+    }
+
     private boolean pruneDone(List<Expr> markedSomeFlagsAsRead) {
-        boolean marked = true;
+        // whether an expression is done only depends on its own read flags, so a single pass
+        // over the expressions whose flags changed is enough.
+        final Collection<Expr> candidates;
+        if (mPrunedAll) {
+            candidates = markedSomeFlagsAsRead;
+        } else {
+            candidates = mExprMap.values();
+            mPrunedAll = true;
+        }
         List<Expr> markedAsReadList = new ArrayList<Expr>();
-        while (marked) {
-            marked = false;
-            for (Expr expr : mExprMap.values()) {
-                if (expr.isRead()) {
-                    continue;
-                }
-                if (expr.markAsReadIfDone()) {
-                    L.d("marked %s as read ", expr.getUniqueKey());
-                    marked = true;
-                    markedAsReadList.add(expr);
-                    markedSomeFlagsAsRead.remove(expr);
-                }
+        Set<Expr> markedAsReadSet = Collections.newSetFromMap(new IdentityHashMap<Expr, Boolean>());
+        for (Expr expr : candidates) {
+            if (expr.isRead()) {
+                continue;
+            }
+            if (expr.markAsReadIfDone()) {
+                L.d("marked %s as read ", expr);
+                markedAsReadList.add(expr);
+                markedAsReadSet.add(expr);
             }
         }
         boolean elevated = false;
@@ -591,6 +666,9 @@ public class ExprModel {
         }
         if (!elevated) {
             for (Expr partialRead : markedSomeFlagsAsRead) {
+                if (markedAsReadSet.contains(partialRead)) {
+                    continue;
+                }
                 // even if all paths are not satisfied, we can elevate certain conditional
                 // dependencies if all of their paths are satisfied.
                 for (Dependency dependency : partialRead.getDependants()) {
@@ -616,9 +694,11 @@ public class ExprModel {
         return elevated;
     }
 
-    private static boolean hasConditionalOrNestedCannotReadDependency(Expr expr) {
+    private static boolean hasConditionalOrNestedCannotReadDependency(Expr expr,
+            Map<Expr, Boolean> cannotRead) {
         for (Dependency dependency : expr.getDependencies()) {
-            if (dependency.isConditional() || dependency.getOther().hasNestedCannotRead()) {
+            if (dependency.isConditional()
+                    || dependency.getOther().hasNestedCannotRead(cannotRead)) {
                 return true;
             }
         }
@@ -627,9 +707,11 @@ public class ExprModel {
 
     public static ArrayList<Expr> filterShouldRead(Iterable<Expr> exprs) {
         ArrayList<Expr> result = new ArrayList<Expr>();
+        // dependencies are shared, remember which of them cannot be read
+        Map<Expr, Boolean> cannotRead = new IdentityHashMap<Expr, Boolean>();
         for (Expr expr : exprs) {
             if (!expr.getShouldReadFlags().isEmpty() &&
-                    !hasConditionalOrNestedCannotReadDependency(expr)) {
+                    !hasConditionalOrNestedCannotReadDependency(expr, cannotRead)) {
                 result.add(expr);
             }
         }
@@ -643,26 +725,14 @@ public class ExprModel {
         if (mInvalidateAnyFlags.get(flag)) {
             return null;
         }
-        final String key = mFlagMapping[flag];
-        if (mExprMap.containsKey(key)) {
-            return mExprMap.get(key);
-        }
-        int falseIndex = key.indexOf(FALSE_KEY_SUFFIX);
-        if (falseIndex > -1) {
-            final String trimmed = key.substring(0, falseIndex);
-            return mExprMap.get(trimmed);
-        }
-        int trueIndex = key.indexOf(TRUE_KEY_SUFFIX);
-        if (trueIndex > -1) {
-            final String trimmed = key.substring(0, trueIndex);
-            return mExprMap.get(trimmed);
+        if (flag < mFlagExpressions.length) {
+            return mFlagExpressions[flag];
         }
         // log everything we call
         StringBuilder error = new StringBuilder();
         error.append("cannot find flag:").append(flag).append("\n");
         error.append("invalidate any flag:").append(mInvalidateAnyFlags).append("\n");
-        error.append("key:").append(key).append("\n");
-        error.append("flag mapping:").append(Arrays.toString(mFlagMapping));
+        error.append("flag mapping:").append(Arrays.toString(getFlagMapping()));
         L.e(error.toString());
         return null;
     }
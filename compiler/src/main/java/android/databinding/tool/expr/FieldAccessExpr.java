@@ -124,8 +124,8 @@ public class FieldAccessExpr extends MethodBaseExpr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return join(mName, ".", getTarget().getUniqueKey());
+    protected ExprKey computeKey() {
+        return join(mName, ".", getTarget());
     }
 
     public String getBrName() {
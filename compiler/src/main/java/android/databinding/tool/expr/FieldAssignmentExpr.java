@@ -37,8 +37,8 @@ public class FieldAssignmentExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return join(getTarget().getUniqueKey(), mName, "=", getValueExpr().getUniqueKey());
+    protected ExprKey computeKey() {
+        return join(getTarget(), mName, "=", getValueExpr());
     }
 
     public Expr getTarget() {
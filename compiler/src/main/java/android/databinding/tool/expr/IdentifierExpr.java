@@ -50,8 +50,8 @@ public class IdentifierExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return join(mName, super.computeUniqueKey());
+    protected ExprKey computeKey() {
+        return join(mName, super.computeKey());
     }
 
     public String getUserDefinedType() {
@@ -32,8 +32,8 @@ public class InstanceOfExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return join("instanceof", super.computeUniqueKey(), mTypeStr);
+    protected ExprKey computeKey() {
+        return join("instanceof", super.computeKey(), mTypeStr);
     }
 
     @Override
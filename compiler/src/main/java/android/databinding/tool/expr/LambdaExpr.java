@@ -73,8 +73,8 @@ public class LambdaExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return "callback" + mId;
+    protected ExprKey computeKey() {
+        return ExprKey.concat("callback" + mId);
     }
 
     @Override
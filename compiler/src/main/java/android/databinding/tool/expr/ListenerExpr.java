@@ -76,8 +76,8 @@ public class ListenerExpr extends Expr {
         return dependencies;
     }
 
-    protected String computeUniqueKey() {
-        return join(getResolvedType().getCanonicalName(), getTarget().computeUniqueKey(), mName);
+    protected ExprKey computeKey() {
+        return join(getResolvedType().getCanonicalName(), getTarget(), mName);
     }
 
     @Override
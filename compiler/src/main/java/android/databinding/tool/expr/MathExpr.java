@@ -35,8 +35,8 @@ public class MathExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return join(getLeft().getUniqueKey(), mOp, getRight().getUniqueKey());
+    protected ExprKey computeKey() {
+        return join(getLeft(), mOp, getRight());
     }
 
     @Override
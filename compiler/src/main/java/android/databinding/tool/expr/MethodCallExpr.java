@@ -179,9 +179,8 @@ public class MethodCallExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return join(getTarget().computeUniqueKey(), mName,
-                super.computeUniqueKey());
+    protected ExprKey computeKey() {
+        return join(getTarget(), mName, super.computeKey());
     }
 
     public Expr getTarget() {
@@ -34,8 +34,8 @@ public class MethodReferenceExpr extends MethodBaseExpr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return join(mName, "::", getTarget().getUniqueKey());
+    protected ExprKey computeKey() {
+        return join(mName, "::", getTarget());
     }
 
     @Override
@@ -34,8 +34,8 @@ public class ObservableFieldExpr extends FieldAccessExpr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return join(mName, "..", getTarget().getUniqueKey());
+    protected ExprKey computeKey() {
+        return join(mName, "..", getTarget());
     }
 
     @Override
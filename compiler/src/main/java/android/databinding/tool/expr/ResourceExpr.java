@@ -124,7 +124,7 @@ public class ResourceExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
+    protected ExprKey computeKey() {
         String base = toString();
         String view = "";
         if (requiresView()) {
@@ -152,7 +152,7 @@ public class ResourceExpr extends Expr {
     @Override
     public String getInvertibleError() {
         return "Resources may not be the target of a two-way binding expression: " +
-                computeUniqueKey();
+                getUniqueKey();
     }
 
     private boolean requiresView() {
@@ -44,8 +44,8 @@ public class SymbolExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return mType.getSimpleName() + mText;
+    protected ExprKey computeKey() {
+        return ExprKey.concat(mType.getSimpleName() + mText);
     }
 
     @Override
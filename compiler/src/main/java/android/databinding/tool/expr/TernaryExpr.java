@@ -44,8 +44,8 @@ public class TernaryExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return "?:" + super.computeUniqueKey();
+    protected ExprKey computeKey() {
+        return ExprKey.concat("?:", super.computeKey());
     }
 
     @Override
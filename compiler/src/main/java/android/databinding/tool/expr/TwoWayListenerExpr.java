@@ -56,9 +56,9 @@ public class TwoWayListenerExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return "event(" + mInverseBinding.getEventAttribute() + ", " +
-                System.identityHashCode(mInverseBinding) + ")";
+    protected ExprKey computeKey() {
+        return ExprKey.concat("event(" + mInverseBinding.getEventAttribute() + ", " +
+                System.identityHashCode(mInverseBinding) + ")");
     }
 
     @Override
@@ -35,8 +35,8 @@ public class UnaryExpr extends Expr {
     }
 
     @Override
-    protected String computeUniqueKey() {
-        return join(getOpStr(), getExpr().getUniqueKey());
+    protected ExprKey computeKey() {
+        return join(getOpStr(), getExpr());
     }
 
     @Override
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool.reflection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The methods and fields of a class, indexed by name. ModelClass implementations that are
+ * expensive to inspect can keep one of these per type so that lookups by name do not scan
+ * every member.
+ * <p>
+ * Fields are indexed by their name and also by their name without a field prefix (mName,
+ * _name, m_name), matching the lookup done by {@link ModelClass}.
+ */
+public class MemberIndex {
+    private final ModelMethod[] mMethods;
+
+    private final ModelField[] mFields;
+
+    private final HashMap<String, List<ModelMethod>> mMethodsByName =
+            new HashMap<String, List<ModelMethod>>();
+
+    private final HashMap<String, List<ModelField>> mFieldsByName =
+            new HashMap<String, List<ModelField>>();
+
+    public MemberIndex(ModelMethod[] methods, ModelField[] fields) {
+        mMethods = methods;
+        mFields = fields;
+        for (ModelMethod method : methods) {
+            add(mMethodsByName, method.getName(), method);
+        }
+        for (ModelField field : fields) {
+            final String name = field.getName();
+            add(mFieldsByName, name, field);
+            final String stripped = ModelClass.stripFieldName(name);
+            if (!stripped.equals(name)) {
+                add(mFieldsByName, stripped, field);
+            }
+        }
+    }
+
+    private static <T> void add(HashMap<String, List<T>> index, String name, T member) {
+        List<T> members = index.get(name);
+        if (members == null) {
+            members = new ArrayList<T>(1);
+            index.put(name, members);
+        }
+        members.add(member);
+    }
+
+    public ModelMethod[] getMethods() {
+        return mMethods;
+    }
+
+    public ModelField[] getFields() {
+        return mFields;
+    }
+
+    /**
+     * @return The methods with the given name, in declaration order.
+     */
+    public List<ModelMethod> getMethods(String name) {
+        final List<ModelMethod> methods = mMethodsByName.get(name);
+        return methods == null ? Collections.<ModelMethod>emptyList() : methods;
+    }
+
+    /**
+     * @return The fields whose name, with or without the field prefix, is the given name, in
+     * declaration order.
+     */
+    public List<ModelField> getFields(String name) {
+        final List<ModelField> fields = mFieldsByName.get(name);
+        return fields == null ? Collections.<ModelField>emptyList() : fields;
+    }
+}
@@ -44,6 +44,19 @@ public abstract class ModelAnalyzer {
 
     public static final String MAP_CLASS_NAME = "java.util.Map";
 
+    /**
+     * Lists and maps that store primitives, with the primitive type they store. Bracket
+     * expressions on these read and write the primitive without boxing.
+     */
+    public static final String[][] PRIMITIVE_COLLECTION_CLASS_NAMES = {
+            {"android.databinding.ObservableIntArrayList", "int"},
+            {"android.databinding.ObservableLongArrayList", "long"},
+            {"android.databinding.ObservableFloatArrayList", "float"},
+            {"android.databinding.ObservableDoubleArrayList", "double"},
+            {"android.databinding.ObservableSparseIntArray", "int"},
+            {"android.databinding.ObservableSparseLongArray", "long"},
+    };
+
     public static final String STRING_CLASS_NAME = "java.lang.String";
 
     public static final String OBJECT_CLASS_NAME = "java.lang.Object";
@@ -73,6 +86,7 @@ public abstract class ModelAnalyzer {
     public static final String VIEW_STUB_CLASS_NAME = "android.view.ViewStub";
 
     private ModelClass[] mListTypes;
+    private ModelClass[] mPrimitiveCollectionTypes;
     private ModelClass mMapType;
     private ModelClass mStringType;
     private ModelClass mObjectType;
@@ -83,7 +97,9 @@ public abstract class ModelAnalyzer {
     private ModelClass mViewBindingType;
     private ModelClass mViewStubType;
 
-    private static ModelAnalyzer sAnalyzer;
+    // the layouts may be processed on multiple threads. The annotation processing model is not
+    // thread safe, so implementations serialize access to it on the analyzer instance.
+    private static volatile ModelAnalyzer sAnalyzer;
     private final Map<String, InjectedClass> mInjectedClasses =
             new HashMap<String, InjectedClass>();
 
@@ -124,6 +140,14 @@ public abstract class ModelAnalyzer {
 
     public abstract ModelClass loadPrimitive(String className);
 
+    /**
+     * @return The number of annotation processing rounds that finished. Classes found in an
+     * earlier round may be stale and classes that were missing may have been generated since.
+     */
+    public int getRound() {
+        return 0;
+    }
+
     public static ModelAnalyzer getInstance() {
         return sAnalyzer;
     }
@@ -222,7 +246,8 @@ public abstract class ModelAnalyzer {
         return "null";
     }
 
-    public final ModelClass findClass(String className, Map<String, String> imports) {
+    public final synchronized ModelClass findClass(String className,
+            Map<String, String> imports) {
         if (mInjectedClasses.containsKey(className)) {
             return mInjectedClasses.get(className);
         }
@@ -235,13 +260,13 @@ public abstract class ModelAnalyzer {
 
     public abstract TypeUtil createTypeUtil();
 
-    public ModelClass injectClass(InjectedClass injectedClass) {
+    public synchronized ModelClass injectClass(InjectedClass injectedClass) {
         mInjectedClasses.put(injectedClass.getCanonicalName(), injectedClass);
         return injectedClass;
     }
 
-    public ModelClass injectViewDataBinding(String className, Map<String, String> variables,
-            Map<String, String> fields) {
+    public synchronized ModelClass injectViewDataBinding(String className,
+            Map<String, String> variables, Map<String, String> fields) {
         InjectedClass injectedClass = new InjectedClass(className,
                 ModelAnalyzer.VIEW_DATA_BINDING);
 
@@ -266,7 +291,7 @@ public abstract class ModelAnalyzer {
         return injectedClass;
     }
 
-    ModelClass[] getListTypes() {
+    synchronized ModelClass[] getListTypes() {
         if (mListTypes == null) {
             mListTypes = new ModelClass[LIST_CLASS_NAMES.length];
             for (int i = 0; i < mListTypes.length; i++) {
@@ -279,56 +304,82 @@ public abstract class ModelAnalyzer {
         return mListTypes;
     }
 
-    public ModelClass getMapType() {
+    /**
+     * Returns the primitive type stored by the given collection if it is one of the
+     * {@link #PRIMITIVE_COLLECTION_CLASS_NAMES}, or null otherwise.
+     */
+    public synchronized ModelClass getPrimitiveComponentType(ModelClass collectionType) {
+        if (mPrimitiveCollectionTypes == null) {
+            mPrimitiveCollectionTypes = new ModelClass[PRIMITIVE_COLLECTION_CLASS_NAMES.length];
+            for (int i = 0; i < mPrimitiveCollectionTypes.length; i++) {
+                // older versions of the library do not have them
+                final ModelClass modelClass = findClass(PRIMITIVE_COLLECTION_CLASS_NAMES[i][0],
+                        null);
+                if (modelClass != null) {
+                    mPrimitiveCollectionTypes[i] = modelClass.erasure();
+                }
+            }
+        }
+        final ModelClass erasure = collectionType.erasure();
+        for (int i = 0; i < mPrimitiveCollectionTypes.length; i++) {
+            final ModelClass primitiveCollection = mPrimitiveCollectionTypes[i];
+            if (primitiveCollection != null && primitiveCollection.isAssignableFrom(erasure)) {
+                return findClass(PRIMITIVE_COLLECTION_CLASS_NAMES[i][1], null);
+            }
+        }
+        return null;
+    }
+
+    public synchronized ModelClass getMapType() {
         if (mMapType == null) {
             mMapType = loadClassErasure(MAP_CLASS_NAME);
         }
         return mMapType;
     }
 
-    ModelClass getStringType() {
+    synchronized ModelClass getStringType() {
         if (mStringType == null) {
             mStringType = findClass(STRING_CLASS_NAME, null);
         }
         return mStringType;
     }
 
-    ModelClass getObjectType() {
+    synchronized ModelClass getObjectType() {
         if (mObjectType == null) {
             mObjectType = findClass(OBJECT_CLASS_NAME, null);
         }
         return mObjectType;
     }
 
-    ModelClass getObservableType() {
+    synchronized ModelClass getObservableType() {
         if (mObservableType == null) {
             mObservableType = findClass(OBSERVABLE_CLASS_NAME, null);
         }
         return mObservableType;
     }
 
-    ModelClass getObservableListType() {
+    synchronized ModelClass getObservableListType() {
         if (mObservableListType == null) {
             mObservableListType = loadClassErasure(OBSERVABLE_LIST_CLASS_NAME);
         }
         return mObservableListType;
     }
 
-    ModelClass getObservableMapType() {
+    synchronized ModelClass getObservableMapType() {
         if (mObservableMapType == null) {
             mObservableMapType = loadClassErasure(OBSERVABLE_MAP_CLASS_NAME);
         }
         return mObservableMapType;
     }
 
-    ModelClass getViewDataBindingType() {
+    synchronized ModelClass getViewDataBindingType() {
         if (mViewBindingType == null) {
             mViewBindingType = findClass(VIEW_DATA_BINDING, null);
         }
         return mViewBindingType;
     }
 
-    protected ModelClass[] getObservableFieldTypes() {
+    protected synchronized ModelClass[] getObservableFieldTypes() {
         if (mObservableFieldTypes == null) {
             mObservableFieldTypes = new ModelClass[OBSERVABLE_FIELDS.length];
             for (int i = 0; i < OBSERVABLE_FIELDS.length; i++) {
@@ -338,7 +389,7 @@ public abstract class ModelAnalyzer {
         return mObservableFieldTypes;
     }
 
-    ModelClass getViewStubType() {
+    synchronized ModelClass getViewStubType() {
         if (mViewStubType == null) {
             mViewStubType = findClass(VIEW_STUB_CLASS_NAME, null);
         }
@@ -61,6 +61,14 @@ public abstract class ModelClass {
         return false;
     }
 
+    /**
+     * @return The primitive type stored by this list or map if it is one of the primitive
+     * observable collections, such as ObservableIntArrayList, or null otherwise.
+     */
+    public ModelClass getPrimitiveComponentType() {
+        return ModelAnalyzer.getInstance().getPrimitiveComponentType(this);
+    }
+
     /**
      * @return whether or not this ModelClass can be considered a Map or not.
      */
@@ -251,12 +259,11 @@ public abstract class ModelClass {
      */
     public ModelMethod[] getMethods(String name, List<ModelClass> args, boolean staticOnly,
             boolean allowProtected) {
-        ModelMethod[] methods = getDeclaredMethods();
+        List<ModelMethod> methods = getDeclaredMethods(name);
         ArrayList<ModelMethod> matching = new ArrayList<ModelMethod>();
         for (ModelMethod method : methods) {
             if ((method.isPublic() || (allowProtected && method.isProtected())) &&
-                    (!staticOnly || method.isStatic()) &&
-                    name.equals(method.getName()) && method.acceptsArguments(args)) {
+                    (!staticOnly || method.isStatic()) && method.acceptsArguments(args)) {
                 matching.add(method);
             }
         }
@@ -271,11 +278,10 @@ public abstract class ModelClass {
      * @return An array containing all public methods with the given name and number of parameters.
      */
     public ModelMethod[] getMethods(String name, int numParameters) {
-        ModelMethod[] methods = getDeclaredMethods();
+        List<ModelMethod> methods = getDeclaredMethods(name);
         ArrayList<ModelMethod> matching = new ArrayList<ModelMethod>();
         for (ModelMethod method : methods) {
             if (method.isPublic() && !method.isStatic() &&
-                    name.equals(method.getName()) &&
                     method.getParameterTypes().length == numParameters) {
                 matching.add(method);
             }
@@ -485,11 +491,9 @@ public abstract class ModelClass {
     }
 
     private ModelField getField(String name, boolean allowPrivate, boolean isStatic) {
-        ModelField[] fields = getDeclaredFields();
+        List<ModelField> fields = getDeclaredFields(name);
         for (ModelField field : fields) {
-            boolean nameMatch = name.equals(field.getName()) ||
-                    name.equals(stripFieldName(field.getName()));
-            if (nameMatch && field.isStatic() == isStatic &&
+            if (field.isStatic() == isStatic &&
                     (allowPrivate || field.isPublic())) {
                 return field;
             }
@@ -528,11 +532,10 @@ public abstract class ModelClass {
      */
     @NotNull
     public List<ModelMethod> findMethods(String name, boolean staticOnly) {
-        ModelMethod[] methods = getDeclaredMethods();
+        List<ModelMethod> methods = getDeclaredMethods(name);
         ArrayList<ModelMethod> matching = new ArrayList<ModelMethod>();
         for (ModelMethod method : methods) {
-            if (method.getName().equals(name) && (!staticOnly || method.isStatic()) &&
-                    method.isPublic()) {
+            if ((!staticOnly || method.isStatic()) && method.isPublic()) {
                 matching.add(method);
             }
         }
@@ -558,7 +561,36 @@ public abstract class ModelClass {
 
     protected abstract ModelMethod[] getDeclaredMethods();
 
-    private static String stripFieldName(String fieldName) {
+    /**
+     * Returns the declared methods named <code>name</code>. Implementations that keep a
+     * {@link MemberIndex} should override this to avoid scanning all methods.
+     */
+    protected List<ModelMethod> getDeclaredMethods(String name) {
+        ArrayList<ModelMethod> matching = new ArrayList<ModelMethod>();
+        for (ModelMethod method : getDeclaredMethods()) {
+            if (name.equals(method.getName())) {
+                matching.add(method);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Returns the declared fields named <code>name</code>, either exactly or once the field
+     * prefix is removed. Implementations that keep a {@link MemberIndex} should override this
+     * to avoid scanning all fields.
+     */
+    protected List<ModelField> getDeclaredFields(String name) {
+        ArrayList<ModelField> matching = new ArrayList<ModelField>();
+        for (ModelField field : getDeclaredFields()) {
+            if (name.equals(field.getName()) || name.equals(stripFieldName(field.getName()))) {
+                matching.add(field);
+            }
+        }
+        return matching;
+    }
+
+    static String stripFieldName(String fieldName) {
         // TODO: Make this configurable through IntelliJ
         if (fieldName.length() > 2) {
             final char start = fieldName.charAt(2);
@@ -15,23 +15,27 @@ package android.databinding.tool.reflection;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
+import android.databinding.tool.util.IntermediateReader;
+import android.databinding.tool.util.IntermediateWriter;
 import android.databinding.tool.util.L;
 import android.databinding.tool.util.Preconditions;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  * Class that is used for SDK related stuff.
@@ -72,62 +76,218 @@ public class SdkUtil {
         return 1;
     }
 
+    /**
+     * Looks up the API level that introduced a method.
+     * <p>
+     * api-versions.xml is large, so it is only parsed once per version of the file: the method
+     * levels are saved in a binary index next to it (or in the temp directory if the SDK is not
+     * writable), named after the checksum of the xml file. Later builds stream-load that index
+     * into sorted arrays.
+     */
     static class ApiChecker {
+        private static final int INDEX_VERSION = 1;
 
-        private Map<String, Integer> mFullLookup;
+        // sorted class descriptions
+        private String[] mClasses;
 
-        private Document mDoc;
+        // the methods of mClasses[i] are in [mMethodStart[i], mMethodStart[i + 1])
+        private int[] mMethodStart;
 
-        private XPath mXPath;
+        // method descriptions, sorted within each class
+        private String[] mMethods;
+
+        private int[] mSince;
 
         public ApiChecker(File apiFile) {
-            InputStream inputStream = null;
             try {
-                if (apiFile == null || !apiFile.exists()) {
-                    inputStream = getClass().getClassLoader().getResourceAsStream("api-versions.xml");
-                } else {
-                    inputStream = FileUtils.openInputStream(apiFile);
+                final boolean fromResources = apiFile == null || !apiFile.exists();
+                final long checksum = checksum(apiFile, fromResources);
+                final List<File> indexFiles = getIndexFiles(apiFile, fromResources, checksum);
+                for (File indexFile : indexFiles) {
+                    if (readIndex(indexFile, checksum)) {
+                        L.d("loaded api versions from %s", indexFile);
+                        return;
+                    }
+                }
+                InputStream inputStream = openApiFile(apiFile, fromResources);
+                try {
+                    parse(inputStream);
+                } finally {
+                    IOUtils.closeQuietly(inputStream);
+                }
+                for (File indexFile : indexFiles) {
+                    if (writeIndex(indexFile, checksum)) {
+                        break;
+                    }
                 }
-                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-                DocumentBuilder builder = factory.newDocumentBuilder();
-                mDoc = builder.parse(inputStream);
-                XPathFactory xPathFactory = XPathFactory.newInstance();
-                mXPath = xPathFactory.newXPath();
-                buildFullLookup();
             } catch (Throwable t) {
+                mClasses = null;
                 L.e(t, "cannot load api descriptions from %s", apiFile);
-            } finally {
-                IOUtils.closeQuietly(inputStream);
             }
         }
 
-        private void buildFullLookup() throws XPathExpressionException {
-            NodeList allClasses = mDoc.getChildNodes().item(0).getChildNodes();
-            mFullLookup = new HashMap<String, Integer>(allClasses.getLength() * 4);
-            for (int j = 0; j < allClasses.getLength(); j++) {
-                Node node = allClasses.item(j);
-                if (node.getNodeType() != Node.ELEMENT_NODE || !"class"
-                        .equals(node.getNodeName())) {
-                    continue;
+        private InputStream openApiFile(File apiFile, boolean fromResources) throws IOException {
+            if (fromResources) {
+                return getClass().getClassLoader().getResourceAsStream("api-versions.xml");
+            } else {
+                return FileUtils.openInputStream(apiFile);
+            }
+        }
+
+        private long checksum(File apiFile, boolean fromResources) throws IOException {
+            if (!fromResources) {
+                return FileUtils.checksumCRC32(apiFile);
+            }
+            CheckedInputStream in = new CheckedInputStream(openApiFile(null, true), new CRC32());
+            try {
+                byte[] buffer = new byte[8192];
+                //noinspection StatementWithEmptyBody
+                while (in.read(buffer) >= 0) {
                 }
-                //L.d("checking node %s", node.getAttributes().getNamedItem("name").getNodeValue());
-                int classSince = getSince(node);
-                String classDesc = node.getAttributes().getNamedItem("name").getNodeValue();
-
-                final NodeList childNodes = node.getChildNodes();
-                for (int i = 0; i < childNodes.getLength(); i++) {
-                    Node child = childNodes.item(i);
-                    if (child.getNodeType() != Node.ELEMENT_NODE || !"method"
-                            .equals(child.getNodeName())) {
+                return in.getChecksum().getValue();
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+
+        private static List<File> getIndexFiles(File apiFile, boolean fromResources,
+                long checksum) {
+            final String name = "api-versions-" + Long.toHexString(checksum) + ".dbidx";
+            List<File> files = new ArrayList<File>();
+            if (!fromResources) {
+                files.add(new File(apiFile.getParentFile(), name));
+            }
+            files.add(new File(System.getProperty("java.io.tmpdir"), "databinding-" + name));
+            return files;
+        }
+
+        private void parse(InputStream inputStream) throws XMLStreamException {
+            final TreeMap<String, TreeMap<String, Integer>> classes =
+                    new TreeMap<String, TreeMap<String, Integer>>();
+            XMLStreamReader reader = XMLInputFactory.newInstance()
+                    .createXMLStreamReader(inputStream);
+            try {
+                int depth = 0;
+                TreeMap<String, Integer> methods = null;
+                int classSince = 1;
+                while (reader.hasNext()) {
+                    final int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
                         continue;
                     }
-                    int methodSince = getSince(child);
-                    int since = Math.max(classSince, methodSince);
-                    String methodDesc = child.getAttributes().getNamedItem("name")
-                            .getNodeValue();
-                    String key = cacheKey(classDesc, methodDesc);
-                    mFullLookup.put(key, since);
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    depth++;
+                    final String tag = reader.getLocalName();
+                    if (depth == 2 && "class".equals(tag)) {
+                        classSince = getSince(reader);
+                        final String classDesc = reader.getAttributeValue(null, "name");
+                        methods = classes.get(classDesc);
+                        if (methods == null) {
+                            methods = new TreeMap<String, Integer>();
+                            classes.put(classDesc, methods);
+                        }
+                    } else if (depth == 3 && "method".equals(tag) && methods != null) {
+                        int since = Math.max(classSince, getSince(reader));
+                        methods.put(reader.getAttributeValue(null, "name"), since);
+                    }
                 }
+            } finally {
+                reader.close();
+            }
+            int methodCount = 0;
+            for (TreeMap<String, Integer> methods : classes.values()) {
+                methodCount += methods.size();
+            }
+            allocate(classes.size(), methodCount);
+            int classIndex = 0;
+            int methodIndex = 0;
+            for (Map.Entry<String, TreeMap<String, Integer>> entry : classes.entrySet()) {
+                mClasses[classIndex] = entry.getKey();
+                mMethodStart[classIndex] = methodIndex;
+                for (Map.Entry<String, Integer> method : entry.getValue().entrySet()) {
+                    mMethods[methodIndex] = method.getKey();
+                    mSince[methodIndex] = method.getValue();
+                    methodIndex++;
+                }
+                classIndex++;
+            }
+            mMethodStart[classIndex] = methodIndex;
+        }
+
+        private void allocate(int classCount, int methodCount) {
+            mClasses = new String[classCount];
+            mMethodStart = new int[classCount + 1];
+            mMethods = new String[methodCount];
+            mSince = new int[methodCount];
+        }
+
+        boolean readIndex(File indexFile, long checksum) {
+            if (!indexFile.isFile()) {
+                return false;
+            }
+            IntermediateReader in = null;
+            try {
+                in = new IntermediateReader(FileUtils.openInputStream(indexFile));
+                if (in.getVersion() != INDEX_VERSION || in.readLong() != checksum) {
+                    return false;
+                }
+                final int classCount = in.readInt();
+                allocate(classCount, in.readInt());
+                int methodIndex = 0;
+                for (int i = 0; i < classCount; i++) {
+                    mClasses[i] = in.readString();
+                    mMethodStart[i] = methodIndex;
+                    final int methodCount = in.readInt();
+                    for (int j = 0; j < methodCount; j++) {
+                        mMethods[methodIndex] = in.readString();
+                        mSince[methodIndex] = in.readInt();
+                        methodIndex++;
+                    }
+                }
+                mMethodStart[classCount] = methodIndex;
+                return methodIndex == mMethods.length;
+            } catch (IOException e) {
+                L.d("cannot read api versions index %s", indexFile);
+                return false;
+            } catch (RuntimeException e) {
+                // corrupt counts
+                L.d("cannot read api versions index %s", indexFile);
+                return false;
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+
+        private boolean writeIndex(File indexFile, long checksum) {
+            File tmp = null;
+            IntermediateWriter out = null;
+            try {
+                // a unique name, so that builds that share the SDK do not write the same file
+                tmp = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getParentFile());
+                out = new IntermediateWriter(FileUtils.openOutputStream(tmp), INDEX_VERSION);
+                out.writeLong(checksum);
+                out.writeInt(mClasses.length);
+                out.writeInt(mMethods.length);
+                for (int i = 0; i < mClasses.length; i++) {
+                    out.writeString(mClasses[i]);
+                    out.writeInt(mMethodStart[i + 1] - mMethodStart[i]);
+                    for (int j = mMethodStart[i]; j < mMethodStart[i + 1]; j++) {
+                        out.writeString(mMethods[j]);
+                        out.writeInt(mSince[j]);
+                    }
+                }
+                out.close();
+                out = null;
+                return tmp.renameTo(indexFile) || indexFile.isFile();
+            } catch (IOException e) {
+                L.d("cannot write api versions index %s", indexFile);
+                return false;
+            } finally {
+                IOUtils.closeQuietly(out);
+                FileUtils.deleteQuietly(tmp);
             }
         }
 
@@ -135,33 +295,29 @@ public class SdkUtil {
          * Returns 0 if we cannot find the API level for the method.
          */
         public int getMinApi(String classDesc, String methodOrFieldDesc) {
-            if (mDoc == null || mXPath == null) {
+            if (mClasses == null) {
                 return 1;
             }
             if (classDesc == null || classDesc.isEmpty()) {
                 return 1;
             }
-            final String key = cacheKey(classDesc, methodOrFieldDesc);
-            Integer since = mFullLookup.get(key);
-            return since == null ? 0 : since;
-        }
-
-        private static String cacheKey(String classDesc, String methodOrFieldDesc) {
-            return classDesc + "~" + methodOrFieldDesc;
+            final int classIndex = Arrays.binarySearch(mClasses, classDesc);
+            if (classIndex < 0 || methodOrFieldDesc == null) {
+                return 0;
+            }
+            final int methodIndex = Arrays.binarySearch(mMethods, mMethodStart[classIndex],
+                    mMethodStart[classIndex + 1], methodOrFieldDesc);
+            return methodIndex < 0 ? 0 : mSince[methodIndex];
         }
 
-        private static int getSince(Node node) {
-            final Node since = node.getAttributes().getNamedItem("since");
-            if (since != null) {
-                final String nodeValue = since.getNodeValue();
-                if (nodeValue != null && !nodeValue.isEmpty()) {
-                    try {
-                        return Integer.parseInt(nodeValue);
-                    } catch (Throwable t) {
-                    }
+        private static int getSince(XMLStreamReader reader) {
+            final String since = reader.getAttributeValue(null, "since");
+            if (since != null && !since.isEmpty()) {
+                try {
+                    return Integer.parseInt(since);
+                } catch (Throwable t) {
                 }
             }
-
             return 1;
         }
     }
@@ -48,7 +48,7 @@ public abstract class TypeUtil {
 
     abstract public String getDescription(ModelMethod modelMethod);
 
-    public static TypeUtil getInstance() {
+    public static synchronized TypeUtil getInstance() {
         if (sInstance == null) {
             sInstance = ModelAnalyzer.getInstance().createTypeUtil();
         }
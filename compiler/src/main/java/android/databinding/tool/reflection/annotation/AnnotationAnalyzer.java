@@ -15,13 +15,16 @@
  */
 package android.databinding.tool.reflection.annotation;
 
+import android.databinding.tool.reflection.MemberIndex;
 import android.databinding.tool.reflection.ModelAnalyzer;
 import android.databinding.tool.reflection.ModelClass;
 import android.databinding.tool.reflection.TypeUtil;
 import android.databinding.tool.util.L;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 import javax.annotation.processing.Messager;
@@ -52,17 +55,41 @@ public class AnnotationAnalyzer extends ModelAnalyzer {
 
     public final ProcessingEnvironment mProcessingEnv;
 
+    private final EnumMap<TypeKind, AnnotationClass> mPrimitives =
+            new EnumMap<TypeKind, AnnotationClass>(TypeKind.class);
+
+    // Classes found in the current processing round, keyed by the identity of the imports that
+    // were used to find them. Classes that could not be found are kept as null values.
+    private final IdentityHashMap<Map<String, String>, ClassCache> mClassCaches =
+            new IdentityHashMap<Map<String, String>, ClassCache>();
+
+    private final ClassCache mNoImportsClassCache = new ClassCache(0);
+
+    // Members of each type seen in the current processing round.
+    private final HashMap<AnnotationClass, MemberIndex> mMembers =
+            new HashMap<AnnotationClass, MemberIndex>();
+
+    // Incremented when a processing round finishes, so that caches outside of the analyzer can
+    // tell that they are stale.
+    private int mRound;
+
+    private int mClassCacheHits;
+
+    private int mClassCacheMisses;
+
     public AnnotationAnalyzer(ProcessingEnvironment processingEnvironment) {
         mProcessingEnv = processingEnvironment;
         setInstance(this);
         L.setClient(new L.Client() {
             @Override
             public void printMessage(Diagnostic.Kind kind, String message, Element element) {
-                Messager messager = mProcessingEnv.getMessager();
-                if (element != null) {
-                    messager.printMessage(kind, message, element);
-                } else {
-                    messager.printMessage(kind, message);
+                synchronized (AnnotationAnalyzer.this) {
+                    Messager messager = mProcessingEnv.getMessager();
+                    if (element != null) {
+                        messager.printMessage(kind, message, element);
+                    } else {
+                        messager.printMessage(kind, message);
+                    }
                 }
             }
         });
@@ -73,18 +100,77 @@ public class AnnotationAnalyzer extends ModelAnalyzer {
     }
 
     @Override
-    public AnnotationClass loadPrimitive(String className) {
+    public synchronized AnnotationClass loadPrimitive(String className) {
         TypeKind typeKind = PRIMITIVE_TYPES.get(className);
         if (typeKind == null) {
             return null;
-        } else {
+        }
+        AnnotationClass primitive = mPrimitives.get(typeKind);
+        if (primitive == null) {
             Types typeUtils = getTypeUtils();
-            return new AnnotationClass(typeUtils.getPrimitiveType(typeKind));
+            primitive = new AnnotationClass(typeUtils.getPrimitiveType(typeKind));
+            mPrimitives.put(typeKind, primitive);
         }
+        return primitive;
+    }
+
+    @Override
+    public synchronized ModelClass findClassInternal(String className,
+            Map<String, String> imports) {
+        final ClassCache cache = getClassCache(imports);
+        if (cache.classes.containsKey(className)) {
+            mClassCacheHits++;
+            return cache.classes.get(className);
+        }
+        mClassCacheMisses++;
+        final ModelClass modelClass = loadClass(className, imports);
+        cache.classes.put(className, modelClass);
+        return modelClass;
+    }
+
+    /**
+     * Drops the classes found during the processing round. Classes that were missing may be
+     * generated by the round that just finished, so they must be looked up again.
+     */
+    public synchronized void onRoundFinished() {
+        L.d("class cache: %d hits, %d misses", mClassCacheHits, mClassCacheMisses);
+        mClassCaches.clear();
+        mNoImportsClassCache.classes.clear();
+        mMembers.clear();
+        mRound++;
+        mClassCacheHits = 0;
+        mClassCacheMisses = 0;
     }
 
     @Override
-    public ModelClass findClassInternal(String className, Map<String, String> imports) {
+    public synchronized int getRound() {
+        return mRound;
+    }
+
+    synchronized MemberIndex getMembers(AnnotationClass annotationClass) {
+        MemberIndex members = mMembers.get(annotationClass);
+        if (members == null) {
+            members = annotationClass.createMembers();
+            mMembers.put(annotationClass, members);
+        }
+        return members;
+    }
+
+    private ClassCache getClassCache(Map<String, String> imports) {
+        if (imports == null) {
+            return mNoImportsClassCache;
+        }
+        ClassCache cache = mClassCaches.get(imports);
+        // Imports are only ever added, so a different size means that a class that could not
+        // be found before may be found now.
+        if (cache == null || cache.importCount != imports.size()) {
+            cache = new ClassCache(imports.size());
+            mClassCaches.put(imports, cache);
+        }
+        return cache;
+    }
+
+    private ModelClass loadClass(String className, Map<String, String> imports) {
         className = className.trim();
         int numDimensions = 0;
         while (className.endsWith("[]")) {
@@ -93,7 +179,8 @@ public class AnnotationAnalyzer extends ModelAnalyzer {
         }
         AnnotationClass primitive = loadPrimitive(className);
         if (primitive != null) {
-            return addDimension(primitive.mTypeMirror, numDimensions);
+            return numDimensions == 0 ? primitive :
+                    addDimension(primitive.mTypeMirror, numDimensions);
         }
         if ("void".equals(className.toLowerCase())) {
             return addDimension(getTypeUtils().getNoType(TypeKind.VOID), numDimensions);
@@ -227,4 +314,14 @@ public class AnnotationAnalyzer extends ModelAnalyzer {
     public TypeUtil createTypeUtil() {
         return new AnnotationTypeUtil(this);
     }
+
+    private static class ClassCache {
+        final int importCount;
+
+        final HashMap<String, ModelClass> classes = new HashMap<String, ModelClass>();
+
+        ClassCache(int importCount) {
+            this.importCount = importCount;
+        }
+    }
 }
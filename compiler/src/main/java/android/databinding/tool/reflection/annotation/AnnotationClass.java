@@ -15,6 +15,7 @@
  */
 package android.databinding.tool.reflection.annotation;
 
+import android.databinding.tool.reflection.MemberIndex;
 import android.databinding.tool.reflection.ModelAnalyzer;
 import android.databinding.tool.reflection.ModelClass;
 import android.databinding.tool.reflection.ModelField;
@@ -49,16 +50,24 @@ class AnnotationClass extends ModelClass {
 
     final TypeMirror mTypeMirror;
 
+    // Members are read again in a new processing round, which may have generated new types that
+    // this type refers to. Both fields are guarded by the AnnotationAnalyzer.
+    private MemberIndex mMembers;
+
+    private int mMembersRound;
+
     public AnnotationClass(TypeMirror typeMirror) {
         mTypeMirror = typeMirror;
     }
 
     @Override
     public String toJavaCode() {
-        if (isIncomplete()) {
-            return getCanonicalName();
+        synchronized (AnnotationAnalyzer.get()) {
+            if (isIncomplete()) {
+                return getCanonicalName();
+            }
+            return mTypeMirror.toString();
         }
-        return mTypeMirror.toString();
     }
 
     @Override
@@ -68,30 +77,33 @@ class AnnotationClass extends ModelClass {
 
     @Override
     public AnnotationClass getComponentType() {
-        TypeMirror component = null;
-        if (isArray()) {
-            component = ((ArrayType) mTypeMirror).getComponentType();
-        } else if (isList()) {
-            for (ModelMethod method : getMethods("get", 1)) {
-                ModelClass parameter = method.getParameterTypes()[0];
-                if (parameter.isInt() || parameter.isLong()) {
-                    ArrayList<ModelClass> parameters = new ArrayList<ModelClass>(1);
-                    parameters.add(parameter);
-                    return (AnnotationClass) method.getReturnType(parameters);
+        synchronized (AnnotationAnalyzer.get()) {
+            TypeMirror component = null;
+            if (isArray()) {
+                component = ((ArrayType) mTypeMirror).getComponentType();
+            } else if (isList()) {
+                for (ModelMethod method : getMethods("get", 1)) {
+                    ModelClass parameter = method.getParameterTypes()[0];
+                    if (parameter.isInt() || parameter.isLong()) {
+                        ArrayList<ModelClass> parameters = new ArrayList<ModelClass>(1);
+                        parameters.add(parameter);
+                        return (AnnotationClass) method.getReturnType(parameters);
+                    }
                 }
-            }
-            // no "get" call found!
-            return null;
-        } else {
-            AnnotationClass mapClass = (AnnotationClass) ModelAnalyzer.getInstance().getMapType();
-            DeclaredType mapType = findInterface(mapClass.mTypeMirror);
-            if (mapType == null) {
+                // no "get" call found!
                 return null;
+            } else {
+                AnnotationClass mapClass =
+                        (AnnotationClass) ModelAnalyzer.getInstance().getMapType();
+                DeclaredType mapType = findInterface(mapClass.mTypeMirror);
+                if (mapType == null) {
+                    return null;
+                }
+                component = mapType.getTypeArguments().get(1);
             }
-            component = mapType.getTypeArguments().get(1);
-        }
 
-        return new AnnotationClass(component);
+            return new AnnotationClass(component);
+        }
     }
 
     private DeclaredType findInterface(TypeMirror interfaceType) {
@@ -196,50 +208,57 @@ class AnnotationClass extends ModelClass {
 
     @Override
     public boolean isGeneric() {
-        boolean isGeneric = false;
-        if (mTypeMirror.getKind() == TypeKind.DECLARED) {
-            DeclaredType declaredType = (DeclaredType) mTypeMirror;
-            List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
-            isGeneric = typeArguments != null && !typeArguments.isEmpty();
+        synchronized (AnnotationAnalyzer.get()) {
+            boolean isGeneric = false;
+            if (mTypeMirror.getKind() == TypeKind.DECLARED) {
+                DeclaredType declaredType = (DeclaredType) mTypeMirror;
+                List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+                isGeneric = typeArguments != null && !typeArguments.isEmpty();
+            }
+            return isGeneric;
         }
-        return isGeneric;
     }
 
     @Override
     public int getMinApi() {
-        if (mTypeMirror.getKind() == TypeKind.DECLARED) {
-            DeclaredType declaredType = (DeclaredType) mTypeMirror;
-            List<? extends AnnotationMirror> annotations =
-                    getElementUtils().getAllAnnotationMirrors(declaredType.asElement());
-
-            TypeElement targetApi = getElementUtils().getTypeElement("android.annotation.TargetApi");
-            TypeMirror targetApiType = targetApi.asType();
-            Types typeUtils = getTypeUtils();
-            for (AnnotationMirror annotation : annotations) {
-                if (typeUtils.isAssignable(annotation.getAnnotationType(), targetApiType)) {
-                    for (AnnotationValue value : annotation.getElementValues().values()) {
-                        return (Integer) value.getValue();
+        synchronized (AnnotationAnalyzer.get()) {
+            if (mTypeMirror.getKind() == TypeKind.DECLARED) {
+                DeclaredType declaredType = (DeclaredType) mTypeMirror;
+                List<? extends AnnotationMirror> annotations =
+                        getElementUtils().getAllAnnotationMirrors(declaredType.asElement());
+
+                TypeElement targetApi =
+                        getElementUtils().getTypeElement("android.annotation.TargetApi");
+                TypeMirror targetApiType = targetApi.asType();
+                Types typeUtils = getTypeUtils();
+                for (AnnotationMirror annotation : annotations) {
+                    if (typeUtils.isAssignable(annotation.getAnnotationType(), targetApiType)) {
+                        for (AnnotationValue value : annotation.getElementValues().values()) {
+                            return (Integer) value.getValue();
+                        }
                     }
                 }
             }
+            return super.getMinApi();
         }
-        return super.getMinApi();
     }
 
     @Override
     public List<ModelClass> getTypeArguments() {
-        List<ModelClass> types = null;
-        if (mTypeMirror.getKind() == TypeKind.DECLARED) {
-            DeclaredType declaredType = (DeclaredType) mTypeMirror;
-            List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
-            if (typeArguments != null && !typeArguments.isEmpty()) {
-                types = new ArrayList<ModelClass>();
-                for (TypeMirror typeMirror : typeArguments) {
-                    types.add(new AnnotationClass(typeMirror));
+        synchronized (AnnotationAnalyzer.get()) {
+            List<ModelClass> types = null;
+            if (mTypeMirror.getKind() == TypeKind.DECLARED) {
+                DeclaredType declaredType = (DeclaredType) mTypeMirror;
+                List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+                if (typeArguments != null && !typeArguments.isEmpty()) {
+                    types = new ArrayList<ModelClass>();
+                    for (TypeMirror typeMirror : typeArguments) {
+                        types.add(new AnnotationClass(typeMirror));
+                    }
                 }
             }
+            return types;
         }
-        return types;
     }
 
     @Override
@@ -254,8 +273,10 @@ class AnnotationClass extends ModelClass {
 
     @Override
     public boolean isInterface() {
-        return mTypeMirror.getKind() == TypeKind.DECLARED &&
-                ((DeclaredType)mTypeMirror).asElement().getKind() == ElementKind.INTERFACE;
+        synchronized (AnnotationAnalyzer.get()) {
+            return mTypeMirror.getKind() == TypeKind.DECLARED &&
+                    ((DeclaredType)mTypeMirror).asElement().getKind() == ElementKind.INTERFACE;
+        }
     }
 
     @Override
@@ -265,44 +286,76 @@ class AnnotationClass extends ModelClass {
 
     @Override
     public AnnotationClass unbox() {
-        if (!isNullable()) {
-            return this;
-        }
-        try {
-            return new AnnotationClass(getTypeUtils().unboxedType(mTypeMirror));
-        } catch (IllegalArgumentException e) {
-            // I'm being lazy. This is much easier than checking every type.
-            return this;
+        synchronized (AnnotationAnalyzer.get()) {
+            if (!isNullable()) {
+                return this;
+            }
+            try {
+                return new AnnotationClass(getTypeUtils().unboxedType(mTypeMirror));
+            } catch (IllegalArgumentException e) {
+                // I'm being lazy. This is much easier than checking every type.
+                return this;
+            }
         }
     }
 
     @Override
     public AnnotationClass box() {
-        if (!isPrimitive()) {
-            return this;
+        synchronized (AnnotationAnalyzer.get()) {
+            if (!isPrimitive()) {
+                return this;
+            }
+            return new AnnotationClass(
+                    getTypeUtils().boxedClass((PrimitiveType) mTypeMirror).asType());
         }
-        return new AnnotationClass(getTypeUtils().boxedClass((PrimitiveType) mTypeMirror).asType());
     }
 
     @Override
     public boolean isAssignableFrom(ModelClass that) {
-        ModelClass other = that;
-        while (other != null && !(other instanceof AnnotationClass)) {
-            other = other.getSuperclass();
-        }
-        if (other == null) {
-            return false;
-        }
-        if (equals(other)) {
-            return true;
+        synchronized (AnnotationAnalyzer.get()) {
+            ModelClass other = that;
+            while (other != null && !(other instanceof AnnotationClass)) {
+                other = other.getSuperclass();
+            }
+            if (other == null) {
+                return false;
+            }
+            if (equals(other)) {
+                return true;
+            }
+            AnnotationClass thatAnnotationClass = (AnnotationClass) other;
+            return getTypeUtils().isAssignable(thatAnnotationClass.mTypeMirror, this.mTypeMirror);
         }
-        AnnotationClass thatAnnotationClass = (AnnotationClass) other;
-        return getTypeUtils().isAssignable(thatAnnotationClass.mTypeMirror, this.mTypeMirror);
     }
 
     @Override
     public ModelMethod[] getDeclaredMethods() {
+        return getMembers().getMethods();
+    }
+
+    @Override
+    protected List<ModelMethod> getDeclaredMethods(String name) {
+        return getMembers().getMethods(name);
+    }
+
+    private MemberIndex getMembers() {
+        final AnnotationAnalyzer analyzer = AnnotationAnalyzer.get();
+        synchronized (analyzer) {
+            if (mMembers == null || mMembersRound != analyzer.getRound()) {
+                mMembers = analyzer.getMembers(this);
+                mMembersRound = analyzer.getRound();
+            }
+            return mMembers;
+        }
+    }
+
+    /**
+     * Reads the methods and fields of this type, including inherited ones. Called once per type
+     * by {@link AnnotationAnalyzer#getMembers(AnnotationClass)}.
+     */
+    MemberIndex createMembers() {
         final ModelMethod[] declaredMethods;
+        final ModelField[] declaredFields;
         if (mTypeMirror.getKind() == TypeKind.DECLARED) {
             DeclaredType declaredType = (DeclaredType) mTypeMirror;
             Elements elementUtils = getElementUtils();
@@ -313,37 +366,49 @@ class AnnotationClass extends ModelClass {
             for (int i = 0; i < declaredMethods.length; i++) {
                 declaredMethods[i] = new AnnotationMethod(declaredType, methods.get(i));
             }
+            List<VariableElement> fields = ElementFilter.fieldsIn(members);
+            declaredFields = new ModelField[fields.size()];
+            for (int i = 0; i < declaredFields.length; i++) {
+                declaredFields[i] = new AnnotationField(typeElement, fields.get(i));
+            }
         } else {
             declaredMethods = new ModelMethod[0];
+            declaredFields = new ModelField[0];
         }
-        return declaredMethods;
+        return new MemberIndex(declaredMethods, declaredFields);
     }
 
     @Override
     public AnnotationClass getSuperclass() {
-        if (mTypeMirror.getKind() == TypeKind.DECLARED) {
-            DeclaredType declaredType = (DeclaredType) mTypeMirror;
-            TypeElement typeElement = (TypeElement) declaredType.asElement();
-            TypeMirror superClass = typeElement.getSuperclass();
-            if (superClass.getKind() == TypeKind.DECLARED) {
-                return new AnnotationClass(superClass);
+        synchronized (AnnotationAnalyzer.get()) {
+            if (mTypeMirror.getKind() == TypeKind.DECLARED) {
+                DeclaredType declaredType = (DeclaredType) mTypeMirror;
+                TypeElement typeElement = (TypeElement) declaredType.asElement();
+                TypeMirror superClass = typeElement.getSuperclass();
+                if (superClass.getKind() == TypeKind.DECLARED) {
+                    return new AnnotationClass(superClass);
+                }
             }
+            return null;
         }
-        return null;
     }
 
     @Override
     public String getCanonicalName() {
-        return getTypeUtils().erasure(mTypeMirror).toString();
+        synchronized (AnnotationAnalyzer.get()) {
+            return getTypeUtils().erasure(mTypeMirror).toString();
+        }
     }
 
     @Override
     public ModelClass erasure() {
-        final TypeMirror erasure = getTypeUtils().erasure(mTypeMirror);
-        if (erasure == mTypeMirror) {
-            return this;
-        } else {
-            return new AnnotationClass(erasure);
+        synchronized (AnnotationAnalyzer.get()) {
+            final TypeMirror erasure = getTypeUtils().erasure(mTypeMirror);
+            if (erasure == mTypeMirror) {
+                return this;
+            } else {
+                return new AnnotationClass(erasure);
+            }
         }
     }
 
@@ -354,21 +419,12 @@ class AnnotationClass extends ModelClass {
 
     @Override
     protected ModelField[] getDeclaredFields() {
-        final ModelField[] declaredFields;
-        if (mTypeMirror.getKind() == TypeKind.DECLARED) {
-            DeclaredType declaredType = (DeclaredType) mTypeMirror;
-            Elements elementUtils = getElementUtils();
-            TypeElement typeElement = (TypeElement) declaredType.asElement();
-            List<? extends Element> members = elementUtils.getAllMembers(typeElement);
-            List<VariableElement> fields = ElementFilter.fieldsIn(members);
-            declaredFields = new ModelField[fields.size()];
-            for (int i = 0; i < declaredFields.length; i++) {
-                declaredFields[i] = new AnnotationField(typeElement, fields.get(i));
-            }
-        } else {
-            declaredFields = new ModelField[0];
-        }
-        return declaredFields;
+        return getMembers().getFields();
+    }
+
+    @Override
+    protected List<ModelField> getDeclaredFields(String name) {
+        return getMembers().getFields(name);
     }
 
     private static Types getTypeUtils() {
@@ -381,20 +437,26 @@ class AnnotationClass extends ModelClass {
 
     @Override
     public String toString() {
-        return mTypeMirror.toString();
+        synchronized (AnnotationAnalyzer.get()) {
+            return mTypeMirror.toString();
+        }
     }
 
     @Override
     public boolean equals(Object obj) {
-        if (obj instanceof AnnotationClass) {
-            return getTypeUtils().isSameType(mTypeMirror, ((AnnotationClass) obj).mTypeMirror);
-        } else {
-            return false;
+        synchronized (AnnotationAnalyzer.get()) {
+            if (obj instanceof AnnotationClass) {
+                return getTypeUtils().isSameType(mTypeMirror, ((AnnotationClass) obj).mTypeMirror);
+            } else {
+                return false;
+            }
         }
     }
 
     @Override
     public int hashCode() {
-        return mTypeMirror.toString().hashCode();
+        synchronized (AnnotationAnalyzer.get()) {
+            return mTypeMirror.toString().hashCode();
+        }
     }
 }
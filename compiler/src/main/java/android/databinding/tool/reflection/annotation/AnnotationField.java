@@ -36,47 +36,63 @@ class AnnotationField extends ModelField {
 
     @Override
     public String toString() {
-        return mField.toString();
+        synchronized (AnnotationAnalyzer.get()) {
+            return mField.toString();
+        }
     }
 
     @Override
     public boolean isBindable() {
-        return mField.getAnnotation(Bindable.class) != null;
+        synchronized (AnnotationAnalyzer.get()) {
+            return mField.getAnnotation(Bindable.class) != null;
+        }
     }
 
     @Override
     public String getName() {
-        return mField.getSimpleName().toString();
+        synchronized (AnnotationAnalyzer.get()) {
+            return mField.getSimpleName().toString();
+        }
     }
 
     @Override
     public boolean isPublic() {
-        return mField.getModifiers().contains(Modifier.PUBLIC);
+        synchronized (AnnotationAnalyzer.get()) {
+            return mField.getModifiers().contains(Modifier.PUBLIC);
+        }
     }
 
     @Override
     public boolean isStatic() {
-        return mField.getModifiers().contains(Modifier.STATIC);
+        synchronized (AnnotationAnalyzer.get()) {
+            return mField.getModifiers().contains(Modifier.STATIC);
+        }
     }
 
     @Override
     public boolean isFinal() {
-        return mField.getModifiers().contains(Modifier.FINAL);
+        synchronized (AnnotationAnalyzer.get()) {
+            return mField.getModifiers().contains(Modifier.FINAL);
+        }
     }
 
     @Override
     public ModelClass getFieldType() {
-        return new AnnotationClass(mField.asType());
+        synchronized (AnnotationAnalyzer.get()) {
+            return new AnnotationClass(mField.asType());
+        }
     }
 
     @Override
     public boolean equals(Object obj) {
-        if (obj instanceof AnnotationField) {
-            AnnotationField that = (AnnotationField) obj;
-            return mDeclaredClass.equals(that.mDeclaredClass) && AnnotationAnalyzer.get()
-                    .getTypeUtils().isSameType(mField.asType(), that.mField.asType());
-        } else {
-            return false;
+        synchronized (AnnotationAnalyzer.get()) {
+            if (obj instanceof AnnotationField) {
+                AnnotationField that = (AnnotationField) obj;
+                return mDeclaredClass.equals(that.mDeclaredClass) && AnnotationAnalyzer.get()
+                        .getTypeUtils().isSameType(mField.asType(), that.mField.asType());
+            } else {
+                return false;
+            }
         }
     }
 }
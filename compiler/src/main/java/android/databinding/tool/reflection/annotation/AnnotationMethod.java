@@ -51,13 +51,15 @@ class AnnotationMethod extends ModelMethod {
 
     @Override
     public ModelClass getDeclaringClass() {
-        if (mReceiverType == null) {
-            mReceiverType = findReceiverType(mDeclaringType);
+        synchronized (AnnotationAnalyzer.get()) {
             if (mReceiverType == null) {
-                mReceiverType = new AnnotationClass(mDeclaringType);
+                mReceiverType = findReceiverType(mDeclaringType);
+                if (mReceiverType == null) {
+                    mReceiverType = new AnnotationClass(mDeclaringType);
+                }
             }
+            return mReceiverType;
         }
-        return mReceiverType;
     }
 
     // TODO: When going to Java 1.8, use mExecutableElement.getReceiverType()
@@ -95,55 +97,73 @@ class AnnotationMethod extends ModelMethod {
 
     @Override
     public ModelClass[] getParameterTypes() {
-        List<? extends TypeMirror> parameters = mMethod.getParameterTypes();
-        ModelClass[] parameterTypes = new ModelClass[parameters.size()];
-        for (int i = 0; i < parameters.size(); i++) {
-            parameterTypes[i] = new AnnotationClass(parameters.get(i));
+        synchronized (AnnotationAnalyzer.get()) {
+            List<? extends TypeMirror> parameters = mMethod.getParameterTypes();
+            ModelClass[] parameterTypes = new ModelClass[parameters.size()];
+            for (int i = 0; i < parameters.size(); i++) {
+                parameterTypes[i] = new AnnotationClass(parameters.get(i));
+            }
+            return parameterTypes;
         }
-        return parameterTypes;
     }
 
     @Override
     public String getName() {
-        return mExecutableElement.getSimpleName().toString();
+        synchronized (AnnotationAnalyzer.get()) {
+            return mExecutableElement.getSimpleName().toString();
+        }
     }
 
     @Override
     public ModelClass getReturnType(List<ModelClass> args) {
-        TypeMirror returnType = mMethod.getReturnType();
-        // TODO: support argument-supplied types
-        // for example: public T[] toArray(T[] arr)
-        return new AnnotationClass(returnType);
+        synchronized (AnnotationAnalyzer.get()) {
+            TypeMirror returnType = mMethod.getReturnType();
+            // TODO: support argument-supplied types
+            // for example: public T[] toArray(T[] arr)
+            return new AnnotationClass(returnType);
+        }
     }
 
     @Override
     public boolean isVoid() {
-        return mMethod.getReturnType().getKind() == TypeKind.VOID;
+        synchronized (AnnotationAnalyzer.get()) {
+            return mMethod.getReturnType().getKind() == TypeKind.VOID;
+        }
     }
 
     @Override
     public boolean isPublic() {
-        return mExecutableElement.getModifiers().contains(Modifier.PUBLIC);
+        synchronized (AnnotationAnalyzer.get()) {
+            return mExecutableElement.getModifiers().contains(Modifier.PUBLIC);
+        }
     }
 
     @Override
     public boolean isProtected() {
-        return mExecutableElement.getModifiers().contains(Modifier.PROTECTED);
+        synchronized (AnnotationAnalyzer.get()) {
+            return mExecutableElement.getModifiers().contains(Modifier.PROTECTED);
+        }
     }
 
     @Override
     public boolean isStatic() {
-        return mExecutableElement.getModifiers().contains(Modifier.STATIC);
+        synchronized (AnnotationAnalyzer.get()) {
+            return mExecutableElement.getModifiers().contains(Modifier.STATIC);
+        }
     }
 
     @Override
     public boolean isAbstract() {
-        return mExecutableElement.getModifiers().contains(Modifier.ABSTRACT);
+        synchronized (AnnotationAnalyzer.get()) {
+            return mExecutableElement.getModifiers().contains(Modifier.ABSTRACT);
+        }
     }
 
     @Override
     public boolean isBindable() {
-        return mExecutableElement.getAnnotation(Bindable.class) != null;
+        synchronized (AnnotationAnalyzer.get()) {
+            return mExecutableElement.getAnnotation(Bindable.class) != null;
+        }
     }
 
     @Override
@@ -161,7 +181,9 @@ class AnnotationMethod extends ModelMethod {
 
     @Override
     public boolean isVarArgs() {
-        return mExecutableElement.isVarArgs();
+        synchronized (AnnotationAnalyzer.get()) {
+            return mExecutableElement.isVarArgs();
+        }
     }
 
     private static Types getTypeUtils() {
@@ -174,11 +196,13 @@ class AnnotationMethod extends ModelMethod {
 
     @Override
     public String toString() {
-        return "AnnotationMethod{" +
-                "mMethod=" + mMethod +
-                ", mDeclaringType=" + mDeclaringType +
-                ", mExecutableElement=" + mExecutableElement +
-                ", mApiLevel=" + mApiLevel +
-                '}';
+        synchronized (AnnotationAnalyzer.get()) {
+            return "AnnotationMethod{" +
+                    "mMethod=" + mMethod +
+                    ", mDeclaringType=" + mDeclaringType +
+                    ", mExecutableElement=" + mExecutableElement +
+                    ", mApiLevel=" + mApiLevel +
+                    '}';
+        }
     }
 }
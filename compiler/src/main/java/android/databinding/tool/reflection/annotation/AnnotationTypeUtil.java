@@ -43,9 +43,11 @@ public class AnnotationTypeUtil extends TypeUtil {
 
     @Override
     public String getDescription(ModelMethod modelMethod) {
-        // TODO use interface
-        return modelMethod.getName() + getDescription(
-                ((AnnotationMethod) modelMethod).mExecutableElement.asType());
+        synchronized (AnnotationAnalyzer.get()) {
+            // TODO use interface
+            return modelMethod.getName() + getDescription(
+                    ((AnnotationMethod) modelMethod).mExecutableElement.asType());
+        }
     }
 
     private String getDescription(TypeMirror typeMirror) {
@@ -20,6 +20,8 @@ import android.databinding.tool.reflection.ModelAnalyzer;
 import android.databinding.tool.reflection.ModelClass;
 import android.databinding.tool.reflection.ModelMethod;
 import android.databinding.tool.util.GenerationalClassUtil;
+import android.databinding.tool.util.IntermediateReader;
+import android.databinding.tool.util.IntermediateWriter;
 import android.databinding.tool.util.L;
 import android.databinding.tool.util.Preconditions;
 import android.databinding.tool.util.StringUtils;
@@ -49,6 +51,10 @@ import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 
 public class SetterStore {
+    static final GenerationalClassUtil.Codec<Intermediate> CODEC = new IntermediateCodec();
+
+    // layouts may be processed on multiple threads, so the lookups below are synchronized. They
+    // may access the ModelAnalyzer while holding the store lock, but never the other way around.
     private static SetterStore sStore;
 
     private final IntermediateV2 mStore;
@@ -56,6 +62,31 @@ public class SetterStore {
     private HashMap<String, List<String>> mInstanceAdapters;
     private final HashSet<String> mInverseEventAttributes = new HashSet<String>();
 
+    // Type names in the store are fully qualified, so they are resolved once per processor run
+    // rather than once per lookup.
+    private final HashMap<String, ModelClass> mResolvedTypes = new HashMap<String, ModelClass>();
+
+    // Lookup tables derived from mStore. They are dropped whenever the store is modified.
+    private final HashMap<String, List<ResolvedAccessor<MethodDescription>>> mAdapterIndex =
+            new HashMap<String, List<ResolvedAccessor<MethodDescription>>>();
+    private final HashMap<String, List<ResolvedAccessor<InverseDescription>>> mInverseAdapterIndex =
+            new HashMap<String, List<ResolvedAccessor<InverseDescription>>>();
+    private final HashMap<LookupKey, List<ResolvedAccessor<MethodDescription>>>
+            mApplicableAdapters =
+            new HashMap<LookupKey, List<ResolvedAccessor<MethodDescription>>>();
+    private final HashMap<LookupKey, List<ResolvedAccessor<InverseDescription>>>
+            mApplicableInverseAdapters =
+            new HashMap<LookupKey, List<ResolvedAccessor<InverseDescription>>>();
+    private final HashMap<LookupKey, SetterCall> mSetterCalls =
+            new HashMap<LookupKey, SetterCall>();
+    // The conversions resolve their types with the model of the round they were built in, and a
+    // conversion that was not found may become available when its types are generated. They are
+    // dropped whenever another round starts.
+    private List<ConversionNode> mConversionGraph;
+    private final HashMap<ConversionKey, MethodDescription> mConversions =
+            new HashMap<ConversionKey, MethodDescription>();
+    private int mConversionsRound;
+
     private Comparator<MultiAttributeSetter> COMPARE_MULTI_ATTRIBUTE_SETTERS =
             new Comparator<MultiAttributeSetter>() {
                 @Override
@@ -63,8 +94,8 @@ public class SetterStore {
                     if (o1.attributes.length != o2.attributes.length) {
                         return o2.attributes.length - o1.attributes.length;
                     }
-                    ModelClass view1 = mClassAnalyzer.findClass(o1.mKey.viewType, null).erasure();
-                    ModelClass view2 = mClassAnalyzer.findClass(o2.mKey.viewType, null).erasure();
+                    ModelClass view1 = findStoredClass(o1.mKey.viewType).erasure();
+                    ModelClass view2 = findStoredClass(o2.mKey.viewType).erasure();
                     if (!view1.equals(view2)) {
                         if (view1.isAssignableFrom(view2)) {
                             return 1;
@@ -92,10 +123,8 @@ public class SetterStore {
                     for (String attribute : o1.mKey.attributeIndices.keySet()) {
                         final int index1 = o1.mKey.attributeIndices.get(attribute);
                         final int index2 = o2.mKey.attributeIndices.get(attribute);
-                        ModelClass type1 = mClassAnalyzer
-                                .findClass(o1.mKey.parameterTypes[index1], null);
-                        ModelClass type2 = mClassAnalyzer
-                                .findClass(o2.mKey.parameterTypes[index2], null);
+                        ModelClass type1 = findStoredClass(o1.mKey.parameterTypes[index1]);
+                        ModelClass type2 = findStoredClass(o2.mKey.parameterTypes[index2]);
                         if (type1.equals(type2)) {
                             continue;
                         }
@@ -158,7 +187,7 @@ public class SetterStore {
         }
     }
 
-    public static SetterStore get(ModelAnalyzer modelAnalyzer) {
+    public static synchronized SetterStore get(ModelAnalyzer modelAnalyzer) {
         if (sStore == null) {
             sStore = load(modelAnalyzer);
         }
@@ -168,7 +197,7 @@ public class SetterStore {
     private static SetterStore load(ModelAnalyzer modelAnalyzer) {
         IntermediateV2 store = new IntermediateV2();
         List<Intermediate> previousStores = GenerationalClassUtil
-                .loadObjects(GenerationalClassUtil.ExtensionFilter.SETTER_STORE);
+                .loadObjects(GenerationalClassUtil.ExtensionFilter.SETTER_STORE, CODEC);
         for (Intermediate intermediate : previousStores) {
             merge(store, intermediate);
         }
@@ -187,6 +216,7 @@ public class SetterStore {
                 declaredOn.getQualifiedName().toString(), method);
         L.d("STORE addmethod desc %s", methodDescription);
         renamed.put(declaringClass, methodDescription);
+        invalidateLookups();
     }
 
     public void addInverseMethod(String attribute, String event, String declaringClass,
@@ -202,6 +232,7 @@ public class SetterStore {
                 declaredOn.getQualifiedName().toString(), method, event);
         L.d("STORE addInverseMethod desc %s", methodDescription);
         inverseMethods.put(declaringClass, methodDescription);
+        invalidateLookups();
     }
 
     public void addBindingAdapter(ProcessingEnvironment processingEnv, String attribute,
@@ -227,6 +258,7 @@ public class SetterStore {
         }
 
         adapters.put(key, new MethodDescription(bindingMethod, 1, takesComponent));
+        invalidateLookups();
     }
 
     public void addInverseAdapter(ProcessingEnvironment processingEnv, String attribute,
@@ -253,6 +285,7 @@ public class SetterStore {
         }
 
         adapters.put(key, new InverseDescription(bindingMethod, event, takesComponent));
+        invalidateLookups();
     }
 
     private static TypeMirror eraseType(ProcessingEnvironment processingEnv,
@@ -322,6 +355,7 @@ public class SetterStore {
         MethodDescription methodDescription = new MethodDescription(bindingMethod,
                 attributes.length, takesComponent);
         mStore.multiValueAdapters.put(key, methodDescription);
+        invalidateLookups();
     }
 
     private static String[] stripAttributes(String[] attributes) {
@@ -385,6 +419,7 @@ public class SetterStore {
             mStore.conversionMethods.put(fromType, convertTo);
         }
         convertTo.put(toType, methodDescription);
+        invalidateLookups();
     }
 
     public void clear(Set<String> classes) {
@@ -427,6 +462,7 @@ public class SetterStore {
             }
         }
         removeFromMap(mStore.untaggableTypes, removedUntaggable);
+        invalidateLookups();
     }
 
     private static <K, V> void removeFromMap(Map<K, V> map, List<K> keys) {
@@ -440,7 +476,8 @@ public class SetterStore {
             throws IOException {
         GenerationalClassUtil.writeIntermediateFile(processingEnvironment,
                 projectPackage, projectPackage +
-                        GenerationalClassUtil.ExtensionFilter.SETTER_STORE.getExtension(), mStore);
+                        GenerationalClassUtil.ExtensionFilter.SETTER_STORE.getExtension(), mStore,
+                CODEC);
     }
 
     private static String stripNamespace(String attribute) {
@@ -453,12 +490,12 @@ public class SetterStore {
         return attribute;
     }
 
-    public boolean isTwoWayEventAttribute(String attribute) {
+    public synchronized boolean isTwoWayEventAttribute(String attribute) {
         attribute = stripNamespace(attribute);
         return mInverseEventAttributes.contains(attribute);
     }
-    public List<MultiAttributeSetter> getMultiAttributeSetterCalls(String[] attributes,
-            ModelClass viewType, ModelClass[] valueType) {
+    public synchronized List<MultiAttributeSetter> getMultiAttributeSetterCalls(
+            String[] attributes, ModelClass viewType, ModelClass[] valueType) {
         attributes = stripAttributes(attributes);
         final ArrayList<MultiAttributeSetter> calls = new ArrayList<MultiAttributeSetter>();
         if (viewType != null && viewType.isGeneric()) {
@@ -488,7 +525,7 @@ public class SetterStore {
         }
     }
 
-    public Map<String, List<String>> getComponentBindingAdapters() {
+    public synchronized Map<String, List<String>> getComponentBindingAdapters() {
         ensureInstanceAdapters();
         return mInstanceAdapters;
     }
@@ -580,7 +617,7 @@ public class SetterStore {
             if (adapter.requireAll && adapter.attributes.length > attributes.length) {
                 continue;
             }
-            ModelClass viewClass = mClassAnalyzer.findClass(adapter.viewType, null);
+            ModelClass viewClass = findStoredClass(adapter.viewType);
             if (viewClass.isGeneric()) {
                 viewClass = viewClass.erasure();
             }
@@ -610,8 +647,7 @@ public class SetterStore {
                 supplied[index] = true;
                 matchingAttributes++;
                 final String parameterTypeStr = adapter.parameterTypes[index];
-                final ModelClass parameterType = eraseType(
-                        mClassAnalyzer.findClass(parameterTypeStr, null));
+                final ModelClass parameterType = eraseType(findStoredClass(parameterTypeStr));
                 final ModelClass attributeType = attributeValues[i];
                 if (!parameterType.isAssignableFrom(attributeType)) {
                     if (ModelMethod.isBoxingConversion(parameterType, attributeType)) {
@@ -622,7 +658,7 @@ public class SetterStore {
                         continue;
                     }
                     // Look for a converter
-                    conversions[index] = getConversionMethod(attributeType, parameterType, null);
+                    conversions[index] = getConversionMethod(attributeType, parameterType);
                     if (conversions[index] == null) {
                         if (attributeType.isObject()) {
                             // Cast is allowed also
@@ -644,15 +680,27 @@ public class SetterStore {
         }
     }
 
-    public SetterCall getSetterCall(String attribute, ModelClass viewType,
+    public synchronized SetterCall getSetterCall(String attribute, ModelClass viewType,
             ModelClass valueType, Map<String, String> imports) {
         attribute = stripNamespace(attribute);
+        if (viewType != null) {
+            viewType = viewType.erasure();
+        }
+        final LookupKey key = new LookupKey(attribute, viewType, valueType);
+        if (mSetterCalls.containsKey(key)) {
+            return mSetterCalls.get(key);
+        }
+        final SetterCall setterCall = findSetterCall(attribute, viewType, valueType);
+        mSetterCalls.put(key, setterCall);
+        return setterCall;
+    }
+
+    private SetterCall findSetterCall(String attribute, ModelClass viewType,
+            ModelClass valueType) {
         SetterCall setterCall = null;
         MethodDescription conversionMethod = null;
         if (viewType != null) {
-            viewType = viewType.erasure();
-            HashMap<AccessorKey, MethodDescription> adapters = mStore.adapterMethods.get(attribute);
-            ModelMethod bestSetterMethod = getBestSetter(viewType, valueType, attribute, imports);
+            ModelMethod bestSetterMethod = getBestSetter(viewType, valueType, attribute);
             ModelClass bestViewType = null;
             ModelClass bestValueType = null;
             if (bestSetterMethod != null) {
@@ -661,40 +709,23 @@ public class SetterStore {
                 setterCall = new ModelMethodSetter(bestSetterMethod);
             }
 
-            if (adapters != null) {
-                for (AccessorKey key : adapters.keySet()) {
-                    try {
-                        ModelClass adapterViewType = mClassAnalyzer
-                                .findClass(key.viewType, imports).erasure();
-                        if (adapterViewType != null && adapterViewType.isAssignableFrom(viewType)) {
-                            try {
-                                L.d("setter parameter type is %s", key.valueType);
-                                final ModelClass adapterValueType = eraseType(mClassAnalyzer
-                                        .findClass(key.valueType, imports));
-                                L.d("setter %s takes type %s, compared to %s",
-                                        adapters.get(key).method, adapterValueType.toJavaCode(),
-                                        valueType.toJavaCode());
-                                boolean isBetterView = bestViewType == null ||
-                                        bestViewType.isAssignableFrom(adapterViewType);
-                                if (isBetterParameter(valueType, adapterValueType, bestValueType,
-                                        isBetterView, imports)) {
-                                    bestViewType = adapterViewType;
-                                    bestValueType = adapterValueType;
-                                    MethodDescription adapter = adapters.get(key);
-                                    setterCall = new AdapterSetter(adapter, adapterValueType);
-                                }
-
-                            } catch (Exception e) {
-                                L.e(e, "Unknown class: %s", key.valueType);
-                            }
-                        }
-                    } catch (Exception e) {
-                        L.e(e, "Unknown class: %s", key.viewType);
-                    }
+            for (ResolvedAccessor<MethodDescription> adapter : getApplicableAccessors(attribute,
+                    viewType, mStore.adapterMethods, mAdapterIndex, mApplicableAdapters)) {
+                final ModelClass adapterViewType = adapter.viewType;
+                final ModelClass adapterValueType = adapter.valueType;
+                L.d("setter %s takes type %s, compared to %s", adapter.description.method,
+                        adapterValueType.toJavaCode(), valueType.toJavaCode());
+                boolean isBetterView = bestViewType == null ||
+                        bestViewType.isAssignableFrom(adapterViewType);
+                if (isBetterParameter(valueType, adapterValueType, bestValueType,
+                        isBetterView)) {
+                    bestViewType = adapterViewType;
+                    bestValueType = adapterValueType;
+                    setterCall = new AdapterSetter(adapter.description, adapterValueType);
                 }
             }
 
-            conversionMethod = getConversionMethod(valueType, bestValueType, imports);
+            conversionMethod = getConversionMethod(valueType, bestValueType);
             if (valueType.isObject() && setterCall != null && bestValueType.isNullable()) {
                 setterCall.setCast(bestValueType);
             }
@@ -709,7 +740,7 @@ public class SetterStore {
         return setterCall;
     }
 
-    public BindingGetterCall getGetterCall(String attribute, ModelClass viewType,
+    public synchronized BindingGetterCall getGetterCall(String attribute, ModelClass viewType,
             ModelClass valueType, Map<String, String> imports) {
         if (viewType == null) {
             return null;
@@ -721,70 +752,135 @@ public class SetterStore {
         viewType = viewType.erasure();
 
         InverseMethod bestMethod = getBestGetter(viewType, valueType, attribute, imports);
-        HashMap<AccessorKey, InverseDescription> adapters = mStore.inverseAdapters.get(attribute);
-        if (adapters != null) {
-            for (AccessorKey key : adapters.keySet()) {
-                try {
-                    ModelClass adapterViewType = mClassAnalyzer
-                            .findClass(key.viewType, imports).erasure();
-                    if (adapterViewType != null && adapterViewType.isAssignableFrom(viewType)) {
-                        try {
-                            L.d("getter return type is %s", key.valueType);
-                            final ModelClass adapterValueType = eraseType(mClassAnalyzer
-                                    .findClass(key.valueType, imports));
-                            L.d("getter %s returns type %s, compared to %s",
-                                    adapters.get(key).method, adapterValueType.toJavaCode(),
-                                    valueType);
-                            boolean isBetterView = bestMethod.viewType == null ||
-                                    bestMethod.viewType.isAssignableFrom(adapterViewType);
-                            if (valueType == null ||
-                                    isBetterParameter(adapterValueType, valueType,
-                                            bestMethod.returnType, isBetterView, imports)) {
-                                bestMethod.viewType = adapterViewType;
-                                bestMethod.returnType = adapterValueType;
-                                InverseDescription inverseDescription = adapters.get(key);
-                                ModelClass listenerType = ModelAnalyzer.getInstance().findClass(
-                                        InverseBindingListener.class);
-                                BindingSetterCall eventCall = getSetterCall(
-                                        inverseDescription.event, viewType, listenerType, imports);
-                                if (eventCall == null) {
-                                    List<MultiAttributeSetter> setters =
-                                            getMultiAttributeSetterCalls(
-                                                    new String[]{inverseDescription.event},
-                                                    viewType, new ModelClass[] {listenerType});
-                                    if (setters.size() != 1) {
-                                        L.e("Could not find event '%s' on View type '%s'",
-                                                inverseDescription.event,
-                                                viewType.getCanonicalName());
-                                    } else {
-                                        bestMethod.call = new AdapterGetter(inverseDescription,
-                                                setters.get(0), key.valueType);
-                                    }
-                                } else {
-                                    bestMethod.call = new AdapterGetter(inverseDescription,
-                                            eventCall, key.valueType);
-                                }
-                            }
+        for (ResolvedAccessor<InverseDescription> adapter : getApplicableAccessors(attribute,
+                viewType, mStore.inverseAdapters, mInverseAdapterIndex,
+                mApplicableInverseAdapters)) {
+            final ModelClass adapterViewType = adapter.viewType;
+            final ModelClass adapterValueType = adapter.valueType;
+            final InverseDescription inverseDescription = adapter.description;
+            L.d("getter %s returns type %s, compared to %s", inverseDescription.method,
+                    adapterValueType.toJavaCode(), valueType);
+            boolean isBetterView = bestMethod.viewType == null ||
+                    bestMethod.viewType.isAssignableFrom(adapterViewType);
+            if (valueType == null ||
+                    isBetterParameter(adapterValueType, valueType, bestMethod.returnType,
+                            isBetterView)) {
+                bestMethod.viewType = adapterViewType;
+                bestMethod.returnType = adapterValueType;
+                ModelClass listenerType = ModelAnalyzer.getInstance().findClass(
+                        InverseBindingListener.class);
+                BindingSetterCall eventCall = getSetterCall(
+                        inverseDescription.event, viewType, listenerType, imports);
+                if (eventCall == null) {
+                    List<MultiAttributeSetter> setters =
+                            getMultiAttributeSetterCalls(
+                                    new String[]{inverseDescription.event},
+                                    viewType, new ModelClass[] {listenerType});
+                    if (setters.size() != 1) {
+                        L.e("Could not find event '%s' on View type '%s'",
+                                inverseDescription.event,
+                                viewType.getCanonicalName());
+                    } else {
+                        bestMethod.call = new AdapterGetter(inverseDescription,
+                                setters.get(0), adapter.key.valueType);
+                    }
+                } else {
+                    bestMethod.call = new AdapterGetter(inverseDescription,
+                            eventCall, adapter.key.valueType);
+                }
+            }
+        }
 
-                        } catch (Exception e) {
-                            L.e(e, "Unknown class: %s", key.valueType);
-                        }
+        return bestMethod.call;
+    }
+
+    /**
+     * Returns the accessors registered for <code>attribute</code> whose View type accepts
+     * <code>viewType</code>. The result is computed once for each attribute and erased View type.
+     */
+    private <D extends MethodDescription> List<ResolvedAccessor<D>> getApplicableAccessors(
+            String attribute, ModelClass viewType, HashMap<String, HashMap<AccessorKey, D>> store,
+            HashMap<String, List<ResolvedAccessor<D>>> index,
+            HashMap<LookupKey, List<ResolvedAccessor<D>>> applicableIndex) {
+        final LookupKey lookupKey = new LookupKey(attribute, viewType, null);
+        List<ResolvedAccessor<D>> applicable = applicableIndex.get(lookupKey);
+        if (applicable != null) {
+            return applicable;
+        }
+        applicable = new ArrayList<ResolvedAccessor<D>>();
+        for (ResolvedAccessor<D> accessor : getResolvedAccessors(attribute, store, index)) {
+            if (accessor.viewType.isAssignableFrom(viewType)) {
+                if (accessor.valueType == null) {
+                    try {
+                        accessor.valueType = eraseType(findStoredClass(accessor.key.valueType));
+                    } catch (Exception e) {
+                        L.e(e, "Unknown class: %s", accessor.key.valueType);
                     }
+                }
+                applicable.add(accessor);
+            }
+        }
+        applicableIndex.put(lookupKey, applicable);
+        return applicable;
+    }
+
+    private <D extends MethodDescription> List<ResolvedAccessor<D>> getResolvedAccessors(
+            String attribute, HashMap<String, HashMap<AccessorKey, D>> store,
+            HashMap<String, List<ResolvedAccessor<D>>> index) {
+        List<ResolvedAccessor<D>> resolved = index.get(attribute);
+        if (resolved != null) {
+            return resolved;
+        }
+        resolved = new ArrayList<ResolvedAccessor<D>>();
+        HashMap<AccessorKey, D> accessors = store.get(attribute);
+        if (accessors != null) {
+            for (Map.Entry<AccessorKey, D> entry : accessors.entrySet()) {
+                final AccessorKey key = entry.getKey();
+                try {
+                    ModelClass accessorViewType = findStoredClass(key.viewType).erasure();
+                    resolved.add(new ResolvedAccessor<D>(key, entry.getValue(),
+                            accessorViewType));
                 } catch (Exception e) {
                     L.e(e, "Unknown class: %s", key.viewType);
                 }
             }
         }
+        index.put(attribute, resolved);
+        return resolved;
+    }
+
+    /**
+     * Finds the class for a type name recorded in the store. Those names are always fully
+     * qualified, so the imports of the layout do not affect the result.
+     */
+    private ModelClass findStoredClass(String className) {
+        ModelClass modelClass = mResolvedTypes.get(className);
+        if (modelClass == null) {
+            // Missing classes are not remembered; they may be generated in a later round.
+            modelClass = mClassAnalyzer.findClass(className, null);
+            if (modelClass != null) {
+                mResolvedTypes.put(className, modelClass);
+            }
+        }
+        return modelClass;
+    }
 
-        return bestMethod.call;
+    private void invalidateLookups() {
+        mAdapterIndex.clear();
+        mInverseAdapterIndex.clear();
+        mApplicableAdapters.clear();
+        mApplicableInverseAdapters.clear();
+        mSetterCalls.clear();
+        mConversionGraph = null;
+        mConversions.clear();
     }
 
-    public boolean isUntaggable(String viewType) {
+    public synchronized boolean isUntaggable(String viewType) {
         return mStore.untaggableTypes.containsKey(viewType);
     }
 
     private ModelMethod getBestSetter(ModelClass viewType, ModelClass argumentType,
-            String attribute, Map<String, String> imports) {
+            String attribute) {
         if (viewType.isGeneric()) {
             argumentType = eraseType(argumentType, viewType.getTypeArguments());
             viewType = viewType.erasure();
@@ -794,7 +890,7 @@ public class SetterStore {
         if (renamed != null) {
             for (String className : renamed.keySet()) {
                 try {
-                    ModelClass renamedViewType = mClassAnalyzer.findClass(className, imports);
+                    ModelClass renamedViewType = findStoredClass(className);
                     if (renamedViewType.erasure().isAssignableFrom(viewType)) {
                         setterCandidates.add(renamed.get(className).method);
                         break;
@@ -818,7 +914,7 @@ public class SetterStore {
                 ModelClass[] parameterTypes = method.getParameterTypes();
                 ModelClass param = parameterTypes[0];
                 if (method.isVoid() &&
-                        isBetterParameter(argumentType, param, bestParameterType, true, imports)) {
+                        isBetterParameter(argumentType, param, bestParameterType, true)) {
                     bestParameterType = param;
                     bestMethod = method;
                 }
@@ -844,7 +940,7 @@ public class SetterStore {
         if (inverseMethods != null) {
             for (String className : inverseMethods.keySet()) {
                 try {
-                    ModelClass methodViewType = mClassAnalyzer.findClass(className, imports);
+                    ModelClass methodViewType = findStoredClass(className);
                     if (methodViewType.erasure().isAssignableFrom(viewType)) {
                         boolean isBetterViewType = bestViewType == null ||
                                 bestViewType.isAssignableFrom(methodViewType);
@@ -855,7 +951,7 @@ public class SetterStore {
                         ModelClass returnType = method.getReturnType(null); // no parameters
                         if (valueType == null || bestReturnType == null ||
                                 isBetterParameter(returnType, valueType, bestReturnType,
-                                        isBetterViewType, imports)) {
+                                        isBetterViewType)) {
                             bestDescription = inverseDescription;
                             bestReturnType = returnType;
                             bestViewType = methodViewType;
@@ -916,7 +1012,7 @@ public class SetterStore {
     }
 
     private boolean isBetterParameter(ModelClass argument, ModelClass parameter,
-            ModelClass oldParameter, boolean isBetterViewTypeMatch, Map<String, String> imports) {
+            ModelClass oldParameter, boolean isBetterViewTypeMatch) {
         // Right view type. Check the value
         if (!isBetterViewTypeMatch && oldParameter.equals(argument)) {
             return false;
@@ -945,12 +1041,11 @@ public class SetterStore {
                     return oldParameter.isAssignableFrom(parameter);
                 }
             } else {
-                MethodDescription conversionMethod = getConversionMethod(argument, parameter,
-                        imports);
+                MethodDescription conversionMethod = getConversionMethod(argument, parameter);
                 if (conversionMethod != null) {
                     return true;
                 }
-                if (getConversionMethod(argument, oldParameter, imports) != null) {
+                if (getConversionMethod(argument, oldParameter) != null) {
                     return false;
                 }
                 return argument.isObject() && !parameter.isPrimitive();
@@ -958,38 +1053,82 @@ public class SetterStore {
         }
     }
 
-    private MethodDescription getConversionMethod(ModelClass from, ModelClass to,
-            Map<String, String> imports) {
+    private MethodDescription getConversionMethod(ModelClass from, ModelClass to) {
         if (from != null && to != null) {
             if (to.isObject()) {
                 return null;
             }
-            for (String fromClassName : mStore.conversionMethods.keySet()) {
-                try {
-                    ModelClass convertFrom = mClassAnalyzer.findClass(fromClassName, imports);
-                    if (canUseForConversion(from, convertFrom)) {
-                        HashMap<String, MethodDescription> conversion =
-                                mStore.conversionMethods.get(fromClassName);
-                        for (String toClassName : conversion.keySet()) {
-                            try {
-                                ModelClass convertTo = mClassAnalyzer.findClass(toClassName,
-                                        imports);
-                                if (canUseForConversion(convertTo, to)) {
-                                    return conversion.get(toClassName);
-                                }
-                            } catch (Exception e) {
-                                L.d(e, "Unknown class: %s", toClassName);
-                            }
-                        }
+            final int round = mClassAnalyzer.getRound();
+            if (mConversionsRound != round) {
+                mConversionGraph = null;
+                mConversions.clear();
+                mConversionsRound = round;
+            }
+            final ConversionKey key = new ConversionKey(from, to);
+            if (mConversions.containsKey(key)) {
+                return mConversions.get(key);
+            }
+            MethodDescription conversion = findConversionMethod(from, to);
+            mConversions.put(key, conversion);
+            return conversion;
+        }
+        return null;
+    }
+
+    private MethodDescription findConversionMethod(ModelClass from, ModelClass to) {
+        for (ConversionNode node : getConversionGraph()) {
+            if (canUseForConversion(from, node.from)) {
+                for (int i = 0; i < node.targets.size(); i++) {
+                    if (canUseForConversion(node.targets.get(i), to)) {
+                        return node.methods.get(i);
                     }
-                } catch (Exception e) {
-                    L.d(e, "Unknown class: %s", fromClassName);
                 }
             }
         }
         return null;
     }
 
+    /**
+     * Returns the conversion methods with their types resolved, grouped by the type that they
+     * convert from. Conversions whose types cannot be found are left out.
+     */
+    private List<ConversionNode> getConversionGraph() {
+        if (mConversionGraph == null) {
+            mConversionGraph = new ArrayList<ConversionNode>();
+            for (Map.Entry<String, HashMap<String, MethodDescription>> entry :
+                    mStore.conversionMethods.entrySet()) {
+                final ModelClass convertFrom = findConversionClass(entry.getKey());
+                if (convertFrom == null) {
+                    continue;
+                }
+                final ConversionNode node = new ConversionNode(convertFrom);
+                for (Map.Entry<String, MethodDescription> conversion :
+                        entry.getValue().entrySet()) {
+                    final ModelClass convertTo = findConversionClass(conversion.getKey());
+                    if (convertTo != null) {
+                        node.targets.add(convertTo);
+                        node.methods.add(conversion.getValue());
+                    }
+                }
+                mConversionGraph.add(node);
+            }
+        }
+        return mConversionGraph;
+    }
+
+    private ModelClass findConversionClass(String className) {
+        try {
+            final ModelClass modelClass = findStoredClass(className);
+            if (modelClass == null) {
+                L.d("Unknown class: %s", className);
+            }
+            return modelClass;
+        } catch (Exception e) {
+            L.d(e, "Unknown class: %s", className);
+            return null;
+        }
+    }
+
     private boolean canUseForConversion(ModelClass from, ModelClass to) {
         if (from.isIncomplete() || to.isIncomplete()) {
             from = from.erasure();
@@ -1053,7 +1192,7 @@ public class SetterStore {
         return sb.toString();
     }
 
-    private static class MultiValueAdapterKey implements Serializable {
+    static class MultiValueAdapterKey implements Serializable {
         private static final long serialVersionUID = 1;
 
         public final String viewType;
@@ -1084,6 +1223,17 @@ public class SetterStore {
             }
         }
 
+        public MultiValueAdapterKey(String viewType, String[] attributes,
+                String[] parameterTypes, boolean requireAll) {
+            this.viewType = viewType;
+            this.attributes = attributes;
+            this.parameterTypes = parameterTypes;
+            this.requireAll = requireAll;
+            for (int i = 0; i < attributes.length; i++) {
+                attributeIndices.put(attributes[i], i);
+            }
+        }
+
         @Override
         public boolean equals(Object obj) {
             if (!(obj instanceof MultiValueAdapterKey)) {
@@ -1117,7 +1267,7 @@ public class SetterStore {
         return Arrays.hashCode(objects);
     }
 
-    private static class MethodDescription implements Serializable {
+    static class MethodDescription implements Serializable {
 
         private static final long serialVersionUID = 1;
 
@@ -1140,6 +1290,15 @@ public class SetterStore {
             L.d("BINARY created method desc 1 %s %s", type, method );
         }
 
+        public MethodDescription(String type, String method, boolean requiresOldValue,
+                boolean isStatic, String componentClass) {
+            this.type = type;
+            this.method = method;
+            this.requiresOldValue = requiresOldValue;
+            this.isStatic = isStatic;
+            this.componentClass = componentClass;
+        }
+
         public MethodDescription(ExecutableElement method, int numAttributes,
                 boolean takesComponent) {
             TypeElement enclosingClass = (TypeElement) method.getEnclosingElement();
@@ -1176,7 +1335,7 @@ public class SetterStore {
         }
     }
 
-    private static class InverseDescription extends MethodDescription {
+    static class InverseDescription extends MethodDescription {
         private static final long serialVersionUID = 1;
 
         public final String event;
@@ -1191,6 +1350,12 @@ public class SetterStore {
             this.event = event;
         }
 
+        public InverseDescription(MethodDescription method, String event) {
+            super(method.type, method.method, method.requiresOldValue, method.isStatic,
+                    method.componentClass);
+            this.event = event;
+        }
+
         @Override
         public boolean equals(Object obj) {
             if (!super.equals(obj) || !(obj instanceof InverseDescription)) {
@@ -1205,7 +1370,7 @@ public class SetterStore {
         }
     }
 
-    private static class AccessorKey implements Serializable {
+    static class AccessorKey implements Serializable {
 
         private static final long serialVersionUID = 1;
 
@@ -1239,11 +1404,104 @@ public class SetterStore {
         }
     }
 
-    private interface Intermediate extends Serializable {
+    private static class ResolvedAccessor<D extends MethodDescription> {
+        public final AccessorKey key;
+
+        public final D description;
+
+        public final ModelClass viewType;
+
+        // resolved the first time the accessor matches a View type
+        public ModelClass valueType;
+
+        public ResolvedAccessor(AccessorKey key, D description, ModelClass viewType) {
+            this.key = key;
+            this.description = description;
+            this.viewType = viewType;
+        }
+    }
+
+    private static class LookupKey {
+        public final String attribute;
+
+        public final ModelClass viewType;
+
+        public final ModelClass valueType;
+
+        public LookupKey(String attribute, ModelClass viewType, ModelClass valueType) {
+            this.attribute = attribute;
+            this.viewType = viewType;
+            this.valueType = valueType;
+        }
+
+        @Override
+        public int hashCode() {
+            return mergedHashCode(attribute, viewType, valueType);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof LookupKey) {
+                LookupKey that = (LookupKey) obj;
+                return attribute.equals(that.attribute) &&
+                        (viewType == null ? that.viewType == null :
+                                viewType.equals(that.viewType)) &&
+                        (valueType == null ? that.valueType == null :
+                                valueType.equals(that.valueType));
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "LK(" + attribute + ", " + viewType + ", " + valueType + ")";
+        }
+    }
+
+    private static class ConversionNode {
+        public final ModelClass from;
+
+        public final List<ModelClass> targets = new ArrayList<ModelClass>();
+
+        public final List<MethodDescription> methods = new ArrayList<MethodDescription>();
+
+        public ConversionNode(ModelClass from) {
+            this.from = from;
+        }
+    }
+
+    private static class ConversionKey {
+        public final ModelClass from;
+
+        public final ModelClass to;
+
+        public ConversionKey(ModelClass from, ModelClass to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int hashCode() {
+            return mergedHashCode(from, to);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof ConversionKey) {
+                ConversionKey that = (ConversionKey) obj;
+                return from.equals(that.from) && to.equals(that.to);
+            } else {
+                return false;
+            }
+        }
+    }
+
+    interface Intermediate extends Serializable {
         Intermediate upgrade();
     }
 
-    private static class IntermediateV1 implements Serializable, Intermediate {
+    static class IntermediateV1 implements Serializable, Intermediate {
         private static final long serialVersionUID = 1;
         public final HashMap<String, HashMap<AccessorKey, MethodDescription>> adapterMethods =
                 new HashMap<String, HashMap<AccessorKey, MethodDescription>>();
@@ -1270,7 +1528,7 @@ public class SetterStore {
         }
     }
 
-    private static class IntermediateV2 extends IntermediateV1 {
+    static class IntermediateV2 extends IntermediateV1 {
         private static final long serialVersionUID = 0xA45C2EB637E35C07L;
         public final HashMap<String, HashMap<AccessorKey, InverseDescription>> inverseAdapters =
                 new HashMap<String, HashMap<AccessorKey, InverseDescription>>();
@@ -1283,6 +1541,141 @@ public class SetterStore {
         }
     }
 
+    /**
+     * Writes the store in the binary intermediate format. All values are written in the order
+     * of the fields of IntermediateV2.
+     */
+    private static class IntermediateCodec implements GenerationalClassUtil.Codec<Intermediate> {
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void write(Intermediate object, IntermediateWriter out) throws IOException {
+            IntermediateV2 store = (IntermediateV2) object.upgrade();
+            writeAccessorMap(out, store.adapterMethods);
+            writeNamedMap(out, store.renamedMethods);
+            writeNamedMap(out, store.conversionMethods);
+            out.writeStringMap(store.untaggableTypes);
+            out.writeInt(store.multiValueAdapters.size());
+            for (Map.Entry<MultiValueAdapterKey, MethodDescription> entry :
+                    store.multiValueAdapters.entrySet()) {
+                MultiValueAdapterKey key = entry.getKey();
+                out.writeString(key.viewType);
+                out.writeStrings(key.attributes);
+                out.writeStrings(key.parameterTypes);
+                out.writeBoolean(key.requireAll);
+                writeMethod(out, entry.getValue());
+            }
+            writeAccessorMap(out, store.inverseAdapters);
+            writeNamedMap(out, store.inverseMethods);
+        }
+
+        @Override
+        public Intermediate read(IntermediateReader in) throws IOException {
+            IntermediateV2 store = new IntermediateV2();
+            readAccessorMap(in, store.adapterMethods, false);
+            readNamedMap(in, store.renamedMethods, false);
+            readNamedMap(in, store.conversionMethods, false);
+            store.untaggableTypes.putAll(in.readStringMap());
+            int multiValueCount = in.readInt();
+            for (int i = 0; i < multiValueCount; i++) {
+                MultiValueAdapterKey key = new MultiValueAdapterKey(in.readString(),
+                        in.readStrings(), in.readStrings(), in.readBoolean());
+                store.multiValueAdapters.put(key, readMethod(in, false));
+            }
+            readAccessorMap(in, store.inverseAdapters, true);
+            readNamedMap(in, store.inverseMethods, true);
+            return store;
+        }
+
+        private static void writeAccessorMap(IntermediateWriter out,
+                HashMap<String, ? extends HashMap<AccessorKey, ? extends MethodDescription>> map)
+                throws IOException {
+            out.writeInt(map.size());
+            for (Map.Entry<String, ? extends HashMap<AccessorKey, ? extends MethodDescription>>
+                    entry : map.entrySet()) {
+                out.writeString(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Map.Entry<AccessorKey, ? extends MethodDescription> accessor :
+                        entry.getValue().entrySet()) {
+                    out.writeString(accessor.getKey().viewType);
+                    out.writeString(accessor.getKey().valueType);
+                    writeMethod(out, accessor.getValue());
+                }
+            }
+        }
+
+        private static void writeNamedMap(IntermediateWriter out,
+                HashMap<String, ? extends HashMap<String, ? extends MethodDescription>> map)
+                throws IOException {
+            out.writeInt(map.size());
+            for (Map.Entry<String, ? extends HashMap<String, ? extends MethodDescription>>
+                    entry : map.entrySet()) {
+                out.writeString(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Map.Entry<String, ? extends MethodDescription> method :
+                        entry.getValue().entrySet()) {
+                    out.writeString(method.getKey());
+                    writeMethod(out, method.getValue());
+                }
+            }
+        }
+
+        private static void writeMethod(IntermediateWriter out, MethodDescription method)
+                throws IOException {
+            out.writeString(method.type);
+            out.writeString(method.method);
+            out.writeBoolean(method.requiresOldValue);
+            out.writeBoolean(method.isStatic);
+            out.writeString(method.componentClass);
+            if (method instanceof InverseDescription) {
+                out.writeString(((InverseDescription) method).event);
+            }
+        }
+
+        private static <D extends MethodDescription> void readAccessorMap(IntermediateReader in,
+                HashMap<String, HashMap<AccessorKey, D>> map, boolean inverse)
+                throws IOException {
+            int attributeCount = in.readInt();
+            for (int i = 0; i < attributeCount; i++) {
+                String attribute = in.readString();
+                int accessorCount = in.readInt();
+                HashMap<AccessorKey, D> accessors = new HashMap<AccessorKey, D>();
+                for (int j = 0; j < accessorCount; j++) {
+                    AccessorKey key = new AccessorKey(in.readString(), in.readString());
+                    //noinspection unchecked
+                    accessors.put(key, (D) readMethod(in, inverse));
+                }
+                map.put(attribute, accessors);
+            }
+        }
+
+        private static <D extends MethodDescription> void readNamedMap(IntermediateReader in,
+                HashMap<String, HashMap<String, D>> map, boolean inverse) throws IOException {
+            int typeCount = in.readInt();
+            for (int i = 0; i < typeCount; i++) {
+                String type = in.readString();
+                int methodCount = in.readInt();
+                HashMap<String, D> methods = new HashMap<String, D>();
+                for (int j = 0; j < methodCount; j++) {
+                    String name = in.readString();
+                    //noinspection unchecked
+                    methods.put(name, (D) readMethod(in, inverse));
+                }
+                map.put(type, methods);
+            }
+        }
+
+        private static MethodDescription readMethod(IntermediateReader in, boolean inverse)
+                throws IOException {
+            MethodDescription method = new MethodDescription(in.readString(), in.readString(),
+                    in.readBoolean(), in.readBoolean(), in.readString());
+            return inverse ? new InverseDescription(method, in.readString()) : method;
+        }
+    }
+
     public static class DummySetter extends SetterCall {
         private String mMethodName;
 
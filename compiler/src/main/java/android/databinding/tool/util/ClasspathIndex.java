@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.util;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Remembers which entries of the jars and directories on the processor class path hold data
+ * binding intermediate files, so that unchanged class path elements are not opened again on the
+ * next build.
+ * <p>
+ * A jar is unchanged if its size and modification time are the same. A directory is unchanged
+ * if none of its sub directories were modified, which is checked without listing their files.
+ * Only the names of the intermediate files are kept; their contents are always read again.
+ * <p>
+ * Class path elements can be looked up from multiple threads.
+ */
+class ClasspathIndex {
+    private static final int VERSION = 1;
+
+    // index read from disk
+    private final HashMap<String, Root> mPrevious;
+
+    // class path elements seen in this build, in class path order
+    private final LinkedHashMap<String, Root> mCurrent = new LinkedHashMap<String, Root>();
+
+    private boolean mChanged;
+
+    private ClasspathIndex(HashMap<String, Root> previous) {
+        mPrevious = previous;
+        mChanged = previous.isEmpty();
+    }
+
+    /**
+     * Reads the index from the given file. If the file is missing or cannot be read, an empty
+     * index is returned.
+     */
+    public static ClasspathIndex load(File file) {
+        HashMap<String, Root> roots = new HashMap<String, Root>();
+        if (file == null || !file.isFile()) {
+            return new ClasspathIndex(roots);
+        }
+        IntermediateReader in = null;
+        try {
+            in = new IntermediateReader(FileUtils.openInputStream(file));
+            if (in.getVersion() == VERSION) {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    Root root = Root.read(in);
+                    roots.put(root.path, root);
+                }
+            }
+        } catch (IOException e) {
+            L.d("cannot read class path index %s, ignoring it", file);
+            roots.clear();
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        L.d("loaded class path index with %d entries", roots.size());
+        return new ClasspathIndex(roots);
+    }
+
+    /**
+     * Writes the index if any class path element was added, changed or removed. The file is
+     * replaced atomically so that concurrent builds never see a partial index.
+     */
+    public synchronized void save(File file) {
+        if (file == null || (!mChanged && mPrevious.size() == mCurrent.size())) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        IntermediateWriter out = null;
+        try {
+            FileUtils.forceMkdir(file.getParentFile());
+            out = new IntermediateWriter(FileUtils.openOutputStream(tmp), VERSION);
+            out.writeInt(mCurrent.size());
+            for (Root root : mCurrent.values()) {
+                root.write(out);
+            }
+            out.close();
+            out = null;
+            if (!tmp.renameTo(file)) {
+                FileUtils.deleteQuietly(file);
+                if (!tmp.renameTo(file)) {
+                    L.d("cannot move class path index to %s", file);
+                }
+            }
+        } catch (IOException e) {
+            L.d("cannot write class path index %s", file);
+        } finally {
+            IOUtils.closeQuietly(out);
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * Returns the names of the intermediate file entries in the given jar.
+     */
+    public List<String> getZipEntries(File file) throws IOException {
+        final String path = file.getAbsolutePath();
+        Root root = getPrevious(path);
+        if (root == null || root.directories != null || root.length != file.length()
+                || root.lastModified != file.lastModified()) {
+            root = new Root(path, file.length(), file.lastModified(), null, scanZipFile(file));
+            putCurrent(root, true);
+        } else {
+            putCurrent(root, false);
+        }
+        return root.files;
+    }
+
+    /**
+     * Returns the intermediate files in the given directory, relative to it.
+     */
+    public List<String> getDirectoryEntries(File directory) {
+        final String path = directory.getAbsolutePath();
+        Root root = getPrevious(path);
+        if (root == null || root.directories == null || !isUnchanged(directory, root)) {
+            final LinkedHashMap<String, Long> directories = new LinkedHashMap<String, Long>();
+            final ArrayList<String> files = new ArrayList<String>();
+            scanDirectory(directory, "", directories, files);
+            root = new Root(path, 0, directory.lastModified(), directories, files);
+            putCurrent(root, true);
+        } else {
+            putCurrent(root, false);
+        }
+        return root.files;
+    }
+
+    private synchronized Root getPrevious(String path) {
+        return mPrevious.get(path);
+    }
+
+    private synchronized void putCurrent(Root root, boolean changed) {
+        mCurrent.put(root.path, root);
+        mChanged |= changed;
+    }
+
+    private static boolean isUnchanged(File directory, Root root) {
+        for (Map.Entry<String, Long> entry : root.directories.entrySet()) {
+            File dir = entry.getKey().isEmpty() ? directory : new File(directory, entry.getKey());
+            if (dir.lastModified() != entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> scanZipFile(File file) throws IOException {
+        final ArrayList<String> entryNames = new ArrayList<String>();
+        ZipFile zipFile = new ZipFile(file);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final String name = entries.nextElement().getName();
+                if (isIntermediate(name)) {
+                    entryNames.add(name);
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(zipFile);
+        }
+        return entryNames;
+    }
+
+    private static void scanDirectory(File directory, String relativePath,
+            LinkedHashMap<String, Long> directories, List<String> files) {
+        directories.put(relativePath, directory.lastModified());
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        // sorted so that intermediates are always merged in the same order
+        Arrays.sort(children);
+        for (File child : children) {
+            final String childPath = relativePath.isEmpty() ? child.getName()
+                    : relativePath + File.separator + child.getName();
+            if (child.isDirectory()) {
+                scanDirectory(child, childPath, directories, files);
+            } else if (isIntermediate(child.getName())) {
+                files.add(childPath);
+            }
+        }
+    }
+
+    private static boolean isIntermediate(String name) {
+        for (GenerationalClassUtil.ExtensionFilter filter :
+                GenerationalClassUtil.ExtensionFilter.values()) {
+            if (filter.accept(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Root {
+        public final String path;
+
+        public final long length;
+
+        public final long lastModified;
+
+        // relative path to modification time, null for zip files
+        public final LinkedHashMap<String, Long> directories;
+
+        public final List<String> files;
+
+        public Root(String path, long length, long lastModified,
+                LinkedHashMap<String, Long> directories, List<String> files) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.directories = directories;
+            this.files = files;
+        }
+
+        public void write(IntermediateWriter out) throws IOException {
+            out.writeString(path);
+            out.writeLong(length);
+            out.writeLong(lastModified);
+            out.writeBoolean(directories != null);
+            if (directories != null) {
+                out.writeInt(directories.size());
+                for (Map.Entry<String, Long> entry : directories.entrySet()) {
+                    out.writeString(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            }
+            out.writeStrings(files);
+        }
+
+        public static Root read(IntermediateReader in) throws IOException {
+            final String path = in.readString();
+            final long length = in.readLong();
+            final long lastModified = in.readLong();
+            LinkedHashMap<String, Long> directories = null;
+            if (in.readBoolean()) {
+                directories = new LinkedHashMap<String, Long>();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    final String relativePath = in.readString();
+                    directories.put(relativePath, in.readLong());
+                }
+            }
+            final ArrayList<String> files = new ArrayList<String>();
+            for (String file : in.readStrings()) {
+                files.add(file);
+            }
+            return new Root(path, length, lastModified, directories, files);
+        }
+    }
+}
@@ -18,22 +18,23 @@ package android.databinding.tool.util;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.filefilter.TrueFileFilter;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.io.Serializable;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.List;
-import java.util.zip.ZipEntry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipFile;
 
 import javax.annotation.processing.ProcessingEnvironment;
@@ -43,17 +44,50 @@ import javax.tools.StandardLocation;
 /**
  * A utility class that helps adding build specific objects to the jar file
  * and their extraction later on.
+ * <p>
+ * Objects are written in the binary format of {@link IntermediateWriter} through a {@link Codec}.
+ * Intermediate files of dependencies that were compiled with an older version of data binding
+ * hold serialized objects instead; those are still read with an ObjectInputStream.
  */
 public class GenerationalClassUtil {
+    // upper bound of the threads used to read the class path
+    private static final int MAX_THREADS = 4;
+    private static File sIndexFile = null;
+    private static List<IntermediateSource>[] sSources = null;
     private static List[] sCache = null;
-    public static <T extends Serializable> List<T> loadObjects(ExtensionFilter filter) {
-        if (sCache == null) {
+
+    /**
+     * Returns the intermediate objects of the given type that are on the class path. Each type
+     * is read the first time it is requested.
+     */
+    public static synchronized <T> List<T> loadObjects(ExtensionFilter filter, Codec<T> codec) {
+        if (sSources == null) {
             buildCache();
         }
+        if (sCache[filter.ordinal()] == null) {
+            sCache[filter.ordinal()] = load(sSources[filter.ordinal()], codec);
+        }
         //noinspection unchecked
         return sCache[filter.ordinal()];
     }
 
+    /**
+     * Sets where the class path index is kept, which lets later builds skip class path elements
+     * that did not change. The index is stored next to the layout info directory of the module
+     * and variant being compiled, so that other builds never read it.
+     *
+     * @param layoutInfoDir The directory of the layout info files of the module.
+     */
+    public static synchronized void setClasspathIndexDir(String layoutInfoDir) {
+        if (layoutInfoDir == null || layoutInfoDir.isEmpty()) {
+            sIndexFile = null;
+            return;
+        }
+        final File dir = new File(layoutInfoDir).getAbsoluteFile();
+        // not in the directory itself, which only holds the layout info files
+        sIndexFile = new File(dir.getParentFile(), dir.getName() + "-classpath.index");
+    }
+
     private static void buildCache() {
         L.d("building generational class cache");
         ClassLoader classLoader = GenerationalClassUtil.class.getClassLoader();
@@ -61,114 +95,241 @@ public class GenerationalClassUtil {
                 + "instance of URLClassLoader. %s", classLoader);
         //noinspection ConstantConditions
         final URLClassLoader urlClassLoader = (URLClassLoader) classLoader;
+        //noinspection unchecked
+        sSources = new List[ExtensionFilter.values().length];
         sCache = new List[ExtensionFilter.values().length];
         for (ExtensionFilter filter : ExtensionFilter.values()) {
-            sCache[filter.ordinal()] = new ArrayList();
+            sSources[filter.ordinal()] = new ArrayList<IntermediateSource>();
         }
-        for (URL url : urlClassLoader.getURLs()) {
+        final ClasspathIndex index = ClasspathIndex.load(sIndexFile);
+        final List<URL> urls = new ArrayList<URL>();
+        final List<Callable<List<IntermediateSource>>> scans =
+                new ArrayList<Callable<List<IntermediateSource>>>();
+        for (final URL url : urlClassLoader.getURLs()) {
             L.d("checking url %s for intermediate data", url);
+            final File file;
             try {
-                final File file = new File(url.toURI());
-                if (!file.exists()) {
-                    L.d("cannot load file for %s", url);
-                    continue;
-                }
-                if (file.isDirectory()) {
-                    // probably exported classes dir.
-                    loadFromDirectory(file);
-                } else {
-                    // assume it is a zip file
-                    loadFomZipFile(file);
-                }
-            } catch (IOException e) {
-                L.d("cannot open zip file from %s", url);
+                file = new File(url.toURI());
             } catch (URISyntaxException e) {
                 L.d("cannot open zip file from %s", url);
+                continue;
+            }
+            urls.add(url);
+            scans.add(new Callable<List<IntermediateSource>>() {
+                @Override
+                public List<IntermediateSource> call() throws Exception {
+                    if (!file.exists()) {
+                        return null;
+                    }
+                    if (file.isDirectory()) {
+                        // probably exported classes dir.
+                        return loadFromDirectory(index, file);
+                    } else {
+                        // assume it is a zip file
+                        return loadFomZipFile(index, file);
+                    }
+                }
+            });
+        }
+        final List<Future<List<IntermediateSource>>> results = invokeAll(scans);
+        for (int i = 0; i < results.size(); i++) {
+            final List<IntermediateSource> sources;
+            try {
+                sources = results.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                L.d("cannot open zip file from %s", urls.get(i));
+                continue;
+            }
+            if (sources == null) {
+                L.d("cannot load file for %s", urls.get(i));
+                continue;
+            }
+            for (IntermediateSource source : sources) {
+                sSources[source.filter.ordinal()].add(source);
             }
         }
+        index.save(sIndexFile);
     }
 
-    private static void loadFromDirectory(File directory) {
-        for (File file : FileUtils.listFiles(directory, TrueFileFilter.INSTANCE,
-                TrueFileFilter.INSTANCE)) {
+    private static List<IntermediateSource> loadFromDirectory(ClasspathIndex index,
+            File directory) {
+        List<IntermediateSource> sources = new ArrayList<IntermediateSource>();
+        for (String path : index.getDirectoryEntries(directory)) {
             for (ExtensionFilter filter : ExtensionFilter.values()) {
-                if (filter.accept(file.getName())) {
-                    InputStream inputStream = null;
-                    try {
-                        inputStream = FileUtils.openInputStream(file);
-                        Serializable item = fromInputStream(inputStream);
-                        if (item != null) {
-                            //noinspection unchecked
-                            sCache[filter.ordinal()].add(item);
-                            L.d("loaded item %s from file", item);
-                        }
-                    } catch (IOException e) {
-                        L.e(e, "Could not merge in Bindables from %s", file.getAbsolutePath());
-                    } catch (ClassNotFoundException e) {
-                        L.e(e, "Could not read Binding properties intermediate file. %s",
-                                file.getAbsolutePath());
-                    } finally {
-                        IOUtils.closeQuietly(inputStream);
-                    }
+                if (filter.accept(path)) {
+                    sources.add(new IntermediateSource(filter, new File(directory, path), null));
                 }
             }
         }
+        return sources;
     }
 
-    private static void loadFomZipFile(File file)
+    private static List<IntermediateSource> loadFomZipFile(ClasspathIndex index, File file)
             throws IOException {
-        ZipFile zipFile = new ZipFile(file);
-        Enumeration<? extends ZipEntry> entries = zipFile.entries();
-        while (entries.hasMoreElements()) {
-            ZipEntry entry = entries.nextElement();
+        List<IntermediateSource> sources = new ArrayList<IntermediateSource>();
+        for (String entryName : index.getZipEntries(file)) {
             for (ExtensionFilter filter : ExtensionFilter.values()) {
-                if (!filter.accept(entry.getName())) {
-                    continue;
+                if (filter.accept(entryName)) {
+                    sources.add(new IntermediateSource(filter, file, entryName));
                 }
-                InputStream inputStream = null;
-                try {
-                    inputStream = zipFile.getInputStream(entry);
-                    Serializable item = fromInputStream(inputStream);
-                    L.d("loaded item %s from zip file", item);
-                    if (item != null) {
-                        //noinspection unchecked
-                        sCache[filter.ordinal()].add(item);
-                    }
-                } catch (IOException e) {
-                    L.e(e, "Could not merge in Bindables from %s", file.getAbsolutePath());
-                } catch (ClassNotFoundException e) {
-                    L.e(e, "Could not read Binding properties intermediate file. %s",
-                            file.getAbsolutePath());
-                } finally {
-                    IOUtils.closeQuietly(inputStream);
+            }
+        }
+        return sources;
+    }
+
+    private static <T> List<T> load(List<IntermediateSource> sources, final Codec<T> codec) {
+        final List<Callable<T>> reads = new ArrayList<Callable<T>>(sources.size());
+        for (final IntermediateSource source : sources) {
+            reads.add(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return read(source, codec);
+                }
+            });
+        }
+        final List<Future<T>> results = invokeAll(reads);
+        // results are merged in class path order so that the output does not depend on timing
+        List<T> items = new ArrayList<T>(sources.size());
+        for (int i = 0; i < results.size(); i++) {
+            final IntermediateSource source = sources.get(i);
+            try {
+                T item = results.get(i).get();
+                if (item != null) {
+                    items.add(item);
+                    L.d("loaded item %s from %s", item, source);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof ClassNotFoundException) {
+                    L.e(cause, "Could not read Binding properties intermediate file. %s", source);
+                } else {
+                    L.e(cause, "Could not merge in Bindables from %s", source);
                 }
             }
         }
+        return items;
+    }
+
+    /**
+     * Runs the given tasks on a bounded thread pool. The returned futures are all done and in
+     * the order of the tasks.
+     */
+    private static <T> List<Future<T>> invokeAll(List<Callable<T>> tasks) {
+        if (tasks.isEmpty()) {
+            return new ArrayList<Future<T>>();
+        }
+        final int threads = Math.min(tasks.size(),
+                Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    private static Serializable fromInputStream(InputStream inputStream)
+    /**
+     * Reads a single intermediate file. Runs on a worker thread, so it must not log.
+     */
+    private static <T> T read(IntermediateSource source, Codec<T> codec)
             throws IOException, ClassNotFoundException {
-        ObjectInputStream in = new ObjectInputStream(inputStream);
-        return (Serializable) in.readObject();
+        ZipFile zipFile = null;
+        InputStream inputStream = null;
+        try {
+            if (source.entryName == null) {
+                inputStream = FileUtils.openInputStream(source.file);
+            } else {
+                zipFile = new ZipFile(source.file);
+                inputStream = zipFile.getInputStream(zipFile.getEntry(source.entryName));
+            }
+            return fromInputStream(inputStream, codec);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+            IOUtils.closeQuietly(zipFile);
+        }
+    }
 
+    private static <T> T fromInputStream(InputStream inputStream, Codec<T> codec)
+            throws IOException, ClassNotFoundException {
+        BufferedInputStream in = new BufferedInputStream(inputStream);
+        if (!IntermediateReader.isIntermediate(in)) {
+            // written by an older version of data binding
+            //noinspection unchecked
+            return (T) new ObjectInputStream(in).readObject();
+        }
+        IntermediateReader reader = new IntermediateReader(in);
+        if (reader.getVersion() > codec.getVersion()) {
+            throw new IOException("Incompatible data binding dependency. Please update your data"
+                    + " binding version or recompile your dependencies with it.");
+        }
+        return codec.read(reader);
     }
 
-    public static void writeIntermediateFile(ProcessingEnvironment processingEnv,
-            String packageName, String fileName, Serializable object) {
-        ObjectOutputStream oos = null;
+    public static <T> void writeIntermediateFile(ProcessingEnvironment processingEnv,
+            String packageName, String fileName, T object, Codec<T> codec) {
+        IntermediateWriter writer = null;
         try {
             FileObject intermediate = processingEnv.getFiler().createResource(
                     StandardLocation.CLASS_OUTPUT, packageName,
                     fileName);
             OutputStream ios = intermediate.openOutputStream();
-            oos = new ObjectOutputStream(ios);
-            oos.writeObject(object);
-            oos.close();
+            writer = new IntermediateWriter(ios, codec.getVersion());
+            codec.write(object, writer);
+            writer.close();
             L.d("wrote intermediate bindable file %s %s", packageName, fileName);
         } catch (IOException e) {
             L.e(e, "Could not write to intermediate file: %s", fileName);
         } finally {
-            IOUtils.closeQuietly(oos);
+            IOUtils.closeQuietly(writer);
+        }
+    }
+
+    /**
+     * Converts an intermediate object to and from its binary form.
+     */
+    public interface Codec<T> {
+        /**
+         * @return The version of the data written by this codec. Files with a newer version
+         * cannot be read.
+         */
+        int getVersion();
+
+        void write(T object, IntermediateWriter out) throws IOException;
+
+        /**
+         * Reads an object written by this codec. {@link IntermediateReader#getVersion()} can be
+         * used to read files of older versions.
+         */
+        T read(IntermediateReader in) throws IOException;
+    }
+
+    private static class IntermediateSource {
+        public final ExtensionFilter filter;
+
+        public final File file;
+
+        // null if the file is not a zip file
+        public final String entryName;
+
+        public IntermediateSource(ExtensionFilter filter, File file, String entryName) {
+            this.filter = filter;
+            this.file = file;
+            this.entryName = entryName;
+        }
+
+        @Override
+        public String toString() {
+            return entryName == null ? file.getAbsolutePath()
+                    : file.getAbsolutePath() + "!" + entryName;
         }
     }
 
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.util;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Reads an intermediate file written by {@link IntermediateWriter}. Values are decoded straight
+ * from the stream as they are requested, so the file is never loaded into memory as a whole.
+ */
+public class IntermediateReader implements Closeable {
+    static final byte[] MAGIC = new byte[]{'D', 'B', 'I', 'N'};
+
+    static final int FORMAT_VERSION = 1;
+
+    private final InputStream mIn;
+
+    private final int mVersion;
+
+    private final ArrayList<String> mStrings = new ArrayList<String>();
+
+    /**
+     * @param in A stream positioned at the start of the intermediate file.
+     * @throws IOException if the stream does not hold a binary intermediate of a known format.
+     */
+    public IntermediateReader(InputStream in) throws IOException {
+        mIn = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+        byte[] magic = new byte[MAGIC.length];
+        readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a data binding intermediate file");
+        }
+        int format = readByte();
+        if (format != FORMAT_VERSION) {
+            throw new IOException("Unsupported intermediate file format " + format);
+        }
+        mVersion = readInt();
+    }
+
+    /**
+     * Returns true if the given stream starts with a binary intermediate header. The stream is
+     * reset to its current position.
+     */
+    public static boolean isIntermediate(BufferedInputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        try {
+            for (byte b : MAGIC) {
+                if (in.read() != (b & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * @return The version of the data, as passed to {@link IntermediateWriter}.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    public int readInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed int in intermediate file");
+    }
+
+    public long readLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed long in intermediate file");
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public String readString() throws IOException {
+        int tag = readInt();
+        if (tag == IntermediateWriter.STRING_NULL) {
+            return null;
+        }
+        if (tag == IntermediateWriter.STRING_NEW) {
+            byte[] bytes = new byte[readInt()];
+            readFully(bytes);
+            String value = new String(bytes, IntermediateWriter.UTF_8);
+            mStrings.add(value);
+            return value;
+        }
+        int index = tag - IntermediateWriter.STRING_REF;
+        if (index >= mStrings.size()) {
+            throw new IOException("Invalid string reference in intermediate file");
+        }
+        return mStrings.get(index);
+    }
+
+    public String[] readStrings() throws IOException {
+        String[] values = new String[readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString();
+        }
+        return values;
+    }
+
+    public HashMap<String, String> readStringMap() throws IOException {
+        int size = readInt();
+        HashMap<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < size; i++) {
+            String key = readString();
+            map.put(key, readString());
+        }
+        return map;
+    }
+
+    private int readByte() throws IOException {
+        int b = mIn.read();
+        if (b < 0) {
+            throw new EOFException("Unexpected end of intermediate file");
+        }
+        return b;
+    }
+
+    private void readFully(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            int read = mIn.read(bytes, offset, bytes.length - offset);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of intermediate file");
+            }
+            offset += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mIn.close();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the binary form of an intermediate file.
+ * <p>
+ * The stream starts with {@link IntermediateReader#MAGIC}, the format version and the version
+ * of the data that follows. Integers are written as unsigned varints and strings are interned:
+ * the first occurrence of a string is written inline and later occurrences refer back to it by
+ * index.
+ *
+ * @see IntermediateReader
+ */
+public class IntermediateWriter implements Closeable {
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // string tags, any larger value is a back reference to (tag - STRING_REF)
+    static final int STRING_NULL = 0;
+    static final int STRING_NEW = 1;
+    static final int STRING_REF = 2;
+
+    private final OutputStream mOut;
+
+    private final HashMap<String, Integer> mStrings = new HashMap<String, Integer>();
+
+    public IntermediateWriter(OutputStream out, int version) throws IOException {
+        mOut = new BufferedOutputStream(out);
+        mOut.write(IntermediateReader.MAGIC);
+        mOut.write(IntermediateReader.FORMAT_VERSION);
+        writeInt(version);
+    }
+
+    /**
+     * Writes a non-negative int, such as a count or an index.
+     */
+    public void writeInt(int value) throws IOException {
+        Preconditions.check(value >= 0, "Cannot write negative value %d", value);
+        while ((value & ~0x7F) != 0) {
+            mOut.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        mOut.write(value);
+    }
+
+    /**
+     * Writes a non-negative long, such as a file size or a timestamp.
+     */
+    public void writeLong(long value) throws IOException {
+        Preconditions.check(value >= 0, "Cannot write negative value %d", value);
+        while ((value & ~0x7FL) != 0) {
+            mOut.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        mOut.write((int) value);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        mOut.write(value ? 1 : 0);
+    }
+
+    /**
+     * Writes a string, which may be null. Strings that were already written are replaced by a
+     * reference to their first occurrence.
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeInt(STRING_NULL);
+            return;
+        }
+        Integer index = mStrings.get(value);
+        if (index != null) {
+            writeInt(STRING_REF + index);
+            return;
+        }
+        mStrings.put(value, mStrings.size());
+        byte[] bytes = value.getBytes(UTF_8);
+        writeInt(STRING_NEW);
+        writeInt(bytes.length);
+        mOut.write(bytes);
+    }
+
+    public void writeStrings(String[] values) throws IOException {
+        writeInt(values.length);
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    public void writeStrings(Collection<String> values) throws IOException {
+        writeInt(values.size());
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    public void writeStringMap(Map<String, String> map) throws IOException {
+        writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(entry.getKey());
+            writeString(entry.getValue());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mOut.close();
+    }
+}
@@ -20,12 +20,14 @@ import kotlin.reflect.KProperty
 private class LazyExt<K, T>(private val initializer: (k : K) -> T) : ReadOnlyProperty<K, T> {
     private val mapping = hashMapOf<K, T>()
     override fun getValue(thisRef: K, property: kotlin.reflect.KProperty<*>): T {
-        val t = mapping[thisRef]
+        // layouts may be written on multiple threads, but each key belongs to a single layout
+        // so the value can be computed outside of the lock
+        val t = synchronized(mapping) { mapping[thisRef] }
         if (t != null) {
             return t
         }
         val result = initializer(thisRef)
-        mapping.put(thisRef, result)
+        synchronized(mapping) { mapping.put(thisRef, result) }
         return result
     }
 }
@@ -34,13 +36,13 @@ private class VersionedLazyExt<K, T>(private val initializer: (k : K) -> T) : Re
     private val mapping = hashMapOf<K, VersionedResult<T>>()
 
     override fun getValue(thisRef: K, property: KProperty<*>): T {
-        val t = mapping[thisRef]
+        val t = synchronized(mapping) { mapping[thisRef] }
         val version = if(thisRef is VersionProvider) thisRef.version else 1
         if (t != null && version == t.version) {
             return t.result
         }
         val result = initializer(thisRef)
-        mapping.put(thisRef, VersionedResult(version, result))
+        synchronized(mapping) { mapping.put(thisRef, VersionedResult(version, result)) }
         return result
     }
 }
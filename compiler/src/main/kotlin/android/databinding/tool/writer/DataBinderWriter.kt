@@ -17,7 +17,21 @@ import android.databinding.tool.LayoutBinder
 
 class DataBinderWriter(val pkg: String, val projectPackage: String, val className: String,
         val layoutBinders : List<LayoutBinder>, val minSdk : kotlin.Int) {
+    // String.hashCode is well defined in the API so we can rely on it being the same on the device
+    // and the host machine. Binders are indexed in tag hash order so that the tag lookup can
+    // binary search the hashes.
+    val binders = layoutBinders.sortedWith(compareBy<LayoutBinder>({ "${it.tag}_0".hashCode() },
+            { "${it.tag}_0" }))
+
+    val layouts = binders.groupBy { it.layoutname }.values.toList()
+
     fun write(brWriter : BRWriter) = kcode("") {
+        val layoutIndices = hashMapOf<String, Int>()
+        val binderIndices = java.util.IdentityHashMap<LayoutBinder, Int>()
+        binders.forEachIndexed { index, binder -> binderIndices.put(binder, index) }
+        layouts.forEachIndexed { index, variations ->
+            layoutIndices.put(variations[0].layoutname, index)
+        }
         nl("package $pkg;")
         nl("import $projectPackage.BR;")
         block("class $className") {
@@ -27,55 +41,56 @@ class DataBinderWriter(val pkg: String, val projectPackage: String, val classNam
             }
             nl("")
             block("public android.databinding.ViewDataBinding getDataBinder(android.databinding.DataBindingComponent bindingComponent, android.view.View view, int layoutId)") {
-                block("switch(layoutId)") {
-                    layoutBinders.groupBy{it.layoutname }.forEach {
-                        val firstVal = it.value[0]
-                        tab("case ${firstVal.modulePackage}.R.layout.${firstVal.layoutname}:") {
-                            if (it.value.size == 1) {
-                                if (firstVal.isMerge) {
-                                    tab("return new ${firstVal.`package`}.${firstVal.implementationName}(bindingComponent, new android.view.View[]{view});")
-                                } else {
-                                    tab("return ${firstVal.`package`}.${firstVal.implementationName}.bind(view, bindingComponent);")
-                                }
+                nl("final int layoutIndex = InnerLayoutLookup.indexOf(layoutId);")
+                block("if (layoutIndex < 0)") {
+                    nl("return null;")
+                }
+                nl("int binderIndex = InnerLayoutLookup.sBinders[layoutIndex];")
+                block("if (binderIndex < 0)") {
+                    // we should check the tag to decide which layout we need to inflate
+                    nl("final Object tag = view.getTag();")
+                    nl("if(tag == null) throw new java.lang.RuntimeException(\"view must have a tag\");")
+                    nl("binderIndex = InnerTagLookup.indexOf(tag);")
+                    block("if (binderIndex < 0 || InnerTagLookup.sLayouts[binderIndex] != layoutIndex)") {
+                        nl("throw new java.lang.IllegalArgumentException(\"The tag for \" + view.getResources().getResourceEntryName(layoutId) + \" is invalid. Received: \" + tag);")
+                    }
+                }
+                block("switch(binderIndex)") {
+                    binders.forEachIndexed { index, binder ->
+                        val single = layouts[layoutIndices[binder.layoutname]!!].size == 1
+                        tab("case $index:") {
+                            if (binder.isMerge) {
+                                tab("return new ${binder.`package`}.${binder.implementationName}(bindingComponent, new android.view.View[]{view});")
+                            } else if (single) {
+                                tab("return ${binder.`package`}.${binder.implementationName}.bind(view, bindingComponent);")
                             } else {
-                                // we should check the tag to decide which layout we need to inflate
-                                block("") {
-                                    tab("final Object tag = view.getTag();")
-                                    tab("if(tag == null) throw new java.lang.RuntimeException(\"view must have a tag\");")
-                                    it.value.forEach {
-                                        block("if (\"${it.tag}_0\".equals(tag))") {
-                                            if (it.isMerge) {
-                                                tab("return new ${it.`package`}.${it.implementationName}(bindingComponent, new android.view.View[]{view});")
-                                            } else {
-                                                tab("return new ${it.`package`}.${it.implementationName}(bindingComponent, view);")
-                                            }
-                                        }
-                                    }
-                                    tab("throw new java.lang.IllegalArgumentException(\"The tag for ${firstVal.layoutname} is invalid. Received: \" + tag);");
-                                }
+                                tab("return new ${binder.`package`}.${binder.implementationName}(bindingComponent, view);")
                             }
-
                         }
                     }
                 }
                 nl("return null;")
             }
             block("android.databinding.ViewDataBinding getDataBinder(android.databinding.DataBindingComponent bindingComponent, android.view.View[] views, int layoutId)") {
-                block("switch(layoutId)") {
-                    layoutBinders.filter{it.isMerge }.groupBy{it.layoutname }.forEach {
-                        val firstVal = it.value[0]
-                        block("case ${firstVal.modulePackage}.R.layout.${firstVal.layoutname}:") {
-                            if (it.value.size == 1) {
-                                tab("return new ${firstVal.`package`}.${firstVal.implementationName}(bindingComponent, views);")
-                            } else {
-                                // we should check the tag to decide which layout we need to inflate
-                                nl("final Object tag = views[0].getTag();")
-                                nl("if(tag == null) throw new java.lang.RuntimeException(\"view must have a tag\");")
-                                it.value.forEach {
-                                    block("if (\"${it.tag}_0\".equals(tag))") {
-                                        nl("return new ${it.`package`}.${it.implementationName}(bindingComponent, views);")
-                                    }
-                                }
+                nl("final int layoutIndex = InnerLayoutLookup.indexOf(layoutId);")
+                block("if (layoutIndex < 0)") {
+                    nl("return null;")
+                }
+                nl("int binderIndex = InnerLayoutLookup.sBinders[layoutIndex];")
+                block("if (binderIndex < 0)") {
+                    // we should check the tag to decide which layout we need to inflate
+                    nl("final Object tag = views[0].getTag();")
+                    nl("if(tag == null) throw new java.lang.RuntimeException(\"view must have a tag\");")
+                    nl("binderIndex = InnerTagLookup.indexOf(tag);")
+                    block("if (binderIndex < 0 || InnerTagLookup.sLayouts[binderIndex] != layoutIndex)") {
+                        nl("return null;")
+                    }
+                }
+                block("switch(binderIndex)") {
+                    binders.forEachIndexed { index, binder ->
+                        if (binder.isMerge) {
+                            tab("case $index:") {
+                                tab("return new ${binder.`package`}.${binder.implementationName}(bindingComponent, views);")
                             }
                         }
                     }
@@ -87,22 +102,11 @@ class DataBinderWriter(val pkg: String, val projectPackage: String, val classNam
                 block("if (tag == null)") {
                     nl("return 0;");
                 }
-                // String.hashCode is well defined in the API so we can rely on it being the same on the device and the host machine
-                nl("final int code = tag.hashCode();");
-                block("switch(code)") {
-                    layoutBinders.groupBy {"${it.tag}_0".hashCode()}.forEach {
-                        block("case ${it.key}:") {
-                            it.value.forEach {
-                                block("if(tag.equals(\"${it.tag}_0\"))") {
-                                    nl("return ${it.modulePackage}.R.layout.${it.layoutname};")
-                                }
-                            }
-                            nl("break;")
-                        }
-
-                    }
+                nl("final int binderIndex = InnerTagLookup.indexOf(tag);")
+                block("if (binderIndex < 0)") {
+                    nl("return 0;")
                 }
-                nl("return 0;")
+                nl("return InnerLayoutLookup.sLayoutIds[InnerTagLookup.sLayouts[binderIndex]];")
             }
 
             block("String convertBrIdToString(int id)") {
@@ -120,6 +124,97 @@ class DataBinderWriter(val pkg: String, val projectPackage: String, val classNam
                     }
                 }.app("};")
             }
+
+            block("private static class InnerLayoutLookup") {
+                // resource entries of a type are numbered consecutively, so the layout ids of an
+                // application fit in a table of at most this size
+                nl("private static final int MAX_TABLE_SIZE = 0x10000;")
+                nl("static final int[] sLayoutIds = new int[]{") {
+                    layouts.forEachIndexed { index, variations ->
+                        val prefix = if (index == 0) "" else ","
+                        tab("$prefix${variations[0].modulePackage}.R.layout.${variations[0].layoutname}")
+                    }
+                }.app("};")
+                // the binder of layouts without variations, -1 if the tag must be checked
+                nl("static final int[] sBinders = new int[]{") {
+                    layouts.forEachIndexed { index, variations ->
+                        val prefix = if (index == 0) "" else ","
+                        val binderIndex = if (variations.size == 1) binderIndices[variations[0]] else -1
+                        tab("$prefix$binderIndex")
+                    }
+                }.app("};")
+                nl("private static final int sMinLayoutId;")
+                // layoutId - sMinLayoutId to the layout index + 1, null if the ids do not fit
+                nl("private static final int[] sTable;")
+                block("static") {
+                    nl("int min = Integer.MAX_VALUE;")
+                    nl("int max = Integer.MIN_VALUE;")
+                    block("for (int id : sLayoutIds)") {
+                        nl("min = Math.min(min, id);")
+                        nl("max = Math.max(max, id);")
+                    }
+                    nl("sMinLayoutId = min;")
+                    block("if (sLayoutIds.length > 0 && (long) max - min < MAX_TABLE_SIZE)") {
+                        nl("sTable = new int[max - min + 1];")
+                        block("for (int i = 0; i < sLayoutIds.length; i++)") {
+                            nl("sTable[sLayoutIds[i] - min] = i + 1;")
+                        }
+                    }
+                    block("else") {
+                        nl("sTable = null;")
+                    }
+                }
+                block("static int indexOf(int layoutId)") {
+                    block("if (sTable != null)") {
+                        nl("final int offset = layoutId - sMinLayoutId;")
+                        nl("return offset < 0 || offset >= sTable.length ? -1 : sTable[offset] - 1;")
+                    }
+                    block("for (int i = 0; i < sLayoutIds.length; i++)") {
+                        block("if (sLayoutIds[i] == layoutId)") {
+                            nl("return i;")
+                        }
+                    }
+                    nl("return -1;")
+                }
+            }
+
+            block("private static class InnerTagLookup") {
+                nl("static final String[] sTags = new String[]{") {
+                    binders.forEachIndexed { index, binder ->
+                        val prefix = if (index == 0) "" else ","
+                        tab("$prefix\"${binder.tag}_0\"")
+                    }
+                }.app("};")
+                // the layout index of each tag
+                nl("static final int[] sLayouts = new int[]{") {
+                    binders.forEachIndexed { index, binder ->
+                        val prefix = if (index == 0) "" else ","
+                        tab("$prefix${layoutIndices[binder.layoutname]}")
+                    }
+                }.app("};")
+                nl("private static final int[] sHashes = new int[sTags.length];")
+                block("static") {
+                    block("for (int i = 0; i < sTags.length; i++)") {
+                        nl("sHashes[i] = sTags[i].hashCode();")
+                    }
+                }
+                block("static int indexOf(Object tag)") {
+                    nl("final int code = tag.hashCode();")
+                    nl("int index = java.util.Arrays.binarySearch(sHashes, code);")
+                    block("if (index < 0)") {
+                        nl("return -1;")
+                    }
+                    block("while (index > 0 && sHashes[index - 1] == code)") {
+                        nl("index--;")
+                    }
+                    block("for (; index < sHashes.length && sHashes[index] == code; index++)") {
+                        block("if (sTags[index].equals(tag))") {
+                            nl("return index;")
+                        }
+                    }
+                    nl("return -1;")
+                }
+            }
         }
     }.generate()
-}
\ No newline at end of file
+}
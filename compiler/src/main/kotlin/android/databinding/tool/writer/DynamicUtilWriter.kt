@@ -44,38 +44,21 @@ class DynamicUtilWriter() {
                 nl("return Boolean.parseBoolean(str);")
             }
             block("public static byte parse(String str, byte fallback)") {
-                block("try") {
-                    nl("return Byte.parseByte(str);")
-                }
-                block("catch (NumberFormatException e)") {
-                    nl("return fallback;")
-                }
+                nl("return (byte) parseInteger(str, Byte.MIN_VALUE, Byte.MAX_VALUE, fallback);")
             }
             block("public static short parse(String str, short fallback)") {
-                block("try") {
-                    nl("return Short.parseShort(str);")
-                }
-                block("catch (NumberFormatException e)") {
-                    nl("return fallback;")
-                }
+                nl("return (short) parseInteger(str, Short.MIN_VALUE, Short.MAX_VALUE, fallback);")
             }
             block("public static int parse(String str, int fallback)") {
-                block("try") {
-                    nl("return Integer.parseInt(str);")
-                }
-                block("catch (NumberFormatException e)") {
-                    nl("return fallback;")
-                }
+                nl("return (int) parseInteger(str, Integer.MIN_VALUE, Integer.MAX_VALUE, fallback);")
             }
             block("public static long parse(String str, long fallback)") {
-                block("try") {
-                    nl("return Long.parseLong(str);")
-                }
-                block("catch (NumberFormatException e)") {
-                    nl("return fallback;")
-                }
+                nl("return parseInteger(str, Long.MIN_VALUE, Long.MAX_VALUE, fallback);")
             }
             block("public static float parse(String str, float fallback)") {
+                block("if (!isFloatingPoint(str))") {
+                    nl("return fallback;")
+                }
                 block("try") {
                     nl("return Float.parseFloat(str);")
                 }
@@ -84,6 +67,9 @@ class DynamicUtilWriter() {
                 }
             }
             block("public static double parse(String str, double fallback)") {
+                block("if (!isFloatingPoint(str))") {
+                    nl("return fallback;")
+                }
                 block("try") {
                     nl("return Double.parseDouble(str);")
                 }
@@ -97,6 +83,100 @@ class DynamicUtilWriter() {
                 }
                 nl("return str.charAt(0);")
             }
+            // parses without throwing, text bound to numbers is often invalid while being typed
+            block("private static long parseInteger(String str, long min, long max, long fallback)") {
+                block("if (str == null || str.isEmpty())") {
+                    nl("return fallback;")
+                }
+                nl("final int length = str.length();")
+                nl("int i = 0;")
+                nl("boolean negative = false;")
+                nl("final char first = str.charAt(0);")
+                block("if (first == '-' || first == '+')") {
+                    block("if (length == 1)") {
+                        nl("return fallback;")
+                    }
+                    nl("negative = first == '-';")
+                    nl("i = 1;")
+                }
+                nl("final long limit = negative ? min : -max;")
+                nl("final long multiplyLimit = limit / 10;")
+                nl("long result = 0;")
+                block("for (; i < length; i++)") {
+                    nl("final int digit = Character.digit(str.charAt(i), 10);")
+                    block("if (digit < 0 || result < multiplyLimit)") {
+                        nl("return fallback;")
+                    }
+                    nl("result *= 10;")
+                    block("if (result < limit + digit)") {
+                        nl("return fallback;")
+                    }
+                    nl("result -= digit;")
+                }
+                nl("return negative ? result : -result;")
+            }
+            // false if Double.parseDouble would reject str, hexadecimal values are left to it
+            block("private static boolean isFloatingPoint(String str)") {
+                block("if (str == null)") {
+                    nl("return false;")
+                }
+                nl("int start = 0;")
+                nl("int end = str.length();")
+                block("while (start < end && str.charAt(start) <= ' ')") {
+                    nl("start++;")
+                }
+                block("while (end > start && str.charAt(end - 1) <= ' ')") {
+                    nl("end--;")
+                }
+                nl("int i = start;")
+                block("if (i < end && (str.charAt(i) == '-' || str.charAt(i) == '+'))") {
+                    nl("i++;")
+                }
+                block("if (str.startsWith(\"NaN\", i))") {
+                    nl("return i + 3 == end;")
+                }
+                block("if (str.startsWith(\"Infinity\", i))") {
+                    nl("return i + 8 == end;")
+                }
+                block("if (i + 1 < end && str.charAt(i) == '0' && (str.charAt(i + 1) == 'x' || str.charAt(i + 1) == 'X'))") {
+                    nl("return true;")
+                }
+                nl("final int integerStart = i;")
+                nl("i = skipDigits(str, i, end);")
+                nl("boolean hasDigits = i > integerStart;")
+                block("if (i < end && str.charAt(i) == '.')") {
+                    nl("final int fractionStart = ++i;")
+                    nl("i = skipDigits(str, i, end);")
+                    nl("hasDigits |= i > fractionStart;")
+                }
+                block("if (!hasDigits)") {
+                    nl("return false;")
+                }
+                block("if (i < end && (str.charAt(i) == 'e' || str.charAt(i) == 'E'))") {
+                    nl("i++;")
+                    block("if (i < end && (str.charAt(i) == '-' || str.charAt(i) == '+'))") {
+                        nl("i++;")
+                    }
+                    nl("final int exponentStart = i;")
+                    nl("i = skipDigits(str, i, end);")
+                    block("if (i == exponentStart)") {
+                        nl("return false;")
+                    }
+                }
+                block("if (i < end)") {
+                    nl("final char suffix = str.charAt(i);")
+                    block("if (suffix == 'f' || suffix == 'F' || suffix == 'd' || suffix == 'D')") {
+                        nl("i++;")
+                    }
+                }
+                nl("return i == end;")
+            }
+            block("private static int skipDigits(String str, int index, int end)") {
+                block("while (index < end && str.charAt(index) >= '0' && str.charAt(index) <= '9')") {
+                    nl("index++;")
+                }
+                nl("return index;")
+            }
         }
    }
 }
\ No newline at end of file
@@ -30,16 +30,18 @@ class KCode (private val s : String? = null){
         private val cachedIndentations = BitSet()
         private val indentCache = arrayListOf<String>()
         fun indent(n: Int): String {
-            if (cachedIndentations.get(n)) {
-                return indentCache[n]
-            }
-            val s = (0..n-1).fold(""){prev, next -> "$prev    "}
-            cachedIndentations.set(n, true )
-            while (indentCache.size <= n) {
-                indentCache.add("");
+            synchronized(indentCache) {
+                if (cachedIndentations.get(n)) {
+                    return indentCache[n]
+                }
+                val s = (0..n-1).fold(""){prev, next -> "$prev    "}
+                cachedIndentations.set(n, true )
+                while (indentCache.size <= n) {
+                    indentCache.add("");
+                }
+                indentCache.set(n, s)
+                return s
             }
-            indentCache.set(n, s)
-            return s
         }
     }
 
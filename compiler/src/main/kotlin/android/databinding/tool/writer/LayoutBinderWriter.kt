@@ -19,6 +19,7 @@ import android.databinding.tool.CallbackWrapper
 import android.databinding.tool.InverseBinding
 import android.databinding.tool.LayoutBinder
 import android.databinding.tool.expr.Expr
+import android.databinding.tool.expr.ExprKey
 import android.databinding.tool.expr.ExprModel
 import android.databinding.tool.expr.FieldAccessExpr
 import android.databinding.tool.expr.IdentifierExpr
@@ -55,20 +56,34 @@ enum class Scope {
     CONSTRUCTOR_PARAM,
     CALLBACK;
     companion object {
-        var currentScope = GLOBAL;
-        private val scopeStack = arrayListOf<Scope>()
+        private class State {
+            var currentScope = GLOBAL
+            val scopeStack = arrayListOf<Scope>()
+        }
+
+        // layouts may be written on multiple threads, each keeps its own scope
+        private val state = object : ThreadLocal<State>() {
+            override fun initialValue() = State()
+        }
+
+        val currentScope : Scope
+            get() = state.get().currentScope
+
         fun enter(scope : Scope) {
-            scopeStack.add(currentScope)
-            currentScope = scope
+            val s = state.get()
+            s.scopeStack.add(s.currentScope)
+            s.currentScope = scope
         }
 
         fun exit() {
-            currentScope = scopeStack.removeAt(scopeStack.size - 1)
+            val s = state.get()
+            s.currentScope = s.scopeStack.removeAt(s.scopeStack.size - 1)
         }
 
         fun reset() {
-            scopeStack.clear()
-            currentScope = GLOBAL
+            val s = state.get()
+            s.scopeStack.clear()
+            s.currentScope = GLOBAL
         }
     }
 }
@@ -171,13 +186,35 @@ val BindingTarget.constructorParamName by lazyProp { target : BindingTarget ->
     target.model.getConstructorParamName(target.readableName)
 }
 
-// not necessarily unique. Uniqueness is decided per scope
+// Non-public names are cut to 20 characters anyway, so longer keys only need to be read up to
+// this many name characters.
+const val MAX_READABLE_NAME_LENGTH = 64
+
+// not necessarily unique. Uniqueness is decided per scope. Variable names are used in the
+// public setters so they are never cut.
 val Expr.readableName by lazyProp { expr : Expr ->
-    val stripped = expr.uniqueKey.stripNonJava()
-    L.d("readableUniqueName for [%s] %s is %s", System.identityHashCode(expr), expr.uniqueKey, stripped)
+    val stripped = if (expr is IdentifierExpr) {
+        expr.uniqueKey.stripNonJava()
+    } else {
+        expr.key.readablePrefix(MAX_READABLE_NAME_LENGTH)
+    }
+    L.d("readableUniqueName for [%s] is %s", System.identityHashCode(expr), stripped)
     stripped
 }
 
+// Reads only as much of the key as is needed for a name of at most maxLength characters.
+fun ExprKey.readablePrefix(maxLength : Int) : String {
+    var keyLength = maxLength
+    while (true) {
+        val prefix = toString(keyLength)
+        val stripped = prefix.stripNonJava()
+        if (stripped.length >= maxLength || prefix.length < keyLength) {
+            return stripped.take(maxLength)
+        }
+        keyLength *= 2
+    }
+}
+
 val Expr.fieldName by lazyProp { expr : Expr ->
     expr.model.getUniqueFieldName("m${expr.readableName.capitalize()}", false)
 }
@@ -345,7 +382,24 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         model.exprMap.values.filterIsInstance(LambdaExpr::class.java)
     }
 
-    public fun write(minSdk : kotlin.Int) : String  {
+    // when set, dirty flags are kept in an AtomicLong and updated without locking the binding
+    var atomicDirtyFlags = false
+
+    val atomicLongClass = "java.util.concurrent.atomic.AtomicLong"
+
+    val atomicReferenceClass = "java.util.concurrent.atomic.AtomicReference"
+
+    // Flags that do not fit in one AtomicLong are kept in a long[] that is never modified and
+    // replaced as a whole, so that executeBindings takes all buckets in a single step. Otherwise
+    // it could see the flag of an expression without the flags of the expressions it depends on.
+    val atomicDirtyFlagArray : kotlin.Boolean
+        get() = atomicDirtyFlags && mDirtyFlags.buckets.size > 1
+
+    fun dirtyFlagBuckets(value : (kotlin.Int) -> String) =
+            (0..(mDirtyFlags.buckets.size - 1)).map(value).joinToString(", ")
+
+    public fun write(minSdk : kotlin.Int, atomicDirtyFlags : kotlin.Boolean = false) : String  {
+        this.atomicDirtyFlags = atomicDirtyFlags
         Scope.reset()
         layoutBinder.resolveWhichExpressionsAreUsed()
         calculateIndices();
@@ -423,9 +477,27 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
             indices.put(it.value, it.index + indexStart)
         }
     }
+    /**
+     * The bound views can be found by following their child indexes from the root when the
+     * layout has a single root, no includes and every used view has a known path.
+     */
+    val hasViewPaths by lazy {
+        !layoutBinder.isMerge && layoutBinder.bindingTargets.filter { it.isUsed }.all {
+            !it.isBinder && it.viewPath != null
+        }
+    }
+
+    // the arguments of mapBindings after the root and the number of bindings
+    val mapBindingsTables by lazy {
+        if (hasViewPaths) "sIncludes, sViewsWithIds, sViewPaths" else "sIncludes, sViewsWithIds"
+    }
+
     fun declareIncludeViews() = kcode("") {
         nl("private static final android.databinding.ViewDataBinding.IncludedLayouts sIncludes;")
         nl("private static final android.util.SparseIntArray sViewsWithIds;")
+        if (hasViewPaths) {
+            nl("private static final int[][] sViewPaths;")
+        }
         nl("static {") {
             val hasBinders = layoutBinder.bindingTargets.firstOrNull{ it.isUsed && it.isBinder } != null
             if (!hasBinders) {
@@ -479,6 +551,13 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                     tab("sViewsWithIds.put(${it.androidId}, ${indices[it]});")
                 }
             }
+            if (hasViewPaths) {
+                val paths = arrayOfNulls<IntArray>(maxIndex() + 1)
+                indices.forEach { paths[it.value] = it.key.viewPath }
+                tab("sViewPaths = new int[][] {${paths.map {
+                    if (it == null) "null" else "{${it.joinToString(", ")}}"
+                }.joinToString(", ")}};")
+            }
         }
         nl("}")
     }
@@ -507,7 +586,7 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         if (layoutBinder.hasVariations()) {
             nl("")
             nl("public $className(android.databinding.DataBindingComponent bindingComponent, $parameterType root) {") {
-                tab("this(bindingComponent, $superParam, mapBindings(bindingComponent, root, $bindingCount, sIncludes, sViewsWithIds));")
+                tab("this(bindingComponent, $superParam, mapBindings(bindingComponent, root, $bindingCount, $mapBindingsTables));")
             }
             nl("}")
             nl("private $className(android.databinding.DataBindingComponent bindingComponent, $parameterType root, Object[] bindings) {") {
@@ -521,7 +600,7 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         } else {
             nl("public $baseClassName(android.databinding.DataBindingComponent bindingComponent, $parameterType root) {") {
                 tab("super(bindingComponent, $superParam, ${model.observables.size});")
-                tab("final Object[] bindings = mapBindings(bindingComponent, root, $bindingCount, sIncludes, sViewsWithIds);")
+                tab("final Object[] bindings = mapBindings(bindingComponent, root, $bindingCount, $mapBindingsTables);")
             }
         }
         if (layoutBinder.requiredComponent != null) {
@@ -532,7 +611,9 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
             if (!layoutBinder.hasVariations() || it.id == null) {
                 tab("this.${it.fieldName} = ${fieldConversion(it)};")
             }
-            if (!it.isBinder) {
+            if (it.isBinder) {
+                tab("setContainingBinding(this.${it.fieldName}, this);")
+            } else {
                 if (it.resolvedType != null && it.resolvedType.extendsViewStub()) {
                     tab("this.${it.fieldName}.setContainingBinding(this);")
                 }
@@ -645,9 +726,17 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         block("public void invalidateAll()") {
             val fs = FlagSet(layoutBinder.model.invalidateAnyBitSet,
                     layoutBinder.model.flagBucketCount);
-            block("synchronized(this)") {
+            if (atomicDirtyFlagArray) {
+                nl("${mDirtyFlags.localName}.set(new long[] {${dirtyFlagBuckets { fs.localValue(it) }}});")
+            } else if (atomicDirtyFlags) {
                 for (i in (0..(mDirtyFlags.buckets.size - 1))) {
-                    tab("${mDirtyFlags.localValue(i)} = ${fs.localValue(i)};")
+                    nl("${mDirtyFlags.localValue(i)}.set(${fs.localValue(i)});")
+                }
+            } else {
+                block("synchronized(this)") {
+                    for (i in (0..(mDirtyFlags.buckets.size - 1))) {
+                        tab("${mDirtyFlags.localValue(i)} = ${fs.localValue(i)};")
+                    }
                 }
             }
             includedBinders.filter{it.isUsed }.forEach { binder ->
@@ -660,7 +749,24 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
     fun declareHasPendingBindings()  = kcode("") {
         nl("@Override")
         nl("public boolean hasPendingBindings() {") {
-            if (mDirtyFlags.buckets.size > 0) {
+            if (atomicDirtyFlagArray) {
+                tab("final long[] dirtyFlags = ${mDirtyFlags.localName}.get();")
+                val flagCheck = 0.rangeTo(mDirtyFlags.buckets.size - 1).map {
+                        "dirtyFlags[$it] != 0"
+                }.joinToString(" || ")
+                tab("if ($flagCheck) {") {
+                    tab("return true;")
+                }
+                tab("}")
+            } else if (mDirtyFlags.buckets.size > 0 && atomicDirtyFlags) {
+                val flagCheck = 0.rangeTo(mDirtyFlags.buckets.size - 1).map {
+                        "${mDirtyFlags.localValue(it)}.get() != 0"
+                }.joinToString(" || ")
+                tab("if ($flagCheck) {") {
+                    tab("return true;")
+                }
+                tab("}")
+            } else if (mDirtyFlags.buckets.size > 0) {
                 tab("synchronized(this) {") {
                     val flagCheck = 0.rangeTo(mDirtyFlags.buckets.size - 1).map {
                             "${mDirtyFlags.localValue(it)} != 0"
@@ -728,9 +834,13 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                     nl("this.${it.fieldName} = ${it.readableName};")
                     // set dirty flags!
                     val flagSet = it.invalidateFlagSet
-                    block("synchronized(this)") {
-                        mDirtyFlags.mapOr(flagSet) { suffix, index ->
-                            nl("${mDirtyFlags.localName}$suffix |= ${flagSet.localValue(index)};")
+                    if (atomicDirtyFlags) {
+                        nl(setDirtyFlagsAtomically(flagSet))
+                    } else {
+                        block("synchronized(this)") {
+                            mDirtyFlags.mapOr(flagSet) { suffix, index ->
+                                nl("${mDirtyFlags.localName}$suffix |= ${flagSet.localValue(index)};")
+                            }
                         }
                     }
                     // TODO: Remove this condition after releasing version 1.1 of SDK
@@ -763,33 +873,51 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         nl("}")
         nl("")
 
+        if (model.observables.isNotEmpty()) {
+            // lets the observables skip notifying this binding of the properties it ignores
+            nl("private static final int[][] sObservedPropertyIds = {") {
+                model.observables.forEach {
+                    tab("{${observedProperties(it).keys.joinToString(", ")}},")
+                }
+            }
+            nl("};")
+            nl("@Override")
+            block("protected int[] getObservedPropertyIds(int localFieldId)") {
+                nl("return sObservedPropertyIds[localFieldId];")
+            }
+            nl("")
+        }
+
         model.observables.forEach {
             block("private boolean ${it.onChangeName}(${it.resolvedType.toJavaCode()} ${it.readableName}, int fieldId)") {
                 block("switch (fieldId)", {
-                    val accessedFields: List<FieldAccessExpr> = it.parents.filterIsInstance(FieldAccessExpr::class.java)
-                    accessedFields.filter { it.isUsed && it.hasBindableAnnotations() }
-                            .groupBy { it.brName }
-                            .forEach {
-                                // If two expressions look different but resolve to the same method,
-                                // we are not yet able to merge them. This is why we merge their
-                                // flags below.
-                                block("case ${it.key}:") {
-                                    block("synchronized(this)") {
-                                        val flagSet = it.value.foldRight(FlagSet()) { l, r -> l.invalidateFlagSet.or(r) }
-
-                                        mDirtyFlags.mapOr(flagSet) { suffix, index ->
-                                            tab("${mDirtyFlags.localValue(index)} |= ${flagSet.localValue(index)};")
-                                        }
+                    observedProperties(it).forEach {
+                        // If two expressions look different but resolve to the same method,
+                        // we are not yet able to merge them. This is why we merge their
+                        // flags below.
+                        block("case ${it.key}:") {
+                            val flagSet = it.value.foldRight(FlagSet()) { l, r -> l.invalidateFlagSet.or(r) }
+                            if (atomicDirtyFlags) {
+                                nl(setDirtyFlagsAtomically(flagSet))
+                            } else {
+                                block("synchronized(this)") {
+                                    mDirtyFlags.mapOr(flagSet) { suffix, index ->
+                                        tab("${mDirtyFlags.localValue(index)} |= ${flagSet.localValue(index)};")
                                     }
-                                    nl("return true;")
                                 }
-
                             }
+                            nl("return true;")
+                        }
+                    }
                     block("case ${"".br()}:") {
                         val flagSet = it.invalidateFlagSet
-                        block("synchronized(this)") {
-                            mDirtyFlags.mapOr(flagSet) { suffix, index ->
-                                tab("${mDirtyFlags.localName}$suffix |= ${flagSet.localValue(index)};")
+                        if (atomicDirtyFlags) {
+                            nl(setDirtyFlagsAtomically(flagSet))
+                        } else {
+                            block("synchronized(this)") {
+                                mDirtyFlags.mapOr(flagSet) { suffix, index ->
+                                    tab("${mDirtyFlags.localName}$suffix |= ${flagSet.localValue(index)};")
+                                }
                             }
                         }
                         nl("return true;")
@@ -801,6 +929,14 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         }
     }
 
+    /**
+     * The used bindable fields of the observable, grouped by their BR id.
+     */
+    fun observedProperties(observable : Expr) : Map<String, List<FieldAccessExpr>> =
+            observable.parents.filterIsInstance(FieldAccessExpr::class.java)
+                    .filter { it.isUsed && it.hasBindableAnnotations() }
+                    .groupBy { it.brName }
+
     fun declareViews() = kcode("// views") {
         val oneLayout = !layoutBinder.hasVariations();
         layoutBinder.sortedTargets.filter {it.isUsed && (oneLayout || it.id == null)}.forEach {
@@ -869,12 +1005,16 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                             nl(inverseBinding.callbackExprModel.localizeGlobalVariables(valueExpr))
                             nl(inverseBinding.executionPath.toCode())
                         } else {
-                            block("synchronized(this)") {
-                                val flagSet = inverseBinding.chainedExpressions.fold(FlagSet(), { initial, expr ->
-                                    initial.or(FlagSet(expr.id))
-                                })
-                                mDirtyFlags.mapOr(flagSet) { suffix, index ->
-                                    tab("${mDirtyFlags.localValue(index)} |= ${flagSet.binaryCode(index)};")
+                            val flagSet = inverseBinding.chainedExpressions.fold(FlagSet(), { initial, expr ->
+                                initial.or(FlagSet(expr.id))
+                            })
+                            if (atomicDirtyFlags) {
+                                nl(setDirtyFlagsAtomically(flagSet))
+                            } else {
+                                block("synchronized(this)") {
+                                    mDirtyFlags.mapOr(flagSet) { suffix, index ->
+                                        tab("${mDirtyFlags.localValue(index)} |= ${flagSet.binaryCode(index)};")
+                                    }
                                 }
                             }
                             nl("requestRebind();")
@@ -885,15 +1025,65 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         }
     }
     fun declareDirtyFlags() = kcode("// dirty flag") {
+        if (atomicDirtyFlagArray) {
+            nl("private final $atomicReferenceClass<long[]> ${mDirtyFlags.localName} = new $atomicReferenceClass<long[]>(")
+            app("new long[] {${dirtyFlagBuckets { mDirtyFlags.binaryCode(it) }}});")
+            nl("private static final long[] sNoDirtyFlags = new long[${mDirtyFlags.buckets.size}];")
+        }
         model.ext.localizedFlags.forEach { flag ->
+            if (atomicDirtyFlagArray && flag === mDirtyFlags) {
+                return@forEach
+            }
             flag.notEmpty { suffix, value ->
                 nl("private")
-                app(" ", if(flag.isDynamic) null else "static final");
-                app(" ", " ${flag.type} ${flag.localName}$suffix = ${longToBinary(value)};")
+                if (atomicDirtyFlags && flag === mDirtyFlags) {
+                    app(" ", "final $atomicLongClass ${flag.localName}$suffix = new $atomicLongClass(${longToBinary(value)});")
+                } else {
+                    app(" ", if(flag.isDynamic) null else "static final");
+                    app(" ", " ${flag.type} ${flag.localName}$suffix = ${longToBinary(value)};")
+                }
+            }
+        }
+        if (atomicDirtyFlagArray) {
+            val masks = dirtyFlagBuckets { "long mask${getWordSuffix(it)}" }
+            block("private static void setDirtyFlags($atomicReferenceClass<long[]> flags, $masks)") {
+                nl("long[] current;")
+                block("do") {
+                    nl("current = flags.get();")
+                    val isSet = (0..(mDirtyFlags.buckets.size - 1)).map {
+                        "(current[$it] & mask${getWordSuffix(it)}) == mask${getWordSuffix(it)}"
+                    }.joinToString(" && ")
+                    block("if ($isSet)") {
+                        nl("return;")
+                    }
+                }.app(" while (!flags.compareAndSet(current, new long[] {${dirtyFlagBuckets { "current[$it] | mask${getWordSuffix(it)}" }}}));")
+            }
+        } else if (atomicDirtyFlags) {
+            block("private static void setDirtyFlags($atomicLongClass flags, long mask)") {
+                nl("long current;")
+                block("do") {
+                    nl("current = flags.get();")
+                    block("if ((current & mask) == mask)") {
+                        nl("return;")
+                    }
+                }.app(" while (!flags.compareAndSet(current, current | mask));")
             }
         }
     }
 
+    fun setDirtyFlagsAtomically(flagSet : FlagSet) = kcode(null) {
+        if (atomicDirtyFlagArray) {
+            val masks = dirtyFlagBuckets {
+                if (it < flagSet.buckets.size) flagSet.binaryCode(it) else longToBinary(0)
+            }
+            nl("setDirtyFlags(${mDirtyFlags.localName}, $masks);")
+            return@kcode
+        }
+        mDirtyFlags.mapOr(flagSet) { suffix, index ->
+            nl("setDirtyFlags(${mDirtyFlags.localValue(index)}, ${flagSet.localValue(index)});")
+        }
+    }
+
     fun flagMapping() = kcode("/* flag mapping") {
         if (model.flagMapping != null) {
             val mapping = model.flagMapping
@@ -909,13 +1099,24 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         block("protected void executeBindings()") {
             val tmpDirtyFlags = FlagSet(mDirtyFlags.buckets)
             tmpDirtyFlags.localName = "dirtyFlags";
-            for (i in (0..mDirtyFlags.buckets.size - 1)) {
-                nl("${tmpDirtyFlags.type} ${tmpDirtyFlags.localValue(i)} = 0;")
-            }
-            block("synchronized(this)") {
+            if (atomicDirtyFlagArray) {
+                nl("final long[] dirtyFlagBuckets = ${mDirtyFlags.localName}.getAndSet(sNoDirtyFlags);")
+                for (i in (0..mDirtyFlags.buckets.size - 1)) {
+                    nl("${tmpDirtyFlags.type} ${tmpDirtyFlags.localValue(i)} = dirtyFlagBuckets[$i];")
+                }
+            } else if (atomicDirtyFlags) {
                 for (i in (0..mDirtyFlags.buckets.size - 1)) {
-                    nl("${tmpDirtyFlags.localValue(i)} = ${mDirtyFlags.localValue(i)};")
-                    nl("${mDirtyFlags.localValue(i)} = 0;")
+                    nl("${tmpDirtyFlags.type} ${tmpDirtyFlags.localValue(i)} = ${mDirtyFlags.localValue(i)}.getAndSet(0);")
+                }
+            } else {
+                for (i in (0..mDirtyFlags.buckets.size - 1)) {
+                    nl("${tmpDirtyFlags.type} ${tmpDirtyFlags.localValue(i)} = 0;")
+                }
+                block("synchronized(this)") {
+                    for (i in (0..mDirtyFlags.buckets.size - 1)) {
+                        nl("${tmpDirtyFlags.localValue(i)} = ${mDirtyFlags.localValue(i)};")
+                        nl("${mDirtyFlags.localValue(i)} = 0;")
+                    }
                 }
             }
             model.pendingExpressions.filter { it.needsLocalField }.forEach {
@@ -923,8 +1124,9 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
             }
             L.d("writing executePendingBindings for %s", className)
             do {
-                val batch = ExprModel.filterShouldRead(model.pendingExpressions)
-                val justRead = arrayListOf<Expr>()
+                val batch = linkedSetOf<Expr>()
+                batch.addAll(ExprModel.filterShouldRead(model.pendingExpressions))
+                val justRead = linkedSetOf<Expr>()
                 L.d("batch: %s", batch)
                 while (!batch.none()) {
                     val readNow = batch.filter { it.shouldReadNow(justRead) }
@@ -1000,8 +1202,8 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         }
     }
 
-    fun readWithDependants(expressionList: List<Expr>, justRead: MutableList<Expr>,
-            batch: MutableList<Expr>, tmpDirtyFlags: FlagSet,
+    fun readWithDependants(expressionList: List<Expr>, justRead: MutableSet<Expr>,
+            batch: MutableSet<Expr>, tmpDirtyFlags: FlagSet,
             inheritedFlags: FlagSet? = null) : KCode = kcode("") {
         expressionList.groupBy { it.shouldReadFlagSet }.forEach {
             val flagSet = it.key
@@ -16,14 +16,23 @@
 package android.databinding;
 
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+@RunWith(Parameterized.class)
 public class CallbackRegistryTest {
 
     final Integer callback1 = 1;
@@ -35,6 +44,22 @@ public class CallbackRegistryTest {
     int notify3;
     int[] deepNotifyCount = new int[300];
     Integer argValue;
+    final boolean copyOnWrite;
+
+    @Parameterized.Parameters
+    public static List<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    public CallbackRegistryTest(boolean copyOnWrite) {
+        this.copyOnWrite = copyOnWrite;
+    }
+
+    private CallbackRegistry<Integer, CallbackRegistryTest, Integer> createRegistry(
+            CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer> notifier) {
+        return new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier,
+                copyOnWrite);
+    }
 
     private void addNotifyCount(Integer callback) {
         if (callback == callback1) {
@@ -56,7 +81,7 @@ public class CallbackRegistryTest {
                             int arg, Integer arg2) {
                     }
                 };
-        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry = createRegistry(notifier);
         Integer callback = 0;
 
         assertNotNull(registry.copyCallbacks());
@@ -99,7 +124,7 @@ public class CallbackRegistryTest {
                         argValue = arg;
                     }
                 };
-        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry = createRegistry(notifier);
         registry.add(callback2);
         Integer arg = 1;
         registry.notifyCallbacks(this, arg, arg);
@@ -121,7 +146,7 @@ public class CallbackRegistryTest {
                         }
                     }
                 };
-        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry = createRegistry(notifier);
         registry.add(callback1);
         registry.add(callback2);
         registry.add(callback3);
@@ -147,7 +172,7 @@ public class CallbackRegistryTest {
                         registry.notifyCallbacks(CallbackRegistryTest.this, arg1, null);
                     }
                 };
-        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry = createRegistry(notifier);
         registry.add(callback1);
         registry.add(callback2);
         registry.add(callback3);
@@ -176,7 +201,7 @@ public class CallbackRegistryTest {
                         }
                     }
                 };
-        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry = createRegistry(notifier);
 
         registry.add(callback1);
         registry.add(callback2);
@@ -210,7 +235,7 @@ public class CallbackRegistryTest {
                         registry.notifyCallbacks(CallbackRegistryTest.this, arg1, null);
                     }
                 };
-        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry = createRegistry(notifier);
         for (int i = 0; i < callbacks.length; i++) {
             registry.add(callbacks[i]);
         }
@@ -234,7 +259,7 @@ public class CallbackRegistryTest {
                         addNotifyCount(callback);
                     }
                 };
-        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry = createRegistry(notifier);
         for (int i = 0; i < deepNotifyCount.length; i++) {
             registry.add(i);
         }
@@ -260,7 +285,7 @@ public class CallbackRegistryTest {
                         registry.clear();
                     }
                 };
-        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry = createRegistry(notifier);
         for (int i = 0; i < deepNotifyCount.length; i++) {
             registry.add(i);
         }
@@ -282,7 +307,7 @@ public class CallbackRegistryTest {
                             int arg, Integer arg2) {
                     }
                 };
-        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry = createRegistry(notifier);
         Integer callback = 0;
 
         assertTrue(registry.isEmpty());
@@ -299,7 +324,7 @@ public class CallbackRegistryTest {
                             int arg, Integer arg2) {
                     }
                 };
-        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry = createRegistry(notifier);
 
         assertTrue(registry.isEmpty());
         CallbackRegistry<Integer, CallbackRegistryTest, Integer> registry2 = registry.clone();
@@ -310,4 +335,122 @@ public class CallbackRegistryTest {
         registry2 = registry.clone();
         assertFalse(registry2.isEmpty());
     }
+
+    @Test
+    public void testConcurrentNotify() throws Exception {
+        final int numCallbacks = 100;
+        final int numNotifiers = 4;
+        final int numNotifications = 2000;
+        final AtomicIntegerArray notifyCount = new AtomicIntegerArray(numCallbacks * 2);
+        CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer> notifier =
+                new CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer>() {
+                    @Override
+                    public void onNotifyCallback(Integer callback, CallbackRegistryTest sender,
+                            int arg, Integer arg2) {
+                        notifyCount.incrementAndGet(callback);
+                    }
+                };
+        registry = createRegistry(notifier);
+        for (int i = 0; i < numCallbacks; i++) {
+            registry.add(i);
+        }
+        Runnable[] tasks = new Runnable[numNotifiers + 2];
+        for (int i = 0; i < numNotifiers; i++) {
+            tasks[i] = new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < numNotifications; j++) {
+                        registry.notifyCallbacks(CallbackRegistryTest.this, j, null);
+                    }
+                }
+            };
+        }
+        // the second half of the callbacks come and go while notifications are running
+        for (int i = numNotifiers; i < tasks.length; i++) {
+            tasks[i] = new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < numNotifications; j++) {
+                        Integer callback = numCallbacks + (j % numCallbacks);
+                        registry.add(callback);
+                        registry.copyCallbacks();
+                        registry.remove(callback);
+                    }
+                }
+            };
+        }
+        runConcurrently(tasks);
+
+        for (int i = 0; i < numCallbacks; i++) {
+            assertEquals(numNotifiers * numNotifications, notifyCount.get(i));
+        }
+        ArrayList<Integer> callbacks = registry.copyCallbacks();
+        assertEquals(numCallbacks, callbacks.size());
+        for (int i = 0; i < numCallbacks; i++) {
+            assertEquals(i, (int) callbacks.get(i));
+        }
+    }
+
+    @Test
+    public void testConcurrentRemoveWhileNotifying() throws Exception {
+        final int numCallbacks = 200;
+        final AtomicIntegerArray notifyCount = new AtomicIntegerArray(numCallbacks);
+        CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer> notifier =
+                new CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer>() {
+                    @Override
+                    public void onNotifyCallback(Integer callback, CallbackRegistryTest sender,
+                            int arg, Integer arg2) {
+                        notifyCount.incrementAndGet(callback);
+                        registry.remove(callback);
+                        registry.remove(numCallbacks - callback - 1);
+                        registry.notifyCallbacks(sender, arg, arg2);
+                    }
+                };
+        registry = createRegistry(notifier);
+        for (int i = 0; i < numCallbacks; i++) {
+            registry.add(i);
+        }
+        Runnable[] tasks = new Runnable[4];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Runnable() {
+                @Override
+                public void run() {
+                    registry.notifyCallbacks(CallbackRegistryTest.this, 0, null);
+                }
+            };
+        }
+        runConcurrently(tasks);
+
+        for (int i = 0; i < numCallbacks; i++) {
+            assertTrue(notifyCount.get(i) >= 1);
+        }
+        assertTrue(registry.isEmpty());
+        assertEquals(0, registry.copyCallbacks().size());
+    }
+
+    private static void runConcurrently(Runnable[] tasks) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            final Runnable task = tasks[i];
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        task.run();
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+    }
 }
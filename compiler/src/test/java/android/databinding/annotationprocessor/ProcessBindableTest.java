@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.annotationprocessor;
+
+import android.databinding.annotationprocessor.ProcessBindable.IntermediateV1;
+import android.databinding.tool.util.CodecRoundTrip;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ProcessBindableTest {
+    @Test
+    public void testIntermediateRoundTrip() throws IOException {
+        IntermediateV1 properties = new IntermediateV1("com.example");
+        properties.addProperty("com.example.User", "name");
+        properties.addProperty("com.example.User", "age");
+        properties.addProperty("com.example.Item", "name");
+
+        ProcessBindable.Intermediate copy = CodecRoundTrip.roundTrip(ProcessBindable.CODEC,
+                properties);
+
+        assertEquals("com.example", copy.getPackage());
+        Set<String> captured = new HashSet<String>();
+        copy.captureProperties(captured);
+        Set<String> expected = new HashSet<String>();
+        properties.captureProperties(expected);
+        assertEquals(expected, captured);
+    }
+
+    @Test
+    public void testEmptyIntermediate() throws IOException {
+        ProcessBindable.Intermediate copy = CodecRoundTrip.roundTrip(ProcessBindable.CODEC,
+                new IntermediateV1(null));
+        assertEquals(null, copy.getPackage());
+        assertFalse(copy.hasValues());
+    }
+}
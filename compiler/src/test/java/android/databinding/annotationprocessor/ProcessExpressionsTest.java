@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.annotationprocessor;
+
+import android.databinding.annotationprocessor.ProcessExpressions.IntermediateV1;
+import android.databinding.annotationprocessor.ProcessExpressions.IntermediateV2;
+import android.databinding.tool.util.CodecRoundTrip;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProcessExpressionsTest {
+    @Test
+    public void testIntermediateRoundTrip() throws IOException {
+        IntermediateV2 layouts = new IntermediateV2();
+        layouts.addEntry("activity_main-layout.xml", "<Layout layout=\"activity_main\"/>");
+        layouts.addEntry("empty-layout.xml", "");
+
+        ProcessExpressions.Intermediate copy = CodecRoundTrip.roundTrip(ProcessExpressions.CODEC,
+                layouts);
+
+        assertTrue(copy instanceof IntermediateV2);
+        assertEquals(layouts.mLayoutInfoMap, ((IntermediateV2) copy).mLayoutInfoMap);
+    }
+
+    @Test
+    public void testOldIntermediateIsUpgraded() throws IOException {
+        IntermediateV1 layouts = new IntermediateV1();
+        layouts.addEntry("activity_main-layout.xml", "<Layout layout=\"activity_main\"/>");
+
+        ProcessExpressions.Intermediate copy = CodecRoundTrip.roundTrip(ProcessExpressions.CODEC,
+                layouts);
+
+        assertTrue(copy instanceof IntermediateV2);
+        assertEquals(layouts.mLayoutInfoMap, ((IntermediateV2) copy).mLayoutInfoMap);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool;
+
+import android.databinding.tool.reflection.java.JavaAnalyzer;
+import android.databinding.tool.store.ResourceBundle;
+import android.databinding.tool.writer.JavaFileWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DataBinderTest {
+    @Before
+    public void setUp() throws Exception {
+        JavaAnalyzer.initForTests();
+    }
+
+    @Test
+    public void testParallelOutputIsSameAsSequential() {
+        final String sequential = generate(1);
+        assertTrue(sequential.contains("// com.test.databinding.Layout0Binding\n"));
+        assertTrue(sequential.contains("// com.test.databinding.Layout19Binding\n"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(sequential, generate(4));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidParallelism() {
+        new DataBinder(new ResourceBundle("com.test")).setParallelism(0);
+    }
+
+    private static String generate(int parallelism) {
+        ResourceBundle resourceBundle = new ResourceBundle("com.test");
+        for (int i = 0; i < 20; i++) {
+            ResourceBundle.LayoutFileBundle bundle = new ResourceBundle.LayoutFileBundle(
+                    new File("./layout" + i + ".xml"), "layout" + i, "layout", "com.test",
+                    false);
+            bundle.addImport("Integer", "java.lang.Integer", null);
+            ResourceBundle.BindingTargetBundle root = bundle.createBindingTarget(null,
+                    "android.widget.FrameLayout", true, "layout/layout" + i + "_0", null, null);
+            root.setViewPath(new int[0]);
+            for (int j = 0; j < 1 + i % 4; j++) {
+                ResourceBundle.BindingTargetBundle target = bundle.createBindingTarget(
+                        "@+id/text" + j, "android.widget.TextView", true, "binding_" + (j + 1),
+                        null, null);
+                target.setViewPath(new int[]{j});
+                target.addBinding("android:text", "Integer.MAX_VALUE > " + j
+                        + " ? Integer.toString(" + j + ") : null", false, null, null);
+            }
+            resourceBundle.addLayoutBundle(bundle);
+        }
+        DataBinder dataBinder = new DataBinder(resourceBundle);
+        final StringBuilder output = new StringBuilder();
+        dataBinder.setFileWriter(new JavaFileWriter() {
+            @Override
+            public void writeToFile(String canonicalName, String contents) {
+                output.append("// ").append(canonicalName).append('\n').append(contents)
+                        .append('\n');
+            }
+        });
+        dataBinder.setParallelism(parallelism);
+        dataBinder.sealModels();
+        dataBinder.writerBaseClasses(true);
+        dataBinder.writeBinders(14, false);
+        return output.toString();
+    }
+}
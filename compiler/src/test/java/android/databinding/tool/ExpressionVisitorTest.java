@@ -39,8 +39,10 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ExpressionVisitorTest {
     ExpressionParser mParser = new ExpressionParser(new ExprModel());
@@ -197,4 +199,26 @@ public class ExpressionVisitorTest {
         assertEquals(2, deps.size());
     }
 
+    @Test
+    public void testSameExpressionInAnotherModel() {
+        final TernaryExpr parsed = parse("a > b ? a : b", TernaryExpr.class);
+        ExpressionParser other = new ExpressionParser(new ExprModel());
+        final Expr reparsed = other.parse("a > b ? a : b", null, null);
+        assertTrue(reparsed instanceof TernaryExpr);
+        assertNotSame(parsed, reparsed);
+        assertEquals(parsed.getUniqueKey(), reparsed.getUniqueKey());
+        assertEquals(mParser.getModel().size(), other.getModel().size());
+        assertSame(reparsed, other.parse("a > b ? a : b", null, null));
+    }
+
+    @Test
+    public void testSyntaxErrorIsReportedEachTime() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                mParser.parse("a +", null, null);
+                fail("expected a syntax error");
+            } catch (RuntimeException expected) {
+            }
+        }
+    }
 }
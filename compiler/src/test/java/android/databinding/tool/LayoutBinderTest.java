@@ -15,6 +15,7 @@ package android.databinding.tool;
 
 
 import android.databinding.tool.expr.Expr;
+import android.databinding.tool.expr.ExprKey;
 import android.databinding.tool.expr.ExprModel;
 import android.databinding.tool.expr.FieldAccessExpr;
 import android.databinding.tool.expr.IdentifierExpr;
@@ -49,7 +50,7 @@ public class LayoutBinderTest {
         int originalSize = mExprModel.size();
         mLayoutBinder.addVariable("test", "java.lang.String", null);
         assertEquals(originalSize + 1, mExprModel.size());
-        final Map.Entry<String, Expr> entry = findIdentifier("test");
+        final Map.Entry<ExprKey, Expr> entry = findIdentifier("test");
         final Expr value = entry.getValue();
         assertEquals(value.getClass(), IdentifierExpr.class);
         final IdentifierExpr id = (IdentifierExpr) value;
@@ -63,7 +64,7 @@ public class LayoutBinderTest {
         int originalSize = mExprModel.size();
         mExprModel.addImport("test", "java.lang.String", null);
         assertEquals(originalSize + 1, mExprModel.size());
-        final Map.Entry<String, Expr> entry = findIdentifier("test");
+        final Map.Entry<ExprKey, Expr> entry = findIdentifier("test");
         final Expr value = entry.getValue();
         assertEquals(value.getClass(), StaticIdentifierExpr.class);
         final IdentifierExpr id = (IdentifierExpr) value;
@@ -106,8 +107,8 @@ public class LayoutBinderTest {
         assertTrue(fa.isDynamic());
     }
 
-    private Map.Entry<String, Expr> findIdentifier(String name) {
-        for (Map.Entry<String, Expr> entry : mExprModel.getExprMap().entrySet()) {
+    private Map.Entry<ExprKey, Expr> findIdentifier(String name) {
+        for (Map.Entry<ExprKey, Expr> entry : mExprModel.getExprMap().entrySet()) {
             if (entry.getValue() instanceof IdentifierExpr) {
                 IdentifierExpr expr = (IdentifierExpr) entry.getValue();
                 if (name.equals(expr.getName())) {
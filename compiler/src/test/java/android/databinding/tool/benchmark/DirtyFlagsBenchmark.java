@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares the ways generated bindings can keep two buckets of dirty flags when they are set
+ * from background threads while the UI thread executes the bindings.
+ * <p>
+ * Writers set a flag in each bucket with a single update, like a setter whose dependants do not
+ * fit in the first bucket. The reader takes the flags like executeBindings and counts the
+ * snapshots that have only one of the two flags.
+ * <p>
+ * This is not run as part of the tests. Run it with
+ * {@code java android.databinding.tool.benchmark.DirtyFlagsBenchmark [writers] [millis]}.
+ */
+public class DirtyFlagsBenchmark {
+    private static final long FLAG = 1L;
+
+    interface DirtyFlags {
+        void set();
+
+        /**
+         * @return 0 if both buckets had the flag or both did not, otherwise 1.
+         */
+        int take();
+    }
+
+    static class SynchronizedFlags implements DirtyFlags {
+        private long mDirtyFlags;
+        private long mDirtyFlags_1;
+
+        @Override
+        public void set() {
+            synchronized (this) {
+                mDirtyFlags |= FLAG;
+                mDirtyFlags_1 |= FLAG;
+            }
+        }
+
+        @Override
+        public int take() {
+            long dirtyFlags;
+            long dirtyFlags_1;
+            synchronized (this) {
+                dirtyFlags = mDirtyFlags;
+                mDirtyFlags = 0;
+                dirtyFlags_1 = mDirtyFlags_1;
+                mDirtyFlags_1 = 0;
+            }
+            return dirtyFlags == dirtyFlags_1 ? 0 : 1;
+        }
+    }
+
+    /**
+     * One AtomicLong per bucket, which can be taken between the updates of a writer.
+     */
+    static class AtomicBucketFlags implements DirtyFlags {
+        private final AtomicLong mDirtyFlags = new AtomicLong();
+        private final AtomicLong mDirtyFlags_1 = new AtomicLong();
+
+        @Override
+        public void set() {
+            setDirtyFlags(mDirtyFlags, FLAG);
+            setDirtyFlags(mDirtyFlags_1, FLAG);
+        }
+
+        @Override
+        public int take() {
+            long dirtyFlags = mDirtyFlags.getAndSet(0);
+            long dirtyFlags_1 = mDirtyFlags_1.getAndSet(0);
+            return dirtyFlags == dirtyFlags_1 ? 0 : 1;
+        }
+
+        private static void setDirtyFlags(AtomicLong flags, long mask) {
+            long current;
+            do {
+                current = flags.get();
+                if ((current & mask) == mask) {
+                    return;
+                }
+            } while (!flags.compareAndSet(current, current | mask));
+        }
+    }
+
+    /**
+     * The buckets in a long[] that is replaced as a whole, as generated for atomic dirty flags
+     * that do not fit in one bucket.
+     */
+    static class AtomicArrayFlags implements DirtyFlags {
+        private static final long[] sNoDirtyFlags = new long[2];
+        private final AtomicReference<long[]> mDirtyFlags =
+                new AtomicReference<long[]>(sNoDirtyFlags);
+
+        @Override
+        public void set() {
+            setDirtyFlags(mDirtyFlags, FLAG, FLAG);
+        }
+
+        @Override
+        public int take() {
+            final long[] dirtyFlagBuckets = mDirtyFlags.getAndSet(sNoDirtyFlags);
+            return dirtyFlagBuckets[0] == dirtyFlagBuckets[1] ? 0 : 1;
+        }
+
+        private static void setDirtyFlags(AtomicReference<long[]> flags, long mask,
+                long mask_1) {
+            long[] current;
+            do {
+                current = flags.get();
+                if ((current[0] & mask) == mask && (current[1] & mask_1) == mask_1) {
+                    return;
+                }
+            } while (!flags.compareAndSet(current,
+                    new long[] {current[0] | mask, current[1] | mask_1}));
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final int writers = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        final long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        DirtyFlags[] candidates = {
+                new SynchronizedFlags(), new AtomicBucketFlags(), new AtomicArrayFlags()
+        };
+        // the first round warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            for (DirtyFlags flags : candidates) {
+                run(flags, writers, round == 0 ? millis / 4 : millis);
+            }
+        }
+    }
+
+    private static void run(final DirtyFlags flags, int writers, long millis)
+            throws InterruptedException {
+        final AtomicBoolean done = new AtomicBoolean();
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[] writes = new long[writers];
+        Thread[] threads = new Thread[writers];
+        for (int i = 0; i < writers; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    awaitQuietly(start);
+                    long count = 0;
+                    while (!done.get()) {
+                        flags.set();
+                        count++;
+                    }
+                    writes[index] = count;
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        final long end = System.nanoTime() + millis * 1000000;
+        long takes = 0;
+        long torn = 0;
+        while (System.nanoTime() < end) {
+            torn += flags.take();
+            takes++;
+        }
+        done.set(true);
+        long totalWrites = 0;
+        for (int i = 0; i < writers; i++) {
+            threads[i].join();
+            totalWrites += writes[i];
+        }
+        System.out.println(String.format("%-20s writes/ms: %8d takes/ms: %8d torn: %d",
+                flags.getClass().getSimpleName(), totalWrites / millis, takes / millis, torn));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
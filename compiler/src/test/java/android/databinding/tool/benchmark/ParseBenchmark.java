@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.writer.DynamicUtilCompiler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Compares the number parsers of the generated DynamicUtil with the JDK parsers and a catch of
+ * NumberFormatException, which the bindings used before, on valid and invalid text.
+ * <p>
+ * This is not run as part of the tests. Run it with ANDROID_HOME set and
+ * {@code java android.databinding.tool.benchmark.ParseBenchmark [millis]}.
+ */
+public class ParseBenchmark {
+    private static final String[] VALID_INTS = {"0", "42", "-17", "2147483647", "+5"};
+    private static final String[] INVALID_INTS = {"", "-", "12a", "2147483648", "1.5"};
+    private static final String[] VALID_DOUBLES = {"0", "4.2", "-1e5", ".5", "NaN"};
+    private static final String[] INVALID_DOUBLES = {"", "-", "1e", ".", "1.5x"};
+
+    private static final MethodHandle JDK_INT;
+    private static final MethodHandle JDK_DOUBLE;
+    private static final MethodHandle DYNAMIC_UTIL_INT;
+    private static final MethodHandle DYNAMIC_UTIL_DOUBLE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            JDK_INT = lookup.findStatic(ParseBenchmark.class, "parseInt",
+                    MethodType.methodType(int.class, String.class, int.class));
+            JDK_DOUBLE = lookup.findStatic(ParseBenchmark.class, "parseDouble",
+                    MethodType.methodType(double.class, String.class, double.class));
+            DynamicUtilCompiler dynamicUtil = new DynamicUtilCompiler(21);
+            DYNAMIC_UTIL_INT = lookup.unreflect(dynamicUtil.getParse(int.class));
+            DYNAMIC_UTIL_DOUBLE = lookup.unreflect(dynamicUtil.getParse(double.class));
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static int parseInt(String str, int fallback) {
+        try {
+            return Integer.parseInt(str);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    static double parseDouble(String str, double fallback) {
+        try {
+            return Double.parseDouble(str);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        final long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        // the first round warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            final long time = round == 0 ? millis / 4 : millis;
+            runInt("jdk int valid", JDK_INT, VALID_INTS, time);
+            runInt("dynamic int valid", DYNAMIC_UTIL_INT, VALID_INTS, time);
+            runInt("jdk int invalid", JDK_INT, INVALID_INTS, time);
+            runInt("dynamic int invalid", DYNAMIC_UTIL_INT, INVALID_INTS, time);
+            runDouble("jdk double valid", JDK_DOUBLE, VALID_DOUBLES, time);
+            runDouble("dynamic double valid", DYNAMIC_UTIL_DOUBLE, VALID_DOUBLES, time);
+            runDouble("jdk double invalid", JDK_DOUBLE, INVALID_DOUBLES, time);
+            runDouble("dynamic double invalid", DYNAMIC_UTIL_DOUBLE, INVALID_DOUBLES, time);
+        }
+    }
+
+    private static void runInt(String name, MethodHandle parse, String[] inputs, long millis)
+            throws Throwable {
+        final long end = System.nanoTime() + millis * 1000000;
+        long calls = 0;
+        long sum = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 1000; i++) {
+                sum += (int) parse.invokeExact(inputs[i % inputs.length], 7);
+            }
+            calls += 1000;
+        }
+        print(name, System.nanoTime() - start, calls, sum);
+    }
+
+    private static void runDouble(String name, MethodHandle parse, String[] inputs, long millis)
+            throws Throwable {
+        final long end = System.nanoTime() + millis * 1000000;
+        long calls = 0;
+        double sum = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 1000; i++) {
+                sum += (double) parse.invokeExact(inputs[i % inputs.length], 7.5);
+            }
+            calls += 1000;
+        }
+        print(name, System.nanoTime() - start, calls, sum);
+    }
+
+    private static void print(String name, long nanos, long calls, Object sum) {
+        // the sum keeps the JIT from dropping the calls
+        System.out.println(String.format("%-24s %8.1f ns/call (sum %s)", name,
+                (double) nanos / calls, sum));
+    }
+}
@@ -36,8 +36,12 @@ import org.junit.runner.Description;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -70,8 +74,8 @@ public class ExprModelTest {
         }
 
         @Override
-        protected String computeUniqueKey() {
-            return mKey + super.computeUniqueKey();
+        protected ExprKey computeKey() {
+            return ExprKey.concat(mKey, super.computeKey());
         }
 
         @Override
@@ -991,7 +995,7 @@ public class ExprModelTest {
     }
 
     private Expr getIdentifier(ExprModel model, String name) {
-        return model.getExprMap().get(new IdentifierExpr(name).getUniqueKey());
+        return model.getExprMap().get(new IdentifierExpr(name).getKey());
     }
 
     private boolean hasCallbackIdentifier(ExprModel model, int index, String name) {
@@ -999,7 +1003,7 @@ public class ExprModelTest {
     }
 
     private Expr getCallbackIdentifier(ExprModel model, int index, String name) {
-        return model.getExprMap().get(new CallbackArgExpr(index, name).getUniqueKey());
+        return model.getExprMap().get(new CallbackArgExpr(index, name).getKey());
     }
 
 
@@ -1028,6 +1032,34 @@ public class ExprModelTest {
         assertEquals(0, getShouldRead().size());
     }
 
+    @Test
+    public void testKeysOfNestedExpressions() {
+        MockLayoutBinder lb = new MockLayoutBinder();
+        mExprModel = lb.getModel();
+        lb.addVariable("a", "java.lang.String", null);
+        lb.addVariable("flag", "boolean", null);
+        String input = "a";
+        for (int i = 0; i < 10; i++) {
+            input = "flag ? (" + input + ").substring(" + i + ") : a";
+        }
+        final Expr parsed = lb.parse(input, null, null);
+        assertSame(parsed, lb.parse(input, null, null));
+        for (Map.Entry<ExprKey, Expr> entry : mExprModel.getExprMap().entrySet()) {
+            final ExprKey key = entry.getKey();
+            assertSame(key, entry.getValue().getKey());
+            // keys are hashed like their readable form
+            assertEquals(key.toString(), key.toString().hashCode(), key.hashCode());
+            assertEquals((long) key.toString().length(), key.length());
+        }
+        final MockLayoutBinder other = new MockLayoutBinder();
+        other.addVariable("a", "java.lang.String", null);
+        other.addVariable("flag", "boolean", null);
+        final Expr reparsed = other.parse(input, null, null);
+        assertNotSame(parsed, reparsed);
+        assertEquals(parsed.getKey(), reparsed.getKey());
+        assertEquals(parsed.getUniqueKey(), reparsed.getUniqueKey());
+    }
+
     @Test
     public void testLocationTracking() {
         MockLayoutBinder lb = new MockLayoutBinder();
@@ -1078,6 +1110,63 @@ public class ExprModelTest {
         assertEquals(12, cLoc.endOffset);
     }
 
+    @Test
+    public void testReadFlagsScaleWithLayoutSize() {
+        final long small = sealAndReadAll(SMALL_LAYOUT_SIZE);
+        final long large = sealAndReadAll(SMALL_LAYOUT_SIZE * 8);
+        // a linear algorithm checks ~8 times more expressions, a quadratic one ~64 times more
+        assertTrue("reading 8 times more bindings checked " + large + " expressions vs "
+                + small, large <= small * 10);
+    }
+
+    private static final int SMALL_LAYOUT_SIZE = 250;
+
+    private static final String[] SCALING_EXPRESSIONS = {
+            "f0 ? v0 : v1",
+            "f0 ? (f1 ? v0 : v1) : (f2 ? v2.substring(1) : v3)",
+            "f1 ? v0 + v1 : v2",
+            "(f0 ? v1 : v2).length() > 3 ? v3 : (f3 ? v0 : v4)",
+            "f0 && f1 ? v2 : f2 || f3 ? v3 : v4",
+            "v1.length() + v2.length()",
+    };
+
+    /**
+     * Builds a layout with the given number of bindings that share variables and conditionals,
+     * then seals it and reads all of its expressions the same way the binding writer does.
+     *
+     * @return The number of times the model checked an expression while reading flags.
+     */
+    private long sealAndReadAll(int bindingCount) {
+        MockLayoutBinder lb = new MockLayoutBinder();
+        mExprModel = lb.getModel();
+        for (int i = 0; i < 4; i++) {
+            lb.addVariable("f" + i, "boolean", null);
+        }
+        for (int i = 0; i < bindingCount + 5; i++) {
+            lb.addVariable("v" + i, "java.lang.String", null);
+        }
+        for (int i = 0; i < bindingCount; i++) {
+            String expression = SCALING_EXPRESSIONS[i % SCALING_EXPRESSIONS.length];
+            for (int v = 4; v >= 0; v--) {
+                expression = expression.replaceAll("\\bv" + v + "\\b", "v" + (v + i));
+            }
+            mExprModel.bindingExpr(lb.parse(expression, null, null));
+        }
+        mExprModel.seal();
+        do {
+            final Set<Expr> batch = new LinkedHashSet<Expr>(getShouldRead());
+            final Set<Expr> justRead = new LinkedHashSet<Expr>();
+            while (!batch.isEmpty()) {
+                final List<Expr> readNow = getReadFirst(new ArrayList<Expr>(batch), justRead);
+                assertFalse(readNow.isEmpty());
+                justRead.addAll(readNow);
+                batch.removeAll(justRead);
+            }
+        } while (mExprModel.markBitsRead());
+        assertEquals(0, getShouldRead().size());
+        return mExprModel.getReadChecks();
+    }
+
 //    TODO uncomment when we have inner static access
 //    @Test
 //    public void testFinalOfInnerStaticClass() {
@@ -1150,7 +1239,7 @@ public class ExprModelTest {
         return getReadFirst(shouldRead, null);
     }
 
-    private List<Expr> getReadFirst(List<Expr> shouldRead, final List<Expr> justRead) {
+    private List<Expr> getReadFirst(List<Expr> shouldRead, final Collection<Expr> justRead) {
         List<Expr> result = new ArrayList<Expr>();
         for (Expr expr : shouldRead) {
             if (expr.shouldReadNow(justRead)) {
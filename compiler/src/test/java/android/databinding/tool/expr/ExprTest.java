@@ -51,8 +51,8 @@ public class ExprTest{
         }
 
         @Override
-        protected String computeUniqueKey() {
-            return mKey + super.computeUniqueKey();
+        protected ExprKey computeKey() {
+            return ExprKey.concat(mKey, super.computeKey());
         }
 
         @Override
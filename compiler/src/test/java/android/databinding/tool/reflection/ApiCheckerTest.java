@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.reflection;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ApiCheckerTest {
+    private File mRoot;
+
+    @Before
+    public void setUp() throws IOException {
+        mRoot = Files.createTempDirectory("api-checker").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(mRoot);
+    }
+
+    @Test
+    public void testIndexRoundTrip() throws IOException {
+        File apiFile = writeApiFile("api-versions.xml", 7);
+        SdkUtil.ApiChecker checker = new SdkUtil.ApiChecker(apiFile);
+        assertApi(checker, 7);
+
+        // the index is written next to the api file and no temporary file is left behind
+        File index = getIndexFile();
+        assertEquals("api-versions-" + Long.toHexString(FileUtils.checksumCRC32(apiFile))
+                + ".dbidx", index.getName());
+
+        SdkUtil.ApiChecker copy = new SdkUtil.ApiChecker(writeApiFile("other.xml", 5));
+        assertApi(copy, 5);
+        assertTrue(copy.readIndex(index, FileUtils.checksumCRC32(apiFile)));
+        assertApi(copy, 7);
+        assertEquals(0, copy.getMinApi("android/widget/Foo", "unknown()V"));
+        assertEquals(0, copy.getMinApi("android/widget/Unknown", "bar()V"));
+    }
+
+    @Test
+    public void testStaleIndexIsRejected() throws IOException {
+        File apiFile = writeApiFile("api-versions.xml", 7);
+        new SdkUtil.ApiChecker(apiFile);
+        File index = getIndexFile();
+        long staleChecksum = FileUtils.checksumCRC32(apiFile);
+
+        apiFile = writeApiFile("api-versions.xml", 9);
+        long checksum = FileUtils.checksumCRC32(apiFile);
+        SdkUtil.ApiChecker checker = new SdkUtil.ApiChecker(apiFile);
+        assertFalse(checker.readIndex(index, checksum));
+
+        // an index stored under the name of the new api file is read and then replaced
+        File newIndex = new File(mRoot, "api-versions-" + Long.toHexString(checksum) + ".dbidx");
+        FileUtils.deleteQuietly(newIndex);
+        FileUtils.moveFile(index, newIndex);
+        checker = new SdkUtil.ApiChecker(apiFile);
+        assertApi(checker, 9);
+        assertFalse(checker.readIndex(newIndex, staleChecksum));
+        assertTrue(checker.readIndex(newIndex, checksum));
+        assertApi(checker, 9);
+    }
+
+    private File writeApiFile(String name, int since) throws IOException {
+        File file = new File(mRoot, name);
+        FileUtils.writeStringToFile(file, ""
+                + "<api version=\"2\">\n"
+                + "    <class name=\"android/widget/Foo\" since=\"3\">\n"
+                + "        <method name=\"bar()V\" since=\"" + since + "\"/>\n"
+                + "        <method name=\"baz()V\"/>\n"
+                + "    </class>\n"
+                + "</api>\n");
+        return file;
+    }
+
+    private File getIndexFile() {
+        Collection<File> indexes = FileUtils.listFiles(mRoot, new String[]{"dbidx"}, false);
+        assertEquals(1, indexes.size());
+        assertEquals(FileUtils.listFiles(mRoot, new String[]{"tmp"}, false).toString(), 0,
+                FileUtils.listFiles(mRoot, new String[]{"tmp"}, false).size());
+        return indexes.iterator().next();
+    }
+
+    private static void assertApi(SdkUtil.ApiChecker checker, int since) {
+        assertEquals(since, checker.getMinApi("android/widget/Foo", "bar()V"));
+        // methods without a level get the level of their class
+        assertEquals(3, checker.getMinApi("android/widget/Foo", "baz()V"));
+    }
+}
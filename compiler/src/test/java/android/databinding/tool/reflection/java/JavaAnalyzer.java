@@ -166,7 +166,7 @@ public class JavaAnalyzer extends ModelAnalyzer {
         return null;
     }
 
-    public static void initForTests() {
+    public static File getAndroidJar() {
         String androidHome = loadAndroidHome();
         if (Strings.isNullOrEmpty(androidHome) || !new File(androidHome).exists()) {
             throw new IllegalStateException(
@@ -178,6 +178,12 @@ public class JavaAnalyzer extends ModelAnalyzer {
             throw new IllegalStateException(
                     "cannot find android jar at " + androidJar.getAbsolutePath());
         }
+        return androidJar;
+    }
+
+    public static void initForTests() {
+        String androidHome = loadAndroidHome();
+        File androidJar = getAndroidJar();
         // now load android data binding library as well
 
         try {
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.store;
+
+import android.databinding.tool.store.SetterStore.AccessorKey;
+import android.databinding.tool.store.SetterStore.IntermediateV1;
+import android.databinding.tool.store.SetterStore.IntermediateV2;
+import android.databinding.tool.store.SetterStore.InverseDescription;
+import android.databinding.tool.store.SetterStore.MethodDescription;
+import android.databinding.tool.store.SetterStore.MultiValueAdapterKey;
+import android.databinding.tool.util.CodecRoundTrip;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SetterStoreTest {
+    @Test
+    public void testIntermediateRoundTrip() throws IOException {
+        IntermediateV2 store = new IntermediateV2();
+        HashMap<AccessorKey, MethodDescription> textAdapters =
+                new HashMap<AccessorKey, MethodDescription>();
+        textAdapters.put(new AccessorKey("android.widget.TextView", "java.lang.CharSequence"),
+                new MethodDescription("android.databinding.adapters.TextViewBindingAdapter",
+                        "setText", true, true, null));
+        textAdapters.put(new AccessorKey("android.widget.TextView", "int"),
+                new MethodDescription("com.example.Adapters", "setTextRes", false, false,
+                        "com.example.Component"));
+        store.adapterMethods.put("android:text", textAdapters);
+        store.renamedMethods.put("android:tint", methods("setImageTintList",
+                new MethodDescription("android.widget.ImageView", "setImageTintList")));
+        store.conversionMethods.put("android.graphics.drawable.ColorDrawable", methods("int",
+                new MethodDescription("com.example.Converters", "toDrawable")));
+        store.untaggableTypes.put("android.view.ViewStub", "android.databinding.ViewStubProxy");
+        store.multiValueAdapters.put(new MultiValueAdapterKey("android.view.View",
+                        new String[]{"android:onClick", "android:clickable"},
+                        new String[]{"android.view.View.OnClickListener", "boolean"}, false),
+                new MethodDescription("com.example.Adapters", "setOnClick", false, true, null));
+        HashMap<AccessorKey, InverseDescription> inverseAdapters =
+                new HashMap<AccessorKey, InverseDescription>();
+        inverseAdapters.put(new AccessorKey("android.widget.TextView", "java.lang.String"),
+                new InverseDescription("com.example.Adapters", "getText",
+                        "android:textAttrChanged"));
+        store.inverseAdapters.put("android:text", inverseAdapters);
+        HashMap<String, InverseDescription> inverseMethods =
+                new HashMap<String, InverseDescription>();
+        inverseMethods.put("isChecked", new InverseDescription("android.widget.CompoundButton",
+                "isChecked", "android:checkedAttrChanged"));
+        store.inverseMethods.put("android:checked", inverseMethods);
+
+        IntermediateV2 copy = (IntermediateV2) CodecRoundTrip.roundTrip(SetterStore.CODEC,
+                store);
+
+        Map<AccessorKey, MethodDescription> copiedAdapters = copy.adapterMethods
+                .get("android:text");
+        assertEquals(2, copiedAdapters.size());
+        for (Map.Entry<AccessorKey, MethodDescription> entry : copiedAdapters.entrySet()) {
+            MethodDescription method = entry.getValue();
+            if (entry.getKey().valueType.equals("int")) {
+                assertEquals("com.example.Adapters.setTextRes()", method.toString());
+                assertFalse(method.requiresOldValue);
+                assertFalse(method.isStatic);
+                assertEquals("com.example.Component", method.componentClass);
+            } else {
+                assertEquals("java.lang.CharSequence", entry.getKey().valueType);
+                assertEquals("android.widget.TextView", entry.getKey().viewType);
+                assertTrue(method.requiresOldValue);
+                assertTrue(method.isStatic);
+                assertNull(method.componentClass);
+            }
+        }
+        assertEquals("android.widget.ImageView.setImageTintList()",
+                copy.renamedMethods.get("android:tint").get("setImageTintList").toString());
+        assertEquals(store.conversionMethods, copy.conversionMethods);
+        assertEquals(store.untaggableTypes, copy.untaggableTypes);
+        assertEquals(store.multiValueAdapters, copy.multiValueAdapters);
+        MultiValueAdapterKey key = copy.multiValueAdapters.keySet().iterator().next();
+        assertArrayEquals(new String[]{"android:onClick", "android:clickable"}, key.attributes);
+        assertFalse(key.requireAll);
+        InverseDescription inverse = copy.inverseAdapters.get("android:text").values()
+                .iterator().next();
+        assertEquals("android:textAttrChanged", inverse.event);
+        assertEquals(store.inverseMethods, copy.inverseMethods);
+    }
+
+    @Test
+    public void testOldIntermediateIsUpgraded() throws IOException {
+        IntermediateV1 store = new IntermediateV1();
+        store.untaggableTypes.put("android.view.ViewStub", "android.databinding.ViewStubProxy");
+        IntermediateV2 copy = (IntermediateV2) CodecRoundTrip.roundTrip(SetterStore.CODEC,
+                store);
+        assertEquals(store.untaggableTypes, copy.untaggableTypes);
+        assertTrue(copy.inverseAdapters.isEmpty());
+        assertTrue(copy.inverseMethods.isEmpty());
+    }
+
+    @Test
+    public void testEmptyIntermediate() throws IOException {
+        IntermediateV2 copy = (IntermediateV2) CodecRoundTrip.roundTrip(SetterStore.CODEC,
+                new IntermediateV2());
+        assertTrue(copy.adapterMethods.isEmpty());
+        assertTrue(copy.multiValueAdapters.isEmpty());
+    }
+
+    private static <D extends MethodDescription> HashMap<String, D> methods(String name,
+            D method) {
+        HashMap<String, D> methods = new HashMap<String, D>();
+        methods.put(name, method);
+        return methods;
+    }
+}
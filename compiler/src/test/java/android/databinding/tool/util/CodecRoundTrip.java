@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Helpers to test {@link GenerationalClassUtil.Codec} implementations.
+ */
+public class CodecRoundTrip {
+    public static <T> byte[] write(GenerationalClassUtil.Codec<T> codec, T object)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntermediateWriter writer = new IntermediateWriter(bytes, codec.getVersion());
+        codec.write(object, writer);
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    public static <T> T read(GenerationalClassUtil.Codec<T> codec, byte[] data)
+            throws IOException {
+        IntermediateReader reader = new IntermediateReader(new ByteArrayInputStream(data));
+        assertEquals(codec.getVersion(), reader.getVersion());
+        T object = codec.read(reader);
+        reader.close();
+        return object;
+    }
+
+    /**
+     * Writes the object, reads it back and checks that the copy is written the same way, so that
+     * every value written by the codec is also read by it.
+     *
+     * @return The copy that was read back.
+     */
+    public static <T> T roundTrip(GenerationalClassUtil.Codec<T> codec, T object)
+            throws IOException {
+        byte[] data = write(codec, object);
+        T copy = read(codec, data);
+        assertTrue("the copy is not written the same way",
+                Arrays.equals(data, write(codec, copy)));
+        return copy;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.util;
+
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IntermediateReaderTest {
+    @Test
+    public void testRoundTrip() throws IOException {
+        HashMap<String, String> map = new HashMap<String, String>();
+        map.put("activity_main.xml", "<Layout/>");
+        map.put("empty", "");
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            longString.append('é');
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntermediateWriter writer = new IntermediateWriter(bytes, 3);
+        writer.writeInt(0);
+        writer.writeInt(300);
+        writer.writeInt(Integer.MAX_VALUE);
+        writer.writeBoolean(true);
+        writer.writeString(null);
+        writer.writeString(longString.toString());
+        writer.writeStrings(new String[]{"a", null, "a"});
+        writer.writeStrings(Arrays.asList("b", "a"));
+        writer.writeStringMap(map);
+        writer.close();
+
+        IntermediateReader reader = new IntermediateReader(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(3, reader.getVersion());
+        assertEquals(0, reader.readInt());
+        assertEquals(300, reader.readInt());
+        assertEquals(Integer.MAX_VALUE, reader.readInt());
+        assertTrue(reader.readBoolean());
+        assertNull(reader.readString());
+        assertEquals(longString.toString(), reader.readString());
+        assertArrayEquals(new String[]{"a", null, "a"}, reader.readStrings());
+        assertArrayEquals(new String[]{"b", "a"}, reader.readStrings());
+        assertEquals(map, reader.readStringMap());
+    }
+
+    @Test
+    public void testStringsAreInterned() throws IOException {
+        ByteArrayOutputStream once = new ByteArrayOutputStream();
+        IntermediateWriter writer = new IntermediateWriter(once, 1);
+        writer.writeString("android.widget.TextView");
+        writer.close();
+        ByteArrayOutputStream twice = new ByteArrayOutputStream();
+        writer = new IntermediateWriter(twice, 1);
+        writer.writeString("android.widget.TextView");
+        writer.writeString("android.widget.TextView");
+        writer.close();
+        assertEquals(once.size() + 1, twice.size());
+    }
+
+    @Test
+    public void testSerializedObjectIsNotIntermediate() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject("legacy");
+        out.close();
+        BufferedInputStream in = new BufferedInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        assertFalse(IntermediateReader.isIntermediate(in));
+        // the stream must still be readable from the start
+        assertEquals(0xAC, in.read());
+        try {
+            new IntermediateReader(new ByteArrayInputStream(bytes.toByteArray()));
+            fail("expected an IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntermediateWriter writer = new IntermediateWriter(bytes, 1);
+        writer.writeString("android.view.View");
+        writer.close();
+        byte[] data = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 2);
+        IntermediateReader reader = new IntermediateReader(new ByteArrayInputStream(data));
+        try {
+            reader.readString();
+            fail("expected an IOException");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer;
+
+import android.databinding.tool.LayoutBinder;
+import android.databinding.tool.reflection.java.JavaAnalyzer;
+import android.databinding.tool.store.ResourceBundle;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compiles the DataBinderMapper written by {@link DataBinderWriter} against stubs of the android
+ * classes and runs its lookups on the JVM.
+ */
+public class DataBinderWriterTest {
+    // "Aa" and "BB" have the same hash code, so do all tags made of them
+    private static final String[] COLLIDING = {"AaAaAa", "AaAaBB", "AaBBAa", "AaBBBB",
+            "BBAaAa", "BBAaBB", "BBBBAa", "BBBBBB"};
+
+    private static Mapper sDense;
+
+    private static Mapper sSparse;
+
+    @BeforeClass
+    public static void compileMappers() throws IOException {
+        JavaAnalyzer.initForTests();
+        File dir = Files.createTempDirectory("data-binder-mapper").toFile();
+        try {
+            List<File> sources = new ArrayList<File>();
+            writeStubs(dir, sources);
+            List<LayoutBinder> dense = write(dir, sources, "com.dense", 1);
+            List<LayoutBinder> sparse = write(dir, sources, "com.sparse", 0x10000);
+            ClassLoader classLoader = compile(dir, sources);
+            sDense = new Mapper(classLoader, "com.dense", dense);
+            sSparse = new Mapper(classLoader, "com.sparse", sparse);
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testTableSize() throws Exception {
+        assertNotNull(sDense.getLayoutTable());
+        assertNull(sSparse.getLayoutTable());
+    }
+
+    @Test
+    public void testLayoutsWithoutVariations() throws Exception {
+        for (Mapper mapper : mappers()) {
+            assertEquals("SingleBinding.bind", mapper.getDataBinder("single", null));
+            assertEquals("new MergedBinding(View[])", mapper.getDataBinder("merged", null));
+            // the tag is not checked if there is only one binder
+            assertEquals("SingleBinding.bind", mapper.getDataBinder("single", "layout/other_0"));
+            assertNull(mapper.getDataBinderForViews("single", null));
+            assertEquals("new MergedBinding(View[])",
+                    mapper.getDataBinderForViews("merged", null));
+        }
+    }
+
+    @Test
+    public void testUnknownLayoutId() throws Exception {
+        for (Mapper mapper : mappers()) {
+            for (int layoutId : new int[]{0, -1, mapper.getMinLayoutId() - 1,
+                    mapper.getMaxLayoutId() + 1, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+                assertNull(mapper.getDataBinder(layoutId, "layout/single_0"));
+                assertNull(mapper.getDataBinderForViews(layoutId, "layout/merged_0"));
+            }
+        }
+    }
+
+    @Test
+    public void testVariations() throws Exception {
+        for (Mapper mapper : mappers()) {
+            assertEquals("new MultiBindingImpl(View)",
+                    mapper.getDataBinder("multi", "layout/multi_0"));
+            assertEquals("new MultiBindingLandImpl(View)",
+                    mapper.getDataBinder("multi", "layout-land/multi_0"));
+            assertEquals("new MultiMergeBindingImpl(View[])",
+                    mapper.getDataBinder("multi_merge", "layout/multi_merge_0"));
+            assertEquals("new MultiMergeBindingLandImpl(View[])",
+                    mapper.getDataBinder("multi_merge", "layout-land/multi_merge_0"));
+        }
+    }
+
+    @Test
+    public void testViewsOfVariations() throws Exception {
+        for (Mapper mapper : mappers()) {
+            assertNull(mapper.getDataBinderForViews("multi", "layout/multi_0"));
+            assertNull(mapper.getDataBinderForViews("multi", "layout-land/multi_0"));
+            assertEquals("new MultiMergeBindingImpl(View[])",
+                    mapper.getDataBinderForViews("multi_merge", "layout/multi_merge_0"));
+            assertEquals("new MultiMergeBindingLandImpl(View[])",
+                    mapper.getDataBinderForViews("multi_merge", "layout-land/multi_merge_0"));
+        }
+    }
+
+    @Test
+    public void testMissingTag() throws Exception {
+        for (Mapper mapper : mappers()) {
+            try {
+                mapper.getDataBinder("multi", null);
+                fail("a view without a tag must be rejected");
+            } catch (RuntimeException e) {
+                assertEquals("view must have a tag", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testBadTag() throws Exception {
+        String[] badTags = {"garbage", "layout/multi", "layout/multi_1", "layout/single_0",
+                "layout/merged_0", "layout-land/AaAaAa_0"};
+        for (Mapper mapper : mappers()) {
+            for (String tag : badTags) {
+                try {
+                    mapper.getDataBinder("multi", tag);
+                    fail(tag + " must be rejected");
+                } catch (IllegalArgumentException e) {
+                    assertTrue(e.getMessage(), e.getMessage().endsWith("Received: " + tag));
+                }
+                assertNull(mapper.getDataBinderForViews("multi_merge", tag));
+            }
+        }
+    }
+
+    @Test
+    public void testCollidingTags() throws Exception {
+        HashSet<Integer> hashCodes = new HashSet<Integer>();
+        for (String name : COLLIDING) {
+            hashCodes.add(("layout/" + name + "_0").hashCode());
+            hashCodes.add(("layout-land/" + name + "_0").hashCode());
+        }
+        assertEquals(2, hashCodes.size());
+        for (Mapper mapper : mappers()) {
+            for (String name : COLLIDING) {
+                String binding = name + "Binding";
+                assertEquals("new " + binding + "Impl(View)",
+                        mapper.getDataBinder(name, "layout/" + name + "_0"));
+                assertEquals("new " + binding + "LandImpl(View)",
+                        mapper.getDataBinder(name, "layout-land/" + name + "_0"));
+                for (String other : COLLIDING) {
+                    if (!other.equals(name)) {
+                        try {
+                            mapper.getDataBinder(name, "layout/" + other + "_0");
+                            fail(other + " must not be accepted for " + name);
+                        } catch (IllegalArgumentException e) {
+                            // expected
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGetLayoutId() throws Exception {
+        for (Mapper mapper : mappers()) {
+            for (LayoutBinder binder : mapper.mLayoutBinders) {
+                assertEquals(binder.getTag(), mapper.getLayoutId(binder.getLayoutname()),
+                        mapper.getLayoutIdOfTag(binder.getTag() + "_0"));
+            }
+            assertEquals(0, mapper.getLayoutIdOfTag(null));
+            assertEquals(0, mapper.getLayoutIdOfTag("layout/single"));
+            assertEquals(0, mapper.getLayoutIdOfTag("layout/AaAaCC_0"));
+        }
+    }
+
+    private static List<Mapper> mappers() {
+        return Arrays.asList(sDense, sSparse);
+    }
+
+    private static void writeStubs(File dir, List<File> sources) throws IOException {
+        writeSource(dir, sources, "android.view.View", "package android.view;\n"
+                + "public class View {\n"
+                + "    private final Object mTag;\n"
+                + "    public View(Object tag) { mTag = tag; }\n"
+                + "    public Object getTag() { return mTag; }\n"
+                + "    public android.content.res.Resources getResources() {\n"
+                + "        return new android.content.res.Resources();\n"
+                + "    }\n"
+                + "}\n");
+        writeSource(dir, sources, "android.content.res.Resources",
+                "package android.content.res;\n"
+                + "public class Resources {\n"
+                + "    public String getResourceEntryName(int id) { return String.valueOf(id); }\n"
+                + "}\n");
+        writeSource(dir, sources, "android.databinding.DataBindingComponent",
+                "package android.databinding;\n"
+                + "public interface DataBindingComponent {\n"
+                + "}\n");
+        writeSource(dir, sources, "android.databinding.ViewDataBinding",
+                "package android.databinding;\n"
+                + "public abstract class ViewDataBinding {\n"
+                + "    public final String createdBy;\n"
+                + "    protected ViewDataBinding(String createdBy) { this.createdBy = createdBy; }\n"
+                + "}\n");
+    }
+
+    /**
+     * Writes the mapper of a project with the test layouts, their R class and binding stubs.
+     *
+     * @param idStep The difference between the ids of consecutive layouts.
+     */
+    private static List<LayoutBinder> write(File dir, List<File> sources, String pkg, int idStep)
+            throws IOException {
+        ResourceBundle resourceBundle = new ResourceBundle(pkg);
+        addLayout(resourceBundle, pkg, "layout", "single", false);
+        addLayout(resourceBundle, pkg, "layout", "merged", true);
+        addLayout(resourceBundle, pkg, "layout", "multi", false);
+        addLayout(resourceBundle, pkg, "layout-land", "multi", false);
+        addLayout(resourceBundle, pkg, "layout", "multi_merge", true);
+        addLayout(resourceBundle, pkg, "layout-land", "multi_merge", true);
+        for (String name : COLLIDING) {
+            addLayout(resourceBundle, pkg, "layout", name, false);
+            addLayout(resourceBundle, pkg, "layout-land", name, false);
+        }
+        resourceBundle.validateMultiResLayouts();
+        List<LayoutBinder> layoutBinders = new ArrayList<LayoutBinder>();
+        for (List<ResourceBundle.LayoutFileBundle> bundles :
+                resourceBundle.getLayoutBundles().values()) {
+            for (ResourceBundle.LayoutFileBundle bundle : bundles) {
+                LayoutBinder layoutBinder = new LayoutBinder(bundle);
+                layoutBinder.sealModel();
+                layoutBinders.add(layoutBinder);
+                writeBinding(dir, sources, layoutBinder);
+            }
+        }
+
+        StringBuilder r = new StringBuilder("package " + pkg + ";\n"
+                + "public final class R {\n"
+                + "    public static final class layout {\n");
+        int layoutId = 0x7f040000;
+        for (String name : resourceBundle.getLayoutBundles().keySet()) {
+            r.append("        public static final int ").append(name).append(" = ")
+                    .append(layoutId).append(";\n");
+            layoutId += idStep;
+        }
+        r.append("    }\n}\n");
+        writeSource(dir, sources, pkg + ".R", r.toString());
+
+        BRWriter brWriter = new BRWriter(new HashSet<String>(Arrays.asList("a", "b")), true);
+        writeSource(dir, sources, pkg + ".BR", brWriter.write(pkg));
+        DataBinderWriter writer = new DataBinderWriter(pkg, pkg, "DataBinderMapper",
+                layoutBinders, 14);
+        writeSource(dir, sources, pkg + ".DataBinderMapper", writer.write(brWriter));
+        return layoutBinders;
+    }
+
+    private static void addLayout(ResourceBundle resourceBundle, String pkg, String directory,
+            String name, boolean isMerge) {
+        resourceBundle.addLayoutBundle(new ResourceBundle.LayoutFileBundle(
+                new File(directory + "/" + name + ".xml"), name, directory, pkg, isMerge));
+    }
+
+    /**
+     * Writes a binding class that records which of its constructors or bind method was used.
+     */
+    private static void writeBinding(File dir, List<File> sources, LayoutBinder layoutBinder)
+            throws IOException {
+        String name = layoutBinder.getImplementationName();
+        writeSource(dir, sources, layoutBinder.getPackage() + "." + name,
+                "package " + layoutBinder.getPackage() + ";\n"
+                + "public class " + name + " extends android.databinding.ViewDataBinding {\n"
+                + "    private " + name + "(String createdBy) { super(createdBy); }\n"
+                + "    public " + name + "(android.databinding.DataBindingComponent component,\n"
+                + "            android.view.View root) {\n"
+                + "        super(\"new " + name + "(View)\");\n"
+                + "    }\n"
+                + "    public " + name + "(android.databinding.DataBindingComponent component,\n"
+                + "            android.view.View[] roots) {\n"
+                + "        super(\"new " + name + "(View[])\");\n"
+                + "    }\n"
+                + "    public static " + name + " bind(android.view.View root,\n"
+                + "            android.databinding.DataBindingComponent component) {\n"
+                + "        return new " + name + "(\"" + name + ".bind\");\n"
+                + "    }\n"
+                + "}\n");
+    }
+
+    private static void writeSource(File dir, List<File> sources, String className,
+            String code) throws IOException {
+        File source = new File(dir, className.replace('.', '/') + ".java");
+        FileUtils.writeStringToFile(source, code);
+        sources.add(source);
+    }
+
+    /**
+     * Compiles the sources without any classpath and loads every class, so that the directory can
+     * be deleted.
+     */
+    private static ClassLoader compile(File dir, List<File> sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("compiler tests must run on a JDK");
+        }
+        List<String> args = new ArrayList<String>(Arrays.asList("-nowarn", "-proc:none",
+                "-d", dir.getAbsolutePath(), "-cp", dir.getAbsolutePath()));
+        for (File source : sources) {
+            args.add(source.getAbsolutePath());
+        }
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int result = compiler.run(null, null, errors, args.toArray(new String[args.size()]));
+        if (result != 0) {
+            throw new IllegalStateException("cannot compile DataBinderMapper: " + errors);
+        }
+        // without a parent, the stubs are used instead of any android classes on the classpath
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, null);
+        Collection<File> classFiles = FileUtils.listFiles(dir, new String[]{"class"}, true);
+        int prefixLength = dir.getAbsolutePath().length() + 1;
+        try {
+            for (File classFile : classFiles) {
+                String path = classFile.getAbsolutePath();
+                String className = path.substring(prefixLength, path.length() - ".class".length())
+                        .replace(File.separatorChar, '.');
+                Class.forName(className, true, classLoader);
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        return classLoader;
+    }
+
+    private static class Mapper {
+        final List<LayoutBinder> mLayoutBinders;
+        private final ClassLoader mClassLoader;
+        private final String mPackage;
+        private final Object mMapper;
+        private final Class<?> mViewClass;
+        private final Method mGetDataBinder;
+        private final Method mGetDataBinderForViews;
+        private final Method mGetLayoutId;
+
+        Mapper(ClassLoader classLoader, String pkg, List<LayoutBinder> layoutBinders) {
+            mLayoutBinders = layoutBinders;
+            mClassLoader = classLoader;
+            mPackage = pkg;
+            try {
+                Class<?> mapperClass = classLoader.loadClass(pkg + ".DataBinderMapper");
+                mViewClass = classLoader.loadClass("android.view.View");
+                Class<?> component = classLoader.loadClass(
+                        "android.databinding.DataBindingComponent");
+                // the mapper is package private
+                Constructor<?> constructor = mapperClass.getConstructor();
+                constructor.setAccessible(true);
+                mMapper = constructor.newInstance();
+                mGetDataBinder = mapperClass.getMethod("getDataBinder", component, mViewClass,
+                        int.class);
+                mGetDataBinder.setAccessible(true);
+                mGetDataBinderForViews = mapperClass.getDeclaredMethod("getDataBinder",
+                        component, Array.newInstance(mViewClass, 0).getClass(), int.class);
+                mGetDataBinderForViews.setAccessible(true);
+                mGetLayoutId = mapperClass.getDeclaredMethod("getLayoutId", String.class);
+                mGetLayoutId.setAccessible(true);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        int getLayoutId(String layoutName) throws Exception {
+            return mClassLoader.loadClass(mPackage + ".R$layout").getField(layoutName)
+                    .getInt(null);
+        }
+
+        int getMinLayoutId() throws Exception {
+            return (Integer) getLookupField("InnerLayoutLookup", "sMinLayoutId");
+        }
+
+        int getMaxLayoutId() throws Exception {
+            int max = Integer.MIN_VALUE;
+            for (LayoutBinder layoutBinder : mLayoutBinders) {
+                max = Math.max(max, getLayoutId(layoutBinder.getLayoutname()));
+            }
+            return max;
+        }
+
+        int[] getLayoutTable() throws Exception {
+            return (int[]) getLookupField("InnerLayoutLookup", "sTable");
+        }
+
+        private Object getLookupField(String lookupClass, String name) throws Exception {
+            Field field = mClassLoader.loadClass(mPackage + ".DataBinderMapper$" + lookupClass)
+                    .getDeclaredField(name);
+            field.setAccessible(true);
+            return field.get(null);
+        }
+
+        /**
+         * @return How the binding for a view with the given tag was created or null if there is
+         * no binding.
+         */
+        String getDataBinder(String layoutName, Object tag) throws Exception {
+            return getDataBinder(getLayoutId(layoutName), tag);
+        }
+
+        String getDataBinder(int layoutId, Object tag) throws Exception {
+            return invoke(mGetDataBinder, null, newView(tag), layoutId);
+        }
+
+        String getDataBinderForViews(String layoutName, Object tag) throws Exception {
+            return getDataBinderForViews(getLayoutId(layoutName), tag);
+        }
+
+        String getDataBinderForViews(int layoutId, Object tag) throws Exception {
+            Object views = Array.newInstance(mViewClass, 2);
+            Array.set(views, 0, newView(tag));
+            Array.set(views, 1, newView(null));
+            return invoke(mGetDataBinderForViews, null, views, layoutId);
+        }
+
+        int getLayoutIdOfTag(String tag) throws Exception {
+            try {
+                return (Integer) mGetLayoutId.invoke(mMapper, tag);
+            } catch (InvocationTargetException e) {
+                throw (Exception) e.getCause();
+            }
+        }
+
+        private Object newView(Object tag) throws Exception {
+            return mViewClass.getConstructor(Object.class).newInstance(tag);
+        }
+
+        private String invoke(Method method, Object... args) throws Exception {
+            Object binding;
+            try {
+                binding = method.invoke(mMapper, args);
+            } catch (InvocationTargetException e) {
+                throw (Exception) e.getCause();
+            }
+            if (binding == null) {
+                return null;
+            }
+            return (String) binding.getClass().getField("createdBy").get(binding);
+        }
+    }
+}
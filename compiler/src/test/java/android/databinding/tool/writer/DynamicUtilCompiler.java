@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer;
+
+import android.databinding.tool.reflection.java.JavaAnalyzer;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles the DynamicUtil written by {@link DynamicUtilWriter} against android.jar and loads it,
+ * so that its helpers can be called on the JVM.
+ */
+public class DynamicUtilCompiler {
+    private final Class<?> mDynamicUtil;
+
+    public DynamicUtilCompiler(int targetSdk) throws IOException {
+        File dir = Files.createTempDirectory("dynamic-util").toFile();
+        try {
+            File source = new File(dir, "android/databinding/DynamicUtil.java");
+            FileUtils.writeStringToFile(source,
+                    new DynamicUtilWriter().write(targetSdk).generate());
+            File androidJar = JavaAnalyzer.getAndroidJar();
+            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            if (compiler == null) {
+                throw new IllegalStateException("compiler tests must run on a JDK");
+            }
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            int result = compiler.run(null, null, errors, "-nowarn", "-proc:none",
+                    "-d", dir.getAbsolutePath(), "-cp", androidJar.getAbsolutePath(),
+                    source.getAbsolutePath());
+            if (result != 0) {
+                throw new IllegalStateException("cannot compile DynamicUtil: " + errors);
+            }
+            // the class is loaded eagerly so that the directory can be deleted
+            URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toURI().toURL(),
+                    androidJar.toURI().toURL()}, null);
+            mDynamicUtil = Class.forName("android.databinding.DynamicUtil", true, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    /**
+     * Finds DynamicUtil.parse(String, type).
+     */
+    public Method getParse(Class<?> type) {
+        try {
+            return mDynamicUtil.getMethod("parse", String.class, type);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("no parse method for " + type, e);
+        }
+    }
+
+    /**
+     * Calls DynamicUtil.parse(str, fallback) for the primitive type of fallback.
+     */
+    public Object parse(String str, Object fallback) {
+        Class<?> type = primitive(fallback.getClass());
+        try {
+            return getParse(type).invoke(null, str, fallback);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new AssertionError("parse(\"" + str + "\", " + type + ") threw "
+                    + e.getCause());
+        }
+    }
+
+    private static Class<?> primitive(Class<?> boxed) {
+        if (boxed == Byte.class) {
+            return byte.class;
+        } else if (boxed == Short.class) {
+            return short.class;
+        } else if (boxed == Integer.class) {
+            return int.class;
+        } else if (boxed == Long.class) {
+            return long.class;
+        } else if (boxed == Float.class) {
+            return float.class;
+        } else if (boxed == Double.class) {
+            return double.class;
+        }
+        throw new IllegalArgumentException("not a boxed number: " + boxed);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the number parsers of the generated DynamicUtil with the JDK parsers they replace.
+ * Where the JDK throws, DynamicUtil must return the fallback.
+ */
+public class DynamicUtilWriterTest {
+    private static final String[] INPUTS = {
+            null, "", " ", "-", "+", "0", "-0", "+0", "1", "-1", "+1", "+-1", "--1", "00012",
+            " 1", "1 ", "\t1\n", "1_000", "1,5", "1x", "abc", "١٢",
+            "0x10", "0X1F", "-0x10", "0x", "0x1p3", "0x1.8p1", "#10",
+            "1e5", "1E5", "1e-5", "1e+5", "1e", "1e+", "e5", ".5", "-.5", "5.", ".", "-.",
+            "-.5e-3", "1.5.5", "1f", "1F", "1d", "1D", "1.5f", "1ff", "f",
+            "NaN", "-NaN", "+NaN", " NaN ", "nan", "NaNx", "Infinity", "-Infinity", "+Infinity",
+            "Infinityx", "Inf", "1e400", "-1e400", "1e-400",
+            "9223372036854775807", "9223372036854775808", "-9223372036854775808",
+            "-9223372036854775809", "99999999999999999999", "-99999999999999999999",
+    };
+
+    private static final String FUZZ_CHARS = "0123456789+-.eExXfFdDpN a";
+
+    private static DynamicUtilCompiler sDynamicUtil;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        sDynamicUtil = new DynamicUtilCompiler(21);
+    }
+
+    @Test
+    public void testParseByte() {
+        for (String str : inputs(Byte.MIN_VALUE, Byte.MAX_VALUE)) {
+            Object expected;
+            try {
+                expected = Byte.parseByte(str);
+            } catch (NumberFormatException e) {
+                expected = (byte) 7;
+            }
+            assertParse(str, expected, (byte) 7);
+        }
+    }
+
+    @Test
+    public void testParseShort() {
+        for (String str : inputs(Short.MIN_VALUE, Short.MAX_VALUE)) {
+            Object expected;
+            try {
+                expected = Short.parseShort(str);
+            } catch (NumberFormatException e) {
+                expected = (short) 7;
+            }
+            assertParse(str, expected, (short) 7);
+        }
+    }
+
+    @Test
+    public void testParseInt() {
+        for (String str : inputs(Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+            Object expected;
+            try {
+                expected = Integer.parseInt(str);
+            } catch (NumberFormatException e) {
+                expected = 7;
+            }
+            assertParse(str, expected, 7);
+        }
+    }
+
+    @Test
+    public void testParseLong() {
+        for (String str : inputs(Long.MIN_VALUE, Long.MAX_VALUE)) {
+            Object expected;
+            try {
+                expected = Long.parseLong(str);
+            } catch (NumberFormatException e) {
+                expected = 7L;
+            }
+            assertParse(str, expected, 7L);
+        }
+    }
+
+    @Test
+    public void testParseFloat() {
+        for (String str : inputs(Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+            Object expected;
+            try {
+                expected = Float.parseFloat(str);
+            } catch (NumberFormatException e) {
+                expected = 7.5f;
+            } catch (NullPointerException e) {
+                expected = 7.5f;
+            }
+            assertParse(str, expected, 7.5f);
+        }
+    }
+
+    @Test
+    public void testParseDouble() {
+        for (String str : inputs(Long.MIN_VALUE, Long.MAX_VALUE)) {
+            Object expected;
+            try {
+                expected = Double.parseDouble(str);
+            } catch (NumberFormatException e) {
+                expected = 7.5;
+            } catch (NullPointerException e) {
+                expected = 7.5;
+            }
+            assertParse(str, expected, 7.5);
+        }
+    }
+
+    private static void assertParse(String str, Object expected, Object fallback) {
+        assertEquals("parse(\"" + str + "\")", expected, sDynamicUtil.parse(str, fallback));
+    }
+
+    /**
+     * @return The fixed inputs, the limits of a type and the values just outside of them, and
+     * random strings of characters that appear in numbers.
+     */
+    private static List<String> inputs(long min, long max) {
+        List<String> inputs = new ArrayList<String>(Arrays.asList(INPUTS));
+        inputs.add(Long.toString(min));
+        inputs.add(Long.toString(max));
+        if (min != Long.MIN_VALUE) {
+            // the values outside of long are in INPUTS
+            inputs.add(Long.toString(min - 1));
+            inputs.add(Long.toString(max + 1));
+        }
+        inputs.add("+" + max);
+        inputs.add(max + "0");
+        Random random = new Random(min);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder str = new StringBuilder();
+            int length = random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                str.append(FUZZ_CHARS.charAt(random.nextInt(FUZZ_CHARS.length())));
+            }
+            inputs.add(str.toString());
+        }
+        return inputs;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer;
+
+import android.databinding.Bindable;
+import android.databinding.Observable;
+import android.databinding.tool.LayoutBinder;
+import android.databinding.tool.expr.Expr;
+import android.databinding.tool.expr.ExprModel;
+import android.databinding.tool.reflection.java.JavaAnalyzer;
+import android.databinding.tool.store.ResourceBundle;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LayoutBinderWriterTest {
+    @Before
+    public void setUp() throws Exception {
+        JavaAnalyzer.initForTests();
+    }
+
+    @Test
+    public void testSynchronizedDirtyFlags() {
+        String code = write(3, false);
+        assertTrue(code.contains("synchronized(this)"));
+        assertFalse(code.contains("java.util.concurrent.atomic"));
+    }
+
+    @Test
+    public void testAtomicDirtyFlagsInOneBucket() {
+        String code = write(3, true);
+        assertFalse(code.contains("synchronized"));
+        assertTrue(code.contains(
+                "private final java.util.concurrent.atomic.AtomicLong mDirtyFlags = "));
+        assertTrue(code.contains("long dirtyFlags = mDirtyFlags.getAndSet(0);"));
+        assertFalse(code.contains("mDirtyFlags_1"));
+    }
+
+    @Test
+    public void testAtomicDirtyFlagsInManyBuckets() {
+        String code = write(40, true);
+        assertFalse(code.contains("synchronized"));
+        assertFalse(code.contains("AtomicLong"));
+        assertFalse(code.contains("mDirtyFlags_1"));
+        assertTrue(code.contains("private final java.util.concurrent.atomic.AtomicReference<long[]>"
+                + " mDirtyFlags = "));
+        // all buckets are taken at once
+        assertTrue(code.contains(
+                "final long[] dirtyFlagBuckets = mDirtyFlags.getAndSet(sNoDirtyFlags);"));
+        assertTrue(code.contains("long dirtyFlags_1 = dirtyFlagBuckets[1];"));
+        assertTrue(code.contains("mDirtyFlags.set(new long[] {"));
+        // and every update sets the flags of all buckets at once
+        Matcher setDirtyFlags = Pattern.compile("setDirtyFlags\\(mDirtyFlags, ([^;]*)\\);")
+                .matcher(code);
+        int updates = 0;
+        while (setDirtyFlags.find()) {
+            assertEquals(setDirtyFlags.group(1), 2, setDirtyFlags.group(1).split(",").length);
+            updates++;
+        }
+        assertTrue(updates >= 40);
+    }
+
+    @Test
+    public void testReadableNameOfLongKey() {
+        ExprModel model = new ExprModel();
+        Expr shortExpr = model.math(model.identifier("someVariable"), "+",
+                model.identifier("other"));
+        Expr first = model.identifier("someVariable");
+        Expr second = model.identifier("someVariable");
+        for (int i = 0; i < 40; i++) {
+            first = model.math(first, "+", first);
+            second = model.math(second, "-", second);
+        }
+        // the readable keys would not fit in a String
+        assertTrue(first.getKey().length() > Integer.MAX_VALUE);
+        String name = LayoutBinderWriterKt.getReadableName(first);
+        assertEquals(LayoutBinderWriterKt.MAX_READABLE_NAME_LENGTH, name.length());
+        assertTrue(name, name.startsWith("someVariableSomeVariable"));
+        assertEquals(name, LayoutBinderWriterKt.getReadableName(second));
+        assertEquals("mSomeVariableSomeVar", LayoutBinderWriterKt.getFieldName(first));
+        assertEquals("mSomeVariableSomeVar1", LayoutBinderWriterKt.getFieldName(second));
+        // short keys are spelled out
+        assertEquals(LayoutBinderWriterKt.stripNonJava(shortExpr.getUniqueKey()),
+                LayoutBinderWriterKt.getReadableName(shortExpr));
+    }
+
+    @Test
+    public void testObservedPropertyIds() {
+        ResourceBundle.LayoutFileBundle bundle = new ResourceBundle.LayoutFileBundle(
+                new File("./blah.xml"), "blah", "layout", "com.test", false);
+        ResourceBundle.BindingTargetBundle root = bundle.createBindingTarget(null,
+                "android.widget.FrameLayout", true, "layout/blah_0", null, null);
+        root.setViewPath(new int[0]);
+        bundle.addVariable("a", Person.class.getCanonicalName(), null, true);
+        bundle.addVariable("b", Person.class.getCanonicalName(), null, true);
+        String[] expressions = {"a.name", "a.age + ``", "a.name + b.nick"};
+        for (int i = 0; i < expressions.length; i++) {
+            ResourceBundle.BindingTargetBundle target = bundle.createBindingTarget("@+id/text" + i,
+                    "android.widget.TextView", true, "binding_" + (i + 1), null, null);
+            target.setViewPath(new int[]{i});
+            target.addBinding("android:text", expressions[i], false, null, null);
+        }
+        LayoutBinder layoutBinder = new LayoutBinder(bundle);
+        layoutBinder.sealModel();
+        String code = layoutBinder.writeViewBinder(14, false);
+
+        Matcher table = Pattern.compile("sObservedPropertyIds = \\{\n(.*?)\\};", Pattern.DOTALL)
+                .matcher(code);
+        assertTrue(code, table.find());
+        List<Set<String>> rows = new ArrayList<Set<String>>();
+        Matcher row = Pattern.compile("\\{([^}]*)\\},").matcher(table.group(1));
+        while (row.find()) {
+            rows.add(ids(row.group(1).split(", ")));
+        }
+        assertEquals(2, rows.size());
+        // every row holds the properties its onChange method switches on
+        Matcher dispatch = Pattern.compile("case (\\d+) :\\s+return (onChange\\w+)\\(")
+                .matcher(code);
+        Set<String> seen = new HashSet<String>();
+        while (dispatch.find()) {
+            Set<String> handled = handledProperties(code, dispatch.group(2));
+            assertEquals(handled, rows.get(Integer.parseInt(dispatch.group(1))));
+            seen.addAll(handled);
+            seen.add(dispatch.group(2));
+        }
+        assertTrue(seen.contains("onChangeA"));
+        assertTrue(seen.contains("onChangeB"));
+        // nick is not bindable and b has no other properties
+        assertTrue(rows.contains(ids("BR.name", "BR.age")));
+        assertTrue(rows.contains(ids()));
+        assertFalse(code.contains("BR.nick"));
+    }
+
+    /**
+     * @return The BR ids of the properties the given onChange method handles, except BR._all.
+     */
+    private static Set<String> handledProperties(String code, String onChangeName) {
+        int start = code.indexOf("private boolean " + onChangeName + "(");
+        assertTrue(onChangeName, start >= 0);
+        int end = code.indexOf("return false;", start);
+        Matcher label = Pattern.compile("case (BR\\.\\w+):").matcher(code.substring(start, end));
+        Set<String> ids = new HashSet<String>();
+        while (label.find()) {
+            ids.add(label.group(1));
+        }
+        assertTrue(ids.remove("BR._all"));
+        return ids;
+    }
+
+    private static Set<String> ids(String... ids) {
+        Set<String> set = new HashSet<String>();
+        for (String id : ids) {
+            if (!id.isEmpty()) {
+                set.add(id);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Writes a layout with the given number of variables, each of them bound in an expression that
+     * depends on another variable.
+     */
+    private static String write(int variables, boolean atomicDirtyFlags) {
+        ResourceBundle.LayoutFileBundle bundle = new ResourceBundle.LayoutFileBundle(
+                new File("./blah.xml"), "blah", "layout", "com.test", false);
+        ResourceBundle.BindingTargetBundle root = bundle.createBindingTarget(null,
+                "android.widget.FrameLayout", true, "layout/blah_0", null, null);
+        root.setViewPath(new int[0]);
+        for (int i = 0; i < variables; i++) {
+            bundle.addVariable("v" + i, "java.lang.String", null, true);
+            ResourceBundle.BindingTargetBundle target = bundle.createBindingTarget("@+id/text" + i,
+                    "android.widget.TextView", true, "binding_" + (i + 1), null, null);
+            target.setViewPath(new int[]{i});
+            String other = "v" + ((i + 1) % variables);
+            target.addBinding("android:text", "v" + i + " == null ? " + other + " : v" + i,
+                    false, null, null);
+        }
+        LayoutBinder layoutBinder = new LayoutBinder(bundle);
+        layoutBinder.sealModel();
+        return layoutBinder.writeViewBinder(14, atomicDirtyFlags);
+    }
+
+    public static class Person implements Observable {
+        @Bindable
+        public String getName() {
+            return null;
+        }
+
+        @Bindable
+        public int getAge() {
+            return 0;
+        }
+
+        public String getNick() {
+            return null;
+        }
+
+        @Override
+        public void addOnPropertyChangedCallback(OnPropertyChangedCallback callback) {
+        }
+
+        @Override
+        public void removeOnPropertyChangedCallback(OnPropertyChangedCallback callback) {
+        }
+    }
+}
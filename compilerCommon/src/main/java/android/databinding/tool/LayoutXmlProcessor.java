@@ -33,6 +33,10 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.parsers.ParserConfigurationException;
@@ -47,6 +51,19 @@ public class LayoutXmlProcessor {
     // hardcoded in baseAdapters
     public static final String RESOURCE_BUNDLE_PACKAGE = "android.databinding.layouts";
     public static final String CLASS_NAME = "DataBindingInfo";
+    /**
+     * System property that sets the default {@link #setParallelism(int) parallelism}. It can be
+     * set for a project with {@code systemProp.android.databinding.parallelism=4} in its
+     * gradle.properties.
+     */
+    public static final String PARALLELISM_PROPERTY = "android.databinding.parallelism";
+    /**
+     * System property that sets the default of {@link #setAtomicDirtyFlags(boolean)}. It can be
+     * set for a project with {@code systemProp.android.databinding.atomicDirtyFlags=true} in its
+     * gradle.properties.
+     */
+    public static final String ATOMIC_DIRTY_FLAGS_PROPERTY =
+            "android.databinding.atomicDirtyFlags";
     private final JavaFileWriter mFileWriter;
     private final ResourceBundle mResourceBundle;
     private final int mMinSdk;
@@ -56,6 +73,8 @@ public class LayoutXmlProcessor {
     private final boolean mIsLibrary;
     private final String mBuildId = UUID.randomUUID().toString();
     private final OriginalFileLookup mOriginalFileLookup;
+    private int mParallelism = getDefaultParallelism();
+    private boolean mAtomicDirtyFlags = Boolean.getBoolean(ATOMIC_DIRTY_FLAGS_PROPERTY);
 
     public LayoutXmlProcessor(String applicationPackage,
             JavaFileWriter fileWriter, int minSdk, boolean isLibrary,
@@ -133,6 +152,45 @@ public class LayoutXmlProcessor {
         }
     }
 
+    private static int getDefaultParallelism() {
+        final Integer parallelism = Integer.getInteger(PARALLELISM_PROPERTY);
+        if (parallelism == null) {
+            return 1;
+        }
+        if (parallelism < 1) {
+            L.w("Ignoring %s=%d, it must be positive", PARALLELISM_PROPERTY, parallelism);
+            return 1;
+        }
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to parse and strip layout files in
+     * {@link #processResources(ResourceInput)}. Defaults to the value of
+     * {@link #PARALLELISM_PROPERTY} or 1, which processes layouts on the calling thread. Layout
+     * bundles are added to the {@link ResourceBundle} in the same order either way. The value is
+     * also written to the info class, so that the annotation processor seals and writes the
+     * layouts with the same number of threads.
+     * <p>
+     * Only parsing the layouts and writing their code run concurrently. Sealing resolves the
+     * expressions against the annotation processing model, which is not thread safe, so every
+     * lookup in it holds one lock and the layouts are effectively sealed one at a time.
+     */
+    public void setParallelism(int parallelism) {
+        Preconditions.check(parallelism > 0, "parallelism must be positive but it is %d",
+                parallelism);
+        mParallelism = parallelism;
+    }
+
+    /**
+     * Sets whether the generated bindings keep their dirty flags in atomic fields instead of
+     * guarding them with the binding's lock. Defaults to the value of
+     * {@link #ATOMIC_DIRTY_FLAGS_PROPERTY}. The value is written to the info class.
+     */
+    public void setAtomicDirtyFlags(boolean atomicDirtyFlags) {
+        mAtomicDirtyFlags = atomicDirtyFlags;
+    }
+
     /**
      * used by the studio plugin
      */
@@ -148,6 +206,7 @@ public class LayoutXmlProcessor {
         }
         final LayoutFileParser layoutFileParser = new LayoutFileParser();
         final URI inputRootUri = input.getRootInputFolder().toURI();
+        final List<LayoutTask> pendingLayouts = new ArrayList<LayoutTask>();
         ProcessFileCallback callback = new ProcessFileCallback() {
             private File convertToOutFile(File file) {
                 final String subPath = toSystemDependentPath(inputRootUri
@@ -159,10 +218,12 @@ public class LayoutXmlProcessor {
                     throws ParserConfigurationException, SAXException, XPathExpressionException,
                     IOException {
                 final File output = convertToOutFile(file);
-                final ResourceBundle.LayoutFileBundle bindingLayout = layoutFileParser
-                        .parseXml(file, output, mResourceBundle.getAppPackage(), mOriginalFileLookup);
-                if (bindingLayout != null && !bindingLayout.isEmpty()) {
-                    mResourceBundle.addLayoutBundle(bindingLayout);
+                final LayoutTask task = new LayoutTask(layoutFileParser, file, output,
+                        mResourceBundle.getAppPackage(), mOriginalFileLookup);
+                if (mParallelism > 1) {
+                    pendingLayouts.add(task);
+                } else {
+                    addLayoutBundle(task.parse());
                 }
             }
 
@@ -218,10 +279,57 @@ public class LayoutXmlProcessor {
         } else {
             processAllInputFiles(input, callback);
         }
+        processInParallel(pendingLayouts);
         mProcessingComplete = true;
         return true;
     }
 
+    private void addLayoutBundle(ResourceBundle.LayoutFileBundle bindingLayout) {
+        if (bindingLayout != null && !bindingLayout.isEmpty()) {
+            mResourceBundle.addLayoutBundle(bindingLayout);
+        }
+    }
+
+    /**
+     * Parses the given layouts on a work stealing pool. The bundles are added in the order of
+     * the tasks and the first failure, in the same order, is rethrown.
+     */
+    private void processInParallel(List<LayoutTask> tasks)
+            throws ParserConfigurationException, SAXException, XPathExpressionException,
+            IOException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        final ForkJoinPool pool = new ForkJoinPool(Math.min(mParallelism, tasks.size()));
+        try {
+            final List<Future<ResourceBundle.LayoutFileBundle>> results = pool.invokeAll(tasks);
+            for (Future<ResourceBundle.LayoutFileBundle> result : results) {
+                addLayoutBundle(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ParserConfigurationException) {
+                throw (ParserConfigurationException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof XPathExpressionException) {
+                throw (XPathExpressionException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     public static String toSystemDependentPath(String path) {
         if (File.separatorChar != '/') {
             path = path.replace('/', File.separatorChar);
@@ -305,7 +413,9 @@ public class LayoutXmlProcessor {
                 "isLibrary=" + mIsLibrary + "," +
                 "minSdk=" + mMinSdk + "," +
                 "enableDebugLogs=" + enableDebugLogs + "," +
-                "printEncodedError=" + printEncodedErrorLogs + ")\n" +
+                "printEncodedError=" + printEncodedErrorLogs + "," +
+                "atomicDirtyFlags=" + mAtomicDirtyFlags + "," +
+                "parallelism=" + mParallelism + ")\n" +
                 "public class " + CLASS_NAME + " {}\n";
         mFileWriter.writeToFile(RESOURCE_BUNDLE_PACKAGE + "." + CLASS_NAME, classString);
     }
@@ -414,6 +524,37 @@ public class LayoutXmlProcessor {
         }
     }
 
+    /**
+     * Parses and strips a single layout file.
+     */
+    private static class LayoutTask implements Callable<ResourceBundle.LayoutFileBundle> {
+        private final LayoutFileParser mParser;
+        private final File mFile;
+        private final File mOutput;
+        private final String mPackage;
+        private final OriginalFileLookup mOriginalFileLookup;
+
+        LayoutTask(LayoutFileParser parser, File file, File output, String pkg,
+                OriginalFileLookup originalFileLookup) {
+            mParser = parser;
+            mFile = file;
+            mOutput = output;
+            mPackage = pkg;
+            mOriginalFileLookup = originalFileLookup;
+        }
+
+        ResourceBundle.LayoutFileBundle parse()
+                throws ParserConfigurationException, SAXException, XPathExpressionException,
+                IOException {
+            return mParser.parseXml(mFile, mOutput, mPackage, mOriginalFileLookup);
+        }
+
+        @Override
+        public ResourceBundle.LayoutFileBundle call() throws Exception {
+            return parse();
+        }
+    }
+
     private interface ProcessFileCallback {
         void processLayoutFile(File file)
                 throws ParserConfigurationException, SAXException, XPathExpressionException,
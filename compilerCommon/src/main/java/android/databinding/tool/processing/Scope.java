@@ -35,7 +35,7 @@ import java.util.List;
 public class Scope {
 
     private static ThreadLocal<ScopeEntry> sScopeItems = new ThreadLocal<ScopeEntry>();
-    static List<ScopedException> sDeferredExceptions = new ArrayList<ScopedException>();
+    static final List<ScopedException> sDeferredExceptions = new ArrayList<ScopedException>();
 
     public static void enter(final Location location) {
         enter(new LocationScopeProvider() {
@@ -58,7 +58,9 @@ public class Scope {
     }
 
     public static void defer(ScopedException exception) {
-        sDeferredExceptions.add(exception);
+        synchronized (sDeferredExceptions) {
+            sDeferredExceptions.add(exception);
+        }
     }
 
     private static void registerErrorInternal(String msg, int scopeIndex,
@@ -95,19 +97,21 @@ public class Scope {
     }
 
     public static void assertNoError() {
-        if (sDeferredExceptions.isEmpty()) {
-            return;
-        }
-        StringBuilder sb = new StringBuilder();
-        HashSet<String> messages = new HashSet<String>();
-        for (ScopedException ex : sDeferredExceptions) {
-            final String message = ex.getMessage();
-            if (!messages.contains(message)) {
-                sb.append(message).append("\n");
-                messages.add(message);
+        synchronized (sDeferredExceptions) {
+            if (sDeferredExceptions.isEmpty()) {
+                return;
+            }
+            StringBuilder sb = new StringBuilder();
+            HashSet<String> messages = new HashSet<String>();
+            for (ScopedException ex : sDeferredExceptions) {
+                final String message = ex.getMessage();
+                if (!messages.contains(message)) {
+                    sb.append(message).append("\n");
+                    messages.add(message);
+                }
             }
+            throw new RuntimeException("Found data binding errors.\n" + sb.toString());
         }
-        throw new RuntimeException("Found data binding errors.\n" + sb.toString());
     }
 
     static String produceScopeLog() {
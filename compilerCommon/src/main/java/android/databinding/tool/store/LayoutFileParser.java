@@ -34,28 +34,17 @@ import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.misc.NotNull;
 import org.apache.commons.io.FileUtils;
 import org.mozilla.universalchardet.UniversalDetector;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 /**
  * Gets the list of XML files and creates a list of
@@ -64,8 +53,6 @@ import javax.xml.xpath.XPathFactory;
  */
 public class LayoutFileParser {
 
-    private static final String XPATH_BINDING_LAYOUT = "/layout";
-
     private static final String LAYOUT_PREFIX = "@layout/";
 
     public ResourceBundle.LayoutFileBundle parseXml(final File inputFile, final File outputFile,
@@ -81,16 +68,35 @@ public class LayoutFileParser {
                     return originalFilePath;
                 }
             });
-            final String encoding = findEncoding(inputFile);
-            stripFile(inputFile, outputFile, encoding, originalFileLookup);
-            return parseOriginalXml(originalFileFor, pkg, encoding);
+            // read and tokenize the file once, the tree is shared by stripping and parsing
+            final byte[] bytes = FileUtils.readFileToByteArray(inputFile);
+            final String encoding = findEncoding(bytes);
+            final String contents = new String(bytes, encoding);
+            final XMLParser.DocumentContext document = parseDocument(contents);
+            stripFile(inputFile, outputFile, bytes, encoding, contents, document,
+                    originalFileLookup);
+            if (!originalFileFor.equals(inputFile)) {
+                // locations must point to the original file, which may differ from the input
+                final String originalContents = FileUtils.readFileToString(originalFileFor,
+                        encoding);
+                return parseOriginalXml(originalFileFor, pkg, parseDocument(originalContents));
+            }
+            return parseOriginalXml(originalFileFor, pkg, document);
         } finally {
             Scope.exit();
         }
     }
 
+    private static XMLParser.DocumentContext parseDocument(String contents) {
+        ANTLRInputStream inputStream = new ANTLRInputStream(contents);
+        XMLLexer lexer = new XMLLexer(inputStream);
+        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+        XMLParser parser = new XMLParser(tokenStream);
+        return parser.document();
+    }
+
     private ResourceBundle.LayoutFileBundle parseOriginalXml(final File original, String pkg,
-            String encoding) throws IOException {
+            XMLParser.DocumentContext document) {
         try {
             Scope.enter(new FileScopeProvider() {
                 @Override
@@ -99,15 +105,8 @@ public class LayoutFileParser {
                 }
             });
             final String xmlNoExtension = ParserHelper.stripExtension(original.getName());
-            FileInputStream fin = new FileInputStream(original);
-            InputStreamReader reader = new InputStreamReader(fin, encoding);
-            ANTLRInputStream inputStream = new ANTLRInputStream(reader);
-            XMLLexer lexer = new XMLLexer(inputStream);
-            CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-            XMLParser parser = new XMLParser(tokenStream);
-            XMLParser.DocumentContext expr = parser.document();
-            XMLParser.ElementContext root = expr.element();
-            if (!"layout".equals(root.elmName.getText())) {
+            XMLParser.ElementContext root = document.element();
+            if (!isBindingLayout(root)) {
                 return null;
             }
             XMLParser.ElementContext data = getDataNode(root);
@@ -240,6 +239,9 @@ public class LayoutFileParser {
                             new Location(parent));
             nodeTagMap.put(parent, tag);
             bindingTargetBundle.setIncludedLayout(includedLayoutName);
+            if (!isMerge) {
+                bindingTargetBundle.setViewPath(getViewPath(rootView, parent));
+            }
 
             for (XMLParser.AttributeContext attr : XmlEditor.expressionAttributes(parent)) {
                 String value = escapeQuotes(attr.attrValue.getText(), true);
@@ -269,10 +271,54 @@ public class LayoutFileParser {
         for (XMLParser.ElementContext elm : otherElementsWithIds) {
             final String id = attributeMap(elm).get("android:id");
             final String className = getViewName(elm);
-            bundle.createBindingTarget(id, className, true, null, null, new Location(elm));
+            final ResourceBundle.BindingTargetBundle bindingTargetBundle =
+                    bundle.createBindingTarget(id, className, true, null, null,
+                            new Location(elm));
+            if (!isMerge) {
+                bindingTargetBundle.setViewPath(getViewPath(rootView, elm));
+            }
         }
     }
 
+    /**
+     * Returns the child indexes that lead from the root view to the view inflated for the given
+     * element, or null if they cannot be known before inflation. An include or a fragment before
+     * the element may inflate to any number of views, so the path stops being known after them.
+     */
+    private static int[] getViewPath(XMLParser.ElementContext rootView,
+            XMLParser.ElementContext elm) {
+        final ArrayList<Integer> path = new ArrayList<Integer>();
+        XMLParser.ElementContext child = elm;
+        while (child != rootView) {
+            // account for XMLParser.ContentContext
+            final ParserRuleContext grandParent = child.getParent().getParent();
+            if (!(grandParent instanceof XMLParser.ElementContext)) {
+                return null;
+            }
+            final XMLParser.ElementContext parent = (XMLParser.ElementContext) grandParent;
+            int index = 0;
+            for (XMLParser.ElementContext sibling : XmlEditor.elements(parent)) {
+                if (sibling == child) {
+                    break;
+                }
+                final String name = sibling.elmName.getText();
+                if ("include".equals(name) || "fragment".equals(name)) {
+                    return null;
+                }
+                if (!"requestFocus".equals(name) && !"tag".equals(name)) {
+                    index++;
+                }
+            }
+            path.add(0, index);
+            child = parent;
+        }
+        final int[] result = new int[path.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = path.get(i);
+        }
+        return result;
+    }
+
     private String getViewName(XMLParser.ElementContext elm) {
         String viewName = elm.elmName.getText();
         if ("view".equals(viewName)) {
@@ -385,15 +431,9 @@ public class LayoutFileParser {
         return "merge".equals(rootView.elmName.getText()) && filter(rootView, "include").size() > 0;
     }
 
-    private void stripFile(File xml, File out, String encoding,
-            LayoutXmlProcessor.OriginalFileLookup originalFileLookup)
-            throws ParserConfigurationException, IOException, SAXException,
-            XPathExpressionException {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.parse(xml);
-        XPathFactory xPathFactory = XPathFactory.newInstance();
-        XPath xPath = xPathFactory.newXPath();
+    private void stripFile(File xml, File out, byte[] bytes, String encoding, String contents,
+            XMLParser.DocumentContext document,
+            LayoutXmlProcessor.OriginalFileLookup originalFileLookup) throws IOException {
         File actualFile = originalFileLookup == null ? null
                 : originalFileLookup.getOriginalFileFor(xml);
         // TODO get rid of original file lookup
@@ -404,34 +444,24 @@ public class LayoutFileParser {
         String noExt = ParserHelper.stripExtension(actualFile.getName());
         String binderId = actualFile.getParentFile().getName() + '/' + noExt;
         // now if file has any binding expressions, find and delete them
-        boolean changed = isBindingLayout(doc, xPath);
+        boolean changed = isBindingLayout(document.element());
         if (changed) {
-            stripBindingTags(xml, out, binderId, encoding);
+            stripBindingTags(xml, out, binderId, contents, document, encoding);
         } else if (!xml.equals(out)){
-            FileUtils.copyFile(xml, out);
+            FileUtils.writeByteArrayToFile(out, bytes);
+            // match FileUtils.copyFile, which keeps the date
+            //noinspection ResultOfMethodCallIgnored
+            out.setLastModified(xml.lastModified());
         }
     }
 
-    private boolean isBindingLayout(Document doc, XPath xPath) throws XPathExpressionException {
-        return !get(doc, xPath, XPATH_BINDING_LAYOUT).isEmpty();
-    }
-
-    private List<Node> get(Document doc, XPath xPath, String pattern)
-            throws XPathExpressionException {
-        final XPathExpression expr = xPath.compile(pattern);
-        return toList((NodeList) expr.evaluate(doc, XPathConstants.NODESET));
-    }
-
-    private List<Node> toList(NodeList nodeList) {
-        List<Node> result = new ArrayList<Node>();
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            result.add(nodeList.item(i));
-        }
-        return result;
+    private static boolean isBindingLayout(XMLParser.ElementContext root) {
+        return root != null && root.elmName != null && "layout".equals(root.elmName.getText());
     }
 
-    private void stripBindingTags(File xml, File output, String newTag, String encoding) throws IOException {
-        String res = XmlEditor.strip(xml, newTag, encoding);
+    private void stripBindingTags(File xml, File output, String newTag, String contents,
+            XMLParser.DocumentContext document, String encoding) throws IOException {
+        String res = XmlEditor.strip(xml, contents, document, newTag);
         Preconditions.checkNotNull(res, "layout file should've changed %s", xml.getAbsolutePath());
         if (res != null) {
             L.d("file %s has changed, overwriting %s", xml.getName(), xml.getAbsolutePath());
@@ -439,27 +469,20 @@ public class LayoutFileParser {
         }
     }
 
-    private static String findEncoding(File f) throws IOException {
-        FileInputStream fin = new FileInputStream(f);
-        try {
-            UniversalDetector universalDetector = new UniversalDetector(null);
-
-            byte[] buf = new byte[4096];
-            int nread;
-            while ((nread = fin.read(buf)) > 0 && !universalDetector.isDone()) {
-                universalDetector.handleData(buf, 0, nread);
-            }
-
-            universalDetector.dataEnd();
+    private static String findEncoding(byte[] bytes) {
+        UniversalDetector universalDetector = new UniversalDetector(null);
+        // feed the detector the same way it was fed when reading the file in chunks
+        for (int offset = 0; offset < bytes.length && !universalDetector.isDone();
+                offset += 4096) {
+            universalDetector.handleData(bytes, offset, Math.min(4096, bytes.length - offset));
+        }
+        universalDetector.dataEnd();
 
-            String encoding = universalDetector.getDetectedCharset();
-            if (encoding == null) {
-                encoding = "utf-8";
-            }
-            return encoding;
-        } finally {
-            fin.close();
+        String encoding = universalDetector.getDetectedCharset();
+        if (encoding == null) {
+            encoding = "utf-8";
         }
+        return encoding;
     }
 
     private static Map<String, String> attributeMap(XMLParser.ElementContext root) {
@@ -43,6 +43,7 @@ import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlList;
 import javax.xml.bind.annotation.XmlRootElement;
 
 /**
@@ -62,7 +63,7 @@ public class ResourceBundle implements Serializable {
         mAppPackage = appPackage;
     }
 
-    public void addLayoutBundle(LayoutFileBundle bundle) {
+    public synchronized void addLayoutBundle(LayoutFileBundle bundle) {
         if (bundle.mFileName == null) {
             L.e("File bundle must have a name. %s does not have one.", bundle);
             return;
@@ -371,7 +372,7 @@ public class ResourceBundle implements Serializable {
         return sharedClassName;
     }
 
-    public void addRemovedFile(File file) {
+    public synchronized void addRemovedFile(File file) {
         mRemovedFiles.add(file);
     }
 
@@ -761,6 +762,9 @@ public class ResourceBundle implements Serializable {
         public String mIncludedLayout;
         @XmlElement(name="location")
         public Location mLocation;
+        @XmlAttribute(name="viewPath")
+        @XmlList
+        public int[] mViewPath;
         private String mInterfaceType;
 
         // For XML serialization
@@ -793,6 +797,18 @@ public class ResourceBundle implements Serializable {
             return mIncludedLayout != null;
         }
 
+        /**
+         * @param viewPath The child indexes from the root view to this view, or null if they
+         *                 are not known.
+         */
+        public void setViewPath(int[] viewPath) {
+            mViewPath = viewPath;
+        }
+
+        public int[] getViewPath() {
+            return mViewPath;
+        }
+
         public void setInterfaceType(String interfaceType) {
             mInterfaceType = interfaceType;
         }
@@ -28,7 +28,7 @@ import javax.tools.Diagnostic;
 import javax.tools.Diagnostic.Kind;
 
 public class L {
-    private static boolean sEnableDebug = false;
+    private static volatile boolean sEnableDebug = false;
     private static final Client sSystemClient = new Client() {
         @Override
         public void printMessage(Kind kind, String message, Element element) {
@@ -40,7 +40,7 @@ public class L {
         }
     };
 
-    private static Client sClient = sSystemClient;
+    private static volatile Client sClient = sSystemClient;
 
     public static void setClient(Client systemClient) {
         sClient = systemClient;
@@ -133,6 +133,10 @@ public class L {
         return sEnableDebug;
     }
 
+    /**
+     * Receives the messages. Layouts may be processed on multiple threads, so implementations
+     * must be thread safe.
+     */
     public interface Client {
         void printMessage(Diagnostic.Kind kind, String message, Element element);
     }
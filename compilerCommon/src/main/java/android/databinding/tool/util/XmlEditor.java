@@ -33,11 +33,11 @@ import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.misc.NotNull;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -50,14 +50,26 @@ import java.util.List;
 public class XmlEditor {
 
     public static String strip(File f, String newTag, String encoding) throws IOException {
-        FileInputStream fin = new FileInputStream(f);
-        InputStreamReader reader = new InputStreamReader(fin, encoding);
-        ANTLRInputStream inputStream = new ANTLRInputStream(reader);
+        final String contents = FileUtils.readFileToString(f, encoding);
+        ANTLRInputStream inputStream = new ANTLRInputStream(contents);
         XMLLexer lexer = new XMLLexer(inputStream);
         CommonTokenStream tokenStream = new CommonTokenStream(lexer);
         XMLParser parser = new XMLParser(tokenStream);
-        XMLParser.DocumentContext expr = parser.document();
-        ElementContext root = expr.element();
+        return strip(f, contents, parser.document(), newTag);
+    }
+
+    /**
+     * Strips the binding tags from a layout that was already read and parsed.
+     *
+     * @param f The layout file, used for error messages.
+     * @param contents The contents of the file.
+     * @param document The parse tree of <code>contents</code>.
+     * @param newTag The tag prefix of the root view.
+     * @return The stripped layout or null if the file is not a binding layout.
+     */
+    public static String strip(File f, String contents, XMLParser.DocumentContext document,
+            String newTag) throws IOException {
+        ElementContext root = document.element();
 
         if (root == null || !"layout".equals(nodeName(root))) {
             return null; // not a binding layout
@@ -71,7 +83,7 @@ public class XmlEditor {
         }
 
         ArrayList<String> lines = new ArrayList<String>();
-        lines.addAll(FileUtils.readLines(f, encoding));
+        lines.addAll(IOUtils.readLines(new StringReader(contents)));
 
         for (ElementContext it : dataNodes) {
             replace(lines, toPosition(it.getStart()), toEndPosition(it.getStop()), "");
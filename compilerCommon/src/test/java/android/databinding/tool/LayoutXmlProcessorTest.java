@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import android.databinding.tool.store.ResourceBundle;
+import android.databinding.tool.writer.JavaFileWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LayoutXmlProcessorTest {
+    private static final int LAYOUT_COUNT = 30;
+
+    private File mRoot;
+
+    @Before
+    public void setUp() throws IOException {
+        mRoot = Files.createTempDirectory("layout-xml-processor").toFile();
+        File layouts = new File(mRoot, "in/layout");
+        File landscapeLayouts = new File(mRoot, "in/layout-land");
+        for (int i = 0; i < LAYOUT_COUNT; i++) {
+            FileUtils.writeStringToFile(new File(layouts, "layout" + i + ".xml"), layout(i));
+            if (i % 3 == 0) {
+                // a second configuration of the same layout
+                FileUtils.writeStringToFile(new File(landscapeLayouts, "layout" + i + ".xml"),
+                        layout(i + 1));
+            }
+        }
+        FileUtils.writeStringToFile(new File(layouts, "plain.xml"),
+                "<FrameLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"/>");
+        FileUtils.writeStringToFile(new File(mRoot, "in/values/strings.xml"),
+                "<resources><string name=\"app_name\">Test</string></resources>");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(mRoot);
+    }
+
+    @Test
+    public void testParallelOutputIsSameAsSequential() throws Exception {
+        File sequentialOut = new File(mRoot, "out1");
+        List<String> sequential = process(1, sequentialOut);
+        assertEquals(LAYOUT_COUNT + LAYOUT_COUNT / 3, sequential.size());
+        for (int i = 0; i < 3; i++) {
+            File parallelOut = new File(mRoot, "out4-" + i);
+            assertEquals(sequential, process(4, parallelOut));
+            assertSameFiles(sequentialOut, parallelOut);
+        }
+    }
+
+    @Test
+    public void testParallelismDefaultsToSystemProperty() throws Exception {
+        System.setProperty(LayoutXmlProcessor.PARALLELISM_PROPERTY, "4");
+        try {
+            StringBuilder infoClass = new StringBuilder();
+            createProcessor(infoClass).writeInfoClass(null, new File(mRoot, "info"), null);
+            assertTrue(infoClass.toString().contains("parallelism=4)"));
+        } finally {
+            System.clearProperty(LayoutXmlProcessor.PARALLELISM_PROPERTY);
+        }
+        StringBuilder infoClass = new StringBuilder();
+        createProcessor(infoClass).writeInfoClass(null, new File(mRoot, "info"), null);
+        assertTrue(infoClass.toString().contains("parallelism=1)"));
+    }
+
+    @Test
+    public void testAtomicDirtyFlagsDefaultsToSystemProperty() throws Exception {
+        System.setProperty(LayoutXmlProcessor.ATOMIC_DIRTY_FLAGS_PROPERTY, "true");
+        try {
+            StringBuilder infoClass = new StringBuilder();
+            createProcessor(infoClass).writeInfoClass(null, new File(mRoot, "info"), null);
+            assertTrue(infoClass.toString().contains("atomicDirtyFlags=true,"));
+        } finally {
+            System.clearProperty(LayoutXmlProcessor.ATOMIC_DIRTY_FLAGS_PROPERTY);
+        }
+        StringBuilder infoClass = new StringBuilder();
+        LayoutXmlProcessor processor = createProcessor(infoClass);
+        processor.writeInfoClass(null, new File(mRoot, "info"), null);
+        assertTrue(infoClass.toString().contains("atomicDirtyFlags=false,"));
+        infoClass.setLength(0);
+        processor.setAtomicDirtyFlags(true);
+        processor.writeInfoClass(null, new File(mRoot, "info"), null);
+        assertTrue(infoClass.toString().contains("atomicDirtyFlags=true,"));
+    }
+
+    /**
+     * @return The layout bundles in the order they were added to the resource bundle.
+     */
+    private List<String> process(int parallelism, File out) throws Exception {
+        LayoutXmlProcessor processor = createProcessor(new StringBuilder());
+        processor.setParallelism(parallelism);
+        assertTrue(processor.processResources(new LayoutXmlProcessor.ResourceInput(false,
+                new File(mRoot, "in"), out)));
+        List<String> bundles = new ArrayList<String>();
+        for (Map.Entry<String, List<ResourceBundle.LayoutFileBundle>> entry :
+                processor.getResourceBundle().getLayoutBundles().entrySet()) {
+            for (ResourceBundle.LayoutFileBundle bundle : entry.getValue()) {
+                // absolute paths differ between the runs
+                bundles.add(bundle.toXML().replace(out.getAbsolutePath(), "out"));
+            }
+        }
+        return bundles;
+    }
+
+    private LayoutXmlProcessor createProcessor(final StringBuilder infoClass) {
+        return new LayoutXmlProcessor("com.example", new JavaFileWriter() {
+            @Override
+            public void writeToFile(String canonicalName, String contents) {
+                infoClass.append(contents);
+            }
+        }, 14, false, new LayoutXmlProcessor.OriginalFileLookup() {
+            @Override
+            public File getOriginalFileFor(File file) {
+                return file;
+            }
+        });
+    }
+
+    private static void assertSameFiles(File expected, File actual) throws IOException {
+        Collection<File> expectedFiles = FileUtils.listFiles(expected, null, true);
+        assertFalse(expectedFiles.isEmpty());
+        assertEquals(expectedFiles.size(), FileUtils.listFiles(actual, null, true).size());
+        for (File file : expectedFiles) {
+            String path = file.getAbsolutePath().substring(expected.getAbsolutePath().length());
+            assertEquals(path, FileUtils.readFileToString(file),
+                    FileUtils.readFileToString(new File(actual, path)));
+        }
+    }
+
+    private static String layout(int index) {
+        return "<layout xmlns:android=\"http://schemas.android.com/apk/res/android\">\n"
+                + "    <data>\n"
+                + "        <variable name=\"text\" type=\"String\"/>\n"
+                + "    </data>\n"
+                + "    <LinearLayout android:layout_width=\"match_parent\"\n"
+                + "            android:layout_height=\"match_parent\">\n"
+                + "        <TextView android:id=\"@+id/text" + index + "\"\n"
+                + "                android:text=\"@{text}\"/>\n"
+                + "        <TextView android:text=\"@{text + " + index + "}\"/>\n"
+                + "    </LinearLayout>\n"
+                + "</layout>\n";
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.store;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import android.databinding.tool.LayoutXmlProcessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class LayoutFileParserTest {
+    private File mRoot;
+
+    @Before
+    public void setUp() throws IOException {
+        mRoot = Files.createTempDirectory("layout-file-parser").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(mRoot);
+    }
+
+    @Test
+    public void testNestedViewGroups() throws Exception {
+        Map<String, int[]> paths = parse("nested", ""
+                + "<LinearLayout>\n"
+                + "    <TextView android:id=\"@+id/first\"/>\n"
+                + "    <requestFocus/>\n"
+                + "    <FrameLayout>\n"
+                + "        <tag android:id=\"@+id/someTag\" android:value=\"value\"/>\n"
+                + "        <View/>\n"
+                + "        <LinearLayout android:id=\"@+id/inner\">\n"
+                + "            <View/>\n"
+                + "            <View/>\n"
+                + "            <TextView android:id=\"@+id/deep\" android:text=\"@{a}\"/>\n"
+                + "        </LinearLayout>\n"
+                + "        <TextView android:id=\"@+id/nested\" android:text=\"@{a}\"/>\n"
+                + "    </FrameLayout>\n"
+                + "    <view class=\"android.widget.TextView\" android:id=\"@+id/last\"/>\n"
+                + "</LinearLayout>\n");
+        assertPath(paths, "layout/nested_0");
+        assertPath(paths, "@+id/first", 0);
+        assertPath(paths, "@+id/inner", 1, 1);
+        assertPath(paths, "@+id/deep", 1, 1, 2);
+        assertPath(paths, "@+id/nested", 1, 2);
+        assertPath(paths, "@+id/last", 2);
+    }
+
+    @Test
+    public void testInclude() throws Exception {
+        Map<String, int[]> paths = parse("with_include", ""
+                + "<LinearLayout>\n"
+                + "    <TextView android:id=\"@+id/beforeInclude\" android:text=\"@{a}\"/>\n"
+                + "    <include layout=\"@layout/other\" android:id=\"@+id/included\"/>\n"
+                + "    <TextView android:id=\"@+id/afterInclude\" android:text=\"@{a}\"/>\n"
+                + "    <FrameLayout>\n"
+                + "        <TextView android:id=\"@+id/afterIncludeNested\"/>\n"
+                + "    </FrameLayout>\n"
+                + "</LinearLayout>\n");
+        assertPath(paths, "layout/with_include_0");
+        assertPath(paths, "@+id/beforeInclude", 0);
+        // the include is inflated in place, so only the views after it are unknown
+        assertPath(paths, "@+id/included", 1);
+        assertNoPath(paths, "@+id/afterInclude");
+        assertNoPath(paths, "@+id/afterIncludeNested");
+    }
+
+    @Test
+    public void testNestedInclude() throws Exception {
+        Map<String, int[]> paths = parse("with_nested_include", ""
+                + "<LinearLayout>\n"
+                + "    <FrameLayout android:id=\"@+id/frame\">\n"
+                + "        <include layout=\"@layout/other\"/>\n"
+                + "        <TextView android:id=\"@+id/afterInclude\"/>\n"
+                + "    </FrameLayout>\n"
+                + "    <TextView android:id=\"@+id/afterFrame\" android:text=\"@{a}\"/>\n"
+                + "    <fragment android:name=\"com.example.Fragment\"/>\n"
+                + "    <TextView android:id=\"@+id/afterFragment\"/>\n"
+                + "</LinearLayout>\n");
+        // the include only changes the indexes in its own parent
+        assertPath(paths, "@+id/frame", 0);
+        assertNoPath(paths, "@+id/afterInclude");
+        assertPath(paths, "@+id/afterFrame", 1);
+        assertNoPath(paths, "@+id/afterFragment");
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        Map<String, int[]> paths = parse("merged", ""
+                + "<merge>\n"
+                + "    <TextView android:id=\"@+id/first\" android:text=\"@{a}\"/>\n"
+                + "    <FrameLayout android:id=\"@+id/second\">\n"
+                + "        <TextView android:id=\"@+id/nested\" android:text=\"@{a}\"/>\n"
+                + "    </FrameLayout>\n"
+                + "</merge>\n");
+        // the views of a merge layout are added to a parent that may have other children
+        assertNoPath(paths, "@+id/first");
+        assertNoPath(paths, "@+id/second");
+        assertNoPath(paths, "@+id/nested");
+    }
+
+    /**
+     * Parses a layout with the given root view and a String variable named a.
+     *
+     * @return The view paths of the binding targets by their id or, if they have no id, their
+     * tag.
+     */
+    private Map<String, int[]> parse(String name, String rootView) throws Exception {
+        File input = new File(mRoot, "in/layout/" + name + ".xml");
+        FileUtils.writeStringToFile(input, ""
+                + "<layout xmlns:android=\"http://schemas.android.com/apk/res/android\">\n"
+                + "    <data>\n"
+                + "        <variable name=\"a\" type=\"String\"/>\n"
+                + "    </data>\n"
+                + rootView
+                + "</layout>\n");
+        File output = new File(mRoot, "out/layout/" + name + ".xml");
+        ResourceBundle.LayoutFileBundle bundle = new LayoutFileParser().parseXml(input, output,
+                "com.example", new LayoutXmlProcessor.OriginalFileLookup() {
+                    @Override
+                    public File getOriginalFileFor(File file) {
+                        return file;
+                    }
+                });
+        assertNotNull(bundle);
+        Map<String, int[]> paths = new HashMap<String, int[]>();
+        for (ResourceBundle.BindingTargetBundle target : bundle.getBindingTargetBundles()) {
+            String key = target.getId() == null ? target.getTag() : target.getId();
+            assertTrue(key, key != null && !paths.containsKey(key));
+            paths.put(key, target.getViewPath());
+        }
+        return paths;
+    }
+
+    private static void assertPath(Map<String, int[]> paths, String key, int... expected) {
+        assertTrue(key, paths.containsKey(key));
+        assertEquals(key, Arrays.toString(expected), Arrays.toString(paths.get(key)));
+    }
+
+    private static void assertNoPath(Map<String, int[]> paths, String key) {
+        assertTrue(key, paths.containsKey(key));
+        assertEquals(key, null, paths.get(key));
+    }
+}
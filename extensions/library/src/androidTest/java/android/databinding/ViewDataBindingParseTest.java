@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the number parsers of ViewDataBinding with the JDK parsers they replace. Where the JDK
+ * throws, ViewDataBinding must return the fallback. The generated DynamicUtil has a copy of these
+ * parsers, which the compiler tests check the same way.
+ */
+public class ViewDataBindingParseTest extends AndroidTestCase {
+    private static final String[] INPUTS = {
+            null, "", " ", "-", "+", "0", "-0", "+0", "1", "-1", "+1", "+-1", "--1", "00012",
+            " 1", "1 ", "\t1\n", "1_000", "1x", "abc",
+            "0x10", "0X1F", "-0x10", "0x", "0x1p3",
+            "1e5", "1E5", "1e-5", "1e+5", "1e", "1e+", "e5", ".5", "-.5", "5.", ".", "-.",
+            "1.5.5", "1f", "1d", "1.5f", "1ff",
+            "NaN", "-NaN", " NaN ", "nan", "Infinity", "-Infinity", "+Infinity", "Inf", "1e400",
+            "9223372036854775807", "9223372036854775808", "-9223372036854775808",
+            "-9223372036854775809", "99999999999999999999",
+    };
+
+    private static final String FUZZ_CHARS = "0123456789+-.eExXfFdDpN a";
+
+    public void testParseByte() {
+        for (String str : inputs(Byte.MIN_VALUE, Byte.MAX_VALUE)) {
+            byte expected;
+            try {
+                expected = Byte.parseByte(str);
+            } catch (NumberFormatException e) {
+                expected = 7;
+            }
+            assertEquals(str, expected, ViewDataBinding.parse(str, (byte) 7));
+        }
+    }
+
+    public void testParseShort() {
+        for (String str : inputs(Short.MIN_VALUE, Short.MAX_VALUE)) {
+            short expected;
+            try {
+                expected = Short.parseShort(str);
+            } catch (NumberFormatException e) {
+                expected = 7;
+            }
+            assertEquals(str, expected, ViewDataBinding.parse(str, (short) 7));
+        }
+    }
+
+    public void testParseInt() {
+        for (String str : inputs(Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+            int expected;
+            try {
+                expected = Integer.parseInt(str);
+            } catch (NumberFormatException e) {
+                expected = 7;
+            }
+            assertEquals(str, expected, ViewDataBinding.parse(str, 7));
+        }
+    }
+
+    public void testParseLong() {
+        for (String str : inputs(Long.MIN_VALUE, Long.MAX_VALUE)) {
+            long expected;
+            try {
+                expected = Long.parseLong(str);
+            } catch (NumberFormatException e) {
+                expected = 7;
+            }
+            assertEquals(str, expected, ViewDataBinding.parse(str, 7L));
+        }
+    }
+
+    public void testParseFloat() {
+        for (String str : inputs(Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+            float expected;
+            try {
+                expected = Float.parseFloat(str);
+            } catch (NumberFormatException e) {
+                expected = 7.5f;
+            } catch (NullPointerException e) {
+                expected = 7.5f;
+            }
+            // boxed, so that NaN equals NaN and 0.0 does not equal -0.0
+            assertEquals(str, (Float) expected, (Float) ViewDataBinding.parse(str, 7.5f));
+        }
+    }
+
+    public void testParseDouble() {
+        for (String str : inputs(Long.MIN_VALUE, Long.MAX_VALUE)) {
+            double expected;
+            try {
+                expected = Double.parseDouble(str);
+            } catch (NumberFormatException e) {
+                expected = 7.5;
+            } catch (NullPointerException e) {
+                expected = 7.5;
+            }
+            assertEquals(str, (Double) expected, (Double) ViewDataBinding.parse(str, 7.5));
+        }
+    }
+
+    /**
+     * @return The fixed inputs, the limits of a type and the values just outside of them, and
+     * random strings of characters that appear in numbers.
+     */
+    private static List<String> inputs(long min, long max) {
+        List<String> inputs = new ArrayList<String>(Arrays.asList(INPUTS));
+        inputs.add(Long.toString(min));
+        inputs.add(Long.toString(max));
+        if (min != Long.MIN_VALUE) {
+            // the values outside of long are in INPUTS
+            inputs.add(Long.toString(min - 1));
+            inputs.add(Long.toString(max + 1));
+        }
+        inputs.add("+" + max);
+        inputs.add(max + "0");
+        Random random = new Random(min);
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder str = new StringBuilder();
+            int length = random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                str.append(FUZZ_CHARS.charAt(random.nextInt(FUZZ_CHARS.length())));
+            }
+            inputs.add(str.toString());
+        }
+        return inputs;
+    }
+}
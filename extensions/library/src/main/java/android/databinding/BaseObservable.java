@@ -21,19 +21,63 @@ package android.databinding;
  * {@link #notifyPropertyChanged(int)} and {@link #notifyChange} methods.
  */
 public class BaseObservable implements Observable {
-    private transient PropertyChangeRegistry mCallbacks;
+    private transient volatile PropertyChangeRegistry mCallbacks;
+
+    private final transient boolean mCopyOnWriteCallbacks;
 
     public BaseObservable() {
+        this(false);
+    }
+
+    /**
+     * @param copyOnWriteCallbacks true to keep the callbacks in a copy-on-write
+     *                             {@link PropertyChangeRegistry}, so that properties changed
+     *                             on different threads are notified without locking.
+     */
+    protected BaseObservable(boolean copyOnWriteCallbacks) {
+        mCopyOnWriteCallbacks = copyOnWriteCallbacks;
     }
 
     @Override
     public synchronized void addOnPropertyChangedCallback(OnPropertyChangedCallback callback) {
         if (mCallbacks == null) {
-            mCallbacks = new PropertyChangeRegistry();
+            mCallbacks = new PropertyChangeRegistry(mCopyOnWriteCallbacks);
         }
         mCallbacks.add(callback);
     }
 
+    /**
+     * Adds a callback that is only notified when one of the given properties or the entire
+     * Observable changes. Generated bindings use this to avoid being called for the properties
+     * they do not depend on, if {@link #acceptsPropertyIds()} returns true.
+     *
+     * @param callback The callback to start listening.
+     * @param propertyIds The BR ids of the properties the callback is interested in.
+     */
+    public synchronized void addOnPropertyChangedCallback(OnPropertyChangedCallback callback,
+            int[] propertyIds) {
+        if (mCallbacks == null) {
+            mCallbacks = new PropertyChangeRegistry(mCopyOnWriteCallbacks);
+        }
+        mCallbacks.add(callback, propertyIds);
+    }
+
+    /**
+     * Returns whether generated bindings may add their callbacks with
+     * {@link #addOnPropertyChangedCallback(OnPropertyChangedCallback, int[])}, so that they are
+     * not notified of the properties they do not use. Otherwise they use
+     * {@link #addOnPropertyChangedCallback(OnPropertyChangedCallback)}.
+     * <p>
+     * This returns false, so subclasses that override how callbacks are added keep seeing every
+     * callback. Subclasses that keep their callbacks the same way whichever method adds them can
+     * return true.
+     *
+     * @return true to let bindings listen to the properties they use only.
+     */
+    protected boolean acceptsPropertyIds() {
+        return false;
+    }
+
     @Override
     public synchronized void removeOnPropertyChangedCallback(OnPropertyChangedCallback callback) {
         if (mCallbacks != null) {
@@ -44,7 +88,7 @@ public class BaseObservable implements Observable {
     /**
      * Notifies listeners that all properties of this instance have changed.
      */
-    public synchronized void notifyChange() {
+    public void notifyChange() {
         if (mCallbacks != null) {
             mCallbacks.notifyCallbacks(this, 0, null);
         }
@@ -24,6 +24,8 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Utility class to create {@link ViewDataBinding} from layouts.
  */
@@ -61,6 +63,21 @@ public class DataBindingUtil {
         return sDefaultComponent;
     }
 
+    /**
+     * Limits the time spent executing pending bindings in a single frame. Bindings that request
+     * a rebind are executed together in the next frame; when this budget runs out, the remaining
+     * bindings are executed in the frame after that instead. At least one binding is executed in
+     * every frame.
+     * <p>
+     * The default is 0, which executes all pending bindings in the same frame.
+     *
+     * @param budgetMillis The time that may be spent rebinding in one frame, in milliseconds,
+     *                     or 0 for no limit.
+     */
+    public static void setRebindFrameBudget(long budgetMillis) {
+        RebindScheduler.setFrameBudgetNanos(TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+    }
+
     /**
      * Inflates a binding layout and returns the newly-created binding for that layout.
      * This uses the DataBindingComponent set in
@@ -17,8 +17,16 @@ package android.databinding;
 
 import android.support.v4.util.Pools;
 
+import java.util.ArrayList;
+
 /**
  * Utility class for managing ObservableList callbacks.
+ * <p>
+ * Between {@link #beginBatch()} and {@link #endBatch(ObservableList)}, notifications are
+ * collected instead of dispatched. Adjacent inserts, removes and changes are merged into single
+ * range notifications as they arrive, and the merged sequence is dispatched when the outermost
+ * batch ends. Batches are not thread safe and must be used from the thread that modifies the
+ * list.
  */
 public class ListChangeRegistry
         extends
@@ -33,6 +41,15 @@ public class ListChangeRegistry
     private static final int MOVED = 3;
     private static final int REMOVED = 4;
 
+    /** The number of nested batches in progress. */
+    private int mBatchDepth;
+
+    /** True if a whole-list change was notified during the batch. */
+    private boolean mBatchChangedAll;
+
+    /** The merged changes of the batch, in the order they must be notified. */
+    private ArrayList<ListChanges> mBatch;
+
     private static final CallbackRegistry.NotifierCallback<ObservableList.OnListChangedCallback,
             ObservableList, ListChanges> NOTIFIER_CALLBACK = new CallbackRegistry.NotifierCallback<
             ObservableList.OnListChangedCallback, ObservableList, ListChanges>() {
@@ -66,7 +83,13 @@ public class ListChangeRegistry
      * @param list The list that changed.
      */
     public void notifyChanged(ObservableList list) {
-        notifyCallbacks(list, ALL, null);
+        if (mBatchDepth > 0) {
+            // nothing before this matters anymore
+            releaseBatch();
+            mBatchChangedAll = true;
+        } else {
+            notifyCallbacks(list, ALL, null);
+        }
     }
 
     /**
@@ -77,6 +100,10 @@ public class ListChangeRegistry
      * @param count The number of changed elements.
      */
     public void notifyChanged(ObservableList list, int start, int count) {
+        if (mBatchDepth > 0) {
+            batch(CHANGED, start, 0, count);
+            return;
+        }
         ListChanges listChanges = acquire(start, 0, count);
         notifyCallbacks(list, CHANGED, listChanges);
     }
@@ -89,6 +116,10 @@ public class ListChangeRegistry
      * @param count The number of elements that were inserted.
      */
     public void notifyInserted(ObservableList list, int start, int count) {
+        if (mBatchDepth > 0) {
+            batch(INSERTED, start, 0, count);
+            return;
+        }
         ListChanges listChanges = acquire(start, 0, count);
         notifyCallbacks(list, INSERTED, listChanges);
     }
@@ -102,6 +133,10 @@ public class ListChangeRegistry
      * @param count The number of elements moved.
      */
     public void notifyMoved(ObservableList list, int from, int to, int count) {
+        if (mBatchDepth > 0) {
+            batch(MOVED, from, to, count);
+            return;
+        }
         ListChanges listChanges = acquire(from, to, count);
         notifyCallbacks(list, MOVED, listChanges);
     }
@@ -114,10 +149,138 @@ public class ListChangeRegistry
      * @param count The number of elements removed.
      */
     public void notifyRemoved(ObservableList list, int start, int count) {
+        if (mBatchDepth > 0) {
+            batch(REMOVED, start, 0, count);
+            return;
+        }
         ListChanges listChanges = acquire(start, 0, count);
         notifyCallbacks(list, REMOVED, listChanges);
     }
 
+    /**
+     * Starts collecting notifications instead of dispatching them. Batches may be nested; the
+     * notifications are dispatched when the outermost batch ends.
+     */
+    public void beginBatch() {
+        mBatchDepth++;
+    }
+
+    /**
+     * Ends a batch started with {@link #beginBatch()}. When the outermost batch ends, the
+     * merged notifications are dispatched to the registered callbacks.
+     *
+     * @param list The list that changed.
+     */
+    public void endBatch(ObservableList list) {
+        if (mBatchDepth == 0) {
+            throw new IllegalStateException("endBatch called without beginBatch");
+        }
+        if (--mBatchDepth > 0) {
+            return;
+        }
+        if (mBatchChangedAll) {
+            mBatchChangedAll = false;
+            notifyCallbacks(list, ALL, null);
+        } else if (mBatch != null && !mBatch.isEmpty()) {
+            // removed from the batch before dispatching so that callbacks may start a new one
+            final ArrayList<ListChanges> batch = mBatch;
+            mBatch = null;
+            final int size = batch.size();
+            for (int i = 0; i < size; i++) {
+                final ListChanges listChanges = batch.get(i);
+                batch.set(i, null);
+                notifyCallbacks(list, listChanges.type, listChanges);
+            }
+            batch.clear();
+            if (mBatch == null) {
+                mBatch = batch;
+            }
+        }
+    }
+
+    /**
+     * Adds a change to the batch, merging it into the last change when the two affect one
+     * contiguous range.
+     */
+    private void batch(int type, int start, int to, int count) {
+        if (mBatchChangedAll || count == 0) {
+            return;
+        }
+        if (mBatch == null) {
+            mBatch = new ArrayList<ListChanges>();
+        }
+        final int lastIndex = mBatch.size() - 1;
+        final ListChanges last = lastIndex < 0 ? null : mBatch.get(lastIndex);
+        if (last != null && merge(last, type, start, count)) {
+            if (last.count == 0) {
+                mBatch.remove(lastIndex);
+                sListChanges.release(last);
+            }
+            return;
+        }
+        ListChanges listChanges = acquire(start, to, count);
+        listChanges.type = type;
+        mBatch.add(listChanges);
+    }
+
+    /**
+     * Merges a change into the last change of the batch if the result describes the same list
+     * modification.
+     *
+     * @return true if the change was merged.
+     */
+    private static boolean merge(ListChanges last, int type, int start, int count) {
+        final int lastEnd = last.start + last.count;
+        switch (last.type) {
+            case INSERTED:
+                if (type == INSERTED && start >= last.start && start <= lastEnd) {
+                    last.count += count;
+                    return true;
+                }
+                if (type == REMOVED && start >= last.start && start + count <= lastEnd) {
+                    // the removed elements were never seen by the callbacks
+                    last.count -= count;
+                    return true;
+                }
+                if (type == CHANGED && start >= last.start && start + count <= lastEnd) {
+                    return true;
+                }
+                return false;
+            case REMOVED:
+                if (type == REMOVED) {
+                    if (start == last.start) {
+                        last.count += count;
+                        return true;
+                    }
+                    if (start + count == last.start) {
+                        last.start = start;
+                        last.count += count;
+                        return true;
+                    }
+                }
+                return false;
+            case CHANGED:
+                if (type == CHANGED && start <= lastEnd && start + count >= last.start) {
+                    final int end = Math.max(lastEnd, start + count);
+                    last.start = Math.min(last.start, start);
+                    last.count = end - last.start;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private void releaseBatch() {
+        if (mBatch != null) {
+            for (int i = mBatch.size() - 1; i >= 0; i--) {
+                sListChanges.release(mBatch.get(i));
+            }
+            mBatch.clear();
+        }
+    }
+
     private static ListChanges acquire(int start, int to, int count) {
         ListChanges listChanges = sListChanges.acquire();
         if (listChanges == null) {
@@ -130,7 +293,7 @@ public class ListChangeRegistry
     }
 
     @Override
-    public synchronized void notifyCallbacks(ObservableList sender, int notificationType,
+    public void notifyCallbacks(ObservableList sender, int notificationType,
             ListChanges listChanges) {
         super.notifyCallbacks(sender, notificationType, listChanges);
         if (listChanges != null) {
@@ -142,9 +305,20 @@ public class ListChangeRegistry
         super(NOTIFIER_CALLBACK);
     }
 
+    /**
+     * @param copyOnWrite true to notify callbacks from a snapshot without locking the registry.
+     *                    The callbacks may then be notified from multiple threads at once.
+     * @see CallbackRegistry#CallbackRegistry(CallbackRegistry.NotifierCallback, boolean)
+     */
+    public ListChangeRegistry(boolean copyOnWrite) {
+        super(NOTIFIER_CALLBACK, copyOnWrite);
+    }
+
     static class ListChanges {
         public int start;
         public int count;
         public int to;
+        // the notification type, only used while the change is in a batch
+        public int type;
     }
 }
@@ -34,6 +34,15 @@ public class MapChangeRegistry
         super(NOTIFIER_CALLBACK);
     }
 
+    /**
+     * @param copyOnWrite true to notify callbacks from a snapshot without locking the registry.
+     *                    The callbacks may then be notified from multiple threads at once.
+     * @see CallbackRegistry#CallbackRegistry(CallbackRegistry.NotifierCallback, boolean)
+     */
+    public MapChangeRegistry(boolean copyOnWrite) {
+        super(NOTIFIER_CALLBACK, copyOnWrite);
+    }
+
     /**
      * Notifies registered callbacks that an element has been added, removed, or changed.
      *
@@ -39,6 +39,30 @@ public class ObservableArrayList<T> extends ArrayList<T> implements ObservableLi
         }
     }
 
+    /**
+     * Starts a batch of modifications. Until the matching {@link #endBatch()}, the callbacks are
+     * not notified. Instead, the changes are merged into as few range notifications as possible
+     * and notified when the outermost batch ends. For example, adding 1000 elements one by one
+     * in a batch notifies a single inserted range.
+     */
+    public void beginBatch() {
+        if (mListeners == null) {
+            mListeners = new ListChangeRegistry();
+        }
+        mListeners.beginBatch();
+    }
+
+    /**
+     * Ends a batch started with {@link #beginBatch()} and notifies the merged changes if it was
+     * the outermost batch.
+     */
+    public void endBatch() {
+        if (mListeners == null) {
+            throw new IllegalStateException("endBatch called without beginBatch");
+        }
+        mListeners.endBatch(this);
+    }
+
     @Override
     public boolean add(T object) {
         super.add(object);
@@ -16,9 +16,19 @@
 package android.databinding;
 
 import android.support.v4.util.ArrayMap;
+import android.support.v4.util.SimpleArrayMap;
 
 import java.util.Collection;
+import java.util.Map;
 
+/**
+ * An {@link ObservableMap} implementation using ArrayMap as an implementation.
+ * <p>
+ * Changing a single mapping notifies its key. Bulk operations such as {@link #putAll(Map)} and
+ * {@link #removeAll(Collection)} make all of their modifications first and notify once: with
+ * the changed key if only one mapping changed, or with a <code>null</code> key if more did.
+ * Putting a value equal to the one already mapped does not notify.
+ */
 public class ObservableArrayMap<K, V> extends ArrayMap<K, V> implements ObservableMap<K, V> {
 
     private transient MapChangeRegistry mListeners;
@@ -50,35 +60,87 @@ public class ObservableArrayMap<K, V> extends ArrayMap<K, V> implements Observab
     }
 
     public V put(K k, V v) {
+        int index = indexOfKey(k);
+        if (index >= 0) {
+            V oldValue = valueAt(index);
+            if (equal(oldValue, v)) {
+                return oldValue;
+            }
+        }
         V val = super.put(k, v);
         notifyChange(k);
-        return v;
+        return val;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        ensureCapacity(size() + map.size());
+        Changes changes = new Changes();
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            putQuietly(entry.getKey(), entry.getValue(), changes);
+        }
+        notifyChanges(changes);
+    }
+
+    @Override
+    public void putAll(SimpleArrayMap<? extends K, ? extends V> array) {
+        ensureCapacity(size() + array.size());
+        Changes changes = new Changes();
+        final int size = array.size();
+        for (int i = 0; i < size; i++) {
+            putQuietly(array.keyAt(i), array.valueAt(i), changes);
+        }
+        notifyChanges(changes);
+    }
+
+    /**
+     * Replaces the contents of this map with the mappings in map, notifying once. Keys that are
+     * mapped to equal values before and after do not count as changed.
+     *
+     * @param map The mappings this map should contain.
+     */
+    public void replaceAll(Map<? extends K, ? extends V> map) {
+        Changes changes = new Changes();
+        for (int i = size() - 1; i >= 0; i--) {
+            K key = keyAt(i);
+            if (!map.containsKey(key)) {
+                super.removeAt(i);
+                changes.add(key);
+            }
+        }
+        ensureCapacity(map.size());
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            putQuietly(entry.getKey(), entry.getValue(), changes);
+        }
+        notifyChanges(changes);
     }
 
     @Override
     public boolean removeAll(Collection<?> collection) {
-        boolean removed = false;
+        Changes changes = new Changes();
         for (Object key : collection) {
             int index = indexOfKey(key);
             if (index >= 0) {
-                removed = true;
-                removeAt(index);
+                super.removeAt(index);
+                changes.add(key);
             }
         }
-        return removed;
+        notifyChanges(changes);
+        return changes.count != 0;
     }
 
     @Override
     public boolean retainAll(Collection<?> collection) {
-        boolean removed = false;
+        Changes changes = new Changes();
         for (int i = size() - 1; i >= 0; i--) {
             Object key = keyAt(i);
             if (!collection.contains(key)) {
-                removeAt(i);
-                removed = true;
+                super.removeAt(i);
+                changes.add(key);
             }
         }
-        return removed;
+        notifyChanges(changes);
+        return changes.count != 0;
     }
 
     @Override
@@ -99,9 +161,50 @@ public class ObservableArrayMap<K, V> extends ArrayMap<K, V> implements Observab
         return oldValue;
     }
 
+    private void putQuietly(K key, V value, Changes changes) {
+        int index = indexOfKey(key);
+        if (index >= 0) {
+            if (!equal(valueAt(index), value)) {
+                super.setValueAt(index, value);
+                changes.add(key);
+            }
+        } else {
+            super.put(key, value);
+            changes.add(key);
+        }
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    private void notifyChanges(Changes changes) {
+        if (changes.count == 1) {
+            notifyChange(changes.key);
+        } else if (changes.count > 1) {
+            notifyChange(null);
+        }
+    }
+
     private void notifyChange(Object key) {
         if (mListeners != null) {
             mListeners.notifyCallbacks(this, 0, key);
         }
     }
+
+    /**
+     * The keys changed by a bulk operation. Only the first one is kept because more than one
+     * change is notified with a null key.
+     */
+    private static class Changes {
+        int count;
+
+        Object key;
+
+        void add(Object changedKey) {
+            if (count++ == 0) {
+                key = changedKey;
+            }
+        }
+    }
 }
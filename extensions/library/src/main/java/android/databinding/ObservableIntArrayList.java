@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * An {@link ObservableList} that stores primitive ints in an array. Elements read and written
+ * with {@link #getInt(int)} and {@link #setInt(int, int)} are not boxed, and neither are the
+ * elements of a binding expression such as <code>list[index]</code>. The {@link java.util.List}
+ * methods box the elements as usual.
+ */
+public class ObservableIntArrayList extends AbstractList<Integer>
+        implements ObservableList<Integer>, RandomAccess {
+    private static final int[] EMPTY = new int[0];
+
+    private ListChangeRegistry mListeners;
+
+    private int[] mValues;
+
+    private int mSize;
+
+    public ObservableIntArrayList() {
+        mValues = EMPTY;
+    }
+
+    /**
+     * @param capacity The number of elements that can be added before the storage must grow.
+     */
+    public ObservableIntArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative: " + capacity);
+        }
+        mValues = capacity == 0 ? EMPTY : new int[capacity];
+    }
+
+    @Override
+    public void addOnListChangedCallback(OnListChangedCallback listener) {
+        if (mListeners == null) {
+            mListeners = new ListChangeRegistry();
+        }
+        mListeners.add(listener);
+    }
+
+    @Override
+    public void removeOnListChangedCallback(OnListChangedCallback listener) {
+        if (mListeners != null) {
+            mListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Starts a batch of modifications that is notified as merged range changes when the
+     * outermost batch ends.
+     *
+     * @see ObservableArrayList#beginBatch()
+     */
+    public void beginBatch() {
+        if (mListeners == null) {
+            mListeners = new ListChangeRegistry();
+        }
+        mListeners.beginBatch();
+    }
+
+    /**
+     * Ends a batch started with {@link #beginBatch()}.
+     */
+    public void endBatch() {
+        if (mListeners == null) {
+            throw new IllegalStateException("endBatch called without beginBatch");
+        }
+        mListeners.endBatch(this);
+    }
+
+    /**
+     * @return The element at index, without boxing it.
+     */
+    public int getInt(int index) {
+        checkIndex(index);
+        return mValues[index];
+    }
+
+    /**
+     * Replaces the element at index without boxing it.
+     *
+     * @return The element previously at index.
+     */
+    public int setInt(int index, int value) {
+        checkIndex(index);
+        int oldValue = mValues[index];
+        mValues[index] = value;
+        if (mListeners != null) {
+            mListeners.notifyChanged(this, index, 1);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Appends an element without boxing it.
+     */
+    public void addInt(int value) {
+        addInt(mSize, value);
+    }
+
+    /**
+     * Inserts an element at index without boxing it.
+     */
+    public void addInt(int index, int value) {
+        checkInsertIndex(index);
+        ensureCapacity(mSize + 1);
+        System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        mValues[index] = value;
+        mSize++;
+        modCount++;
+        notifyAdd(index, 1);
+    }
+
+    /**
+     * Appends all values with a single notification.
+     */
+    public void addAll(int[] values) {
+        addAll(mSize, values);
+    }
+
+    /**
+     * Inserts all values at index with a single notification.
+     */
+    public void addAll(int index, int[] values) {
+        checkInsertIndex(index);
+        if (values.length == 0) {
+            return;
+        }
+        ensureCapacity(mSize + values.length);
+        System.arraycopy(mValues, index, mValues, index + values.length, mSize - index);
+        System.arraycopy(values, 0, mValues, index, values.length);
+        mSize += values.length;
+        modCount++;
+        notifyAdd(index, values.length);
+    }
+
+    /**
+     * Removes the element at index without boxing it.
+     *
+     * @return The removed element.
+     */
+    public int removeIntAt(int index) {
+        checkIndex(index);
+        int oldValue = mValues[index];
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+        mSize--;
+        modCount++;
+        notifyRemove(index, 1);
+        return oldValue;
+    }
+
+    /**
+     * @return A new array with the elements of this list.
+     */
+    public int[] toIntArray() {
+        int[] values = new int[mSize];
+        System.arraycopy(mValues, 0, values, 0, mSize);
+        return values;
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer value) {
+        return setInt(index, value);
+    }
+
+    @Override
+    public void add(int index, Integer value) {
+        addInt(index, value);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> collection) {
+        return addAll(mSize, collection);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Integer> collection) {
+        checkInsertIndex(index);
+        int[] values = new int[collection.size()];
+        int i = 0;
+        for (Integer value : collection) {
+            values[i++] = value;
+        }
+        addAll(index, values);
+        return values.length != 0;
+    }
+
+    @Override
+    public Integer remove(int index) {
+        return removeIntAt(index);
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public void clear() {
+        int oldSize = mSize;
+        if (oldSize != 0) {
+            mSize = 0;
+            modCount++;
+            notifyRemove(0, oldSize);
+        }
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) {
+            return;
+        }
+        System.arraycopy(mValues, toIndex, mValues, fromIndex, mSize - toIndex);
+        mSize -= toIndex - fromIndex;
+        modCount++;
+        notifyRemove(fromIndex, toIndex - fromIndex);
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > mValues.length) {
+            int capacity = Math.max(minCapacity, mValues.length + (mValues.length >> 1) + 4);
+            int[] values = new int[capacity];
+            System.arraycopy(mValues, 0, values, 0, mSize);
+            mValues = values;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+
+    private void checkInsertIndex(int index) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+
+    private void notifyAdd(int start, int count) {
+        if (mListeners != null) {
+            mListeners.notifyInserted(this, start, count);
+        }
+    }
+
+    private void notifyRemove(int start, int count) {
+        if (mListeners != null) {
+            mListeners.notifyRemoved(this, start, count);
+        }
+    }
+}
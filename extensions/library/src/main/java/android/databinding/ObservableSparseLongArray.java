@@ -0,0 +1,357 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An {@link ObservableMap} from int keys to primitive longs, kept in sorted arrays like
+ * {@link android.util.SparseLongArray}. Values read and written with {@link #get(int)} and
+ * {@link #put(int, long)} are not boxed, and neither are the values of a binding expression such
+ * as <code>map[key]</code>. The {@link java.util.Map} methods box keys and values as usual.
+ */
+public class ObservableSparseLongArray extends AbstractMap<Integer, Long>
+        implements ObservableMap<Integer, Long> {
+    private static final int[] EMPTY_KEYS = new int[0];
+
+    private static final long[] EMPTY_VALUES = new long[0];
+
+    private transient MapChangeRegistry mListeners;
+
+    private int[] mKeys;
+
+    private long[] mValues;
+
+    private int mSize;
+
+    private int mModCount;
+
+    public ObservableSparseLongArray() {
+        mKeys = EMPTY_KEYS;
+        mValues = EMPTY_VALUES;
+    }
+
+    /**
+     * @param capacity The number of mappings that can be added before the storage must grow.
+     */
+    public ObservableSparseLongArray(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative: " + capacity);
+        }
+        mKeys = capacity == 0 ? EMPTY_KEYS : new int[capacity];
+        mValues = capacity == 0 ? EMPTY_VALUES : new long[capacity];
+    }
+
+    @Override
+    public void addOnMapChangedCallback(
+            OnMapChangedCallback<? extends ObservableMap<Integer, Long>, Integer, Long> listener) {
+        if (mListeners == null) {
+            mListeners = new MapChangeRegistry();
+        }
+        mListeners.add(listener);
+    }
+
+    @Override
+    public void removeOnMapChangedCallback(
+            OnMapChangedCallback<? extends ObservableMap<Integer, Long>, Integer, Long> listener) {
+        if (mListeners != null) {
+            mListeners.remove(listener);
+        }
+    }
+
+    /**
+     * @return The value mapped to key without boxing it, or <code>0</code> if there is
+     * none.
+     */
+    public long get(int key) {
+        return get(key, 0);
+    }
+
+    /**
+     * @return The value mapped to key without boxing it, or valueIfKeyNotFound if there is
+     * none.
+     */
+    public long get(int key, long valueIfKeyNotFound) {
+        int index = indexOfKey(key);
+        return index >= 0 ? mValues[index] : valueIfKeyNotFound;
+    }
+
+    /**
+     * Maps key to value without boxing either of them.
+     */
+    public void put(int key, long value) {
+        int index = indexOfKey(key);
+        if (index >= 0) {
+            mValues[index] = value;
+        } else {
+            index = ~index;
+            if (mSize == mKeys.length) {
+                int capacity = mSize + (mSize >> 1) + 4;
+                int[] keys = new int[capacity];
+                long[] values = new long[capacity];
+                System.arraycopy(mKeys, 0, keys, 0, mSize);
+                System.arraycopy(mValues, 0, values, 0, mSize);
+                mKeys = keys;
+                mValues = values;
+            }
+            System.arraycopy(mKeys, index, mKeys, index + 1, mSize - index);
+            System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+            mKeys[index] = key;
+            mValues[index] = value;
+            mSize++;
+            mModCount++;
+        }
+        notifyChange(key);
+    }
+
+    /**
+     * Removes the mapping of key, if there is one.
+     */
+    public void delete(int key) {
+        int index = indexOfKey(key);
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+
+    /**
+     * Removes the mapping at index, where index is between 0 and {@link #size()} - 1.
+     */
+    public void removeAt(int index) {
+        checkIndex(index);
+        int key = mKeys[index];
+        System.arraycopy(mKeys, index + 1, mKeys, index, mSize - index - 1);
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+        mSize--;
+        mModCount++;
+        notifyChange(key);
+    }
+
+    /**
+     * @return The index of key in ascending key order, or a negative value if it is not mapped.
+     */
+    public int indexOfKey(int key) {
+        int lo = 0;
+        int hi = mSize - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int midKey = mKeys[mid];
+            if (midKey < key) {
+                lo = mid + 1;
+            } else if (midKey > key) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return ~lo;
+    }
+
+    /**
+     * @return The key of the mapping at index, in ascending key order.
+     */
+    public int keyAt(int index) {
+        checkIndex(index);
+        return mKeys[index];
+    }
+
+    /**
+     * @return The value of the mapping at index, in ascending key order.
+     */
+    public long valueAt(int index) {
+        checkIndex(index);
+        return mValues[index];
+    }
+
+    /**
+     * Replaces the value of the mapping at index.
+     */
+    public void setValueAt(int index, long value) {
+        checkIndex(index);
+        mValues[index] = value;
+        notifyChange(mKeys[index]);
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public void clear() {
+        if (mSize != 0) {
+            mSize = 0;
+            mModCount++;
+            notifyChange(null);
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && indexOfKey((Integer) key) >= 0;
+    }
+
+    @Override
+    public Long get(Object key) {
+        if (!(key instanceof Integer)) {
+            return null;
+        }
+        int index = indexOfKey((Integer) key);
+        return index >= 0 ? mValues[index] : null;
+    }
+
+    @Override
+    public Long put(Integer key, Long value) {
+        int index = indexOfKey(key);
+        Long oldValue = index >= 0 ? mValues[index] : null;
+        put(key.intValue(), value.longValue());
+        return oldValue;
+    }
+
+    @Override
+    public Long remove(Object key) {
+        if (!(key instanceof Integer)) {
+            return null;
+        }
+        int index = indexOfKey((Integer) key);
+        if (index < 0) {
+            return null;
+        }
+        Long oldValue = mValues[index];
+        removeAt(index);
+        return oldValue;
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, Long>> entrySet() {
+        return new EntrySet();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+
+    private void notifyChange(Object key) {
+        if (mListeners != null) {
+            mListeners.notifyCallbacks(this, 0, key);
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<Integer, Long>> {
+        @Override
+        public Iterator<Map.Entry<Integer, Long>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return mSize;
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<Integer, Long>> {
+        private int mIndex = -1;
+
+        private boolean mCanRemove;
+
+        private int mExpectedModCount = mModCount;
+
+        @Override
+        public boolean hasNext() {
+            return mIndex + 1 < mSize;
+        }
+
+        @Override
+        public Map.Entry<Integer, Long> next() {
+            if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            mIndex++;
+            mCanRemove = true;
+            return new Entry(mIndex);
+        }
+
+        @Override
+        public void remove() {
+            if (!mCanRemove) {
+                throw new IllegalStateException();
+            }
+            if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(mIndex);
+            mIndex--;
+            mCanRemove = false;
+            mExpectedModCount = mModCount;
+        }
+    }
+
+    private class Entry implements Map.Entry<Integer, Long> {
+        private final int mIndex;
+
+        Entry(int index) {
+            mIndex = index;
+        }
+
+        @Override
+        public Integer getKey() {
+            return mKeys[mIndex];
+        }
+
+        @Override
+        public Long getValue() {
+            return mValues[mIndex];
+        }
+
+        @Override
+        public Long setValue(Long value) {
+            Long oldValue = mValues[mIndex];
+            setValueAt(mIndex, value);
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return getKey().equals(other.getKey()) && getValue().equals(other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -15,8 +15,17 @@
  */
 package android.databinding;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Utility class for managing Observable callbacks.
+ * <p>
+ * Callbacks added with {@link #add(Observable.OnPropertyChangedCallback, int[])} are only
+ * notified of changes to the given properties and of changes to the entire Observable. They are
+ * kept in one registry per property id, so a property change does not visit the callbacks that
+ * are not interested in it. These callbacks are notified after the ones added without property
+ * ids.
  */
 public class PropertyChangeRegistry extends
         CallbackRegistry<Observable.OnPropertyChangedCallback, Observable, Void> {
@@ -29,8 +38,26 @@ public class PropertyChangeRegistry extends
         }
     };
 
+    private final boolean mCopyOnWrite;
+
+    /**
+     * The callbacks registered for specific properties. Replaced when a property id is added so
+     * that notifications can look it up without locking.
+     */
+    private volatile PropertyIndex mPropertyIndex = PropertyIndex.EMPTY;
+
     public PropertyChangeRegistry() {
-        super(NOTIFIER_CALLBACK);
+        this(false);
+    }
+
+    /**
+     * @param copyOnWrite true to notify callbacks from a snapshot without locking the registry.
+     *                    The callbacks may then be notified from multiple threads at once.
+     * @see CallbackRegistry#CallbackRegistry(CallbackRegistry.NotifierCallback, boolean)
+     */
+    public PropertyChangeRegistry(boolean copyOnWrite) {
+        super(NOTIFIER_CALLBACK, copyOnWrite);
+        mCopyOnWrite = copyOnWrite;
     }
 
     /**
@@ -43,4 +70,166 @@ public class PropertyChangeRegistry extends
     public void notifyChange(Observable observable, int propertyId) {
         notifyCallbacks(observable, propertyId, null);
     }
+
+    @Override
+    public void notifyCallbacks(Observable sender, int propertyId, Void notUsed) {
+        super.notifyCallbacks(sender, propertyId, notUsed);
+        PropertyRegistry registry = mPropertyIndex.get(propertyId);
+        if (registry != null) {
+            registry.notifyCallbacks(sender, propertyId, notUsed);
+        }
+    }
+
+    /**
+     * Adds a callback that is notified of changes to all properties. If the callback was added
+     * for specific properties before, it is only notified once of each change from now on.
+     *
+     * @param callback The callback to add.
+     */
+    @Override
+    public synchronized void add(Observable.OnPropertyChangedCallback callback) {
+        super.add(callback);
+        for (PropertyRegistry registry : mPropertyIndex.registries) {
+            registry.remove(callback);
+        }
+    }
+
+    /**
+     * Adds a callback that is only notified when one of the given properties or the entire
+     * Observable changes. Adding the same callback again adds more properties to it. Nothing
+     * changes if the callback was already added for all properties.
+     *
+     * @param callback The callback to add.
+     * @param propertyIds The BR ids of the properties the callback is interested in.
+     */
+    public synchronized void add(Observable.OnPropertyChangedCallback callback,
+            int[] propertyIds) {
+        if (callback == null) {
+            throw new IllegalArgumentException("callback cannot be null");
+        }
+        if (super.contains(callback)) {
+            return;
+        }
+        // BR._all goes to every callback, so its registry holds all of them
+        getOrCreate(0).add(callback);
+        for (int propertyId : propertyIds) {
+            getOrCreate(propertyId).add(callback);
+        }
+    }
+
+    private PropertyRegistry getOrCreate(int propertyId) {
+        final PropertyIndex index = mPropertyIndex;
+        PropertyRegistry registry = index.get(propertyId);
+        if (registry == null) {
+            registry = new PropertyRegistry(mCopyOnWrite);
+            mPropertyIndex = index.with(propertyId, registry);
+        }
+        return registry;
+    }
+
+    @Override
+    public synchronized void remove(Observable.OnPropertyChangedCallback callback) {
+        super.remove(callback);
+        for (PropertyRegistry registry : mPropertyIndex.registries) {
+            registry.remove(callback);
+        }
+    }
+
+    @Override
+    public void copyCallbacks(List<Observable.OnPropertyChangedCallback> callbacks) {
+        super.copyCallbacks(callbacks);
+        PropertyRegistry registry = mPropertyIndex.get(0);
+        if (registry != null) {
+            for (Observable.OnPropertyChangedCallback callback : registry.copyCallbacks()) {
+                if (!callbacks.contains(callback)) {
+                    callbacks.add(callback);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(Observable.OnPropertyChangedCallback callback) {
+        if (super.contains(callback)) {
+            return true;
+        }
+        PropertyRegistry registry = mPropertyIndex.get(0);
+        return registry != null && registry.contains(callback);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (!super.isEmpty()) {
+            return false;
+        }
+        PropertyRegistry registry = mPropertyIndex.get(0);
+        return registry == null || registry.isEmpty();
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        for (PropertyRegistry registry : mPropertyIndex.registries) {
+            registry.clear();
+        }
+    }
+
+    @Override
+    public synchronized PropertyChangeRegistry clone() {
+        PropertyChangeRegistry clone = (PropertyChangeRegistry) super.clone();
+        if (clone != null) {
+            clone.mPropertyIndex = mPropertyIndex.copy();
+        }
+        return clone;
+    }
+
+    private static class PropertyRegistry
+            extends CallbackRegistry<Observable.OnPropertyChangedCallback, Observable, Void> {
+        public PropertyRegistry(boolean copyOnWrite) {
+            super(NOTIFIER_CALLBACK, copyOnWrite);
+        }
+    }
+
+    /**
+     * An immutable map from property id to the callbacks registered for it, sorted by id.
+     */
+    private static class PropertyIndex {
+        static final PropertyIndex EMPTY = new PropertyIndex(new int[0],
+                new PropertyRegistry[0]);
+
+        final int[] ids;
+
+        final PropertyRegistry[] registries;
+
+        PropertyIndex(int[] ids, PropertyRegistry[] registries) {
+            this.ids = ids;
+            this.registries = registries;
+        }
+
+        PropertyRegistry get(int propertyId) {
+            final int index = Arrays.binarySearch(ids, propertyId);
+            return index < 0 ? null : registries[index];
+        }
+
+        PropertyIndex with(int propertyId, PropertyRegistry registry) {
+            final int index = -(Arrays.binarySearch(ids, propertyId) + 1);
+            final int[] newIds = new int[ids.length + 1];
+            final PropertyRegistry[] newRegistries = new PropertyRegistry[ids.length + 1];
+            System.arraycopy(ids, 0, newIds, 0, index);
+            System.arraycopy(registries, 0, newRegistries, 0, index);
+            newIds[index] = propertyId;
+            newRegistries[index] = registry;
+            System.arraycopy(ids, index, newIds, index + 1, ids.length - index);
+            System.arraycopy(registries, index, newRegistries, index + 1, ids.length - index);
+            return new PropertyIndex(newIds, newRegistries);
+        }
+
+        PropertyIndex copy() {
+            final PropertyRegistry[] newRegistries = new PropertyRegistry[registries.length];
+            for (int i = 0; i < registries.length; i++) {
+                newRegistries[i] = (PropertyRegistry) registries[i].clone();
+            }
+            return new PropertyIndex(ids, newRegistries);
+        }
+    }
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Collects the bindings of a UI thread that requested a rebind and executes all of them from a
+ * single frame callback, instead of posting one callback per binding.
+ * <p>
+ * Containing bindings are executed before the bindings of their included layouts. A containing
+ * binding executes its included bindings as part of its own bindings, so by the time the
+ * scheduler reaches them they usually have nothing left to do.
+ * <p>
+ * If a frame budget is set, the bindings that are left when the budget runs out are executed in
+ * the next frame. At least one binding is executed in every frame.
+ */
+class RebindScheduler {
+    private static final boolean USE_CHOREOGRAPHER = ViewDataBinding.SDK_INT >= 16;
+
+    private static final ThreadLocal<RebindScheduler> sSchedulers =
+            new ThreadLocal<RebindScheduler>() {
+                @Override
+                protected RebindScheduler initialValue() {
+                    return new RebindScheduler();
+                }
+            };
+
+    private static final Comparator<ViewDataBinding> CONTAINING_FIRST =
+            new Comparator<ViewDataBinding>() {
+                @Override
+                public int compare(ViewDataBinding lhs, ViewDataBinding rhs) {
+                    return lhs.getContainingDepth() - rhs.getContainingDepth();
+                }
+            };
+
+    private static volatile long sFrameBudgetNanos = 0;
+
+    // null api < 16
+    private Choreographer mChoreographer;
+
+    private Choreographer.FrameCallback mFrameCallback;
+
+    // null api >= 16
+    private Handler mUIThreadHandler;
+
+    private Runnable mRebindRunnable;
+
+    /**
+     * Bindings waiting for the next frame. Bindings may request a rebind from any thread, so
+     * this and {@link #mScheduled} are guarded by the scheduler.
+     */
+    private ArrayList<ViewDataBinding> mPending = new ArrayList<ViewDataBinding>();
+
+    private boolean mScheduled;
+
+    /**
+     * The bindings being executed in the current frame. Only used on the UI thread.
+     */
+    private ArrayList<ViewDataBinding> mRunning = new ArrayList<ViewDataBinding>();
+
+    private RebindScheduler() {
+        if (USE_CHOREOGRAPHER) {
+            mChoreographer = Choreographer.getInstance();
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    rebind();
+                }
+            };
+        } else {
+            mUIThreadHandler = new Handler(Looper.myLooper());
+            mRebindRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    rebind();
+                }
+            };
+        }
+    }
+
+    /**
+     * @return The scheduler of the calling thread, which must have a Looper.
+     */
+    static RebindScheduler getInstance() {
+        return sSchedulers.get();
+    }
+
+    /**
+     * Sets the time that may be spent executing bindings in one frame. 0 removes the limit.
+     */
+    static void setFrameBudgetNanos(long budgetNanos) {
+        if (budgetNanos < 0) {
+            throw new IllegalArgumentException("frame budget cannot be negative: " + budgetNanos);
+        }
+        sFrameBudgetNanos = budgetNanos;
+    }
+
+    /**
+     * Queues the binding to be executed in the next frame. The binding must not already be
+     * queued. This may be called from any thread.
+     */
+    void schedule(ViewDataBinding binding) {
+        synchronized (this) {
+            mPending.add(binding);
+            if (mScheduled) {
+                return;
+            }
+            mScheduled = true;
+        }
+        post();
+    }
+
+    private void post() {
+        if (USE_CHOREOGRAPHER) {
+            mChoreographer.postFrameCallback(mFrameCallback);
+        } else {
+            mUIThreadHandler.post(mRebindRunnable);
+        }
+    }
+
+    private void rebind() {
+        final ArrayList<ViewDataBinding> running;
+        synchronized (this) {
+            running = mPending;
+            mPending = mRunning;
+            mRunning = running;
+            mScheduled = false;
+        }
+        if (running.size() > 1) {
+            Collections.sort(running, CONTAINING_FIRST);
+        }
+        final long budget = sFrameBudgetNanos;
+        final long start = budget > 0 ? System.nanoTime() : 0;
+        int executed = 0;
+        try {
+            final int size = running.size();
+            while (executed < size) {
+                if (budget > 0 && executed > 0 && System.nanoTime() - start >= budget) {
+                    break;
+                }
+                // counted first so that a binding that throws is not executed again
+                executed++;
+                running.get(executed - 1).executeScheduledRebind();
+            }
+        } finally {
+            if (executed < running.size()) {
+                defer(running.subList(executed, running.size()));
+            }
+            running.clear();
+        }
+    }
+
+    /**
+     * Puts bindings that did not fit in this frame ahead of the ones that requested a rebind
+     * while this frame was executing.
+     */
+    private void defer(List<ViewDataBinding> bindings) {
+        synchronized (this) {
+            mPending.addAll(0, bindings);
+            if (mScheduled) {
+                return;
+            }
+            mScheduled = true;
+        }
+        post();
+    }
+}
@@ -22,7 +22,6 @@ import android.databinding.CallbackRegistry.NotifierCallback;
 import android.graphics.drawable.Drawable;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
-import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
 import android.util.LongSparseArray;
@@ -30,7 +29,6 @@ import android.util.SparseArray;
 import android.util.SparseBooleanArray;
 import android.util.SparseIntArray;
 import android.util.SparseLongArray;
-import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.View.OnAttachStateChangeListener;
@@ -38,7 +36,10 @@ import android.view.ViewGroup;
 
 import com.android.databinding.library.R;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -74,8 +75,6 @@ public abstract class ViewDataBinding extends BaseObservable {
     // ICS (v 14) fixes a leak when using setTag(int, Object)
     private static final boolean USE_TAG_ID = DataBinderMapper.TARGET_MIN_SDK >= 14;
 
-    private static final boolean USE_CHOREOGRAPHER = SDK_INT >= 16;
-
     /**
      * Method object extracted out to attach a listener to a bound Observable object.
      */
@@ -127,6 +126,13 @@ public abstract class ViewDataBinding extends BaseObservable {
         }
     };
 
+    /**
+     * Receives the listeners of bindings that were garbage collected. Their observables still
+     * reference them until they are unregistered by {@link #processReferenceQueue()}.
+     */
+    private static final ReferenceQueue<ViewDataBinding> sReferenceQueue =
+            new ReferenceQueue<ViewDataBinding>();
+
     private static final OnAttachStateChangeListener ROOT_REATTACHED_LISTENER;
 
     static {
@@ -151,7 +157,7 @@ public abstract class ViewDataBinding extends BaseObservable {
     }
 
     /**
-     * Runnable executed on animation heartbeat to rebind the dirty Views.
+     * Runnable executed by the {@link RebindScheduler} to rebind the dirty Views.
      */
     private final Runnable mRebindRunnable = new Runnable() {
         @Override
@@ -203,13 +209,15 @@ public abstract class ViewDataBinding extends BaseObservable {
      */
     private boolean mIsExecutingPendingBindings;
 
-    // null api < 16
-    private Choreographer mChoreographer;
-
-    private final Choreographer.FrameCallback mFrameCallback;
+    /**
+     * Executes the pending bindings of all bindings on the UI thread in one frame callback.
+     */
+    private final RebindScheduler mRebindScheduler;
 
-    // null api >= 16
-    private Handler mUIThreadHandler;
+    /**
+     * The binding whose layout includes this binding's layout, if any.
+     */
+    private ViewDataBinding mContainingBinding;
 
     /**
      * The DataBindingComponent used by this data binding. This is used for BindingAdapters
@@ -230,18 +238,7 @@ public abstract class ViewDataBinding extends BaseObservable {
         if (Looper.myLooper() == null) {
             throw new IllegalStateException("DataBinding must be created in view's UI Thread");
         }
-        if (USE_CHOREOGRAPHER) {
-            mChoreographer = Choreographer.getInstance();
-            mFrameCallback = new Choreographer.FrameCallback() {
-                @Override
-                public void doFrame(long frameTimeNanos) {
-                    mRebindRunnable.run();
-                }
-            };
-        } else {
-            mFrameCallback = null;
-            mUIThreadHandler = new Handler(Looper.myLooper());
-        }
+        mRebindScheduler = RebindScheduler.getInstance();
     }
 
     /**
@@ -392,9 +389,19 @@ public abstract class ViewDataBinding extends BaseObservable {
         }
     }
 
-    @Override
-    protected void finalize() throws Throwable {
-        unbind();
+    /**
+     * Unregisters the listeners of collected bindings from their observables. This is done
+     * whenever a binding registers a listener or requests a rebind, so that the observables
+     * do not keep the dead listeners until they notify.
+     */
+    private static void processReferenceQueue() {
+        Reference<? extends ViewDataBinding> ref;
+        while ((ref = sReferenceQueue.poll()) != null) {
+            if (ref instanceof WeakListener) {
+                WeakListener listener = (WeakListener) ref;
+                listener.unregister();
+            }
+        }
     }
 
     static ViewDataBinding getBinding(View v) {
@@ -421,6 +428,17 @@ public abstract class ViewDataBinding extends BaseObservable {
         return mRoot;
     }
 
+    /**
+     * Returns the BR ids of the properties that {@link #onFieldChange(int, Object, int)} reacts
+     * to for the given local field, or null if it must be notified of every property change.
+     * Changes to the entire Observable are always notified.
+     *
+     * @hide
+     */
+    protected int[] getObservedPropertyIds(int localFieldId) {
+        return null;
+    }
+
     private void handleFieldChange(int mLocalFieldId, Object object, int fieldId) {
         boolean result = onFieldChange(mLocalFieldId, object, fieldId);
         if (result) {
@@ -443,18 +461,59 @@ public abstract class ViewDataBinding extends BaseObservable {
      * @hide
      */
     protected void requestRebind() {
+        processReferenceQueue();
         synchronized (this) {
             if (mPendingRebind) {
                 return;
             }
             mPendingRebind = true;
         }
-        if (USE_CHOREOGRAPHER) {
-            mChoreographer.postFrameCallback(mFrameCallback);
-        } else {
-            mUIThreadHandler.post(mRebindRunnable);
+        mRebindScheduler.schedule(this);
+    }
+
+    /**
+     * Called by the {@link RebindScheduler} in the frame after {@link #requestRebind()}.
+     */
+    void executeScheduledRebind() {
+        mRebindRunnable.run();
+    }
+
+    /**
+     * Sets the binding that includes this binding's layout. The containing binding executes
+     * this binding's pending bindings, so it is rebound first when both are dirty.
+     *
+     * @hide
+     */
+    void setContainingBinding(ViewDataBinding containingBinding) {
+        mContainingBinding = containingBinding;
+    }
+
+    /**
+     * Sets the binding that includes an included binding's layout. Generated bindings call this
+     * rather than the instance method, which they cannot reach on another binding class.
+     *
+     * @param binding The included binding, which may be null when the include is not in every
+     *                configuration of the layout.
+     * @param containingBinding The binding that includes it.
+     * @hide
+     */
+    protected static void setContainingBinding(ViewDataBinding binding,
+            ViewDataBinding containingBinding) {
+        if (binding != null) {
+            binding.setContainingBinding(containingBinding);
         }
+    }
 
+    /**
+     * @return The number of containing bindings above this one.
+     */
+    int getContainingDepth() {
+        int depth = 0;
+        for (ViewDataBinding binding = mContainingBinding; binding != null;
+                binding = binding.mContainingBinding) {
+            depth++;
+        }
+        return depth;
     }
 
     /**
@@ -470,6 +529,7 @@ public abstract class ViewDataBinding extends BaseObservable {
 
     private boolean updateRegistration(int localFieldId, Object observable,
             CreateWeakListener listenerCreator) {
+        processReferenceQueue();
         if (observable == null) {
             return unregisterFrom(localFieldId);
         }
@@ -569,6 +629,36 @@ public abstract class ViewDataBinding extends BaseObservable {
         return bindings;
     }
 
+    /**
+     * Finds the bound views by following their child indexes from root, as generated from the
+     * layout file, so that views without bindings are never visited. If a view is not where the
+     * layout file put it, for example because a custom ViewGroup added children, the whole view
+     * hierarchy is walked instead, as in
+     * {@link #mapBindings(DataBindingComponent, View, int, IncludedLayouts, SparseIntArray)}.
+     *
+     * @param bindingComponent The binding component to use with this binding.
+     * @param root The root of the view hierarchy to walk.
+     * @param numBindings The total number of ID'd views, views with expressions, and includes
+     * @param includes The include layout information, indexed by their container's index.
+     * @param viewsWithIds Indexes of views that don't have tags, but have IDs.
+     * @param viewPaths The child indexes leading from root to the View of each binding index or
+     *                  null for indexes without a View.
+     * @return An array of size numBindings containing all Views in the hierarchy that have IDs
+     * (with elements in viewsWithIds), are tagged containing expressions, or the bindings for
+     * included layouts.
+     * @hide
+     */
+    protected static Object[] mapBindings(DataBindingComponent bindingComponent, View root,
+            int numBindings, IncludedLayouts includes, SparseIntArray viewsWithIds,
+            int[][] viewPaths) {
+        Object[] bindings = new Object[numBindings];
+        if (!mapBindingsByPath(root, bindings, viewsWithIds, viewPaths)) {
+            Arrays.fill(bindings, null);
+            mapBindings(bindingComponent, root, bindings, includes, viewsWithIds, true);
+        }
+        return bindings;
+    }
+
     /** @hide */
     protected static boolean parse(String str, boolean fallback) {
         if (str == null) {
@@ -579,42 +669,29 @@ public abstract class ViewDataBinding extends BaseObservable {
 
     /** @hide */
     protected static byte parse(String str, byte fallback) {
-        try {
-            return Byte.parseByte(str);
-        } catch (NumberFormatException e) {
-            return fallback;
-        }
+        return (byte) parseInteger(str, Byte.MIN_VALUE, Byte.MAX_VALUE, fallback);
     }
 
     /** @hide */
     protected static short parse(String str, short fallback) {
-        try {
-            return Short.parseShort(str);
-        } catch (NumberFormatException e) {
-            return fallback;
-        }
+        return (short) parseInteger(str, Short.MIN_VALUE, Short.MAX_VALUE, fallback);
     }
 
     /** @hide */
     protected static int parse(String str, int fallback) {
-        try {
-            return Integer.parseInt(str);
-        } catch (NumberFormatException e) {
-            return fallback;
-        }
+        return (int) parseInteger(str, Integer.MIN_VALUE, Integer.MAX_VALUE, fallback);
     }
 
     /** @hide */
     protected static long parse(String str, long fallback) {
-        try {
-            return Long.parseLong(str);
-        } catch (NumberFormatException e) {
-            return fallback;
-        }
+        return parseInteger(str, Long.MIN_VALUE, Long.MAX_VALUE, fallback);
     }
 
     /** @hide */
     protected static float parse(String str, float fallback) {
+        if (!isFloatingPoint(str)) {
+            return fallback;
+        }
         try {
             return Float.parseFloat(str);
         } catch (NumberFormatException e) {
@@ -624,6 +701,9 @@ public abstract class ViewDataBinding extends BaseObservable {
 
     /** @hide */
     protected static double parse(String str, double fallback) {
+        if (!isFloatingPoint(str)) {
+            return fallback;
+        }
         try {
             return Double.parseDouble(str);
         } catch (NumberFormatException e) {
@@ -639,6 +719,116 @@ public abstract class ViewDataBinding extends BaseObservable {
         return str.charAt(0);
     }
 
+    /**
+     * Parses a decimal integer like Long.parseLong does, but returns fallback instead of throwing
+     * when str is not a number in [min, max]. Two-way bound text is often not a number while it
+     * is being typed, so this must be cheap.
+     */
+    private static long parseInteger(String str, long min, long max, long fallback) {
+        if (str == null) {
+            return fallback;
+        }
+        final int length = str.length();
+        if (length == 0) {
+            return fallback;
+        }
+        int i = 0;
+        boolean negative = false;
+        final char first = str.charAt(0);
+        if (first == '-' || first == '+') {
+            if (length == 1) {
+                return fallback;
+            }
+            negative = first == '-';
+            i = 1;
+        }
+        // accumulated negatively so that min does not overflow
+        final long limit = negative ? min : -max;
+        final long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < length; i++) {
+            final int digit = Character.digit(str.charAt(i), 10);
+            if (digit < 0 || result < multiplyLimit) {
+                return fallback;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return fallback;
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Returns false if Double.parseDouble would reject str, so that the common invalid values
+     * don't throw. Hexadecimal values are accepted and left for Double.parseDouble to check.
+     */
+    private static boolean isFloatingPoint(String str) {
+        if (str == null) {
+            return false;
+        }
+        int start = 0;
+        int end = str.length();
+        // Double.parseDouble ignores leading and trailing whitespace
+        while (start < end && str.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && str.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int i = start;
+        if (i < end && (str.charAt(i) == '-' || str.charAt(i) == '+')) {
+            i++;
+        }
+        if (str.startsWith("NaN", i)) {
+            return i + 3 == end;
+        }
+        if (str.startsWith("Infinity", i)) {
+            return i + 8 == end;
+        }
+        if (i + 1 < end && str.charAt(i) == '0' &&
+                (str.charAt(i + 1) == 'x' || str.charAt(i + 1) == 'X')) {
+            return true;
+        }
+        final int integerStart = i;
+        i = skipDigits(str, i, end);
+        boolean hasDigits = i > integerStart;
+        if (i < end && str.charAt(i) == '.') {
+            final int fractionStart = ++i;
+            i = skipDigits(str, i, end);
+            hasDigits |= i > fractionStart;
+        }
+        if (!hasDigits) {
+            return false;
+        }
+        if (i < end && (str.charAt(i) == 'e' || str.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (str.charAt(i) == '-' || str.charAt(i) == '+')) {
+                i++;
+            }
+            final int exponentStart = i;
+            i = skipDigits(str, i, end);
+            if (i == exponentStart) {
+                return false;
+            }
+        }
+        if (i < end) {
+            final char suffix = str.charAt(i);
+            if (suffix == 'f' || suffix == 'F' || suffix == 'd' || suffix == 'D') {
+                i++;
+            }
+        }
+        return i == end;
+    }
+
+    private static int skipDigits(String str, int index, int end) {
+        while (index < end && str.charAt(index) >= '0' && str.charAt(index) <= '9') {
+            index++;
+        }
+        return index;
+    }
+
     /** @hide */
     protected static int getColorFromResource(View view, int resourceId) {
         if (VERSION.SDK_INT >= VERSION_CODES.M) {
@@ -927,6 +1117,86 @@ public abstract class ViewDataBinding extends BaseObservable {
         list.put(index, value);
     }
 
+    /** @hide */
+    protected static int getFromList(ObservableIntArrayList list, int index) {
+        if (list == null || index < 0 || index >= list.size()) {
+            return 0;
+        }
+        return list.getInt(index);
+    }
+
+    /** @hide */
+    protected static void setTo(ObservableIntArrayList list, int index, int value) {
+        if (list == null || index < 0 || index >= list.size()) {
+            return;
+        }
+        list.setInt(index, value);
+    }
+
+    /** @hide */
+    protected static long getFromList(ObservableLongArrayList list, int index) {
+        if (list == null || index < 0 || index >= list.size()) {
+            return 0;
+        }
+        return list.getLong(index);
+    }
+
+    /** @hide */
+    protected static void setTo(ObservableLongArrayList list, int index, long value) {
+        if (list == null || index < 0 || index >= list.size()) {
+            return;
+        }
+        list.setLong(index, value);
+    }
+
+    /** @hide */
+    protected static float getFromList(ObservableFloatArrayList list, int index) {
+        if (list == null || index < 0 || index >= list.size()) {
+            return 0;
+        }
+        return list.getFloat(index);
+    }
+
+    /** @hide */
+    protected static void setTo(ObservableFloatArrayList list, int index, float value) {
+        if (list == null || index < 0 || index >= list.size()) {
+            return;
+        }
+        list.setFloat(index, value);
+    }
+
+    /** @hide */
+    protected static double getFromList(ObservableDoubleArrayList list, int index) {
+        if (list == null || index < 0 || index >= list.size()) {
+            return 0;
+        }
+        return list.getDouble(index);
+    }
+
+    /** @hide */
+    protected static void setTo(ObservableDoubleArrayList list, int index, double value) {
+        if (list == null || index < 0 || index >= list.size()) {
+            return;
+        }
+        list.setDouble(index, value);
+    }
+
+    /** @hide */
+    protected static void setTo(ObservableSparseIntArray map, int key, int value) {
+        if (map == null) {
+            return;
+        }
+        map.put(key, value);
+    }
+
+    /** @hide */
+    protected static void setTo(ObservableSparseLongArray map, int key, long value) {
+        if (map == null) {
+            return;
+        }
+        map.put(key, value);
+    }
+
     /** @hide */
     protected static <K, T> T getFrom(Map<K, T> map, K key) {
         if (map == null) {
@@ -1069,6 +1339,54 @@ public abstract class ViewDataBinding extends BaseObservable {
         }
     }
 
+    private static boolean mapBindingsByPath(View root, Object[] bindings,
+            SparseIntArray viewsWithIds, int[][] viewPaths) {
+        if (viewPaths == null || getBinding(root) != null) {
+            return false;
+        }
+        final int count = Math.min(bindings.length, viewPaths.length);
+        for (int index = 0; index < count; index++) {
+            final int[] path = viewPaths[index];
+            if (path == null) {
+                continue;
+            }
+            View view = root;
+            for (int childIndex : path) {
+                if (!(view instanceof ViewGroup)) {
+                    return false;
+                }
+                final ViewGroup viewGroup = (ViewGroup) view;
+                if (childIndex >= viewGroup.getChildCount()) {
+                    return false;
+                }
+                view = viewGroup.getChildAt(childIndex);
+            }
+            if (!isViewForIndex(view, index, view == root, viewsWithIds)) {
+                return false;
+            }
+            bindings[index] = view;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the tree walk in mapBindings would put view at the given index.
+     */
+    private static boolean isViewForIndex(View view, int index, boolean isRoot,
+            SparseIntArray viewsWithIds) {
+        final Object objTag = view.getTag();
+        final String tag = (objTag instanceof String) ? (String) objTag : null;
+        if (isRoot && tag != null && tag.startsWith("layout")) {
+            final int underscoreIndex = tag.lastIndexOf('_');
+            return underscoreIndex > 0 && isNumeric(tag, underscoreIndex + 1) &&
+                    parseTagInt(tag, underscoreIndex + 1) == index;
+        } else if (tag != null && tag.startsWith(BINDING_TAG_PREFIX)) {
+            return parseTagInt(tag, BINDING_NUMBER_START) == index;
+        }
+        final int id = view.getId();
+        return id > 0 && viewsWithIds != null && viewsWithIds.get(id, -1) == index;
+    }
+
     private static int findIncludeIndex(String tag, int minInclude,
             IncludedLayouts included, int includedIndex) {
         final int slashIndex = tag.indexOf('/');
@@ -1152,7 +1470,7 @@ public abstract class ViewDataBinding extends BaseObservable {
 
         public WeakListener(ViewDataBinding binder, int localFieldId,
                 ObservableReference<T> observable) {
-            super(binder);
+            super(binder, sReferenceQueue);
             mLocalFieldId = localFieldId;
             mObservable = observable;
         }
@@ -1203,7 +1521,15 @@ public abstract class ViewDataBinding extends BaseObservable {
 
         @Override
         public void addListener(Observable target) {
-            target.addOnPropertyChangedCallback(this);
+            ViewDataBinding binder = mListener.get();
+            int[] propertyIds = binder == null ? null
+                    : binder.getObservedPropertyIds(mListener.mLocalFieldId);
+            if (propertyIds != null && target instanceof BaseObservable
+                    && ((BaseObservable) target).acceptsPropertyIds()) {
+                ((BaseObservable) target).addOnPropertyChangedCallback(this, propertyIds);
+            } else {
+                target.addOnPropertyChangedCallback(this);
+            }
         }
 
         @Override
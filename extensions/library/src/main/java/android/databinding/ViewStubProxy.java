@@ -38,6 +38,9 @@ public class ViewStubProxy {
             mRoot = inflated;
             mViewDataBinding = DataBindingUtil.bind(mContainingBinding.mBindingComponent,
                     inflated, stub.getLayoutResource());
+            if (mViewDataBinding != null) {
+                mViewDataBinding.setContainingBinding(mContainingBinding);
+            }
             mViewStub = null;
 
             if (mOnInflateListener != null) {
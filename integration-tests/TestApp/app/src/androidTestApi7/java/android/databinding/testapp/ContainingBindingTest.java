@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.testapp;
+
+import android.databinding.testapp.databinding.ContainingBindingBinding;
+import android.databinding.testapp.databinding.IncludedLayoutBinding;
+import android.databinding.testapp.vo.NotBindableVo;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ContainingBindingTest extends BaseDataBinderTest<ContainingBindingBinding> {
+
+    public ContainingBindingTest() {
+        super(ContainingBindingBinding.class);
+    }
+
+    public void testContainingBindingRebindsIncludedBinding() throws Throwable {
+        initBinder();
+        final IncludedLayoutBinding included = mBinder.includedLayout;
+        assertNotNull(included);
+        // both bindings are dirty in the same frame; the containing binding runs first and
+        // executes the included binding with the values it just set
+        included.setInnerValue("stale");
+        mBinder.setObj(new NotBindableVo(1, "x"));
+        mBinder.setName("a");
+        waitForFrame();
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                assertFalse(mBinder.hasPendingBindings());
+                assertFalse(included.hasPendingBindings());
+                assertEquals("a", mBinder.outerTextView.getText().toString());
+                assertEquals("ax", included.innerTextView.getText().toString());
+            }
+        });
+
+        mBinder.setName("b");
+        waitForFrame();
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals("b", mBinder.outerTextView.getText().toString());
+                assertEquals("bx", included.innerTextView.getText().toString());
+            }
+        });
+    }
+
+    private void waitForFrame() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        mBinder.getRoot().postOnAnimation(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+}
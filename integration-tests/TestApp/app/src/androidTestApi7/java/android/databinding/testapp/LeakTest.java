@@ -13,7 +13,9 @@
 
 package android.databinding.testapp;
 
+import android.databinding.ObservableField;
 import android.databinding.testapp.databinding.LeakTestBinding;
+import android.os.SystemClock;
 import android.test.ActivityInstrumentationTestCase2;
 import android.util.Log;
 import android.widget.FrameLayout;
@@ -72,6 +74,62 @@ public class LeakTest extends ActivityInstrumentationTestCase2<TestActivity> {
         assertNull(mWeakReference.get());
     }
 
+    // Bindings that are collected without calling unbind() must not leave their listeners
+    // registered on the objects they observed.
+    public void testCollectedBindingsUnregister() throws Throwable {
+        final int count = 200;
+        final CountingObservableField field = new CountingObservableField();
+        final ArrayList<WeakReference<LeakTestBinding>> bindings =
+                new ArrayList<WeakReference<LeakTestBinding>>();
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    LeakTestBinding binding = LeakTestBinding.inflate(
+                            getActivity().getLayoutInflater());
+                    binding.setObservableName(field);
+                    binding.executePendingBindings();
+                    bindings.add(new WeakReference<LeakTestBinding>(binding));
+                }
+            }
+        });
+        assertEquals(count, field.getCallbackCount());
+
+        ArrayList<WeakReference<byte[]>> leak = new ArrayList<>();
+        while (!isCollected(bindings)) {
+            leak.add(new WeakReference<byte[]>(new byte[100]));
+            System.gc();
+        }
+
+        // The listeners of collected bindings are released the next time a binding registers.
+        // They are queued by the VM after the collection, so this may take a few tries.
+        final LeakTestBinding binding = mWeakReference.get();
+        final long timeout = SystemClock.uptimeMillis() + 5000;
+        do {
+            runTestOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    binding.setObservableName(field);
+                    binding.executePendingBindings();
+                }
+            });
+            if (field.getCallbackCount() == 1) {
+                break;
+            }
+            Thread.sleep(10);
+        } while (SystemClock.uptimeMillis() < timeout);
+        assertEquals(1, field.getCallbackCount());
+    }
+
+    private static boolean isCollected(ArrayList<WeakReference<LeakTestBinding>> bindings) {
+        for (WeakReference<LeakTestBinding> binding : bindings) {
+            if (binding.get() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     // Test to ensure that when the View is detached that it doesn't rebind
     // the dirty Views. The rebind should happen only after the root view is
     // reattached.
@@ -130,4 +188,32 @@ public class LeakTest extends ActivityInstrumentationTestCase2<TestActivity> {
             }
         }
     }
+
+    private static class CountingObservableField extends ObservableField<String> {
+        private int mCallbackCount;
+
+        public synchronized int getCallbackCount() {
+            return mCallbackCount;
+        }
+
+        @Override
+        public synchronized void addOnPropertyChangedCallback(OnPropertyChangedCallback callback) {
+            super.addOnPropertyChangedCallback(callback);
+            mCallbackCount++;
+        }
+
+        @Override
+        public synchronized void addOnPropertyChangedCallback(OnPropertyChangedCallback callback,
+                int[] propertyIds) {
+            super.addOnPropertyChangedCallback(callback, propertyIds);
+            mCallbackCount++;
+        }
+
+        @Override
+        public synchronized void removeOnPropertyChangedCallback(
+                OnPropertyChangedCallback callback) {
+            super.removeOnPropertyChangedCallback(callback);
+            mCallbackCount--;
+        }
+    }
 }
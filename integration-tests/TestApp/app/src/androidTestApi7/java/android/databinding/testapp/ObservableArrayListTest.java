@@ -272,4 +272,88 @@ public class ObservableArrayListTest extends BaseDataBinderTest<BasicBindingBind
         assertEquals(0, change.start);
         assertEquals(1, change.count);
     }
+
+    public void testBatchAdd() {
+        ObservableArrayList<String> list = new ObservableArrayList<>();
+        list.add("First");
+        list.addOnListChangedCallback(mListener);
+        list.beginBatch();
+        for (int i = 0; i < 1000; i++) {
+            list.add("Hello");
+        }
+        assertTrue(mNotifications.isEmpty());
+        list.endBatch();
+        assertEquals(1001, list.size());
+        assertEquals(1, mNotifications.size());
+        ListChange change = mNotifications.get(0);
+        assertEquals(INSERT, change.change);
+        assertEquals(1, change.start);
+        assertEquals(1000, change.count);
+    }
+
+    public void testBatchRemove() {
+        ObservableArrayList<String> list = new ObservableArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            list.add("Hello");
+        }
+        list.addOnListChangedCallback(mListener);
+        list.beginBatch();
+        list.remove(5);
+        list.remove(5);
+        list.remove(4);
+        list.remove(3);
+        list.endBatch();
+        assertEquals(6, list.size());
+        assertEquals(1, mNotifications.size());
+        ListChange change = mNotifications.get(0);
+        assertEquals(REMOVE, change.change);
+        assertEquals(3, change.start);
+        assertEquals(4, change.count);
+    }
+
+    public void testBatchMixed() {
+        ObservableArrayList<String> list = new ObservableArrayList<>();
+        list.add("Hello");
+        list.add("World");
+        list.addOnListChangedCallback(mListener);
+        list.beginBatch();
+        list.set(0, "Goodbye");
+        list.set(1, "All");
+        list.add("A");
+        list.add("B");
+        list.set(3, "C");
+        list.remove(2);
+        list.endBatch();
+        assertEquals(3, list.size());
+        assertEquals(2, mNotifications.size());
+        ListChange change = mNotifications.get(0);
+        assertEquals(CHANGE, change.change);
+        assertEquals(0, change.start);
+        assertEquals(2, change.count);
+        change = mNotifications.get(1);
+        assertEquals(INSERT, change.change);
+        assertEquals(2, change.start);
+        assertEquals(1, change.count);
+    }
+
+    public void testNestedBatch() {
+        ObservableArrayList<String> list = new ObservableArrayList<>();
+        list.addOnListChangedCallback(mListener);
+        list.beginBatch();
+        list.add("Hello");
+        list.beginBatch();
+        list.add("World");
+        list.endBatch();
+        assertTrue(mNotifications.isEmpty());
+        list.add("!");
+        list.endBatch();
+        assertEquals(1, mNotifications.size());
+        assertEquals(3, mNotifications.get(0).count);
+
+        try {
+            list.endBatch();
+            fail("expected an IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+    }
 }
@@ -106,6 +106,48 @@ public class ObservableArrayMapTest extends BaseDataBinderTest<BasicBindingBindi
         assertEquals("Hello", mObservable.get("World"));
     }
 
+    public void testPutSameValue() {
+        mObservable.put("Hello", "World");
+        mObservable.addOnMapChangedCallback(mListener);
+        assertEquals("World", mObservable.put("Hello", new String("World")));
+        assertTrue(mNotifications.isEmpty());
+
+        assertEquals("World", mObservable.put("Hello", "Goodbye"));
+        assertEquals(1, mNotifications.size());
+        assertEquals("Hello", mNotifications.get(0));
+    }
+
+    public void testPutAllSingleChange() {
+        Map<String, String> toAdd = new ArrayMap<>();
+        toAdd.put("Hello", "World");
+        toAdd.put("Goodbye", "Cruel World");
+        mObservable.put("Hello", "World");
+        mObservable.addOnMapChangedCallback(mListener);
+        mObservable.putAll(toAdd);
+        // only one mapping changed, so it is notified with its key
+        assertEquals(1, mNotifications.size());
+        assertEquals("Goodbye", mNotifications.get(0));
+
+        mObservable.putAll(toAdd);
+        assertEquals(1, mNotifications.size());
+    }
+
+    public void testReplaceAll() {
+        Map<String, String> replacement = new ArrayMap<>();
+        replacement.put("Hello", "World");
+        replacement.put("Goodbye", "Cruel World");
+        mObservable.put("Hello", "World");
+        mObservable.put("Cruel", "World");
+        mObservable.addOnMapChangedCallback(mListener);
+        mObservable.replaceAll(replacement);
+        assertEquals(replacement, mObservable);
+        assertEquals(1, mNotifications.size());
+        assertNull(mNotifications.get(0));
+
+        mObservable.replaceAll(replacement);
+        assertEquals(1, mNotifications.size());
+    }
+
     public void testPutAll() {
         Map<String, String> toAdd = new ArrayMap<>();
         toAdd.put("Hello", "World");
@@ -116,10 +158,9 @@ public class ObservableArrayMapTest extends BaseDataBinderTest<BasicBindingBindi
         assertEquals(3, mObservable.size());
         assertEquals("World", mObservable.get("Hello"));
         assertEquals("Cruel World", mObservable.get("Goodbye"));
-        assertEquals(2, mNotifications.size());
-        // order is not guaranteed
-        assertTrue(mNotifications.contains("Hello"));
-        assertTrue(mNotifications.contains("Goodbye"));
+        // all changes are notified at once
+        assertEquals(1, mNotifications.size());
+        assertNull(mNotifications.get(0));
     }
 
     public void testPutAllSimpleArrayMap() {
@@ -132,10 +173,9 @@ public class ObservableArrayMapTest extends BaseDataBinderTest<BasicBindingBindi
         assertEquals(3, mObservable.size());
         assertEquals("World", mObservable.get("Hello"));
         assertEquals("Cruel World", mObservable.get("Goodbye"));
-        assertEquals(2, mNotifications.size());
-        // order is not guaranteed
-        assertTrue(mNotifications.contains("Hello"));
-        assertTrue(mNotifications.contains("Goodbye"));
+        // all changes are notified at once
+        assertEquals(1, mNotifications.size());
+        assertNull(mNotifications.get(0));
     }
 
     public void testRemove() {
@@ -160,16 +200,15 @@ public class ObservableArrayMapTest extends BaseDataBinderTest<BasicBindingBindi
         mObservable.put("Cruel", "World");
         mObservable.addOnMapChangedCallback(mListener);
         assertTrue(mObservable.removeAll(toRemove));
-        assertEquals(2, mNotifications.size());
-        // order is not guaranteed
-        assertTrue(mNotifications.contains("Hello"));
-        assertTrue(mNotifications.contains("Goodbye"));
+        // all removals are notified at once
+        assertEquals(1, mNotifications.size());
+        assertNull(mNotifications.get(0));
 
         assertTrue(mObservable.containsKey("Cruel"));
 
         // Test nothing removed
         assertFalse(mObservable.removeAll(toRemove));
-        assertEquals(2, mNotifications.size());
+        assertEquals(1, mNotifications.size());
     }
 
     public void testRetainAll() {
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.testapp;
+
+import android.databinding.ObservableIntArrayList;
+import android.databinding.ObservableList;
+import android.databinding.ObservableList.OnListChangedCallback;
+import android.databinding.ObservableMap;
+import android.databinding.ObservableMap.OnMapChangedCallback;
+import android.databinding.ObservableSparseLongArray;
+import android.databinding.testapp.databinding.BasicBindingBinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class ObservablePrimitiveCollectionsTest extends BaseDataBinderTest<BasicBindingBinding> {
+
+    private ArrayList<String> mNotifications = new ArrayList<>();
+
+    private OnListChangedCallback mListListener = new OnListChangedCallback() {
+        @Override
+        public void onChanged(ObservableList sender) {
+            mNotifications.add("changed");
+        }
+
+        @Override
+        public void onItemRangeChanged(ObservableList sender, int start, int count) {
+            mNotifications.add("changed " + start + " " + count);
+        }
+
+        @Override
+        public void onItemRangeInserted(ObservableList sender, int start, int count) {
+            mNotifications.add("inserted " + start + " " + count);
+        }
+
+        @Override
+        public void onItemRangeMoved(ObservableList sender, int from, int to, int count) {
+            mNotifications.add("moved " + from + " " + to + " " + count);
+        }
+
+        @Override
+        public void onItemRangeRemoved(ObservableList sender, int start, int count) {
+            mNotifications.add("removed " + start + " " + count);
+        }
+    };
+
+    private OnMapChangedCallback mMapListener = new OnMapChangedCallback() {
+        @Override
+        public void onMapChanged(ObservableMap sender, Object key) {
+            mNotifications.add("map " + key);
+        }
+    };
+
+    public ObservablePrimitiveCollectionsTest() {
+        super(BasicBindingBinding.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        mNotifications.clear();
+    }
+
+    public void testIntList() {
+        ObservableIntArrayList list = new ObservableIntArrayList();
+        list.addOnListChangedCallback(mListListener);
+        list.addInt(1);
+        list.addAll(new int[]{2, 3, 4});
+        list.addInt(0, 0);
+        assertEquals(3, list.setInt(3, 30));
+        assertEquals(2, list.removeIntAt(2));
+        list.subList(0, 2).clear();
+        assertTrue(Arrays.equals(new int[]{30, 4}, list.toIntArray()));
+        assertEquals(Arrays.asList(30, 4), list);
+        assertEquals(Arrays.asList("inserted 0 1", "inserted 1 3", "inserted 0 1",
+                "changed 3 1", "removed 2 1", "removed 0 2"), mNotifications);
+
+        mNotifications.clear();
+        list.removeOnListChangedCallback(mListListener);
+        list.clear();
+        assertTrue(mNotifications.isEmpty());
+        assertTrue(list.isEmpty());
+    }
+
+    public void testIntListBatch() {
+        ObservableIntArrayList list = new ObservableIntArrayList();
+        list.addOnListChangedCallback(mListListener);
+        list.beginBatch();
+        for (int i = 0; i < 100; i++) {
+            list.addInt(i);
+        }
+        list.endBatch();
+        assertEquals(100, list.size());
+        assertEquals(Arrays.asList("inserted 0 100"), mNotifications);
+    }
+
+    public void testSparseLongArray() {
+        ObservableSparseLongArray map = new ObservableSparseLongArray();
+        map.addOnMapChangedCallback(mMapListener);
+        map.put(5, 50L);
+        map.put(1, 10L);
+        map.put(5, 55L);
+        assertEquals(55L, map.get(5));
+        assertEquals(0L, map.get(2));
+        assertEquals(-1L, map.get(2, -1L));
+        assertNull(map.get((Object) 2));
+        assertEquals(2, map.size());
+        assertEquals(1, map.keyAt(0));
+        assertEquals(55L, map.valueAt(1));
+        map.delete(1);
+        assertEquals(Long.valueOf(55L), map.remove((Object) 5));
+        assertTrue(map.isEmpty());
+        map.clear();
+        assertEquals(Arrays.asList("map 5", "map 1", "map 5", "map 1", "map 5"), mNotifications);
+    }
+}
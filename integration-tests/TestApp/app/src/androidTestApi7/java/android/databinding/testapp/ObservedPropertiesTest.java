@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.testapp.databinding.InnerCannotReadDependencyBinding;
+import android.databinding.testapp.vo.BasicObject;
+import android.test.UiThreadTest;
+
+public class ObservedPropertiesTest extends BaseDataBinderTest<InnerCannotReadDependencyBinding> {
+
+    public ObservedPropertiesTest() {
+        super(InnerCannotReadDependencyBinding.class);
+    }
+
+    @UiThreadTest
+    public void testUnobservedPropertyDoesNotRebind() {
+        initBinder();
+        BasicObject object = new BasicObject() {
+            @Override
+            protected boolean acceptsPropertyIds() {
+                return true;
+            }
+        };
+        mBinder.setObj(object);
+        mBinder.executePendingBindings();
+        object.notifyPropertyChanged(BR.thisNameDoesNotMatchAnythingElse1);
+        assertFalse(mBinder.hasPendingBindings());
+        object.setField1("a");
+        assertTrue(mBinder.hasPendingBindings());
+        mBinder.executePendingBindings();
+        assertEquals("a ", mBinder.textView.getText().toString());
+        object.notifyChange();
+        assertTrue(mBinder.hasPendingBindings());
+    }
+
+    @UiThreadTest
+    public void testOverriddenAddCallbackIsCalled() {
+        initBinder();
+        final int[] added = new int[1];
+        BasicObject object = new BasicObject() {
+            @Override
+            public synchronized void addOnPropertyChangedCallback(
+                    OnPropertyChangedCallback callback) {
+                added[0]++;
+                super.addOnPropertyChangedCallback(callback);
+            }
+        };
+        mBinder.setObj(object);
+        mBinder.executePendingBindings();
+        assertEquals(1, added[0]);
+        object.setField1("a");
+        mBinder.executePendingBindings();
+        assertEquals("a ", mBinder.textView.getText().toString());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.ObservableIntArrayList;
+import android.databinding.ObservableSparseLongArray;
+import android.databinding.testapp.databinding.PrimitiveCollectionsBinding;
+import android.test.UiThreadTest;
+
+public class PrimitiveCollectionBindingTest
+        extends BaseDataBinderTest<PrimitiveCollectionsBinding> {
+    private ObservableIntArrayList mInts;
+    private ObservableSparseLongArray mLongs;
+
+    public PrimitiveCollectionBindingTest() {
+        super(PrimitiveCollectionsBinding.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        initBinder(new Runnable() {
+            @Override
+            public void run() {
+                mInts = new ObservableIntArrayList();
+                mInts.addAll(new int[] {10, 20, 30});
+                mLongs = new ObservableSparseLongArray();
+                mLongs.put(1, 40);
+                mLongs.put(5, 50);
+                mBinder.setInts(mInts);
+                mBinder.setLongs(mLongs);
+                mBinder.setIndex(1);
+                mBinder.setKey(5);
+                mBinder.executePendingBindings();
+            }
+        });
+    }
+
+    @UiThreadTest
+    public void testReadPrimitives() {
+        assertEquals("20", mBinder.intText.getText().toString());
+        assertEquals("50", mBinder.longText.getText().toString());
+        assertEquals("40", mBinder.longIndexText.getText().toString());
+
+        mInts.setInt(1, 21);
+        mLongs.put(5, 51);
+        mBinder.executePendingBindings();
+        assertEquals("21", mBinder.intText.getText().toString());
+        assertEquals("51", mBinder.longText.getText().toString());
+    }
+
+    @UiThreadTest
+    public void testMissingElementsAreZero() {
+        // a boxed element would be bound as "null"
+        mBinder.setIndex(7);
+        mBinder.setKey(6);
+        mBinder.executePendingBindings();
+        assertEquals("0", mBinder.intText.getText().toString());
+        assertEquals("0", mBinder.longText.getText().toString());
+        assertEquals("0", mBinder.longIndexText.getText().toString());
+    }
+
+    @UiThreadTest
+    public void testWritePrimitives() {
+        assertEquals(20, mBinder.intSeekBar.getProgress());
+        assertEquals(50, mBinder.longSeekBar.getProgress());
+
+        mBinder.intSeekBar.setProgress(25);
+        mBinder.longSeekBar.setProgress(55);
+        assertEquals(25, mInts.getInt(1));
+        assertEquals(55L, mLongs.get(5));
+        mBinder.executePendingBindings();
+        assertEquals("25", mBinder.intText.getText().toString());
+        assertEquals("55", mBinder.longText.getText().toString());
+        assertEquals("[10, 25, 30]", mInts.toString());
+        assertEquals(2, mLongs.size());
+    }
+}
@@ -21,6 +21,9 @@ import android.databinding.testapp.databinding.BasicBindingBinding;
 import android.databinding.Observable;
 import android.databinding.Observable.OnPropertyChangedCallback;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class PropertyChangeRegistryTest extends BaseDataBinderTest<BasicBindingBinding> {
 
     private int notificationCount = 0;
@@ -59,4 +62,129 @@ public class PropertyChangeRegistryTest extends BaseDataBinderTest<BasicBindingB
         propertyChangeRegistry.notifyChange(observableObj, expectedId);
         assertEquals(1, notificationCount);
     }
+
+    public void testFilteredCallback() {
+        PropertyChangeRegistry registry = new PropertyChangeRegistry();
+        RecordingCallback callback = new RecordingCallback();
+        registry.add(callback, new int[] {1, 3});
+        registry.notifyChange(null, 1);
+        registry.notifyChange(null, 2);
+        registry.notifyChange(null, 3);
+        assertEquals(ids(1, 3), callback.ids);
+    }
+
+    public void testAllPropertiesReachEveryCallback() {
+        PropertyChangeRegistry registry = new PropertyChangeRegistry();
+        RecordingCallback unfiltered = new RecordingCallback();
+        RecordingCallback filtered = new RecordingCallback();
+        RecordingCallback noIds = new RecordingCallback();
+        registry.add(unfiltered);
+        registry.add(filtered, new int[] {1});
+        // adding ids again only adds properties and BR._all is still notified once
+        registry.add(filtered, new int[] {2});
+        registry.add(noIds, new int[0]);
+        registry.notifyChange(null, BR._all);
+        assertEquals(ids(BR._all), unfiltered.ids);
+        assertEquals(ids(BR._all), filtered.ids);
+        assertEquals(ids(BR._all), noIds.ids);
+        registry.notifyChange(null, 2);
+        assertEquals(ids(BR._all, 2), unfiltered.ids);
+        assertEquals(ids(BR._all, 2), filtered.ids);
+        assertEquals(ids(BR._all), noIds.ids);
+    }
+
+    public void testCallbackAddedWithAndWithoutIds() {
+        for (boolean copyOnWrite : new boolean[] {false, true}) {
+            PropertyChangeRegistry registry = new PropertyChangeRegistry(copyOnWrite);
+            RecordingCallback allFirst = new RecordingCallback();
+            RecordingCallback idsFirst = new RecordingCallback();
+            registry.add(allFirst);
+            registry.add(allFirst, new int[] {1});
+            registry.add(idsFirst, new int[] {1});
+            registry.add(idsFirst);
+            registry.notifyChange(null, 1);
+            registry.notifyChange(null, 2);
+            registry.notifyChange(null, BR._all);
+            // every change is delivered once
+            assertEquals(ids(1, 2, BR._all), allFirst.ids);
+            assertEquals(ids(1, 2, BR._all), idsFirst.ids);
+            assertTrue(registry.contains(allFirst));
+            assertTrue(registry.contains(idsFirst));
+            registry.remove(allFirst);
+            registry.remove(idsFirst);
+            assertFalse(registry.contains(allFirst));
+            assertTrue(registry.isEmpty());
+        }
+    }
+
+    public void testRemoveFilteredCallback() {
+        PropertyChangeRegistry registry = new PropertyChangeRegistry();
+        RecordingCallback callback = new RecordingCallback();
+        RecordingCallback other = new RecordingCallback();
+        registry.add(callback, new int[] {1, 2});
+        registry.add(other, new int[] {2});
+        registry.remove(callback);
+        registry.notifyChange(null, 1);
+        registry.notifyChange(null, 2);
+        registry.notifyChange(null, BR._all);
+        assertTrue(callback.ids.isEmpty());
+        assertEquals(ids(2, BR._all), other.ids);
+        assertFalse(registry.isEmpty());
+        registry.remove(other);
+        assertTrue(registry.isEmpty());
+    }
+
+    public void testCopyFilteredCallbacks() {
+        PropertyChangeRegistry registry = new PropertyChangeRegistry();
+        assertTrue(registry.isEmpty());
+        RecordingCallback filtered = new RecordingCallback();
+        registry.add(filtered, new int[] {1, 2});
+        assertFalse(registry.isEmpty());
+        RecordingCallback unfiltered = new RecordingCallback();
+        registry.add(unfiltered);
+        List<OnPropertyChangedCallback> callbacks = registry.copyCallbacks();
+        assertEquals(2, callbacks.size());
+        assertTrue(callbacks.contains(filtered));
+        assertTrue(callbacks.contains(unfiltered));
+        registry.clear();
+        assertTrue(registry.isEmpty());
+        assertTrue(registry.copyCallbacks().isEmpty());
+    }
+
+    public void testCloneFilteredCallbacks() {
+        for (boolean copyOnWrite : new boolean[] {false, true}) {
+            PropertyChangeRegistry registry = new PropertyChangeRegistry(copyOnWrite);
+            RecordingCallback callback = new RecordingCallback();
+            registry.add(callback, new int[] {1});
+            PropertyChangeRegistry clone = registry.clone();
+            registry.remove(callback);
+            RecordingCallback added = new RecordingCallback();
+            clone.add(added, new int[] {1});
+            registry.notifyChange(null, 1);
+            assertTrue(callback.ids.isEmpty());
+            assertTrue(added.ids.isEmpty());
+            clone.notifyChange(null, 1);
+            assertEquals(ids(1), callback.ids);
+            assertEquals(ids(1), added.ids);
+            assertTrue(registry.isEmpty());
+            assertEquals(2, clone.copyCallbacks().size());
+        }
+    }
+
+    private static List<Integer> ids(int... ids) {
+        List<Integer> list = new ArrayList<>();
+        for (int id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static class RecordingCallback extends OnPropertyChangedCallback {
+        final List<Integer> ids = new ArrayList<>();
+
+        @Override
+        public void onPropertyChanged(Observable sender, int propertyId) {
+            ids.add(propertyId);
+        }
+    }
 }